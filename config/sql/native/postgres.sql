@@ -950,6 +950,243 @@ BEGIN
     END;
 END;
 $$;
+
+/*
+Incrementally maintained alternative to m_org_closure materialized view.
+It is used instead of the view when the repository is configured with orgClosureIncremental = true.
+The table is maintained by the triggers on m_ref_object_parent_org (only for ORG owners) and m_org,
+so no refresh is needed before org queries. The triggers exist only when the incremental closure
+is enabled by m_enable_org_closure_table (called by the first midPoint node starting on the database,
+or explicitly by the administrator).
+
+Paths column contains the number of different paths between the ancestor and the descendant
+(1 for the identity rows). This allows to remove the edge without recomputing the whole closure.
+This works only for acyclic hierarchy; cycles are not valid in midPoint anyway, and if they happen,
+the table can be rebuilt by m_rebuild_org_closure_table (e.g. when repairing org closure consistency).
+
+Identity rows (o => o) are kept for each org in m_org (unlike m_org_closure, which has them only
+for the orgs used in the hierarchy), so changes of non-org parent-org refs do not touch the table.
+*/
+CREATE TABLE m_org_closure_table (
+    ancestor_oid UUID NOT NULL,
+    descendant_oid UUID NOT NULL,
+    paths INTEGER NOT NULL,
+
+    PRIMARY KEY (ancestor_oid, descendant_oid)
+);
+
+CREATE INDEX m_org_closure_table_desc_asc_idx
+    ON m_org_closure_table (descendant_oid, ancestor_oid);
+
+-- Returns the org and all its ancestors, with the number of paths to them.
+CREATE OR REPLACE FUNCTION m_org_closure_table_ancestors(org_oid UUID)
+    RETURNS TABLE (node_oid UUID, node_paths INTEGER)
+    LANGUAGE sql
+    STABLE
+AS $$
+    SELECT org_oid, 1
+    UNION ALL
+    SELECT ancestor_oid, paths FROM m_org_closure_table
+        WHERE descendant_oid = org_oid AND ancestor_oid <> org_oid
+$$;
+
+-- Returns the org and all its descendants, with the number of paths to them.
+CREATE OR REPLACE FUNCTION m_org_closure_table_descendants(org_oid UUID)
+    RETURNS TABLE (node_oid UUID, node_paths INTEGER)
+    LANGUAGE sql
+    STABLE
+AS $$
+    SELECT org_oid, 1
+    UNION ALL
+    SELECT descendant_oid, paths FROM m_org_closure_table
+        WHERE ancestor_oid = org_oid AND descendant_oid <> org_oid
+$$;
+
+/*
+Touches the identity rows of all the orgs whose closure rows are going to be changed by adding
+or removing the edge parent => child. Concurrent changes of the same part of the hierarchy must
+touch at least one common org (the one connecting them), so one of them fails with a serialization
+error under repeatable read (and is retried by midPoint), or waits for the other one under read committed.
+Changes of unrelated parts of the hierarchy do not block each other.
+*/
+CREATE OR REPLACE FUNCTION m_org_closure_table_lock(parent UUID, child UUID)
+    RETURNS void
+    LANGUAGE plpgsql
+AS $$
+BEGIN
+    UPDATE m_org_closure_table t SET paths = t.paths
+        WHERE t.ancestor_oid = t.descendant_oid
+            AND t.ancestor_oid IN (
+                SELECT node_oid FROM m_org_closure_table_ancestors(parent)
+                UNION
+                SELECT node_oid FROM m_org_closure_table_descendants(child));
+END $$;
+
+-- Adds paths going through the new edge parent => child (parent and its ancestors to child and its descendants).
+CREATE OR REPLACE FUNCTION m_org_closure_table_add_edge(parent UUID, child UUID)
+    RETURNS void
+    LANGUAGE plpgsql
+AS $$
+BEGIN
+    PERFORM m_org_closure_table_lock(parent, child);
+
+    INSERT INTO m_org_closure_table (ancestor_oid, descendant_oid, paths)
+        SELECT a.node_oid, d.node_oid, a.node_paths * d.node_paths
+            FROM m_org_closure_table_ancestors(parent) a, m_org_closure_table_descendants(child) d
+            -- identity rows are not counted, this would happen only for cycles anyway
+            WHERE a.node_oid <> d.node_oid
+        ON CONFLICT (ancestor_oid, descendant_oid)
+            DO UPDATE SET paths = m_org_closure_table.paths + excluded.paths;
+END $$;
+
+-- Removes paths going through the removed edge parent => child, reverse of m_org_closure_table_add_edge.
+CREATE OR REPLACE FUNCTION m_org_closure_table_remove_edge(parent UUID, child UUID)
+    RETURNS void
+    LANGUAGE plpgsql
+AS $$
+BEGIN
+    PERFORM m_org_closure_table_lock(parent, child);
+
+    UPDATE m_org_closure_table t SET paths = t.paths - a.node_paths * d.node_paths
+        FROM m_org_closure_table_ancestors(parent) a, m_org_closure_table_descendants(child) d
+        WHERE a.node_oid <> d.node_oid
+            AND t.ancestor_oid = a.node_oid AND t.descendant_oid = d.node_oid;
+
+    DELETE FROM m_org_closure_table
+        WHERE paths <= 0 AND ancestor_oid <> descendant_oid
+            AND ancestor_oid IN (SELECT node_oid FROM m_org_closure_table_ancestors(parent))
+            AND descendant_oid IN (SELECT node_oid FROM m_org_closure_table_descendants(child));
+END $$;
+
+-- The trigger for m_ref_object_parent_org that maintains m_org_closure_table, called only for ORG owners.
+CREATE OR REPLACE FUNCTION m_org_closure_table_update()
+    RETURNS trigger
+    LANGUAGE plpgsql
+AS $$
+BEGIN
+    IF TG_OP = 'TRUNCATE' THEN
+        -- no parent-org refs, only the identity rows remain
+        DELETE FROM m_org_closure_table WHERE ancestor_oid <> descendant_oid;
+        RETURN NULL;
+    END IF;
+
+    IF TG_OP IN ('DELETE', 'UPDATE') AND OLD.ownerType = 'ORG' THEN
+        PERFORM m_org_closure_table_remove_edge(OLD.targetOid, OLD.ownerOid);
+    END IF;
+
+    IF TG_OP IN ('INSERT', 'UPDATE') AND NEW.ownerType = 'ORG' THEN
+        PERFORM m_org_closure_table_add_edge(NEW.targetOid, NEW.ownerOid);
+    END IF;
+
+    -- after trigger returns null
+    RETURN NULL;
+END $$;
+
+-- The trigger for m_org that maintains the identity rows in m_org_closure_table.
+CREATE OR REPLACE FUNCTION m_org_closure_table_org_update()
+    RETURNS trigger
+    LANGUAGE plpgsql
+AS $$
+BEGIN
+    IF TG_OP = 'INSERT' THEN
+        INSERT INTO m_org_closure_table VALUES (NEW.oid, NEW.oid, 1)
+            ON CONFLICT (ancestor_oid, descendant_oid) DO NOTHING;
+    ELSE
+        -- Rows for the org as a descendant were removed with its parent-org refs.
+        -- Rows for the org as an ancestor stay while its children refer to it, as in m_org_closure.
+        DELETE FROM m_org_closure_table WHERE ancestor_oid = OLD.oid AND descendant_oid = OLD.oid;
+    END IF;
+
+    -- after trigger returns null
+    RETURN NULL;
+END $$;
+
+-- Fills m_org_closure_table from scratch.
+CREATE OR REPLACE PROCEDURE m_rebuild_org_closure_table()
+    LANGUAGE plpgsql
+AS $$
+BEGIN
+    -- This also waits for (and blocks) concurrent changes of the org hierarchy.
+    LOCK TABLE m_org_closure_table IN EXCLUSIVE MODE;
+
+    DELETE FROM m_org_closure_table;
+    INSERT INTO m_org_closure_table (ancestor_oid, descendant_oid, paths)
+        SELECT oid, oid, 1 FROM m_org;
+    INSERT INTO m_org_closure_table (ancestor_oid, descendant_oid, paths)
+    WITH RECURSIVE org_h (
+        ancestor_oid,
+        descendant_oid,
+        path -- OIDs on the path, to avoid infinite recursion for cycles
+    ) AS (
+        SELECT targetOid, ownerOid, ARRAY[ownerOid, targetOid]
+            FROM m_ref_object_parent_org
+            WHERE ownerType = 'ORG' AND targetOid <> ownerOid
+        UNION ALL
+        -- each path is a separate row here, they are counted below
+        SELECT par.targetOid, chi.descendant_oid, chi.path || par.targetOid
+            FROM m_ref_object_parent_org par, org_h chi
+            WHERE par.ownerOid = chi.ancestor_oid AND par.ownerType = 'ORG'
+                AND NOT par.targetOid = ANY(chi.path)
+    )
+    SELECT ancestor_oid, descendant_oid, count(*) FROM org_h
+        GROUP BY ancestor_oid, descendant_oid;
+END $$;
+
+/*
+Enables (creating the triggers and building the table, if it was not enabled before) or disables
+(dropping the triggers and clearing the table) the incremental maintenance of m_org_closure_table.
+The state is database-wide, it is recorded in m_global_metadata as orgClosureTableEnabled = true/false.
+midPoint calls this on startup (based on orgClosureIncremental repository configuration) only if the state
+is not recorded yet, i.e. on the first start; later, it only checks that its configuration matches the state.
+To switch the state of an existing database, call this procedure explicitly (all nodes should be stopped),
+and change orgClosureIncremental configuration of all the nodes accordingly.
+When disabled, the triggers do not exist, so there is no overhead for the changes of parent-org refs.
+*/
+CREATE OR REPLACE PROCEDURE m_enable_org_closure_table(enable boolean)
+    LANGUAGE plpgsql
+AS $$
+DECLARE
+    enabled boolean;
+BEGIN
+    -- Serializes the nodes starting at the same time.
+    LOCK TABLE m_org_closure_table IN EXCLUSIVE MODE;
+
+    enabled := EXISTS (SELECT 1 FROM m_global_metadata WHERE name = 'orgClosureTableEnabled' AND value = 'true');
+    INSERT INTO m_global_metadata VALUES ('orgClosureTableEnabled', enable::text)
+        ON CONFLICT (name) DO UPDATE SET value = EXCLUDED.value;
+    IF enable AND NOT enabled THEN
+        -- Creating the triggers also blocks concurrent changes of the refs and orgs until commit.
+        CREATE TRIGGER m_ref_object_parent_org_closure_ins_tr
+            AFTER INSERT ON m_ref_object_parent_org
+            FOR EACH ROW WHEN (NEW.ownerType = 'ORG')
+            EXECUTE FUNCTION m_org_closure_table_update();
+        CREATE TRIGGER m_ref_object_parent_org_closure_upd_tr
+            AFTER UPDATE ON m_ref_object_parent_org
+            FOR EACH ROW WHEN ((OLD.ownerType = 'ORG' OR NEW.ownerType = 'ORG')
+                AND (OLD.ownerOid, OLD.ownerType, OLD.targetOid)
+                    IS DISTINCT FROM (NEW.ownerOid, NEW.ownerType, NEW.targetOid))
+            EXECUTE FUNCTION m_org_closure_table_update();
+        CREATE TRIGGER m_ref_object_parent_org_closure_del_tr
+            AFTER DELETE ON m_ref_object_parent_org
+            FOR EACH ROW WHEN (OLD.ownerType = 'ORG')
+            EXECUTE FUNCTION m_org_closure_table_update();
+        CREATE TRIGGER m_ref_object_parent_org_closure_trunc_tr
+            AFTER TRUNCATE ON m_ref_object_parent_org
+            FOR EACH STATEMENT EXECUTE FUNCTION m_org_closure_table_update();
+        CREATE TRIGGER m_org_closure_identity_tr
+            AFTER INSERT OR DELETE ON m_org
+            FOR EACH ROW EXECUTE FUNCTION m_org_closure_table_org_update();
+        CALL m_rebuild_org_closure_table();
+    ELSIF NOT enable AND enabled THEN
+        DROP TRIGGER IF EXISTS m_ref_object_parent_org_closure_ins_tr ON m_ref_object_parent_org;
+        DROP TRIGGER IF EXISTS m_ref_object_parent_org_closure_upd_tr ON m_ref_object_parent_org;
+        DROP TRIGGER IF EXISTS m_ref_object_parent_org_closure_del_tr ON m_ref_object_parent_org;
+        DROP TRIGGER IF EXISTS m_ref_object_parent_org_closure_trunc_tr ON m_ref_object_parent_org;
+        DROP TRIGGER IF EXISTS m_org_closure_identity_tr ON m_org;
+        DELETE FROM m_org_closure_table;
+    END IF;
+END $$;
+
 -- endregion
 
 -- region OTHER object tables
@@ -2601,4 +2838,4 @@ END $$;
 -- This is important to avoid applying any change more than once.
 -- Also update SqaleUtils.CURRENT_SCHEMA_CHANGE_NUMBER
 -- repo/repo-sqale/src/main/java/com/evolveum/midpoint/repo/sqale/SqaleUtils.java
-call apply_change(45, $$ SELECT 1 $$, true);
+call apply_change(46, $$ SELECT 1 $$, true);
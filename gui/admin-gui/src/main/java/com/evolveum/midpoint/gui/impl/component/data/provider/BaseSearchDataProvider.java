@@ -109,6 +109,12 @@ public abstract class BaseSearchDataProvider<C extends Serializable, T extends S
         this.objectCollectionView = objectCollectionView;
     }
 
+    /** Large lists can use (repository-dependent) estimate instead of the exact count, see the collection view. */
+    public boolean isUseApproximateCounting() {
+        CompiledObjectCollectionView guiObjectListViewType = getCompiledObjectCollectionView();
+        return guiObjectListViewType != null && Boolean.TRUE.equals(guiObjectListViewType.isApproximateCounting());
+    }
+
     protected void setupUserFriendlyMessage(OperationResult result, Throwable ex) {
         if (ex instanceof CommonException) {
             result.setUserFriendlyMessage(((CommonException) ex).getUserFriendlyMessage());
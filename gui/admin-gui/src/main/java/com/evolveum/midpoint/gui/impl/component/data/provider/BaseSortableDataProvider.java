@@ -10,6 +10,9 @@ import static com.evolveum.midpoint.gui.api.util.WebComponentUtil.safeLongToInte
 
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 
 import org.apache.commons.lang3.Validate;
 import org.apache.wicket.Component;
@@ -37,6 +40,8 @@ import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.task.api.TaskManager;
 import com.evolveum.midpoint.util.logging.Trace;
 import com.evolveum.midpoint.util.logging.TraceManager;
+import com.evolveum.midpoint.web.application.AsyncWebProcess;
+import com.evolveum.midpoint.web.application.AsyncWebProcessManager;
 import com.evolveum.midpoint.web.component.data.TablePanel;
 import com.evolveum.midpoint.web.security.MidPointApplication;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.DistinctSearchOptionType;
@@ -50,6 +55,12 @@ public abstract class BaseSortableDataProvider<T extends Serializable> extends S
     private static final String DOT_CLASS = BaseSortableDataProvider.class.getName() + ".";
     private static final String OPERATION_GET_EXPORT_SIZE_LIMIT = DOT_CLASS + "getDefaultExportSizeLimit";
 
+    /**
+     * After this amount of time cached size will be removed from cache and replaced by new value
+     * (time in seconds).
+     */
+    private static final int CACHE_CLEANUP_THRESHOLD = 60;
+
     private final Component component;
     private final Map<Serializable, CachedSize> cache = new HashMap<>();
     private final boolean useCache;
@@ -60,6 +71,11 @@ public abstract class BaseSortableDataProvider<T extends Serializable> extends S
     private boolean exportSize = false;
     private long exportLimit = -1;
 
+    /** Background exact count started after the size was only estimated, see {@link #startExactCount}. */
+    private String exactCountProcessId;
+    private ObjectQuery exactCountQuery;
+    private CachedSize exactCount;
+
     public BaseSortableDataProvider(Component component) {
         this(component, false, true);
     }
@@ -239,6 +255,7 @@ public abstract class BaseSortableDataProvider<T extends Serializable> extends S
 
     public void clearCache() {
         cache.clear();
+        cancelExactCount();
         getAvailableData().clear();
     }
 
@@ -253,6 +270,12 @@ public abstract class BaseSortableDataProvider<T extends Serializable> extends S
     @Override
     public long size() {
         LOGGER.trace("begin::size()");
+        Long exactSize = getExactCount();
+        if (exactSize != null) {
+            LOGGER.trace("end::size(): {} (exact count)", exactSize);
+            return exportSize && exportLimit >= 0 && exportLimit < exactSize ? exportLimit : exactSize;
+        }
+
         if (!useCache) {
             int internalSize = internalSize();
             return exportSize && exportLimit >= 0 && exportLimit < internalSize ? exportLimit : internalSize;
@@ -262,12 +285,7 @@ public abstract class BaseSortableDataProvider<T extends Serializable> extends S
         CachedSize cachedSize = getCachedSize(cache);
         if (cachedSize != null) {
             long timestamp = cachedSize.getTimestamp();
-            /*
-              After this amount of time cached size will be removed from cache and replaced by new value
-              (time in seconds).
-             */
-            int cacheCleanupThreshold = 60;
-            if (System.currentTimeMillis() - timestamp > cacheCleanupThreshold * 1000) {
+            if (System.currentTimeMillis() - timestamp > CACHE_CLEANUP_THRESHOLD * 1000) {
                 //recreate
                 size = internalSize();
                 addCachedSize(cache, new CachedSize(size, System.currentTimeMillis()));
@@ -287,6 +305,89 @@ public abstract class BaseSortableDataProvider<T extends Serializable> extends S
 
     protected abstract int internalSize();
 
+    /**
+     * Starts the exact count in a background thread, used when {@link #internalSize()} returned only an estimate
+     * (approximate counting). When the count is finished, it is used instead of the estimate for the same query,
+     * see {@link #applyExactCount()}. The count is not restarted while it is running for the same query.
+     *
+     * The callable runs outside the request, it must use only the services and the values prepared beforehand,
+     * not the components or models.
+     */
+    protected void startExactCount(ObjectQuery query, Callable<Integer> count) {
+        if (exactCountProcessId != null && Objects.equals(query, exactCountQuery)) {
+            return;
+        }
+        cancelExactCount();
+
+        AsyncWebProcessManager manager = MidPointApplication.get().getAsyncWebProcessManager();
+        AsyncWebProcess<?> process = manager.createProcess();
+        manager.submit(process.getId(), count);
+        exactCountProcessId = process.getId();
+        exactCountQuery = query;
+    }
+
+    /** Returns true if the exact count is running (or finished but not yet applied). */
+    public boolean isExactCountPending() {
+        return exactCountProcessId != null;
+    }
+
+    /**
+     * Takes the result of the finished exact count, if available.
+     * Returns true if the size has changed, so the components showing it (e.g. table footer) should be refreshed.
+     * If the count failed, the estimate is used until the next count.
+     */
+    public boolean applyExactCount() {
+        if (exactCountProcessId == null) {
+            return false;
+        }
+        AsyncWebProcessManager manager = MidPointApplication.get().getAsyncWebProcessManager();
+        AsyncWebProcess<?> process = manager.getProcess(exactCountProcessId);
+        if (process != null && !process.isDone()) {
+            return false;
+        }
+
+        exactCountProcessId = null;
+        if (process == null) {
+            return false; // e.g. the session was unbound
+        }
+        manager.removeProcess(process.getId());
+        try {
+            Integer count = (Integer) process.getFuture().get();
+            if (count != null) {
+                exactCount = new CachedSize(count, System.currentTimeMillis());
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | CancellationException e) {
+            LOGGER.debug("Exact count failed, the estimate is used instead", e);
+        }
+        return false;
+    }
+
+    /** Returns the finished exact count, if it is still valid for the current query. */
+    private Long getExactCount() {
+        applyExactCount();
+        if (exactCount == null) {
+            return null;
+        }
+        if (System.currentTimeMillis() - exactCount.getTimestamp() > CACHE_CLEANUP_THRESHOLD * 1000
+                || !Objects.equals(exactCountQuery, getQuery())) {
+            exactCount = null;
+            return null;
+        }
+        return exactCount.getSize();
+    }
+
+    private void cancelExactCount() {
+        if (exactCountProcessId != null) {
+            MidPointApplication.get().getAsyncWebProcessManager().removeProcess(exactCountProcessId);
+            exactCountProcessId = null;
+        }
+        exactCountQuery = null;
+        exactCount = null;
+    }
+
     protected CachedSize getCachedSize(Map<Serializable, CachedSize> cache) {
         return cache.get(query);
     }
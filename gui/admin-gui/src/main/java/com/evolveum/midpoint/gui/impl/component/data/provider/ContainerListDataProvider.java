@@ -9,6 +9,7 @@ package com.evolveum.midpoint.gui.impl.component.data.provider;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 import com.evolveum.midpoint.gui.api.component.data.provider.ISelectableDataProvider;
 
@@ -23,6 +24,8 @@ import com.evolveum.midpoint.gui.api.prism.wrapper.PrismContainerValueWrapper;
 import com.evolveum.midpoint.gui.api.util.WebComponentUtil;
 import com.evolveum.midpoint.gui.api.util.WebModelServiceUtils;
 import com.evolveum.midpoint.gui.impl.component.search.Search;
+import com.evolveum.midpoint.model.api.ModelAuditService;
+import com.evolveum.midpoint.model.api.ModelService;
 import com.evolveum.midpoint.prism.Containerable;
 import com.evolveum.midpoint.prism.query.ObjectPaging;
 import com.evolveum.midpoint.prism.query.ObjectQuery;
@@ -36,6 +39,7 @@ import com.evolveum.midpoint.util.logging.Trace;
 import com.evolveum.midpoint.util.logging.TraceManager;
 import com.evolveum.midpoint.web.component.prism.ValueStatus;
 import com.evolveum.midpoint.web.page.error.PageError;
+import com.evolveum.midpoint.xml.ns._public.common.audit_3.AuditEventRecordType;
 
 /**
  * Created by honchar
@@ -123,7 +127,15 @@ public class ContainerListDataProvider<C extends Containerable> extends BaseSear
         int count = 0;
         OperationResult result = new OperationResult(OPERATION_COUNT_CONTAINERS);
         try {
-            count = WebModelServiceUtils.countContainers(getType(), getQuery(), options, getPageBase());
+            ObjectQuery query = getQuery();
+            if (isUseApproximateCounting()) {
+                Collection<SelectorOptions<GetOperationOptions>> approximateOptions = GetOperationOptions.merge(
+                        options, SelectorOptions.createCollection(GetOperationOptions.createApproximateCount()));
+                count = WebModelServiceUtils.countContainers(getType(), query, approximateOptions, getPageBase());
+                startExactCount(query, createExactCount(getType(), query));
+            } else {
+                count = WebModelServiceUtils.countContainers(getType(), query, options, getPageBase());
+            }
         } catch (Exception ex) {
             result.recordFatalError(getPageBase().createStringResource("ContainerListDataProvider.message.listContainers.fatalError").getString(), ex);
             LoggingUtils.logUnexpectedException(LOGGER, "Couldn't count containers", ex);
@@ -141,6 +153,17 @@ public class ContainerListDataProvider<C extends Containerable> extends BaseSear
         return count;
     }
 
+    /** Exact count for {@link #startExactCount}, audit records are counted by the audit service. */
+    private Callable<Integer> createExactCount(Class<C> type, ObjectQuery query) {
+        Task task = getPageBase().createSimpleTask(OPERATION_COUNT_CONTAINERS);
+        if (AuditEventRecordType.class.equals(type)) {
+            ModelAuditService auditService = getPageBase().getModelAuditService();
+            return () -> auditService.countObjects(query, options, task, task.getResult());
+        }
+        ModelService modelService = getModelService();
+        return () -> modelService.countContainers(type, query, options, task, task.getResult());
+    }
+
     @Override
     public void detach() {
         super.detach();
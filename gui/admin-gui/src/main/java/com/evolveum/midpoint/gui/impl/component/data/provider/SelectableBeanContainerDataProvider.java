@@ -12,6 +12,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 
 import com.evolveum.midpoint.gui.api.util.WebComponentUtil;
 import com.evolveum.midpoint.gui.api.util.WebModelServiceUtils;
@@ -21,6 +22,7 @@ import org.apache.wicket.model.IModel;
 import org.jetbrains.annotations.NotNull;
 
 import com.evolveum.midpoint.gui.impl.component.search.Search;
+import com.evolveum.midpoint.model.api.ModelService;
 import com.evolveum.midpoint.prism.Containerable;
 import com.evolveum.midpoint.prism.query.ObjectQuery;
 import com.evolveum.midpoint.schema.GetOperationOptions;
@@ -58,6 +60,13 @@ public class SelectableBeanContainerDataProvider<C extends Containerable> extend
         return getModelService().countContainers(type, getQuery(), currentOptions, task, result);
     }
 
+    @Override
+    protected Callable<Integer> createExactCount(Class<C> type, ObjectQuery query,
+            Collection<SelectorOptions<GetOperationOptions>> options, Task task) {
+        ModelService modelService = getModelService();
+        return () -> modelService.countContainers(type, query, options, task, task.getResult());
+    }
+
     @Override
     protected CachedSize getCachedSize(Map<Serializable, CachedSize> cache) {
         return cache.get(new TypedCacheKey(getQuery(), getType()));
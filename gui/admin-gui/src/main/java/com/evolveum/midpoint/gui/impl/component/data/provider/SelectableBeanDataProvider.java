@@ -9,6 +9,7 @@ package com.evolveum.midpoint.gui.impl.component.data.provider;
 
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.Callable;
 import java.util.stream.Collectors;
 
 import com.evolveum.midpoint.gui.api.component.data.provider.ISelectableDataProvider;
@@ -235,9 +236,18 @@ public abstract class SelectableBeanDataProvider<T extends Serializable> extends
         Task task = getPageBase().createSimpleTask(OPERATION_COUNT_OBJECTS);
         OperationResult result = task.getResult();
         try {
-            Collection<SelectorOptions<GetOperationOptions>> currentOptions = GetOperationOptions.merge( getSearchOptions(), null);
-            Integer counted = countObjects(getType(), getQuery(), currentOptions, task, result);
+            Collection<SelectorOptions<GetOperationOptions>> currentOptions = GetOperationOptions.merge(getSearchOptions(),
+                    isUseApproximateCounting() ? SelectorOptions.createCollection(GetOperationOptions.createApproximateCount()) : null);
+            ObjectQuery query = getQuery();
+            Integer counted = countObjects(getType(), query, currentOptions, task, result);
             count = defaultIfNull(counted, defaultCountIfNull);
+            if (isUseApproximateCounting()) {
+                Task exactCountTask = getPageBase().createSimpleTask(OPERATION_COUNT_OBJECTS);
+                Callable<Integer> exactCount = createExactCount(getType(), query, getSearchOptions(), exactCountTask);
+                if (exactCount != null) {
+                    startExactCount(query, exactCount);
+                }
+            }
         } catch (Exception ex) {
             setupUserFriendlyMessage(result, ex);
             result.recordFatalError(getPageBase().createStringResource("ObjectDataProvider.message.countObjects.fatalError").getString(), ex);
@@ -261,6 +271,17 @@ public abstract class SelectableBeanDataProvider<T extends Serializable> extends
             Task task, OperationResult result)
             throws CommonException;
 
+    /**
+     * Creates the exact count executed in background when approximate counting is used, see {@link #startExactCount}.
+     * Returns null if there is no such count, which is the default; subclasses overriding
+     * {@link #countObjects} should override this method too, if they support the approximate counting.
+     * The task is created for the background count, its result is not shown.
+     */
+    protected Callable<Integer> createExactCount(Class<T> type, ObjectQuery query,
+            Collection<SelectorOptions<GetOperationOptions>> options, Task task) {
+        return null;
+    }
+
     public boolean isUseObjectCounting() {
         CompiledObjectCollectionView guiObjectListViewType = getCompiledObjectCollectionView();
         if (guiObjectListViewType != null && guiObjectListViewType.isDisableCounting() != null) {
@@ -269,7 +290,6 @@ public abstract class SelectableBeanDataProvider<T extends Serializable> extends
         return true;
     }
 
-
     public void setOptions(Collection<SelectorOptions<GetOperationOptions>> options) {
         this.options = options;
     }
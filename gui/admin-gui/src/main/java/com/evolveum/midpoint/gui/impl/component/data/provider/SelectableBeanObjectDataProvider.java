@@ -10,6 +10,7 @@ import java.io.Serial;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.function.Consumer;
 
 import org.apache.commons.collections4.CollectionUtils;
@@ -21,6 +22,7 @@ import com.evolveum.midpoint.gui.api.page.PageBase;
 import com.evolveum.midpoint.gui.api.util.WebModelServiceUtils;
 import com.evolveum.midpoint.gui.impl.component.search.Search;
 import com.evolveum.midpoint.gui.impl.model.SelectableObjectModel;
+import com.evolveum.midpoint.model.api.ModelService;
 import com.evolveum.midpoint.prism.PrismObject;
 import com.evolveum.midpoint.prism.query.ObjectQuery;
 import com.evolveum.midpoint.schema.GetOperationOptions;
@@ -93,6 +95,13 @@ public class SelectableBeanObjectDataProvider<O extends ObjectType> extends Sele
                 type, getQuery(), currentOptions, task, result);
     }
 
+    @Override
+    protected Callable<Integer> createExactCount(Class<O> type, ObjectQuery query,
+            Collection<SelectorOptions<GetOperationOptions>> options, Task task) {
+        ModelService modelService = getModelService();
+        return () -> modelService.countObjects(type, query, options, task, task.getResult());
+    }
+
     protected boolean isMemberPanel() {
         return isMemberPanel;
     }
@@ -7,11 +7,14 @@
 
 package com.evolveum.midpoint.web.component.data;
 
+import java.time.Duration;
 import java.util.List;
 
 import com.evolveum.midpoint.gui.impl.component.data.provider.SelectableBeanContainerDataProvider;
 import org.apache.wicket.Component;
+import org.apache.wicket.ajax.AbstractAjaxTimerBehavior;
 import org.apache.wicket.ajax.AjaxRequestTarget;
+import org.apache.wicket.behavior.Behavior;
 import org.apache.wicket.behavior.AttributeAppender;
 import org.apache.wicket.extensions.markup.html.repeater.data.table.DataTable;
 import org.apache.wicket.extensions.markup.html.repeater.data.table.IColumn;
@@ -27,6 +30,7 @@ import org.apache.wicket.model.IModel;
 
 import com.evolveum.midpoint.gui.api.component.BasePanel;
 import com.evolveum.midpoint.gui.api.util.WebComponentUtil;
+import com.evolveum.midpoint.gui.impl.component.data.provider.BaseSortableDataProvider;
 import com.evolveum.midpoint.prism.query.ObjectPaging;
 import com.evolveum.midpoint.web.component.data.paging.NavigatorPanel;
 import com.evolveum.midpoint.web.component.form.MidpointForm;
@@ -65,6 +69,9 @@ public class BoxedTablePanel<T> extends BasePanel<T> implements Table {
     //interval in seconds
     private static final int DEFAULT_REFRESH_INTERVAL = 60;
 
+    //interval in seconds
+    private static final int EXACT_COUNT_CHECK_INTERVAL = 2;
+
     public BoxedTablePanel(String id, ISortableDataProvider provider, List<IColumn<T, String>> columns) {
         this(id, provider, columns, null);
     }
@@ -144,6 +151,28 @@ public class BoxedTablePanel<T> extends BasePanel<T> implements Table {
         WebMarkupContainer footer = createFooter(ID_FOOTER);
         footer.add(new VisibleBehaviour(() -> !hideFooterIfSinglePage() || provider.size() > pageSize));
         add(footer);
+
+        if (provider instanceof BaseSortableDataProvider<?> sortableProvider) {
+            add(createExactCountBehavior(sortableProvider));
+        }
+    }
+
+    /** Refreshes the footer (count and paging) when the exact count replacing the estimated one is finished. */
+    private Behavior createExactCountBehavior(BaseSortableDataProvider<?> provider) {
+        return new AbstractAjaxTimerBehavior(Duration.ofSeconds(EXACT_COUNT_CHECK_INTERVAL)) {
+
+            @Override
+            public boolean isEnabled(Component component) {
+                return provider.isExactCountPending();
+            }
+
+            @Override
+            protected void onTimer(AjaxRequestTarget target) {
+                if (provider.applyExactCount()) {
+                    target.add(getFooter());
+                }
+            }
+        };
     }
 
     //used only for debug pages, to refresh search properly when type is changed.
@@ -13,6 +13,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.stream.Collectors;
 import javax.xml.namespace.QName;
 
@@ -50,6 +51,7 @@ import com.evolveum.midpoint.gui.impl.component.icon.CompositedIconBuilder;
 import com.evolveum.midpoint.gui.impl.component.icon.IconCssStyle;
 import com.evolveum.midpoint.gui.impl.component.search.SearchContext;
 import com.evolveum.midpoint.gui.impl.util.IconAndStylesUtil;
+import com.evolveum.midpoint.model.api.ModelAuditService;
 import com.evolveum.midpoint.prism.path.ItemPath;
 import com.evolveum.midpoint.prism.query.ObjectOrdering;
 import com.evolveum.midpoint.prism.query.ObjectQuery;
@@ -143,6 +145,13 @@ public class AuditLogViewerPanel extends ContainerableListPanel<AuditEventRecord
                 return getPageBase().getModelAuditService().countObjects(query, currentOptions, task, result);
             }
 
+            @Override
+            protected Callable<Integer> createExactCount(Class<AuditEventRecordType> type, ObjectQuery query,
+                    Collection<SelectorOptions<GetOperationOptions>> options, Task task) {
+                ModelAuditService auditService = getPageBase().getModelAuditService();
+                return () -> auditService.countObjects(query, options, task, task.getResult());
+            }
+
             @Override
             protected List<AuditEventRecordType> searchObjects(Class<AuditEventRecordType> type, ObjectQuery query,
                     Collection<SelectorOptions<GetOperationOptions>> options, Task task, OperationResult result)
@@ -645,6 +645,7 @@ public abstract class AbstractObjectDummyConnector
                     // Continue, do not break. We still want to know how much objects match in total.
                     continue;
                 }
+                resource.checkSearchBreak(returnedObjects);
                 returnedObjects++;
                 // TODO shouldn't we stop if the handler returns false?
                 handleConnectorObject(object, co, handler, options, attributesToGet, recorder);
@@ -145,6 +145,9 @@ public class DummyResource implements DebugDumpable {
     private BreakMode modifyBreakMode = BreakMode.NONE;
     private BreakMode deleteBreakMode = BreakMode.NONE;
 
+    /** If set, the search fails with a (simulated) network error after returning this number of objects. */
+    private Integer searchBreakAfterObjects;
+
     private boolean blockOperations;
 
     /** simulates volatile behavior (on create) */
@@ -301,6 +304,18 @@ public class DummyResource implements DebugDumpable {
 
     public void resetBreakMode() {
         setBreakMode(BreakMode.NONE);
+        searchBreakAfterObjects = null;
+    }
+
+    public void setSearchBreakAfterObjects(Integer searchBreakAfterObjects) {
+        this.searchBreakAfterObjects = searchBreakAfterObjects;
+    }
+
+    /** Called by the connector before returning the next object of a search. */
+    public void checkSearchBreak(int objectsReturned) throws ConnectException {
+        if (searchBreakAfterObjects != null && objectsReturned >= searchBreakAfterObjects) {
+            throw new ConnectException("Network error after " + objectsReturned + " objects (simulated error)");
+        }
     }
 
     public void setBlockOperations(boolean blockOperations) {
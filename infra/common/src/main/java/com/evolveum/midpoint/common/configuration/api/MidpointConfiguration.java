@@ -47,6 +47,7 @@ public interface MidpointConfiguration {
     String WEB_APP_CONFIGURATION = "midpoint.webApplication";
     String WORKFLOW_CONFIGURATION = "midpoint.workflow";
     String INTERNALS_CONFIGURATION = "midpoint.internals";
+    String EXPRESSIONS_CONFIGURATION = "midpoint.expressions";
 
     String ADMINISTRATOR_INITIAL_PASSWORD = "midpoint.administrator.initialPassword";
 
@@ -208,6 +208,14 @@ public class GetOperationOptions extends AbstractOptions implements Serializable
      */
     private Boolean attachDiagData;
 
+    /**
+     * Count operations may return an estimate instead of the exact number, if the exact counting would be expensive.
+     * Useful e.g. for GUI paging of very large tables. Not all providers support this option; the others return
+     * the exact count.
+     */
+    @Experimental
+    private Boolean approximateCount;
+
     /**
      * TODO, currently used only in model-impl SchemaTransformer, so it seems.
      */
@@ -915,6 +923,39 @@ public class GetOperationOptions extends AbstractOptions implements Serializable
         return opts;
     }
 
+    public Boolean getApproximateCount() {
+        return approximateCount;
+    }
+
+    public void setApproximateCount(Boolean value) {
+        this.approximateCount = value;
+    }
+
+    public GetOperationOptions approximateCount(Boolean value) {
+        this.approximateCount = value;
+        return this;
+    }
+
+    public static boolean isApproximateCount(GetOperationOptions options) {
+        if (options == null) {
+            return false;
+        }
+        if (options.approximateCount == null) {
+            return false;
+        }
+        return options.approximateCount;
+    }
+
+    /**
+     * Count operations may return an estimate instead of the exact number.
+     */
+    @Experimental
+    public static GetOperationOptions createApproximateCount() {
+        GetOperationOptions opts = new GetOperationOptions();
+        opts.setApproximateCount(true);
+        return opts;
+    }
+
     public DefinitionProcessingOption getDefinitionProcessing() {
         return definitionProcessing;
     }
@@ -1083,6 +1124,7 @@ public class GetOperationOptions extends AbstractOptions implements Serializable
                 Objects.equals(forceRetry, that.forceRetry) &&
                 Objects.equals(distinct, that.distinct) &&
                 Objects.equals(attachDiagData, that.attachDiagData) &&
+                Objects.equals(approximateCount, that.approximateCount) &&
                 Objects.equals(definitionProcessing, that.definitionProcessing) &&
                 Objects.equals(iterationMethod, that.iterationMethod) &&
                 Objects.equals(executionPhase, that.executionPhase) &&
@@ -1094,8 +1136,8 @@ public class GetOperationOptions extends AbstractOptions implements Serializable
     public int hashCode() {
         return Objects
                 .hash(retrieve, resolve, resolveNames, noFetch, raw, tolerateRawData, doNotDiscovery,
-                        allowNotFound, readOnly, staleness, distinct, definitionProcessing, attachDiagData, executionPhase,
-                        shadowClassificationMode);
+                        allowNotFound, readOnly, staleness, distinct, definitionProcessing, attachDiagData, approximateCount,
+                        executionPhase, shadowClassificationMode);
     }
 
     @SuppressWarnings("MethodDoesntCallSuperMethod")
@@ -1119,6 +1161,7 @@ public class GetOperationOptions extends AbstractOptions implements Serializable
         clone.forceRetry = this.forceRetry;
         clone.distinct = this.distinct;
         clone.attachDiagData = this.attachDiagData;
+        clone.approximateCount = this.approximateCount;
         clone.definitionProcessing = this.definitionProcessing;
         clone.iterationMethod = this.iterationMethod;
         clone.executionPhase = this.executionPhase;
@@ -1155,6 +1198,7 @@ public class GetOperationOptions extends AbstractOptions implements Serializable
         appendFlag(sb, "forceRetry", forceRetry);
         appendVal(sb, "distinct", distinct);
         appendFlag(sb, "attachDiagData", attachDiagData);
+        appendFlag(sb, "approximateCount", approximateCount);
         appendVal(sb, "definitionProcessing", definitionProcessing);
         appendVal(sb, "iterationMethod", iterationMethod);
         appendFlag(sb, "executionPhase", executionPhase);
@@ -1320,6 +1364,9 @@ public class GetOperationOptions extends AbstractOptions implements Serializable
         if (increment.attachDiagData != null) {
             this.attachDiagData = increment.attachDiagData;
         }
+        if (increment.approximateCount != null) {
+            this.approximateCount = increment.approximateCount;
+        }
         if (increment.definitionProcessing != null) {
             this.definitionProcessing = increment.definitionProcessing;
         }
@@ -68,6 +68,8 @@ public interface GetOperationOptionsBuilder {
     GetOperationOptionsBuilder distinct(Boolean value);
     GetOperationOptionsBuilder attachDiagData();
     GetOperationOptionsBuilder attachDiagData(Boolean value);
+    GetOperationOptionsBuilder approximateCount();
+    GetOperationOptionsBuilder approximateCount(Boolean value);
     GetOperationOptionsBuilder definitionProcessing(DefinitionProcessingOption value);
     GetOperationOptionsBuilder definitionUpdate(DefinitionUpdateOption value);
     GetOperationOptionsBuilder iterationMethod(IterationMethodType value);
@@ -234,6 +234,16 @@ public class GetOperationOptionsBuilderImpl
         return forPaths(opts -> opts.setAttachDiagData(value));
     }
 
+    @Override
+    public GetOperationOptionsBuilder approximateCount() {
+        return approximateCount(true);
+    }
+
+    @Override
+    public GetOperationOptionsBuilder approximateCount(Boolean value) {
+        return forPaths(opts -> opts.setApproximateCount(value));
+    }
+
     @Override
     public GetOperationOptionsBuilder definitionProcessing(DefinitionProcessingOption value) {
         return forPaths(opts -> opts.setDefinitionProcessing(value));
@@ -45,6 +45,12 @@ public enum InternalCounters {
 
     SHADOW_FETCH_OPERATION_COUNT("shadowFetchOperationCount", "shadow fetch operation count", InternalOperationClasses.SHADOW_FETCH_OPERATIONS),
 
+    /** Repository queries looking up shadows for a batch of objects found on a resource. */
+    SHADOW_BATCH_LOOKUP_COUNT("shadowBatchLookupCount", "shadow batch lookup count", InternalOperationClasses.REPOSITORY_OPERATIONS),
+
+    /** Repository queries avoided by looking up shadows in batches (shadows found by batch lookups minus the lookups). */
+    SHADOW_LOOKUP_SAVED_COUNT("shadowLookupSavedCount", "shadow lookup saved count", InternalOperationClasses.REPOSITORY_OPERATIONS),
+
     SHADOW_CHANGE_OPERATION_COUNT("shadowChangeOperationCount", "shadow change operation count", null),
 
     /**
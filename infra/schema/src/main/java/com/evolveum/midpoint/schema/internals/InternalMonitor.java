@@ -60,18 +60,23 @@ public class InternalMonitor implements PrismMonitor, DebugDumpable {
     }
 
     public static void recordCount(InternalCounters counter) {
-        long count = recordCountInternal(counter);
+        recordCount(counter, 1);
+    }
+
+    /** Records more occurrences at once. */
+    public static void recordCount(InternalCounters counter, long increment) {
+        long count = recordCountInternal(counter, increment);
         if (isTrace(counter)) {
             traceOperation(counter, counter.getOperationClass(), count);
         }
     }
 
-    private static synchronized long recordCountInternal(InternalCounters counter) {
+    private static synchronized long recordCountInternal(InternalCounters counter, long increment) {
         Long count = COUNTER_MAP.get(counter);
         if (count == null) {
             count = 0L;
         }
-        count++;
+        count += increment;
         COUNTER_MAP.put(counter, count);
         return count;
     }
@@ -37,6 +37,10 @@ public class ConnIdOperation {
     private long lastSuspendTimestamp;
     private long lastResumeTimestamp;
     private long netRunningTime;
+    /** For buffered searches: time spent by midPoint waiting for the objects from the connector (in millis). */
+    private Long bufferWaitTime;
+    /** For buffered searches: total time spent converting the objects from ConnId to UCF (in millis). */
+    private Long conversionTime;
     private OperationResultStatus status;
     private String message;
 
@@ -148,6 +152,22 @@ public class ConnIdOperation {
         return netRunningTime;
     }
 
+    public Long getBufferWaitTime() {
+        return bufferWaitTime;
+    }
+
+    public void setBufferWaitTime(Long bufferWaitTime) {
+        this.bufferWaitTime = bufferWaitTime;
+    }
+
+    public Long getConversionTime() {
+        return conversionTime;
+    }
+
+    public void setConversionTime(Long conversionTime) {
+        this.conversionTime = conversionTime;
+    }
+
     public boolean wasSuspended() {
         return lastSuspendTimestamp != 0;
     }
@@ -189,7 +209,9 @@ public class ConnIdOperation {
                 // TODO size
                 .startTimestamp(XmlTypeConverter.createXMLGregorianCalendar(startTimestamp))
                 .endTimestamp(XmlTypeConverter.createXMLGregorianCalendar(endTimestamp))
-                .duration((double) getNetRunningTime()); // TODO
+                .duration((double) getNetRunningTime()) // TODO
+                .bufferWaitTime(bufferWaitTime != null ? bufferWaitTime.doubleValue() : null)
+                .conversionTime(conversionTime != null ? conversionTime.doubleValue() : null);
     }
 
     public boolean isNotFatalError() {
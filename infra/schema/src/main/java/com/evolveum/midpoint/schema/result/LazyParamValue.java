@@ -0,0 +1,77 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.schema.result;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.evolveum.midpoint.prism.query.ObjectQuery;
+
+/**
+ * Single-valued parameter (or context item, or return value) of {@link OperationResult} that is converted to string
+ * only when someone looks at it - e.g. when the result is serialized, traced or dumped.
+ *
+ * Most operation results are never looked at, so we avoid the costly `toString()` of queries in the common case.
+ * The drawback is that the value is rendered as it is at that time, not when it was recorded; hence this is used
+ * only when explicitly requested by {@link OperationResult#addLazyParam(String, ObjectQuery)}, for queries
+ * that are not modified afterwards.
+ *
+ * Behaves as unmodifiable single-item list. Serialized as plain {@link ArrayList}.
+ */
+final class LazyParamValue extends AbstractList<String> implements Serializable {
+
+    @Serial private static final long serialVersionUID = 1L;
+
+    /** The object to be rendered. Cleared after the rendering. */
+    private Object object;
+
+    /** The rendered value. Valid only if {@link #object} is null. */
+    private String string;
+
+    private LazyParamValue(@NotNull Object object) {
+        this.object = object;
+    }
+
+    /** Returns (modifiable) list with the value rendered right now if it's null, lazy value otherwise. */
+    static @NotNull List<String> of(Object object) {
+        if (object == null) {
+            List<String> list = new ArrayList<>(1);
+            list.add(null);
+            return list;
+        } else {
+            return new LazyParamValue(object);
+        }
+    }
+
+    @Override
+    public synchronized String get(int index) {
+        if (index != 0) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", size: 1");
+        }
+        if (object != null) {
+            string = object.toString();
+            object = null;
+        }
+        return string;
+    }
+
+    @Override
+    public int size() {
+        return 1;
+    }
+
+    @Serial
+    private Object writeReplace() {
+        return new ArrayList<>(this);
+    }
+}
@@ -1408,6 +1408,12 @@ public class OperationResult
         return this;
     }
 
+    @Override
+    public OperationResult addLazyParam(String name, ObjectQuery value) {
+        getParams().put(name, LazyParamValue.of(value));
+        return this;
+    }
+
     @Override
     public OperationResult addParam(String name, String... values) {
         getParams().put(name, collectionize(values));
@@ -53,6 +53,12 @@ public interface OperationResultBuilder {
 
     OperationResultBuilder addParam(String name, ObjectDelta<?> value);
 
+    /**
+     * Like {@link #addParam(String, ObjectQuery)}, but the query is converted to string only when the result
+     * is serialized, traced or dumped. Use only if the query is not modified afterwards, e.g. if it is a private copy.
+     */
+    OperationResultBuilder addLazyParam(String name, ObjectQuery value);
+
     OperationResultBuilder addParam(String name, String... values);
 
     OperationResultBuilder addArbitraryObjectAsParam(String paramName, Object paramValue);
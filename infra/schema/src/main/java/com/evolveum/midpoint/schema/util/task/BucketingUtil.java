@@ -53,6 +53,7 @@ public class BucketingUtil {
                     buckets.getOidSegmentation(),
                     buckets.getExplicitSegmentation(),
                     buckets.getImplicitSegmentation(),
+                    buckets.getAdaptiveSegmentation(),
                     buckets.getSegmentation());
         } else {
             return null;
@@ -16,6 +16,7 @@ public class BucketingConstants {
 
     public static final String GET_WORK_BUCKET_FOUND_DELEGATED = "getWorkBucket.foundDelegated";
     public static final String GET_WORK_BUCKET_FOUND_READY = "getWorkBucket.foundReady";
+    public static final String GET_WORK_BUCKET_FOUND_LEASED = "getWorkBucket.foundLeased";
     public static final String GET_WORK_BUCKET_CREATED_NEW = "getWorkBucket.createdNew";
     public static final String GET_WORK_BUCKET_NO_MORE_BUCKETS_DEFINITE = "getWorkBucket.noMoreBucketsDefinite";
     public static final String GET_WORK_BUCKET_NO_MORE_BUCKETS_NOT_SCAVENGER = "getWorkBucket.noMoreBucketsNotScavenger";
@@ -0,0 +1,67 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.schema;
+
+import java.lang.management.ManagementFactory;
+
+import org.javasimon.Split;
+import org.javasimon.Stopwatch;
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.prism.query.ObjectQuery;
+import com.evolveum.midpoint.prism.util.PrismTestUtil;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.tools.testng.PerformanceTestClassMixin;
+import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.UserType;
+
+/**
+ * Compares the cost of operation results with query parameters rendered eagerly (as strings)
+ * and lazily (only when the result is serialized), i.e. what a typical repository search pays for its result.
+ */
+public class PerfTestOperationResultParams extends AbstractSchemaTest implements PerformanceTestClassMixin {
+
+    private static final int REPETITIONS = 100_000;
+
+    @Test
+    void testEagerVsLazy() throws SchemaException {
+        ObjectQuery query = PrismTestUtil.getPrismContext().queryFor(UserType.class)
+                .item(UserType.F_NAME).eqPoly("jack", "jack")
+                .or().item(UserType.F_FAMILY_NAME).startsWith("Spar")
+                .or().item(UserType.F_EMPLOYEE_NUMBER).eq("007")
+                .build();
+
+        // warm-up
+        run("warm-up-eager", query, true);
+        run("warm-up-lazy", query, false);
+
+        long eager = run("eager", query, true);
+        long lazy = run("lazy", query, false);
+        displayValue("Allocated bytes per result", "eager " + eager + ", lazy " + lazy);
+    }
+
+    private long run(String name, ObjectQuery query, boolean eager) {
+        Stopwatch stopwatch = stopwatch(name, "Result with query parameter (" + name + ")");
+        long allocatedBefore = getAllocatedBytes();
+        for (int i = 0; i < REPETITIONS; i++) {
+            try (Split ignored = stopwatch.start()) {
+                OperationResult result = new OperationResult("perfTest");
+                if (eager) {
+                    result.addParam("query", query);
+                } else {
+                    result.addLazyParam("query", query);
+                }
+                result.computeStatus();
+            }
+        }
+        return (getAllocatedBytes() - allocatedBefore) / REPETITIONS;
+    }
+
+    private long getAllocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+}
@@ -17,12 +17,14 @@ import java.util.List;
 import org.testng.annotations.Test;
 
 import com.evolveum.midpoint.prism.PrismContext;
+import com.evolveum.midpoint.prism.query.ObjectQuery;
 import com.evolveum.midpoint.schema.constants.SchemaConstants;
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.schema.result.OperationResultStatus;
 import com.evolveum.midpoint.util.exception.SchemaException;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.OperationResultHandlingStrategyType;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.OperationResultType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.UserType;
 
 public class TestOperationResult extends AbstractSchemaTest {
 
@@ -208,6 +210,49 @@ public class TestOperationResult extends AbstractSchemaTest {
         checkResultConversion(root, true);
     }
 
+    @Test
+    public void testArbitraryObjectParamsAreEager() {
+        given("arbitrary object that can change after it is recorded");
+        int[] renderings = new int[1];
+        Object param = new Object() {
+            @Override
+            public String toString() {
+                return "rendered-" + ++renderings[0];
+            }
+        };
+
+        when("it is added as a parameter");
+        OperationResult result = new OperationResult("eager");
+        result.addArbitraryObjectAsParam("param", param);
+
+        then("it is rendered right away, as it was at that time");
+        assertEquals("Wrong # of renderings", 1, renderings[0]);
+        param.toString();
+        assertEquals("Wrong parameter value", "rendered-1", result.getParamSingle("param"));
+    }
+
+    @Test
+    public void testLazyParams() throws Exception {
+        given("result with a lazy query parameter");
+        ObjectQuery query = getPrismContext().queryFor(UserType.class)
+                .item(UserType.F_NAME).eqPoly("jack", "jack")
+                .build();
+        ObjectQuery nullQuery = null;
+        OperationResult result = new OperationResult("lazy");
+        result.addLazyParam("query", query);
+        result.addLazyParam("nullQuery", nullQuery);
+        result.recordSuccess();
+
+        when("the result is serialized");
+        OperationResultType bean = result.createOperationResultType();
+
+        then("the parameter is rendered as the query");
+        assertEquals("Wrong parameter value", query.toString(), result.getParamSingle("query"));
+        assertEquals("Wrong null parameter value", null, result.getParamSingle("nullQuery"));
+        assertEquals("Wrong parameter value in bean", List.of(query.toString()),
+                OperationResult.createOperationResult(bean).getParams().get("query"));
+    }
+
     private void checkResultConversion(OperationResult result, boolean assertEquals) throws SchemaException {
         when();
         OperationResultType resultType = result.createOperationResultType();
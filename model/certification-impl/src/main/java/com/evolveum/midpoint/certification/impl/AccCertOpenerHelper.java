@@ -42,6 +42,7 @@ import com.evolveum.midpoint.xml.ns._public.common.common_3.*;
 import com.evolveum.prism.xml.ns._public.query_3.SearchFilterType;
 import com.evolveum.prism.xml.ns._public.types_3.PolyStringType;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.VisibleForTesting;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
@@ -88,6 +89,9 @@ public class AccCertOpenerHelper {
     @Qualifier("cacheRepositoryService")
     private RepositoryService repositoryService;
 
+    /** Can be turned off, so that the reviewers can be compared with those determined without the cache. */
+    private volatile boolean reviewersCacheEnabled = true;
+
     //region ================================ Campaign create ================================
 
     public AccessCertificationCampaignType createCampaign(PrismObject<AccessCertificationDefinitionType> definition,
@@ -213,6 +217,16 @@ public class AccCertOpenerHelper {
     private static class OpeningContext {
         int casesEnteringStage;
         int workItemsCreated;
+        final AccCertReviewersHelper.ResolutionCache reviewersCache;
+
+        OpeningContext(boolean reviewersCacheEnabled) {
+            reviewersCache = new AccCertReviewersHelper.ResolutionCache(reviewersCacheEnabled);
+        }
+    }
+
+    @VisibleForTesting // public because of certification tests
+    public void setReviewersCacheEnabled(boolean reviewersCacheEnabled) {
+        this.reviewersCacheEnabled = reviewersCacheEnabled;
     }
 
     void openNextStage(AccessCertificationCampaignType campaign, CertificationHandler handler, Task task,
@@ -220,7 +234,7 @@ public class AccCertOpenerHelper {
         boolean skipEmptyStages = norm(campaign.getIteration()) > 1;        // TODO make configurable
         int requestedStageNumber = campaign.getStageNumber() + 1;
         for (;;) {
-            OpeningContext openingContext = new OpeningContext();
+            OpeningContext openingContext = new OpeningContext(reviewersCacheEnabled);
             AccessCertificationStageType stage = createStage(campaign, requestedStageNumber);
             ModificationsToExecute modifications = getDeltasForStageOpen(campaign, stage, handler, openingContext, task, result);
             if (!skipEmptyStages || openingContext.casesEnteringStage > 0) {
@@ -309,7 +323,9 @@ public class AccCertOpenerHelper {
 
         assert norm(campaign.getIteration()) == 1;
 
-        for (AccessCertificationCaseType aCase : caseList) {
+        for (int i = 0; i < caseList.size(); i++) {
+            AccessCertificationCaseType aCase = caseList.get(i);
+            prefetchReviewersIfNeeded(caseList, i, reviewerSpec, openingContext, result);
             ContainerDelta<AccessCertificationCaseType> caseDelta = prismContext.deltaFactory().container().createDelta(F_CASE,
                     AccessCertificationCampaignType.class);
             aCase.setIteration(1);
@@ -317,7 +333,8 @@ public class AccCertOpenerHelper {
             aCase.setCurrentStageCreateTimestamp(stage.getStartTimestamp());
             aCase.setCurrentStageDeadline(stage.getDeadline());
 
-            List<ObjectReferenceType> reviewers = reviewersHelper.getReviewersForCase(aCase, campaign, reviewerSpec, task, result);
+            List<ObjectReferenceType> reviewers = reviewersHelper.getReviewersForCase(
+                    aCase, campaign, reviewerSpec, openingContext.reviewersCache, task, result);
             aCase.getWorkItem().addAll(createWorkItems(reviewers, 1, 1, aCase));
 
             openingContext.workItemsCreated += aCase.getWorkItem().size();
@@ -337,6 +354,17 @@ public class AccCertOpenerHelper {
         LOGGER.trace("Created {} deltas (in {} batches) to create {} cases ({} work items) for campaign {}",
                 modifications.getTotalDeltasCount(), modifications.batches.size(), caseList.size(),
                 openingContext.workItemsCreated, campaignShortName);
+        LOGGER.debug("Reviewers for {} determined; {}", campaignShortName, openingContext.reviewersCache);
+    }
+
+    /** Fetches owners/approvers for the next page of cases at once; see {@link AccCertReviewersHelper#prefetch}. */
+    private void prefetchReviewersIfNeeded(List<AccessCertificationCaseType> caseList, int index,
+            AccessCertificationReviewerSpecificationType reviewerSpec, OpeningContext openingContext,
+            OperationResult result) throws SchemaException {
+        if (index % AccCertReviewersHelper.PREFETCH_PAGE_SIZE == 0) {
+            int end = Math.min(index + AccCertReviewersHelper.PREFETCH_PAGE_SIZE, caseList.size());
+            reviewersHelper.prefetch(caseList.subList(index, end), reviewerSpec, openingContext.reviewersCache, result);
+        }
     }
 
     // create a query to find target objects from which certification cases will be created
@@ -429,7 +457,9 @@ public class AccCertOpenerHelper {
                 reviewersHelper.findReviewersSpecification(campaign, stageToBe);
 
         LOGGER.trace("cases: {}, reviewerSpec: {}", caseList.size(), reviewerSpec);
-        for (AccessCertificationCaseType aCase : caseList) {
+        for (int i = 0; i < caseList.size(); i++) {
+            AccessCertificationCaseType aCase = caseList.get(i);
+            prefetchReviewersIfNeeded(caseList, i, reviewerSpec, openingContext, result);
             LOGGER.trace("----------------------------------------------------------------------------------------");
             LOGGER.trace("Considering case: {}", aCase);
             Long caseId = aCase.asPrismContainerValue().getId();
@@ -445,7 +475,8 @@ public class AccCertOpenerHelper {
                 continue;
             }
 
-            List<ObjectReferenceType> reviewers = reviewersHelper.getReviewersForCase(aCase, campaign, reviewerSpec, task, result);
+            List<ObjectReferenceType> reviewers = reviewersHelper.getReviewersForCase(
+                    aCase, campaign, reviewerSpec, openingContext.reviewersCache, task, result);
             List<AccessCertificationWorkItemType> workItems = createWorkItems(reviewers, stageToBe, iteration, aCase);
             openingContext.workItemsCreated += workItems.size();
             openingContext.casesEnteringStage++;
@@ -470,6 +501,7 @@ public class AccCertOpenerHelper {
         LOGGER.debug("Created {} deltas (in {} batches) to advance {} out of {} cases for campaign {}; work items created: {}",
                 modifications.getTotalDeltasCount(), modifications.batches.size(), openingContext.casesEnteringStage,
                 caseList.size(), toShortString(campaign), openingContext.workItemsCreated);
+        LOGGER.debug("Reviewers for {} determined; {}", toShortStringLazy(campaign), openingContext.reviewersCache);
     }
 
     // some bureaucracy... stage#, state, start time, triggers
@@ -29,6 +29,7 @@ import com.evolveum.midpoint.util.exception.*;
 import com.evolveum.midpoint.util.logging.Trace;
 import com.evolveum.midpoint.util.logging.TraceManager;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.*;
+import org.jetbrains.annotations.NotNull;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
@@ -42,6 +43,15 @@ public class AccCertReviewersHelper {
 
     private static final Trace LOGGER = TraceManager.getTrace(AccCertReviewersHelper.class);
 
+    /** How many cases are covered by a single prefetch query, see {@link #prefetch(List, AccessCertificationReviewerSpecificationType, ResolutionCache, OperationResult)}. */
+    static final int PREFETCH_PAGE_SIZE = 100;
+
+    /**
+     * Maximum number of entries in each of the {@link ResolutionCache} maps. Least recently used entries are evicted.
+     * It is well above what a single prefetch page brings in, so the prefetched data are not evicted before they are used.
+     */
+    static final int MAX_CACHED_ENTRIES = 10_000;
+
     @Autowired
     @Qualifier("cacheRepositoryService")
     private RepositoryService repositoryService;
@@ -56,10 +66,15 @@ public class AccCertReviewersHelper {
                 .getReviewerSpecification();
     }
 
+    /**
+     * Determines reviewers for a case. The cache should be shared by all cases of the stage being opened,
+     * as the same owners, approvers, and managers are usually looked up for many cases.
+     */
     List<ObjectReferenceType> getReviewersForCase(
             AccessCertificationCaseType _case,
             AccessCertificationCampaignType campaign,
             AccessCertificationReviewerSpecificationType reviewerSpec,
+            @NotNull ResolutionCache cache,
             Task task,
             OperationResult result) throws SchemaException, ObjectNotFoundException {
         if (reviewerSpec == null) {
@@ -68,19 +83,19 @@ public class AccCertReviewersHelper {
 
         List<ObjectReferenceType> reviewers = new ArrayList<>();
         if (Boolean.TRUE.equals(reviewerSpec.isUseTargetOwner())) {
-            cloneAndMerge(reviewers, getTargetObjectOwners(_case, result));
+            cloneAndMerge(reviewers, getRelatedFocuses(_case.getTargetRef(), RelationKindType.OWNER, true, cache, result));
         }
         if (Boolean.TRUE.equals(reviewerSpec.isUseTargetApprover())) {
-            cloneAndMerge(reviewers, getTargetObjectApprovers(_case, result));
+            cloneAndMerge(reviewers, getRelatedFocuses(_case.getTargetRef(), RelationKindType.APPROVER, true, cache, result));
         }
         if (Boolean.TRUE.equals(reviewerSpec.isUseObjectOwner())) {
-            cloneAndMerge(reviewers, getObjectOwners(_case, result));
+            cloneAndMerge(reviewers, getRelatedFocuses(_case.getObjectRef(), RelationKindType.OWNER, false, cache, result));
         }
         if (Boolean.TRUE.equals(reviewerSpec.isUseObjectApprover())) {
-            cloneAndMerge(reviewers, getObjectApprovers(_case, result));
+            cloneAndMerge(reviewers, getRelatedFocuses(_case.getObjectRef(), RelationKindType.APPROVER, false, cache, result));
         }
         if (reviewerSpec.getUseObjectManager() != null) {
-            cloneAndMerge(reviewers, getObjectManagers(_case, reviewerSpec.getUseObjectManager(), task, result));
+            cloneAndMerge(reviewers, getObjectManagers(_case, reviewerSpec.getUseObjectManager(), cache, task, result));
         }
         for (ExpressionType reviewerExpression : reviewerSpec.getReviewerExpression()) {
             VariablesMap variables = new VariablesMap();
@@ -93,17 +108,137 @@ public class AccCertReviewersHelper {
                             reviewerExpression, variables, "reviewer expression", task, result);
             cloneAndMerge(reviewers, refList);
         }
-        resolveRoleReviewers(reviewers, result);
+        resolveRoleReviewers(reviewers, cache, result);
         if (reviewers.isEmpty()) {
             cloneAndMerge(reviewers, reviewerSpec.getDefaultReviewerRef());
         }
         cloneAndMerge(reviewers, reviewerSpec.getAdditionalReviewerRef());
-        resolveRoleReviewers(reviewers, result);
+        resolveRoleReviewers(reviewers, cache, result);
 
         return reviewers;
     }
 
-    private void resolveRoleReviewers(List<ObjectReferenceType> reviewers, OperationResult result)
+    /**
+     * Fetches objects and their owners/approvers needed to determine reviewers for given cases, using a single query
+     * for each kind of information. Everything is stored in the cache, so that {@link #getReviewersForCase} does not
+     * need to go to the repository for them. (Objects that are not found are simply not prefetched; they are dealt with
+     * when the particular case is processed.)
+     */
+    void prefetch(
+            @NotNull List<AccessCertificationCaseType> cases,
+            AccessCertificationReviewerSpecificationType reviewerSpec,
+            @NotNull ResolutionCache cache,
+            OperationResult result) throws SchemaException {
+        if (reviewerSpec == null || cache.maxEntries == 0) {
+            return;
+        }
+        Map<RelationKindType, Set<ObjectReferenceType>> refsByKind = new EnumMap<>(RelationKindType.class);
+        for (AccessCertificationCaseType aCase : cases) {
+            if (Boolean.TRUE.equals(reviewerSpec.isUseTargetOwner())) {
+                addIfNotNull(refsByKind, RelationKindType.OWNER, aCase.getTargetRef());
+            }
+            if (Boolean.TRUE.equals(reviewerSpec.isUseTargetApprover())) {
+                addIfNotNull(refsByKind, RelationKindType.APPROVER, aCase.getTargetRef());
+            }
+            if (Boolean.TRUE.equals(reviewerSpec.isUseObjectOwner())) {
+                addIfNotNull(refsByKind, RelationKindType.OWNER, aCase.getObjectRef());
+            }
+            if (Boolean.TRUE.equals(reviewerSpec.isUseObjectApprover())) {
+                addIfNotNull(refsByKind, RelationKindType.APPROVER, aCase.getObjectRef());
+            }
+            if (reviewerSpec.getUseObjectManager() != null) {
+                addIfNotNull(refsByKind, RelationKindType.MANAGER, aCase.getObjectRef());
+            }
+        }
+        if (refsByKind.isEmpty()) {
+            return;
+        }
+
+        Set<ObjectReferenceType> allRefs = new HashSet<>();
+        refsByKind.values().forEach(allRefs::addAll);
+        prefetchObjects(allRefs, cache, result);
+
+        for (RelationKindType relationKind : List.of(RelationKindType.OWNER, RelationKindType.APPROVER)) {
+            Set<String> roleOids = new HashSet<>();
+            for (ObjectReferenceType ref : refsByKind.getOrDefault(relationKind, Set.of())) {
+                if (cache.objects.get(ref.getOid()) instanceof AbstractRoleType
+                        && !cache.relatedFocuses.get(relationKind).containsKey(ref.getOid())) {
+                    roleOids.add(ref.getOid());
+                }
+            }
+            if (!roleOids.isEmpty()) {
+                prefetchRelatedFocuses(roleOids, relationKind, cache, result);
+            }
+        }
+    }
+
+    private void addIfNotNull(
+            Map<RelationKindType, Set<ObjectReferenceType>> refsByKind, RelationKindType kind, ObjectReferenceType ref) {
+        if (ref != null && ref.getOid() != null) {
+            refsByKind.computeIfAbsent(kind, k -> new HashSet<>()).add(ref);
+        }
+    }
+
+    private void prefetchObjects(Set<ObjectReferenceType> refs, ResolutionCache cache, OperationResult result)
+            throws SchemaException {
+        Map<Class<? extends ObjectType>, Set<String>> oidsByType = new HashMap<>();
+        for (ObjectReferenceType ref : refs) {
+            if (!cache.objects.containsKey(ref.getOid())) {
+                oidsByType.computeIfAbsent(getObjectTypeClass(ref, ObjectType.class), k -> new HashSet<>())
+                        .add(ref.getOid());
+            }
+        }
+        for (Map.Entry<Class<? extends ObjectType>, Set<String>> entry : oidsByType.entrySet()) {
+            ObjectQuery query = prismContext.queryFor(entry.getKey())
+                    .id(entry.getValue().toArray(new String[0]))
+                    .build();
+            List<? extends PrismObject<? extends ObjectType>> objects =
+                    repositoryService.searchObjects(entry.getKey(), query, null, result);
+            LOGGER.trace("Prefetched {} out of {} object(s) of {}", objects.size(), entry.getValue().size(), entry.getKey());
+            objects.forEach(o -> cache.objects.put(o.getOid(), o.asObjectable()));
+            cache.prefetchQueries++;
+        }
+    }
+
+    /**
+     * Finds owners or approvers of all given roles using a single query. The result is the same as if
+     * {@link #getReviewers(AbstractRoleType, RelationKindType, OperationResult)} was called for each of the roles.
+     */
+    private void prefetchRelatedFocuses(
+            Set<String> roleOids, RelationKindType relationKind, ResolutionCache cache, OperationResult result)
+            throws SchemaException {
+        Collection<QName> relations = relationRegistry.getAllRelationsFor(relationKind);
+        Collection<PrismReferenceValue> values = new ArrayList<>();
+        for (String roleOid : roleOids) {
+            for (QName relation : relations) {
+                PrismReferenceValue ref = prismContext.itemFactory().createReferenceValue(roleOid);
+                ref.setRelation(relation);
+                values.add(ref);
+            }
+        }
+        ObjectQuery query = prismContext.queryFor(FocusType.class)
+                .item(FocusType.F_ROLE_MEMBERSHIP_REF).ref(values)
+                .build();
+        List<PrismObject<FocusType>> assignees = repositoryService.searchObjects(FocusType.class, query, null, result);
+        cache.prefetchQueries++;
+
+        Map<String, List<ObjectReferenceType>> byRole = new HashMap<>();
+        roleOids.forEach(oid -> byRole.put(oid, new ArrayList<>()));
+        for (PrismObject<FocusType> assignee : assignees) {
+            Set<String> rolesOfAssignee = new HashSet<>();
+            for (ObjectReferenceType membershipRef : assignee.asObjectable().getRoleMembershipRef()) {
+                if (roleOids.contains(membershipRef.getOid())
+                        && relations.stream().anyMatch(r -> QNameUtil.match(r, membershipRef.getRelation()))
+                        && rolesOfAssignee.add(membershipRef.getOid())) {
+                    byRole.get(membershipRef.getOid()).add(ObjectTypeUtil.createObjectRef(assignee));
+                }
+            }
+        }
+        LOGGER.trace("Prefetched '{}' of {} role(s): found {} assignee(s)", relationKind, roleOids.size(), assignees.size());
+        cache.relatedFocuses.get(relationKind).putAll(byRole);
+    }
+
+    private void resolveRoleReviewers(List<ObjectReferenceType> reviewers, ResolutionCache cache, OperationResult result)
             throws SchemaException {
         List<ObjectReferenceType> resolved = new ArrayList<>();
         for (Iterator<ObjectReferenceType> iterator = reviewers.iterator(); iterator.hasNext(); ) {
@@ -112,16 +247,29 @@ public class AccCertReviewersHelper {
                     || QNameUtil.match(reviewer.getType(), OrgType.COMPLEX_TYPE)
                     || QNameUtil.match(reviewer.getType(), ServiceType.COMPLEX_TYPE)) {
                 iterator.remove();
-                resolved.addAll(getMembers(reviewer, result));
+                resolved.addAll(getMembers(reviewer, cache, result));
             }
         }
         for (ObjectReferenceType ref : resolved) {
             if (!containsOid(reviewers, ref.getOid())) {
-                reviewers.add(ref);
+                reviewers.add(ref.clone());
             }
         }
     }
 
+    private List<ObjectReferenceType> getMembers(
+            ObjectReferenceType abstractRoleRef, ResolutionCache cache, OperationResult result) throws SchemaException {
+        List<ObjectReferenceType> cached = cache.members.get(abstractRoleRef.getOid());
+        if (cached != null) {
+            cache.hits++;
+            return cached;
+        }
+        cache.misses++;
+        List<ObjectReferenceType> members = getMembers(abstractRoleRef, result);
+        cache.members.put(abstractRoleRef.getOid(), members);
+        return members;
+    }
+
     private List<ObjectReferenceType> getMembers(ObjectReferenceType abstractRoleRef, OperationResult result)
             throws SchemaException {
         Collection<PrismReferenceValue> references = ObjectQueryUtil
@@ -158,12 +306,29 @@ public class AccCertReviewersHelper {
     }
 
     private Collection<ObjectReferenceType> getObjectManagers(
-            AccessCertificationCaseType _case, ManagerSearchType managerSearch, Task task, OperationResult result)
-            throws ObjectNotFoundException, SchemaException {
+            AccessCertificationCaseType _case, ManagerSearchType managerSearch, ResolutionCache cache, Task task,
+            OperationResult result) throws ObjectNotFoundException, SchemaException {
+        ObjectReferenceType objectRef = _case.getObjectRef();
+        // The search specification is the same for the whole stage; but let us be precise.
+        ManagerKey key = new ManagerKey(
+                objectRef.getOid(), managerSearch.getOrgType(), Boolean.TRUE.equals(managerSearch.isAllowSelf()));
+        List<ObjectReferenceType> cached = cache.managers.get(key);
+        if (cached != null) {
+            cache.hits++;
+            return cached;
+        }
+        cache.misses++;
+        List<ObjectReferenceType> managers = getObjectManagers(objectRef, managerSearch, cache, task, result);
+        cache.managers.put(key, managers);
+        return managers;
+    }
+
+    private List<ObjectReferenceType> getObjectManagers(
+            ObjectReferenceType objectRef, ManagerSearchType managerSearch, ResolutionCache cache, Task task,
+            OperationResult result) throws ObjectNotFoundException, SchemaException {
         ExpressionEnvironmentThreadLocalHolder.pushExpressionEnvironment(new ExpressionEnvironment(task, result));
         try {
-            ObjectReferenceType objectRef = _case.getObjectRef();
-            ObjectType object = resolveReference(objectRef, ObjectType.class, result);
+            ObjectType object = resolveReference(objectRef, ObjectType.class, cache, result);
 
             String orgType = managerSearch.getOrgType();
             boolean allowSelf = Boolean.TRUE.equals(managerSearch.isAllowSelf());
@@ -193,16 +358,31 @@ public class AccCertReviewersHelper {
         }
     }
 
-    private List<ObjectReferenceType> getTargetObjectOwners(AccessCertificationCaseType _case, OperationResult result)
-            throws SchemaException, ObjectNotFoundException {
-        if (_case.getTargetRef() == null) {
+    /**
+     * Returns owners or approvers of the target (or object) of a case. For abstract roles these are looked up
+     * via `roleMembershipRef`, for resources (targets only) they are taken from the resource definition.
+     */
+    private Collection<ObjectReferenceType> getRelatedFocuses(ObjectReferenceType ref, RelationKindType relationKind,
+            boolean isTarget, ResolutionCache cache, OperationResult result) throws SchemaException, ObjectNotFoundException {
+        if (ref == null) {
             return null;
         }
-        ObjectType target = resolveReference(_case.getTargetRef(), ObjectType.class, result);
-        if (target instanceof AbstractRoleType) {
-            return getReviewers((AbstractRoleType) target, RelationKindType.OWNER, result);
-        } else if (target instanceof ResourceType) {
-            return ResourceTypeUtil.getOwnerRef((ResourceType) target);
+        ObjectType object = resolveReference(ref, ObjectType.class, cache, result);
+        if (object instanceof AbstractRoleType) {
+            Map<String, List<ObjectReferenceType>> cachedForKind = cache.relatedFocuses.get(relationKind);
+            List<ObjectReferenceType> cached = cachedForKind.get(object.getOid());
+            if (cached != null) {
+                cache.hits++;
+                return cached;
+            }
+            cache.misses++;
+            List<ObjectReferenceType> reviewers = getReviewers((AbstractRoleType) object, relationKind, result);
+            cachedForKind.put(object.getOid(), reviewers);
+            return reviewers;
+        } else if (isTarget && object instanceof ResourceType) {
+            return relationKind == RelationKindType.OWNER ?
+                    ResourceTypeUtil.getOwnerRef((ResourceType) object) :
+                    ResourceTypeUtil.getApproverRef((ResourceType) object);
         } else {
             return null;
         }
@@ -230,60 +410,92 @@ public class AccCertReviewersHelper {
         return rv;
     }
 
-    private List<ObjectReferenceType> getObjectOwners(AccessCertificationCaseType _case, OperationResult result)
-            throws SchemaException, ObjectNotFoundException {
-        if (_case.getObjectRef() == null) {
-            return null;
-        }
-        ObjectType object = resolveReference(_case.getObjectRef(), ObjectType.class, result);
-        if (object instanceof AbstractRoleType) {
-            return getReviewers((AbstractRoleType) object, RelationKindType.OWNER, result);
-        } else {
-            return null;
+    @SuppressWarnings("SameParameterValue")
+    private ObjectType resolveReference(ObjectReferenceType objectRef, Class<? extends ObjectType> defaultObjectTypeClass,
+            ResolutionCache cache, OperationResult result) throws SchemaException, ObjectNotFoundException {
+        ObjectType cached = cache.objects.get(objectRef.getOid());
+        if (cached != null) {
+            cache.hits++;
+            return cached;
         }
+        cache.misses++;
+        ObjectType object = repositoryService
+                .getObject(getObjectTypeClass(objectRef, defaultObjectTypeClass), objectRef.getOid(), null, result)
+                .asObjectable();
+        cache.objects.put(object.getOid(), object);
+        return object;
     }
 
-    private Collection<ObjectReferenceType> getTargetObjectApprovers(AccessCertificationCaseType _case,
-            OperationResult result) throws SchemaException, ObjectNotFoundException {
-        if (_case.getTargetRef() == null) {
-            return null;
-        }
-        ObjectType target = resolveReference(_case.getTargetRef(), ObjectType.class, result);
-        if (target instanceof AbstractRoleType) {
-            return getReviewers((AbstractRoleType) target, RelationKindType.APPROVER, result);
-        } else if (target instanceof ResourceType) {
-            return ResourceTypeUtil.getApproverRef((ResourceType) target);
+    private Class<? extends ObjectType> getObjectTypeClass(
+            ObjectReferenceType objectRef, Class<? extends ObjectType> defaultObjectTypeClass) {
+        if (objectRef.getType() != null) {
+            //noinspection unchecked
+            return (Class<? extends ObjectType>)
+                    prismContext.getSchemaRegistry().getCompileTimeClassForObjectTypeRequired(objectRef.getType());
         } else {
-            return null;
+            return defaultObjectTypeClass;
         }
     }
 
-    private Collection<ObjectReferenceType> getObjectApprovers(AccessCertificationCaseType _case,
-            OperationResult result) throws SchemaException, ObjectNotFoundException {
-        if (_case.getObjectRef() == null) {
-            return null;
+    private record ManagerKey(String objectOid, String orgType, boolean allowSelf) {
+    }
+
+    /**
+     * Objects and reviewers resolved while opening a stage. Cases of a campaign typically share a small number
+     * of targets (roles, resources) and objects (users), so the same lookups would be repeated many times.
+     *
+     * Scoped to a single stage opening: the reviewer specification is the same for all its cases, and the data
+     * are not expected to change during the opening. Each map is bounded by {@link #MAX_CACHED_ENTRIES}, so that
+     * the memory does not grow with the number of cases. Not thread-safe.
+     */
+    static class ResolutionCache {
+
+        /** Zero means the cache is disabled: nothing is kept, so each lookup is done, as if there was no cache. */
+        private final int maxEntries;
+
+        private final Map<String, ObjectType> objects = createMap();
+        private final Map<RelationKindType, Map<String, List<ObjectReferenceType>>> relatedFocuses =
+                new EnumMap<>(Map.of(
+                        RelationKindType.OWNER, createMap(),
+                        RelationKindType.APPROVER, createMap()));
+        private final Map<ManagerKey, List<ObjectReferenceType>> managers = createMap();
+        private final Map<String, List<ObjectReferenceType>> members = createMap();
+
+        /** Lookups answered from the cache, i.e. repository (or org structure) calls avoided. */
+        private int hits;
+
+        /** Lookups that had to be done. */
+        private int misses;
+
+        /** Number of queries used to prefetch the data. */
+        private int prefetchQueries;
+
+        /** Number of entries evicted because of the size limit. */
+        private int evictions;
+
+        ResolutionCache(boolean enabled) {
+            this.maxEntries = enabled ? MAX_CACHED_ENTRIES : 0;
         }
-        ObjectType object = resolveReference(_case.getObjectRef(), ObjectType.class, result);
-        if (object instanceof AbstractRoleType) {
-            return getReviewers((AbstractRoleType) object, RelationKindType.APPROVER, result);
-        } else {
-            return null;
+
+        /** Access-ordered map evicting the least recently used entry when the limit is reached. */
+        private <K, V> Map<K, V> createMap() {
+            return new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                    if (size() > maxEntries) {
+                        evictions++;
+                        return true;
+                    } else {
+                        return false;
+                    }
+                }
+            };
         }
-    }
 
-    @SuppressWarnings("SameParameterValue")
-    private ObjectType resolveReference(ObjectReferenceType objectRef, Class<? extends ObjectType> defaultObjectTypeClass,
-            OperationResult result) throws SchemaException, ObjectNotFoundException {
-        Class<? extends ObjectType> objectTypeClass;
-        if (objectRef.getType() != null) {
-            //noinspection unchecked
-            objectTypeClass = (Class<? extends ObjectType>)
-                    prismContext.getSchemaRegistry().getCompileTimeClassForObjectTypeRequired(objectRef.getType());
-        } else {
-            objectTypeClass = defaultObjectTypeClass;
+        @Override
+        public String toString() {
+            return "lookups avoided: " + hits + ", lookups done: " + misses + ", prefetch queries: " + prefetchQueries
+                    + ", evictions: " + evictions;
         }
-        return repositoryService
-                .getObject(objectTypeClass, objectRef.getOid(), null, result)
-                .asObjectable();
     }
 }
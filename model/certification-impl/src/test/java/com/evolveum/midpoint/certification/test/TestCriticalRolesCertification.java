@@ -7,12 +7,15 @@
 
 package com.evolveum.midpoint.certification.test;
 
+import com.evolveum.midpoint.certification.impl.AccCertOpenerHelper;
 import com.evolveum.midpoint.prism.PrismObject;
 import com.evolveum.midpoint.schema.constants.SchemaConstants;
 import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.schema.util.CertCampaignTypeUtil;
 import com.evolveum.midpoint.task.api.Task;
 import com.evolveum.midpoint.test.util.TestUtil;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.*;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ContextConfiguration;
 import org.testng.annotations.Test;
@@ -20,6 +23,7 @@ import org.testng.annotations.Test;
 import javax.xml.datatype.XMLGregorianCalendar;
 import java.io.File;
 import java.util.*;
+import java.util.stream.Collectors;
 
 import static com.evolveum.midpoint.schema.util.CertCampaignTypeUtil.norm;
 import static com.evolveum.midpoint.xml.ns._public.common.common_3.AccessCertificationCampaignStateType.CLOSED;
@@ -46,6 +50,8 @@ public class TestCriticalRolesCertification extends AbstractCertificationTest {
 
     private static final File CERT_DEF_FILE = new File(COMMON_DIR, "certification-of-critical-roles.xml");
 
+    @Autowired private AccCertOpenerHelper openerHelper;
+
     private AccessCertificationDefinitionType certificationDefinition;
 
     private String campaignOid;
@@ -1282,4 +1288,70 @@ jack->CTO                                       "A" from iter 1
         assertCasesCount(campaignOid, 6);
         displayDumpable("dummy transport", dummyTransport);
     }
+
+    /**
+     * Reviewers must be the same whether they are resolved using the resolution cache or not.
+     * Stage 1 uses the object manager, stage 2 the target owner.
+     */
+    @Test
+    public void test600ReviewersWithoutResolutionCache() throws Exception {
+        // GIVEN
+        clock.resetOverride();
+        Task task = getTestTask();
+        task.setOwner(userAdministrator.asPrismObject());
+        OperationResult result = task.getResult();
+
+        String cachedCampaignOid =
+                certificationManager.createCampaign(certificationDefinition.getOid(), task, result).getOid();
+        String uncachedCampaignOid =
+                certificationManager.createCampaign(certificationDefinition.getOid(), task, result).getOid();
+
+        // WHEN
+        when();
+        List<Map<String, Set<String>>> cachedReviewers = openTwoStagesAndGetReviewers(cachedCampaignOid, task, result);
+        List<Map<String, Set<String>>> uncachedReviewers;
+        openerHelper.setReviewersCacheEnabled(false);
+        try {
+            uncachedReviewers = openTwoStagesAndGetReviewers(uncachedCampaignOid, task, result);
+        } finally {
+            openerHelper.setReviewersCacheEnabled(true);
+        }
+
+        // THEN
+        then();
+        display("reviewers with the cache", cachedReviewers);
+        display("reviewers without the cache", uncachedReviewers);
+        assertEquals("Reviewers differ when resolved using the cache", uncachedReviewers, cachedReviewers);
+        assertEquals("Wrong reviewers of jack->CEO in stage 2",
+                singleton(USER_ELAINE_OID), cachedReviewers.get(1).get(USER_JACK_OID + "->" + ROLE_CEO_OID));
+    }
+
+    /** Returns current reviewers of the cases (keyed by object and target OID) after opening stage 1 and stage 2. */
+    private List<Map<String, Set<String>>> openTwoStagesAndGetReviewers(String campaignOid, Task task, OperationResult result)
+            throws Exception {
+        List<Map<String, Set<String>>> reviewers = new ArrayList<>();
+        for (int stage = 1; stage <= 2; stage++) {
+            if (stage > 1) {
+                certificationManager.closeCurrentStage(campaignOid, task, result);
+            }
+            XMLGregorianCalendar startTime = clock.currentTimeXMLGregorianCalendar();
+            certificationService.openNextStage(campaignOid, task, result);
+            List<PrismObject<TaskType>> tasks = getNextStageTasks(campaignOid, startTime, result);
+            assertEquals("unexpected number of related tasks", 1, tasks.size());
+            waitForTaskFinish(tasks.get(0).getOid());
+
+            Map<String, Set<String>> stageReviewers = new TreeMap<>();
+            for (AccessCertificationCaseType aCase : queryHelper.searchCases(campaignOid, null, result)) {
+                stageReviewers.put(
+                        aCase.getObjectRef().getOid() + "->" + aCase.getTargetRef().getOid(),
+                        CertCampaignTypeUtil.getCurrentReviewers(aCase).stream()
+                                .map(ObjectReferenceType::getOid)
+                                .collect(Collectors.toCollection(TreeSet::new)));
+            }
+            reviewers.add(stageReviewers);
+        }
+        result.computeStatus();
+        TestUtil.assertInProgressOrSuccess(result);
+        return reviewers;
+    }
 }
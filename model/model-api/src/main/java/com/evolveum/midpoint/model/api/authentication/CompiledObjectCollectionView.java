@@ -57,6 +57,7 @@ public class CompiledObjectCollectionView implements DebugDumpable, Serializable
     private DistinctSearchOptionType distinct;
     private Boolean disableSorting;
     private Boolean disableCounting;
+    private Boolean approximateCounting;
     private SearchBoxConfigurationType searchBoxConfiguration;
     private ObjectFilter filter;
     private ObjectFilter domainFilter;
@@ -166,6 +167,14 @@ public class CompiledObjectCollectionView implements DebugDumpable, Serializable
         this.disableCounting = disableCounting;
     }
 
+    public Boolean isApproximateCounting() {
+        return approximateCounting;
+    }
+
+    public void setApproximateCounting(Boolean approximateCounting) {
+        this.approximateCounting = approximateCounting;
+    }
+
     public SearchBoxConfigurationType getSearchBoxConfiguration() {
         return searchBoxConfiguration;
     }
@@ -298,6 +307,7 @@ public class CompiledObjectCollectionView implements DebugDumpable, Serializable
         DebugUtil.debugDumpWithLabelToStringLn(sb, "distinct", distinct, indent + 1);
         DebugUtil.debugDumpWithLabelLn(sb, "disableSorting", disableSorting, indent + 1);
         DebugUtil.debugDumpWithLabelLn(sb, "disableCounting", disableCounting, indent + 1);
+        DebugUtil.debugDumpWithLabelLn(sb, "approximateCounting", approximateCounting, indent + 1);
         DebugUtil.debugDumpWithLabelToStringLn(sb, "searchBoxConfiguration", searchBoxConfiguration, indent + 1);
         DebugUtil.debugDumpWithLabelLn(sb, "filter", filter, indent + 1);
         DebugUtil.debugDumpWithLabel(sb, "domainFilter", domainFilter, indent + 1);
@@ -324,6 +334,7 @@ public class CompiledObjectCollectionView implements DebugDumpable, Serializable
         viewType.setDistinct(getDistinct());
         viewType.setDisableSorting(isDisableSorting());
         viewType.setDisableCounting(isDisableCounting());
+        viewType.setApproximateCounting(isApproximateCounting());
         viewType.setSearchBoxConfiguration(getSearchBoxConfiguration() != null ? getSearchBoxConfiguration().clone() : null);
         viewType.setDisplayOrder(getDisplayOrder());
         viewType.setRefreshInterval(getRefreshInterval());
@@ -380,6 +391,7 @@ public class CompiledObjectCollectionView implements DebugDumpable, Serializable
         clone.distinct = distinct;
         clone.disableSorting = disableSorting;
         clone.disableCounting = disableCounting;
+        clone.approximateCounting = approximateCounting;
         clone.searchBoxConfiguration = CloneUtil.clone(searchBoxConfiguration);
         clone.filter = CloneUtil.clone(filter);
         clone.domainFilter = CloneUtil.clone(domainFilter);
@@ -39,4 +39,13 @@ public interface ClockworkInspector extends DiagnosticContext, MappingInspector
     void projectorComponentFinish(String componentName);
 
     <F extends ObjectType> void projectorFinish(ModelContext<F> context);
+
+    /**
+     * Called after resource objects for a set of projections were fetched concurrently.
+     *
+     * @param wallTimeMillis time the whole fetching took
+     * @param summedTimeMillis sum of the times of the individual fetch operations
+     */
+    default void projectionsFetched(int count, long wallTimeMillis, long summedTimeMillis) {
+    }
 }
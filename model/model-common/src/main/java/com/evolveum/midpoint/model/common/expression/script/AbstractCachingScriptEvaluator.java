@@ -6,6 +6,8 @@
  */
 package com.evolveum.midpoint.model.common.expression.script;
 
+import java.util.Map;
+
 import org.jetbrains.annotations.NotNull;
 
 import com.evolveum.midpoint.common.LocalizationService;
@@ -51,20 +53,53 @@ public abstract class AbstractCachingScriptEvaluator<I, C> extends AbstractScrip
         return evaluateScript(compiledScript, context);
     }
 
+    @Override
+    public boolean precompile(@NotNull ScriptExpressionEvaluationContext context)
+            throws ExpressionEvaluationException, SecurityViolationException {
+        String codeString = context.getScriptBean().getCode();
+        if (codeString == null || scriptCache.getCode(context.getExpressionProfile(), codeString) != null) {
+            return false;
+        }
+        compileAndCache(codeString, context);
+        return true;
+    }
+
+    @Override
+    public @NotNull Map<String, ScriptCache.Statistics> getScriptCacheStatistics() {
+        return scriptCache.getStatistics();
+    }
+
+    @Override
+    public void setScriptCacheMaxSize(int maxSizePerProfile) {
+        scriptCache.setMaxSizePerProfile(maxSizePerProfile);
+    }
+
     private C getCompiledScript(String codeString, ScriptExpressionEvaluationContext context)
             throws ExpressionEvaluationException, SecurityViolationException {
         C cachedCompiledScript = scriptCache.getCode(context.getExpressionProfile(), codeString);
         if (cachedCompiledScript != null) {
             return cachedCompiledScript;
         }
+        return compileAndCache(codeString, context);
+    }
+
+    /**
+     * Concurrent threads may compile the same script at the same time. This is harmless (the last result wins),
+     * and it is better than blocking all the threads using the cache while a script is being compiled.
+     */
+    private C compileAndCache(String codeString, ScriptExpressionEvaluationContext context)
+            throws ExpressionEvaluationException, SecurityViolationException {
         InternalMonitor.recordCount(InternalCounters.SCRIPT_COMPILE_COUNT);
         C compiledScript;
+        long start = System.nanoTime();
         try {
             compiledScript = compileScript(codeString, context);
         } catch (ExpressionEvaluationException | SecurityViolationException e) {
             throw e;
         } catch (Exception e) {
             throw new ExpressionEvaluationException(e.getMessage() + " while compiling " + context.getContextDescription(), e);
+        } finally {
+            scriptCache.recordCompilation(context.getExpressionProfile(), System.nanoTime() - start);
         }
         scriptCache.putCode(context.getExpressionProfile(), codeString, compiledScript);
         return compiledScript;
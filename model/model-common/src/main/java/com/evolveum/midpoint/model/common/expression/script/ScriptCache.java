@@ -6,55 +6,141 @@
  */
 package com.evolveum.midpoint.model.common.expression.script;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import org.jetbrains.annotations.NotNull;
 
 import com.evolveum.midpoint.schema.expression.ExpressionProfile;
 
 /**
  * Cache for compiled scripts and interpreters, aware of expression profiles.
  *
+ * The cache is concurrent (no global lock is taken when looking up the code), and the number of compiled scripts
+ * kept for each profile is limited by {@link #maxSizePerProfile}; least recently used ones are evicted.
+ * For each profile, statistics (hits, misses, evictions, compilations and compilation time) are kept.
+ *
  * @param <C> compiled code
  * @author Radovan Semancik
  */
 public class ScriptCache<I,C> {
 
-    private final Map<String, I> interpreterCache = new HashMap<>();
+    public static final int DEFAULT_MAX_SIZE_PER_PROFILE = 10_000;
+
+    /** Profile ID is nullable, but concurrent maps do not support null keys. */
+    private static final String NULL_PROFILE_KEY = "";
+
+    private final ConcurrentMap<String, I> interpreterCache = new ConcurrentHashMap<>();
 
     /**
-     * Profile ID (key; nullable) -> Source code (key) -> Compiled code (value)
+     * Profile ID (key; {@link #NULL_PROFILE_KEY} for null) -> Source code (key) -> Compiled code (value)
      */
-    private final Map<String, Map<String, C>> codeCache = new HashMap<>();
+    private final ConcurrentMap<String, ProfileCodeCache<C>> codeCache = new ConcurrentHashMap<>();
 
-    public synchronized I getInterpreter(ExpressionProfile profile) {
+    /** Applies to caches created after this value is set, see {@link #setMaxSizePerProfile(int)}. */
+    private volatile int maxSizePerProfile = DEFAULT_MAX_SIZE_PER_PROFILE;
+
+    public I getInterpreter(ExpressionProfile profile) {
         return interpreterCache.get(getProfileKey(profile));
     }
 
-    public synchronized void putInterpreter(ExpressionProfile profile, I interpreter) {
+    public void putInterpreter(ExpressionProfile profile, I interpreter) {
         interpreterCache.put(getProfileKey(profile), interpreter);
     }
 
-    synchronized C getCode(ExpressionProfile profile, String sourceCodeKey) {
-        String profileKey = getProfileKey(profile);
-        Map<String, C> profileCache = codeCache.get(profileKey);
-        return profileCache != null ? profileCache.get(sourceCodeKey) : null;
+    C getCode(ExpressionProfile profile, String sourceCodeKey) {
+        return getProfileCodeCache(profile).code.getIfPresent(sourceCodeKey);
+    }
+
+    void putCode(ExpressionProfile profile, String sourceCodeKey, C compiledCode) {
+        getProfileCodeCache(profile).code.put(sourceCodeKey, compiledCode);
     }
 
-    synchronized void putCode(ExpressionProfile profile, String sourceCodeKey, C compiledCode) {
-        String profileKey = getProfileKey(profile);
-        Map<String, C> profileCache = codeCache.computeIfAbsent(profileKey, k -> new HashMap<>());
-        profileCache.put(sourceCodeKey, compiledCode);
+    /** Records a compilation of a script (successful or not) that took given time. */
+    void recordCompilation(ExpressionProfile profile, long nanos) {
+        ProfileCodeCache<C> profileCache = getProfileCodeCache(profile);
+        profileCache.compilations.increment();
+        profileCache.compilationTime.add(nanos);
+    }
+
+    private @NotNull ProfileCodeCache<C> getProfileCodeCache(ExpressionProfile profile) {
+        return codeCache.computeIfAbsent(
+                getProfileKey(profile),
+                k -> new ProfileCodeCache<>(maxSizePerProfile));
     }
 
     private String getProfileKey(ExpressionProfile profile) {
         if (profile == null) {
-            return null;
+            return NULL_PROFILE_KEY;
         } else {
             return profile.getIdentifier();
         }
     }
 
-    public synchronized void clear() {
+    /** Sets the maximal number of compiled scripts kept for each profile. Clears the code cache. */
+    public void setMaxSizePerProfile(int maxSizePerProfile) {
+        if (maxSizePerProfile <= 0) {
+            throw new IllegalArgumentException("Maximal size of the script cache must be positive: " + maxSizePerProfile);
+        }
+        this.maxSizePerProfile = maxSizePerProfile;
+        clear();
+    }
+
+    public int getMaxSizePerProfile() {
+        return maxSizePerProfile;
+    }
+
+    public void clear() {
         codeCache.clear();
     }
+
+    /** Returns the statistics for individual profiles; the key for "no profile" is an empty string. */
+    public @NotNull Map<String, Statistics> getStatistics() {
+        Map<String, Statistics> statistics = new TreeMap<>();
+        codeCache.forEach((profileKey, profileCache) -> statistics.put(profileKey, profileCache.getStatistics()));
+        return statistics;
+    }
+
+    private static class ProfileCodeCache<C> {
+
+        @NotNull private final Cache<String, C> code;
+
+        @NotNull private final LongAdder compilations = new LongAdder();
+        @NotNull private final LongAdder compilationTime = new LongAdder();
+
+        private ProfileCodeCache(int maxSize) {
+            code = CacheBuilder.newBuilder()
+                    .maximumSize(maxSize)
+                    .recordStats()
+                    .build();
+        }
+
+        private @NotNull Statistics getStatistics() {
+            CacheStats stats = code.stats();
+            return new Statistics(
+                    code.size(),
+                    stats.hitCount(),
+                    stats.missCount(),
+                    stats.evictionCount(),
+                    compilations.sum(),
+                    compilationTime.sum() / 1_000_000);
+        }
+    }
+
+    /** Statistics of the compiled code cache for a single profile. */
+    public record Statistics(
+            long size, long hits, long misses, long evictions, long compilations, long compilationTimeMillis) {
+
+        @Override
+        public String toString() {
+            return "size=%d, hits=%d, misses=%d, evictions=%d, compilations=%d, compilation time=%d ms".formatted(
+                    size, hits, misses, evictions, compilations, compilationTimeMillis);
+        }
+    }
 }
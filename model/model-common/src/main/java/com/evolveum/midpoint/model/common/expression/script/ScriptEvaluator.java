@@ -7,6 +7,7 @@
 package com.evolveum.midpoint.model.common.expression.script;
 
 import java.util.List;
+import java.util.Map;
 
 import org.jetbrains.annotations.NotNull;
 
@@ -43,4 +44,23 @@ public interface ScriptEvaluator {
     default boolean isInitialized() {
         return true;
     }
+
+    /**
+     * Compiles the script in given context and caches the result, so it is ready for later evaluations.
+     * Returns `true` if the script was compiled, `false` if it was already cached or if the evaluator does not cache
+     * compiled scripts at all.
+     */
+    default boolean precompile(@NotNull ScriptExpressionEvaluationContext context)
+            throws ExpressionEvaluationException, SecurityViolationException {
+        return false;
+    }
+
+    /** Statistics of the compiled scripts cache, indexed by expression profile identifier. Empty if there is no cache. */
+    default @NotNull Map<String, ScriptCache.Statistics> getScriptCacheStatistics() {
+        return Map.of();
+    }
+
+    /** Sets the maximal number of compiled scripts cached for each expression profile. Ignored if there is no cache. */
+    default void setScriptCacheMaxSize(int maxSizePerProfile) {
+    }
 }
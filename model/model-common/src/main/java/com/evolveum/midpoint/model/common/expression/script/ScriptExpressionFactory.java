@@ -30,6 +30,7 @@ import com.evolveum.midpoint.schema.expression.ScriptLanguageExpressionProfile;
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.util.MiscUtil;
 import com.evolveum.midpoint.util.QNameUtil;
+import com.evolveum.midpoint.util.exception.ExpressionEvaluationException;
 import com.evolveum.midpoint.util.exception.SecurityViolationException;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.ScriptExpressionEvaluatorType;
 
@@ -40,6 +41,7 @@ import com.evolveum.midpoint.xml.ns._public.common.common_3.ScriptExpressionEval
  *
  * . creates {@link ScriptExpression} instances from {@link ScriptExpressionEvaluatorType} beans;
  * . manages {@link ScriptEvaluator} instances for individual languages (Groovy, JavaScript, ...);
+ * . provides access to their compiled scripts caches (precompilation, statistics, size limit).
  *
  * @author Radovan Semancik
  */
@@ -147,6 +149,45 @@ public class ScriptExpressionFactory {
         return expression;
     }
 
+    /**
+     * Compiles the script (if the respective evaluator caches compiled scripts), so that its first evaluation
+     * under given expression profile does not need to compile it. Returns `true` if the script was compiled now.
+     */
+    public boolean precompileScript(
+            @NotNull ScriptExpressionEvaluatorType scriptExpressionBean,
+            ExpressionProfile expressionProfile,
+            String shortDesc)
+            throws ExpressionSyntaxException, SecurityViolationException, ExpressionEvaluationException {
+        ScriptEvaluator evaluator = getEvaluator(getLanguage(scriptExpressionBean), shortDesc);
+        if (!evaluator.isInitialized()) {
+            return false;
+        }
+        ScriptExpressionEvaluationContext context = new ScriptExpressionEvaluationContext();
+        context.setScriptBean(scriptExpressionBean);
+        context.setExpressionProfile(expressionProfile);
+        context.setScriptExpressionProfile(
+                getScriptLanguageExpressionProfileOrFail(expressionProfile, evaluator.getLanguageUrl(), shortDesc));
+        context.setContextDescription(shortDesc);
+        return evaluator.precompile(context);
+    }
+
+    /** Statistics of compiled scripts caches: language URL -> expression profile identifier -> statistics. */
+    public @NotNull Map<String, Map<String, ScriptCache.Statistics>> getScriptCacheStatistics() {
+        Map<String, Map<String, ScriptCache.Statistics>> statistics = new TreeMap<>();
+        evaluatorMap.forEach((language, evaluator) -> {
+            var evaluatorStatistics = evaluator.getScriptCacheStatistics();
+            if (!evaluatorStatistics.isEmpty()) {
+                statistics.put(language, evaluatorStatistics);
+            }
+        });
+        return statistics;
+    }
+
+    /** Sets the maximal number of compiled scripts cached for each language and expression profile. */
+    public void setScriptCacheMaxSize(int maxSizePerProfile) {
+        evaluatorMap.values().forEach(evaluator -> evaluator.setScriptCacheMaxSize(maxSizePerProfile));
+    }
+
     private ScriptLanguageExpressionProfile getScriptLanguageExpressionProfileOrFail(
             ExpressionProfile expressionProfile, @NotNull String language, String shortDesc) throws SecurityViolationException {
         if (expressionProfile == null) {
@@ -46,6 +46,9 @@ public class ProfilingModelInspector
     private ModelContext<?> lastLensContext;
     private ModelState currentState = null;
     private long totalRepoTime = 0;
+    private long projectionsFetchedCount = 0;
+    private long projectionsFetchWallTime = 0;
+    private long projectionsFetchSummedTime = 0;
 
     private static class Runtime {
         protected long startTime = 0;
@@ -101,6 +104,9 @@ public class ProfilingModelInspector
         projectorMappingTotalCount = 0;
         lastLensContext = null;
         currentState = null;
+        projectionsFetchedCount = 0;
+        projectionsFetchWallTime = 0;
+        projectionsFetchSummedTime = 0;
     }
 
     @Override
@@ -172,6 +178,10 @@ public class ProfilingModelInspector
         return lastLensContext;
     }
 
+    public long getProjectionsFetchedCount() {
+        return projectionsFetchedCount;
+    }
+
     @Override
     public void afterMappingEvaluation(Mapping<?, ?> evaluatedMapping) {
         totalMappingTimeMillis += ObjectUtils.defaultIfNull(evaluatedMapping.getEtime(), 0L);
@@ -218,6 +228,13 @@ public class ProfilingModelInspector
         recordProjectorPartTime(currentState, componentName, null, System.currentTimeMillis());
     }
 
+    @Override
+    public void projectionsFetched(int count, long wallTimeMillis, long summedTimeMillis) {
+        projectionsFetchedCount += count;
+        projectionsFetchWallTime += wallTimeMillis;
+        projectionsFetchSummedTime += summedTimeMillis;
+    }
+
     @Override
     public void recordRepoOperation(long durationMillis) {
         totalRepoTime = totalRepoTime + durationMillis;
@@ -235,7 +252,10 @@ public class ProfilingModelInspector
         dumpState(sb, ModelState.POSTEXECUTION, indent);
         DebugUtil.debugDumpWithLabelLn(sb, "totalOperationTime", totalOperationTimes.etimeStr(), indent + 1);
         DebugUtil.debugDumpWithLabelLn(sb, "totalMappingTime", totalMappingTimeMillis + " ms", indent + 1);
-        DebugUtil.debugDumpWithLabel(sb, "totalRepoTime", totalRepoTime + " ms", indent + 1);
+        DebugUtil.debugDumpWithLabelLn(sb, "totalRepoTime", totalRepoTime + " ms", indent + 1);
+        DebugUtil.debugDumpWithLabel(sb, "projectionsFetched",
+                projectionsFetchedCount + " in " + projectionsFetchWallTime + " ms"
+                        + " (summed fetch time " + projectionsFetchSummedTime + " ms)", indent + 1);
         return sb.toString();
     }
 
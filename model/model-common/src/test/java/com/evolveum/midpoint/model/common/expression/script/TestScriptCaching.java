@@ -7,6 +7,7 @@
 package com.evolveum.midpoint.model.common.expression.script;
 
 import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
 import static org.testng.AssertJUnit.assertTrue;
 
 import static com.evolveum.midpoint.prism.util.PrismTestUtil.getPrismContext;
@@ -120,6 +121,46 @@ public class TestScriptCaching extends AbstractUnitTest
         assertTrue("Even Horatio was wrong! " + horatio1Time + " -> " + horatio2Time, horatio2Time <= horatio1Time);
     }
 
+    /** Pre-compiled scripts are not compiled again when evaluated; least recently used ones are evicted. */
+    @Test
+    public void testPrecompileAndEviction() throws Exception {
+        given("empty cache holding a single script");
+        InternalMonitor.reset();
+        scriptExpressionfactory.setScriptCacheMaxSize(1);
+
+        try {
+            when("script is pre-compiled (twice)");
+            ScriptExpressionEvaluatorType scriptType = parseScriptType("expression-func-concatname.xml");
+            boolean compiledFirst = scriptExpressionfactory.precompileScript(scriptType, null, "precompile");
+            boolean compiledSecond = scriptExpressionfactory.precompileScript(scriptType, null, "precompile again");
+
+            then("it is compiled only once");
+            assertTrue("Script was not pre-compiled", compiledFirst);
+            assertFalse("Script was pre-compiled twice", compiledSecond);
+            assertScriptMonitor(1, 0, "precompile");
+
+            when("pre-compiled script is executed");
+            executeScript("expression-func-concatname.xml", "Horatio Torquemada Marley", "horatio-precompiled");
+
+            then("it is not compiled again");
+            assertScriptMonitor(1, 1, "horatio-precompiled");
+
+            when("other script is executed, and then the first one again");
+            executeScript("expression-string-variables.xml", "FOOBAR", "foobar");
+            executeScript("expression-func-concatname.xml", "Horatio Torquemada Marley", "horatio-evicted");
+
+            then("the first script was evicted, so it is compiled again");
+            assertScriptMonitor(3, 3, "horatio-evicted");
+            ScriptCache.Statistics statistics = evaluator.getScriptCacheStatistics().get("");
+            displayValue("statistics", statistics);
+            assertEquals("Wrong # of compilations", 3, statistics.compilations());
+            assertEquals("Wrong # of evictions", 2, statistics.evictions());
+            assertEquals("Wrong cache size", 1, statistics.size());
+        } finally {
+            scriptExpressionfactory.setScriptCacheMaxSize(ScriptCache.DEFAULT_MAX_SIZE_PER_PROFILE);
+        }
+    }
+
     private void assertScriptMonitor(int expCompilations, int expExecutions, String desc) {
         assertEquals("Unexpected number of script compilations after " + desc, expCompilations, InternalMonitor.getCount(InternalCounters.SCRIPT_COMPILE_COUNT));
         assertEquals("Unexpected number of script executions after " + desc, expExecutions, InternalMonitor.getCount(InternalCounters.SCRIPT_EXECUTION_COUNT));
@@ -7,6 +7,7 @@
 package com.evolveum.midpoint.model.impl;
 
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.ws.rs.core.Response;
 
 import com.evolveum.midpoint.model.api.util.ClusterServiceConsts;
@@ -19,6 +20,7 @@ import org.springframework.stereotype.Component;
 
 import com.evolveum.midpoint.CacheInvalidationContext;
 import com.evolveum.midpoint.authentication.api.config.NodeAuthenticationToken;
+import com.evolveum.midpoint.common.configuration.api.MidpointConfiguration;
 import com.evolveum.midpoint.repo.api.CacheDispatcher;
 import com.evolveum.midpoint.repo.api.CacheListener;
 import com.evolveum.midpoint.schema.constants.ObjectTypes;
@@ -30,20 +32,46 @@ import com.evolveum.midpoint.util.logging.Trace;
 import com.evolveum.midpoint.util.logging.TraceManager;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectType;
 
+/**
+ * Distributes cluster-wide cache invalidation events to other nodes.
+ *
+ * By default, each event is sent synchronously to all other nodes. If `cacheInvalidationBatchInterval` (in milliseconds)
+ * is set in `midpoint.taskManager` section of `config.xml`, the events are collected for that time, de-duplicated,
+ * and sent asynchronously in batches; see {@link ClusterInvalidationBatcher}.
+ */
 @Component
 public class ClusterCacheListener implements CacheListener {
 
     private static final Trace LOGGER = TraceManager.getTrace(ClusterCacheListener.class);
 
+    private static final String CONF_CACHE_INVALIDATION_BATCH_INTERVAL = "cacheInvalidationBatchInterval";
+
     @Autowired private TaskManager taskManager;
     @Autowired private CacheDispatcher cacheDispatcher;
     @Autowired private ClusterExecutionHelper clusterExecutionHelper;
+    @Autowired private MidpointConfiguration midpointConfiguration;
+
+    /** Null if the events are sent synchronously. */
+    private ClusterInvalidationBatcher batcher;
 
     @PostConstruct
     public void addListener() {
+        long batchInterval = midpointConfiguration.getConfiguration(MidpointConfiguration.TASK_MANAGER_CONFIGURATION)
+                .getLong(CONF_CACHE_INVALIDATION_BATCH_INTERVAL, 0);
+        if (batchInterval > 0) {
+            LOGGER.info("Cluster-wide cache invalidation events will be sent in batches collected for {} ms", batchInterval);
+            batcher = new ClusterInvalidationBatcher(batchInterval, clusterExecutionHelper);
+        }
         cacheDispatcher.registerCacheListener(this);
     }
 
+    @PreDestroy
+    public void shutdown() {
+        if (batcher != null) {
+            batcher.shutdown();
+        }
+    }
+
     @Override
     public <O extends ObjectType> void invalidate(Class<O> type, String oid, boolean clusterwide,
             CacheInvalidationContext context) {
@@ -52,15 +80,24 @@ public class ClusterCacheListener implements CacheListener {
             return;
         }
 
+        LOGGER.trace("Cache invalidation context {}", context);
+
+        String restType = type != null ? ObjectTypes.getRestTypeFromClass(type) : null;
+        if (batcher != null) {
+            if (restType == null && oid != null) {
+                LOGGER.warn("Cannot invalidate object type null with specific OID. Converting to global invalidation (type=null, oid=null).");
+            }
+            batcher.enqueue(restType, restType != null ? oid : null);
+            return;
+        }
+
         Task task = taskManager.createTaskInstance("invalidate");
         OperationResult result = task.getResult();
 
-        LOGGER.trace("Cache invalidation context {}", context);
-
         // Regular cache invalidation can be skipped for nodes not checking in. Cache entries will expire on such nodes
         // eventually. (We can revisit this design decision if needed.)
         clusterExecutionHelper.execute((client, node, result1) -> {
-            client.path(getInvalidationRestPath(type, oid));
+            client.path(getInvalidationRestPath(restType, oid));
             var response = client.post(null);
             var statusInfo = response.getStatusInfo();
             if (statusInfo.getFamily() != Response.Status.Family.SUCCESSFUL) {
@@ -75,10 +112,10 @@ public class ClusterCacheListener implements CacheListener {
     }
 
     @NotNull
-    private <O extends ObjectType> String getInvalidationRestPath(Class<O> type, String oid) {
+    static String getInvalidationRestPath(String restType, String oid) {
         StringBuilder sb = new StringBuilder(ClusterServiceConsts.EVENT_INVALIDATION);
-        if (type != null) {
-            sb.append(ObjectTypes.getRestTypeFromClass(type));
+        if (restType != null) {
+            sb.append(restType);
             if (oid != null) {
                 sb.append("/").append(oid);
             }
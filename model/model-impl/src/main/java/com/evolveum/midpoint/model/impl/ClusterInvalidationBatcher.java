@@ -0,0 +1,272 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.model.impl;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import jakarta.ws.rs.core.Response;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.annotations.VisibleForTesting;
+
+import com.evolveum.midpoint.model.api.util.ClusterServiceConsts;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.task.api.ClusterExecutionHelper;
+import com.evolveum.midpoint.util.logging.LoggingUtils;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+import com.evolveum.midpoint.xml.ns._public.common.api_types_3.CacheInvalidationEventListType;
+import com.evolveum.midpoint.xml.ns._public.common.api_types_3.CacheInvalidationEventType;
+
+/**
+ * Collects cluster-wide cache invalidation events for a short time and sends them to other nodes in a single batch.
+ *
+ * The events are de-duplicated on the way: the same (type, OID) is sent only once, invalidation of the whole type
+ * replaces invalidations of individual objects of that type, and global invalidation replaces everything else.
+ * The batch is sent from a separate thread to all nodes in parallel, so the thread that caused the invalidation
+ * is not delayed by the remote calls.
+ *
+ * Nodes that do not know the batch endpoint (older versions) get the events one by one, as before.
+ *
+ * Delivery lag (time between the oldest event in the batch was created and the batch was sent) and batch sizes
+ * are tracked, see {@link #getStatisticsDescription()}. They are logged at INFO level periodically
+ * (see {@link #STATISTICS_LOG_INTERVAL}) and on shutdown.
+ *
+ * After {@link #shutdown()}, the events are sent immediately by the calling thread, as if there was no batching.
+ */
+class ClusterInvalidationBatcher {
+
+    private static final Trace LOGGER = TraceManager.getTrace(ClusterInvalidationBatcher.class);
+
+    private static final String OP_SEND_BATCH = ClusterInvalidationBatcher.class.getName() + ".sendBatch";
+
+    /** How often (at most) are the statistics logged at INFO level. */
+    private static final long STATISTICS_LOG_INTERVAL = TimeUnit.MINUTES.toMillis(10);
+
+    private final long interval;
+
+    /** Sends the batch to other nodes. Called outside of the lock. */
+    @NotNull private final Consumer<CacheInvalidationEventListType> batchSender;
+
+    /** Events waiting to be sent, with the time they were enqueued. Guarded by `this`. */
+    private final Map<Event, Long> pending = new LinkedHashMap<>();
+
+    /** Is the sending of pending events scheduled? Guarded by `this`. */
+    private boolean flushScheduled;
+
+    /** Created on first use. Guarded by `this`. */
+    private ScheduledExecutorService scheduler;
+
+    /** Set by {@link #shutdown()}; no scheduler is created after that. Guarded by `this`. */
+    private boolean stopped;
+
+    /** When were the statistics last logged at INFO level. */
+    private volatile long lastStatisticsLogged = System.currentTimeMillis();
+
+    private final LongAdder eventsReceived = new LongAdder();
+    private final LongAdder eventsSent = new LongAdder();
+    private final LongAdder batchesSent = new LongAdder();
+    private final LongAdder totalLag = new LongAdder();
+    private final LongAccumulator maxLag = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator maxBatchSize = new LongAccumulator(Math::max, 0);
+
+    ClusterInvalidationBatcher(long interval, @NotNull ClusterExecutionHelper clusterExecutionHelper) {
+        this(interval, batch -> sendToNodes(batch, clusterExecutionHelper));
+    }
+
+    @VisibleForTesting
+    ClusterInvalidationBatcher(long interval, @NotNull Consumer<CacheInvalidationEventListType> batchSender) {
+        this.interval = interval;
+        this.batchSender = batchSender;
+    }
+
+    /**
+     * Adds the event to the pending batch. The type is in the REST form; null type means global invalidation,
+     * null OID means invalidation of all objects of the type.
+     */
+    void enqueue(@Nullable String type, @Nullable String oid) {
+        synchronized (this) {
+            eventsReceived.increment();
+            if (!stopped) {
+                if (!isCoveredByPending(type, oid)) {
+                    if (type == null) {
+                        pending.clear();
+                    } else if (oid == null) {
+                        pending.keySet().removeIf(e -> type.equals(e.type()));
+                    }
+                    pending.put(new Event(type, oid), System.currentTimeMillis());
+                }
+                if (!flushScheduled) {
+                    getScheduler().schedule(this::flush, interval, TimeUnit.MILLISECONDS);
+                    flushScheduled = true;
+                }
+                return;
+            }
+        }
+        // Shutting down: no more batching, but other nodes should still learn about the change.
+        sendAndRecord(List.of(new Event(type, oid)), System.currentTimeMillis());
+    }
+
+    private boolean isCoveredByPending(String type, String oid) {
+        for (Event event : pending.keySet()) {
+            if (event.type() == null
+                    || Objects.equals(event.type(), type) && (event.oid() == null || Objects.equals(event.oid(), oid))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void flush() {
+        List<Event> events;
+        long oldest = Long.MAX_VALUE;
+        synchronized (this) {
+            flushScheduled = false;
+            events = new ArrayList<>(pending.keySet());
+            for (Long enqueued : pending.values()) {
+                oldest = Math.min(oldest, enqueued);
+            }
+            pending.clear();
+        }
+        if (!events.isEmpty()) {
+            sendAndRecord(events, oldest);
+        }
+    }
+
+    private void sendAndRecord(List<Event> events, long oldest) {
+        long lag = System.currentTimeMillis() - oldest;
+        CacheInvalidationEventListType batch = new CacheInvalidationEventListType();
+        for (Event event : events) {
+            CacheInvalidationEventType eventBean = new CacheInvalidationEventType();
+            eventBean.setType(event.type());
+            eventBean.setOid(event.oid());
+            batch.getEvent().add(eventBean);
+        }
+        try {
+            batchSender.accept(batch);
+        } catch (Throwable t) {
+            // We must not kill the scheduler thread. Cache entries on other nodes will expire eventually.
+            LoggingUtils.logUnexpectedException(LOGGER, "Couldn't send {} cache invalidation events to other nodes",
+                    t, events.size());
+        }
+        batchesSent.increment();
+        eventsSent.add(events.size());
+        totalLag.add(lag);
+        maxLag.accumulate(lag);
+        maxBatchSize.accumulate(events.size());
+        LOGGER.debug("Sent batch of {} cache invalidation event(s), delivery lag {} ms", events.size(), lag);
+        long now = System.currentTimeMillis();
+        if (now - lastStatisticsLogged >= STATISTICS_LOG_INTERVAL) {
+            lastStatisticsLogged = now;
+            LOGGER.info("Cluster cache invalidation statistics: {}", getStatisticsDescription());
+        }
+    }
+
+    private static void sendToNodes(
+            @NotNull CacheInvalidationEventListType batch, @NotNull ClusterExecutionHelper clusterExecutionHelper) {
+        List<CacheInvalidationEventType> events = batch.getEvent();
+        OperationResult result = new OperationResult(OP_SEND_BATCH);
+        result.addParam("events", events.size());
+        // Regular cache invalidation can be skipped for nodes not checking in. Cache entries will expire on such nodes
+        // eventually. (We can revisit this design decision if needed.)
+        clusterExecutionHelper.executeInParallel((client, node, result1) -> {
+            client.path(ClusterServiceConsts.EVENT_INVALIDATION_BATCH);
+            Response response = client.post(batch);
+            Response.StatusType statusInfo = response.getStatusInfo();
+            response.close();
+            if (statusInfo.getStatusCode() == Response.Status.NOT_FOUND.getStatusCode()
+                    || statusInfo.getStatusCode() == Response.Status.METHOD_NOT_ALLOWED.getStatusCode()) {
+                LOGGER.debug("Node {} does not support batched cache invalidation, sending {} event(s) one by one",
+                        node.getNodeIdentifier(), events.size());
+                for (CacheInvalidationEventType event : events) {
+                    client.back(true);
+                    client.path(ClusterCacheListener.getInvalidationRestPath(event.getType(), event.getOid()));
+                    Response singleResponse = client.post(null);
+                    logStatus(node.getNodeIdentifier(), singleResponse.getStatusInfo());
+                    singleResponse.close();
+                }
+            } else {
+                logStatus(node.getNodeIdentifier(), statusInfo);
+            }
+        }, null, "cache invalidation", result);
+    }
+
+    private static void logStatus(String nodeIdentifier, Response.StatusType statusInfo) {
+        if (statusInfo.getFamily() != Response.Status.Family.SUCCESSFUL) {
+            LOGGER.warn("Cluster-wide cache clearance finished on {} with status {}, {}", nodeIdentifier,
+                    statusInfo.getStatusCode(), statusInfo.getReasonPhrase());
+        } else {
+            LOGGER.debug("Cluster-wide cache clearance finished on {} with status {}, {}", nodeIdentifier,
+                    statusInfo.getStatusCode(), statusInfo.getReasonPhrase());
+        }
+    }
+
+    private ScheduledExecutorService getScheduler() {
+        if (scheduler == null) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "cluster-cache-invalidation-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return scheduler;
+    }
+
+    String getStatisticsDescription() {
+        long batches = batchesSent.sum();
+        return "received " + eventsReceived.sum()
+                + ", sent " + eventsSent.sum() + " in " + batches + " batch(es)"
+                + ", max batch size " + maxBatchSize.get()
+                + ", average lag " + (batches > 0 ? totalLag.sum() / batches : 0) + " ms"
+                + ", max lag " + maxLag.get() + " ms";
+    }
+
+    @VisibleForTesting
+    long getBatchesSent() {
+        return batchesSent.sum();
+    }
+
+    @VisibleForTesting
+    long getEventsSent() {
+        return eventsSent.sum();
+    }
+
+    /**
+     * Sends what is pending (if anything) and stops the sending thread.
+     * Events enqueued after this call are sent immediately by the calling thread.
+     */
+    void shutdown() {
+        ScheduledExecutorService schedulerToStop;
+        synchronized (this) {
+            stopped = true;
+            schedulerToStop = scheduler;
+            scheduler = null;
+        }
+        if (schedulerToStop != null) {
+            schedulerToStop.shutdownNow();
+            flush();
+            LOGGER.info("Cluster cache invalidation statistics: {}", getStatisticsDescription());
+        }
+    }
+
+    /** Pending invalidation event. Type is in the REST form. */
+    private record Event(String type, String oid) {
+    }
+}
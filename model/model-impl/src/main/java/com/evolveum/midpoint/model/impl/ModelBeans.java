@@ -39,6 +39,7 @@ import com.evolveum.midpoint.model.impl.correlation.CorrelationCaseManager;
 import com.evolveum.midpoint.model.impl.correlation.CorrelationServiceImpl;
 import com.evolveum.midpoint.model.impl.correlator.CorrelatorFactoryRegistryImpl;
 import com.evolveum.midpoint.model.impl.lens.*;
+import com.evolveum.midpoint.model.impl.lens.assignments.InducementTargetCache;
 import com.evolveum.midpoint.model.impl.lens.identities.IdentitiesManager;
 import com.evolveum.midpoint.model.impl.lens.indexing.IndexingManager;
 import com.evolveum.midpoint.model.impl.lens.projector.Projector;
@@ -155,4 +156,5 @@ public class ModelBeans {
     @Autowired public ActivityHandlerRegistry activityHandlerRegistry;
     @Autowired public DataAccessProcessor dataAccessProcessor; // temporary
     @Autowired public RoleAnalysisService roleAnalysisService;
+    @Autowired public InducementTargetCache inducementTargetCache;
 }
@@ -650,6 +650,10 @@ public class CollectionProcessor {
         if (newDisableCounting != null && (existingView.isDisableCounting() == null || replaceIfExist)) {
             existingView.setDisableCounting(newDisableCounting);
         }
+        Boolean newApproximateCounting = objectListViewType.isApproximateCounting();
+        if (newApproximateCounting != null && (existingView.isApproximateCounting() == null || replaceIfExist)) {
+            existingView.setApproximateCounting(newApproximateCounting);
+        }
     }
 
     private void compileDisplayOrder(CompiledObjectCollectionView existingView, GuiObjectListViewType objectListViewType, boolean replaceIfExist) {
@@ -45,6 +45,7 @@ import com.evolveum.midpoint.model.api.hooks.HookRegistry;
 import com.evolveum.midpoint.model.api.hooks.ReadHook;
 import com.evolveum.midpoint.repo.common.AuditHelper;
 import com.evolveum.midpoint.model.impl.ModelObjectResolver;
+import com.evolveum.midpoint.model.impl.expr.ScriptCacheInitializer;
 import com.evolveum.midpoint.model.impl.importer.ObjectImporter;
 import com.evolveum.midpoint.model.impl.lens.*;
 import com.evolveum.midpoint.model.impl.scripting.ExecutionContext;
@@ -163,6 +164,7 @@ public class ModelController implements ModelService, TaskService, CaseService,
     @Autowired(required = false)                        // not required in all circumstances
     private CertificationManager certificationManager;
     @Autowired private OperationalDataManager operationalDataManager;
+    @Autowired private ScriptCacheInitializer scriptCacheInitializer;
 
     public ModelObjectResolver getObjectResolver() {
         return objectResolver;
@@ -1736,6 +1738,8 @@ public class ModelController implements ModelService, TaskService, CaseService,
 
             provisioning.postInit(result);
 
+            scriptCacheInitializer.precompileScriptsIfConfigured(result);
+
         } catch (SchemaException e) {
             result.recordFatalError(e);
             throw new SystemException(e.getMessage(), e);
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.model.impl.expr;
+
+import static com.evolveum.midpoint.schema.GetOperationOptions.createReadOnlyCollection;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import jakarta.annotation.PostConstruct;
+import jakarta.xml.bind.JAXBElement;
+
+import org.apache.commons.configuration2.Configuration;
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import com.evolveum.midpoint.common.configuration.api.MidpointConfiguration;
+import com.evolveum.midpoint.model.common.expression.ExpressionProfileManager;
+import com.evolveum.midpoint.model.common.expression.script.ScriptCache;
+import com.evolveum.midpoint.model.common.expression.script.ScriptExpressionFactory;
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.PrismPropertyValue;
+import com.evolveum.midpoint.repo.api.RepositoryService;
+import com.evolveum.midpoint.schema.expression.ExpressionProfile;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.util.exception.CommonException;
+import com.evolveum.midpoint.util.logging.LoggingUtils;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.*;
+
+/**
+ * Configures the caches of compiled scripts according to `midpoint.expressions` section of `config.xml`,
+ * and - if requested - pre-compiles scripts found in resources, object templates and abstract roles at startup,
+ * so the first evaluations (e.g. in the first reconciliation after restart) do not need to compile them.
+ *
+ * Configuration keys:
+ *
+ * - `scriptCacheMaxSize`: maximal number of compiled scripts kept for each language and expression profile,
+ * - `precompileScripts`: whether to pre-compile the scripts at startup (default: `false`).
+ */
+@Component
+public class ScriptCacheInitializer {
+
+    private static final Trace LOGGER = TraceManager.getTrace(ScriptCacheInitializer.class);
+
+    private static final String OP_PRECOMPILE_SCRIPTS = ScriptCacheInitializer.class.getName() + ".precompileScripts";
+
+    private static final String CONF_SCRIPT_CACHE_MAX_SIZE = "scriptCacheMaxSize";
+    private static final String CONF_PRECOMPILE_SCRIPTS = "precompileScripts";
+
+    /** Objects where mappings (and hence scripts) evaluated during synchronization and recomputation are usually found. */
+    private static final List<Class<? extends ObjectType>> TYPES_TO_PRECOMPILE =
+            List.of(ResourceType.class, ObjectTemplateType.class, AbstractRoleType.class);
+
+    @Autowired private MidpointConfiguration midpointConfiguration;
+    @Autowired private ScriptExpressionFactory scriptExpressionFactory;
+    @Autowired private ExpressionProfileManager expressionProfileManager;
+    @Autowired @Qualifier("cacheRepositoryService") private RepositoryService repositoryService;
+
+    private boolean precompileScripts;
+
+    @PostConstruct
+    public void init() {
+        Configuration configuration = midpointConfiguration.getConfiguration(MidpointConfiguration.EXPRESSIONS_CONFIGURATION);
+        int maxSize = configuration.getInt(CONF_SCRIPT_CACHE_MAX_SIZE, ScriptCache.DEFAULT_MAX_SIZE_PER_PROFILE);
+        if (maxSize != ScriptCache.DEFAULT_MAX_SIZE_PER_PROFILE) {
+            LOGGER.info("Setting maximal size of compiled scripts caches to {} (per language and expression profile)", maxSize);
+            scriptExpressionFactory.setScriptCacheMaxSize(maxSize);
+        }
+        precompileScripts = configuration.getBoolean(CONF_PRECOMPILE_SCRIPTS, false);
+    }
+
+    /** Called on node startup (model post-initialization). Does nothing unless configured to do so. */
+    public void precompileScriptsIfConfigured(OperationResult parentResult) {
+        if (!precompileScripts) {
+            return;
+        }
+        OperationResult result = parentResult.createSubresult(OP_PRECOMPILE_SCRIPTS);
+        try {
+            long start = System.currentTimeMillis();
+            AtomicInteger compiled = new AtomicInteger();
+            AtomicInteger failed = new AtomicInteger();
+            for (Class<? extends ObjectType> type : TYPES_TO_PRECOMPILE) {
+                repositoryService.searchObjectsIterative(
+                        type, null,
+                        (object, lResult) -> {
+                            precompileScripts(object, compiled, failed, lResult);
+                            return true;
+                        },
+                        createReadOnlyCollection(), true, result);
+            }
+            LOGGER.info("Pre-compiled {} scripts in {} ms ({} failed); cache statistics: {}",
+                    compiled.get(), System.currentTimeMillis() - start, failed.get(),
+                    scriptExpressionFactory.getScriptCacheStatistics());
+        } catch (Throwable t) {
+            // Pre-compilation is only an optimization; the scripts will be compiled on first use.
+            LoggingUtils.logUnexpectedException(LOGGER, "Couldn't pre-compile scripts", t);
+            result.recordException(t);
+        } finally {
+            result.close();
+        }
+    }
+
+    private void precompileScripts(
+            @NotNull PrismObject<? extends ObjectType> object,
+            @NotNull AtomicInteger compiled,
+            @NotNull AtomicInteger failed,
+            @NotNull OperationResult result) {
+        ExpressionProfile profile;
+        try {
+            profile = expressionProfileManager.determineExpressionProfile(object, result);
+        } catch (CommonException e) {
+            LOGGER.debug("Couldn't determine expression profile for {}, skipping its scripts: {}", object, e.getMessage(), e);
+            return;
+        }
+        object.accept(visitable -> {
+            if (visitable instanceof PrismPropertyValue<?> pval
+                    && pval.getRealValue() instanceof ExpressionType expression) {
+                for (JAXBElement<?> evaluator : expression.getExpressionEvaluator()) {
+                    if (evaluator.getValue() instanceof ScriptExpressionEvaluatorType script) {
+                        String desc = "script in " + object;
+                        try {
+                            if (scriptExpressionFactory.precompileScript(script, profile, desc)) {
+                                compiled.incrementAndGet();
+                            }
+                        } catch (CommonException | RuntimeException e) {
+                            // The error will be reported again when the script is evaluated.
+                            LOGGER.debug("Couldn't pre-compile {}: {}", desc, e.getMessage(), e);
+                            failed.incrementAndGet();
+                        }
+                    }
+                }
+            }
+        });
+    }
+}
@@ -7,8 +7,10 @@
 
 package com.evolveum.midpoint.model.impl.lens;
 
+import jakarta.annotation.PreDestroy;
 import org.springframework.stereotype.Component;
 
+import com.evolveum.midpoint.model.impl.lens.executor.ConcurrentProjectionsExecution;
 import com.evolveum.midpoint.model.impl.lens.executor.FocusChangeExecution;
 import com.evolveum.midpoint.model.impl.lens.executor.ProjectionChangeExecution;
 import com.evolveum.midpoint.schema.result.OperationResult;
@@ -25,6 +27,7 @@ import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectType;
  *
  * - {@link FocusChangeExecution}
  * - {@link ProjectionChangeExecution}
+ * - {@link ConcurrentProjectionsExecution} (if projections are to be executed concurrently)
  *
  * TODO Move to `executor` package. But this is incompatible change regarding loggers and operation names.
  *
@@ -40,6 +43,12 @@ public class ChangeExecutor {
     public static final String OPERATION_EXECUTE_PROJECTION = OPERATION_EXECUTE + ".projection";
     public static final String OPERATION_EXECUTE_DELTA = ChangeExecutor.class.getName() + ".executeDelta";
 
+    /** Node-wide limit for threads executing projections concurrently, see {@link ConcurrentProjectionsExecution}. */
+    private static final int MAX_PROJECTION_EXECUTION_THREADS = 32;
+
+    private final ProjectionThreadPool projectionThreadPool =
+            new ProjectionThreadPool("projection-execution", MAX_PROJECTION_EXECUTION_THREADS);
+
     public <O extends ObjectType> void executeChanges(LensContext<O> context, Task task,
             OperationResult parentResult) throws ObjectAlreadyExistsException, ObjectNotFoundException,
             SchemaException, CommunicationException, ConfigurationException,
@@ -76,10 +85,22 @@ public class ChangeExecutor {
             throws ObjectNotFoundException, SchemaException, CommunicationException, ConfigurationException,
             SecurityViolationException, PolicyViolationException, ExpressionEvaluationException, ObjectAlreadyExistsException {
 
+        var concurrentExecution =
+                ConcurrentProjectionsExecution.createIfApplicable(context, projectionThreadPool.getExecutor(), task, result);
+        if (concurrentExecution != null) {
+            concurrentExecution.execute(result);
+            return;
+        }
+
         for (LensProjectionContext projCtx : context.getProjectionContexts()) {
             context.checkAbortRequested();
             new ProjectionChangeExecution<O>(projCtx, task)
                     .execute(result);
         }
     }
+
+    @PreDestroy
+    public void shutdown() {
+        projectionThreadPool.shutdown();
+    }
 }
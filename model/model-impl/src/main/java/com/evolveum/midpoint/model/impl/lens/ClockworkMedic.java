@@ -141,6 +141,13 @@ public class ClockworkMedic {
         }
     }
 
+    public void projectionsFetched(int count, long wallTimeMillis, long summedTimeMillis) {
+        ClockworkInspector clockworkInspector = getClockworkInspector();
+        if (clockworkInspector != null) {
+            clockworkInspector.projectionsFetched(count, wallTimeMillis, summedTimeMillis);
+        }
+    }
+
     public <F extends ObjectType> void projectorFinish(LensContext<F> context) {
         ClockworkInspector clockworkInspector = getClockworkInspector();
         if (clockworkInspector != null) {
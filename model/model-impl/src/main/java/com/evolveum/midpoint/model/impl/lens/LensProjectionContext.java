@@ -1998,15 +1998,19 @@ public class LensProjectionContext extends LensElementContext<ShadowType> implem
      * (It is a bit of hack but it looks OK.) See also MID-2436 - volatile objects.
      */
     public void setDoReconciliationFlagIfVolatile() throws SchemaException, ConfigurationException {
-        ResourceObjectDefinition objectDefinition = getStructuralDefinitionIfNotBroken();
-        if (objectDefinition != null
-                && objectDefinition.getVolatility() == ResourceObjectVolatilityType.UNPREDICTABLE
-                && !isDoReconciliation()) {
+        if (isVolatilityUnpredictable() && !isDoReconciliation()) {
             LOGGER.trace("Resource object volatility is UNPREDICTABLE => setting doReconciliation to TRUE for {}", getKey());
             setDoReconciliation(true);
         }
     }
 
+    /** Is the resource object volatility UNPREDICTABLE, i.e. should the reconciliation be done? */
+    public boolean isVolatilityUnpredictable() throws SchemaException, ConfigurationException {
+        ResourceObjectDefinition objectDefinition = getStructuralDefinitionIfNotBroken();
+        return objectDefinition != null
+                && objectDefinition.getVolatility() == ResourceObjectVolatilityType.UNPREDICTABLE;
+    }
+
     /** TODO */
     public void rotWithDeltaDeletion() {
         rot();
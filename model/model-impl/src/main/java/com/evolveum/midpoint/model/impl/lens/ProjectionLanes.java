@@ -0,0 +1,176 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.model.impl.lens;
+
+import static org.apache.commons.lang3.ObjectUtils.defaultIfNull;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.security.core.Authentication;
+
+import com.evolveum.midpoint.model.impl.ModelBeans;
+import com.evolveum.midpoint.repo.cache.RepositoryCache;
+import com.evolveum.midpoint.util.logging.LoggingUtils;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ParallelProjectionProcessingConfigurationType;
+
+/**
+ * Processes items related to projections concurrently. Used for fetching the projections (`parallelProjectionLoading`)
+ * and for executing their changes (`parallelProjectionExecution`), see the internals configuration.
+ *
+ * The items are divided into "lanes": each lane contains items for a single resource, and is processed sequentially.
+ * Number of lanes per resource and the number of lanes processed at once are limited by the configuration.
+ * The calling thread processes the lanes as well, so the operation progresses even if all the worker threads are busy.
+ *
+ * The worker threads run under the authentication of the calling thread, and use their own local repository caches,
+ * as any other thread processing the operation would do. The processor must not throw exceptions; it should keep
+ * them along with its other outcomes.
+ *
+ * @param <T> Type of the items processed, e.g. projection contexts.
+ */
+public class ProjectionLanes<T> {
+
+    private static final Trace LOGGER = TraceManager.getTrace(ProjectionLanes.class);
+
+    private static final int DEFAULT_MAX_THREADS = 4;
+    private static final int DEFAULT_MAX_THREADS_PER_RESOURCE = 1;
+
+    @NotNull private final Queue<List<T>> lanes;
+    private final int maxThreads;
+    @NotNull private final ModelBeans beans = ModelBeans.get();
+
+    /** Set when interrupted while waiting for the workers. No more items are processed then. */
+    private volatile boolean interrupted;
+
+    public ProjectionLanes(
+            @NotNull Collection<T> items,
+            @NotNull Function<T, String> resourceOidFunction,
+            @NotNull ParallelProjectionProcessingConfigurationType config) {
+        this.maxThreads = Math.max(1, getMaxThreads(config));
+        this.lanes = createLanes(
+                items,
+                resourceOidFunction,
+                Math.max(1, defaultIfNull(config.getMaxThreadsPerResource(), DEFAULT_MAX_THREADS_PER_RESOURCE)));
+    }
+
+    /** Returns the maximal number of threads (including the calling one) for given configuration. */
+    public static int getMaxThreads(@Nullable ParallelProjectionProcessingConfigurationType config) {
+        return config != null ? defaultIfNull(config.getMaxThreads(), DEFAULT_MAX_THREADS) : 1;
+    }
+
+    /** Items on the same resource are spread over at most `maxThreadsPerResource` lanes. */
+    private static <T> Queue<List<T>> createLanes(
+            Collection<T> items, Function<T, String> resourceOidFunction, int maxThreadsPerResource) {
+        Map<String, List<List<T>>> lanesByResource = new LinkedHashMap<>();
+        Map<String, Integer> counts = new HashMap<>();
+        for (T item : items) {
+            String resourceOid = resourceOidFunction.apply(item);
+            List<List<T>> resourceLanes = lanesByResource.computeIfAbsent(resourceOid, k -> new ArrayList<>());
+            int index = counts.merge(resourceOid, 1, Integer::sum) - 1;
+            if (index < maxThreadsPerResource) {
+                resourceLanes.add(new ArrayList<>());
+            }
+            resourceLanes.get(index % maxThreadsPerResource).add(item);
+        }
+        Queue<List<T>> lanes = new ConcurrentLinkedQueue<>();
+        lanesByResource.values().forEach(lanes::addAll);
+        return lanes;
+    }
+
+    /** See {@link #process(ExecutorService, Consumer, BooleanSupplier)}. */
+    public int process(@NotNull ExecutorService executor, @NotNull Consumer<T> processor) {
+        return process(executor, processor, () -> false);
+    }
+
+    /**
+     * Processes the items in the current thread and in the worker threads. Returns after all the workers are finished,
+     * even if interrupted while waiting for them (the interrupted flag is set then, and no more items are processed).
+     *
+     * @param stopCondition Checked before each item; when true, no more items are processed.
+     * @return The number of threads used, including the calling one.
+     */
+    public int process(
+            @NotNull ExecutorService executor, @NotNull Consumer<T> processor, @NotNull BooleanSupplier stopCondition) {
+        int threads = Math.min(maxThreads, lanes.size());
+        LOGGER.trace("Processing {} lane(s) using {} thread(s)", lanes.size(), threads);
+        Authentication authentication = beans.securityContextManager.getAuthentication();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 1; i < threads; i++) {
+            try {
+                futures.add(executor.submit(() -> runWorker(processor, stopCondition, authentication)));
+            } catch (RejectedExecutionException e) {
+                LOGGER.debug("Couldn't start projection processing worker (shutting down?), continuing with {}", i);
+                threads = i;
+                break;
+            }
+        }
+        processLanes(processor, stopCondition); // in this thread
+        waitForWorkers(futures);
+        return threads;
+    }
+
+    /** Executed in the worker thread. */
+    private void runWorker(Consumer<T> processor, BooleanSupplier stopCondition, Authentication authentication) {
+        beans.securityContextManager.setupPreAuthenticatedSecurityContext(authentication);
+        RepositoryCache.enterLocalCaches(beans.cacheConfigurationManager);
+        try {
+            processLanes(processor, stopCondition);
+        } finally {
+            RepositoryCache.exitLocalCaches();
+            beans.securityContextManager.setupPreAuthenticatedSecurityContext((Authentication) null);
+        }
+    }
+
+    private void processLanes(Consumer<T> processor, BooleanSupplier stopCondition) {
+        List<T> lane;
+        while (!isStopped(stopCondition) && (lane = lanes.poll()) != null) {
+            for (T item : lane) {
+                if (isStopped(stopCondition)) {
+                    break;
+                }
+                processor.accept(item);
+            }
+        }
+    }
+
+    private boolean isStopped(BooleanSupplier stopCondition) {
+        return interrupted || stopCondition.getAsBoolean();
+    }
+
+    /** We must not return while the workers are running, as they may manipulate the data of the caller. */
+    private void waitForWorkers(List<Future<?>> futures) {
+        for (Future<?> future : futures) {
+            while (true) {
+                try {
+                    future.get();
+                    break;
+                } catch (ExecutionException e) {
+                    LoggingUtils.logUnexpectedException(LOGGER, "Projection processing worker failed", e.getCause());
+                    break;
+                } catch (CancellationException e) {
+                    // The worker was not started before the executor was shut down; its lanes were processed by us.
+                    LOGGER.debug("Projection processing worker was cancelled");
+                    break;
+                } catch (InterruptedException e) {
+                    LOGGER.debug("Interrupted while waiting for projection processing workers; waiting for them anyway");
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
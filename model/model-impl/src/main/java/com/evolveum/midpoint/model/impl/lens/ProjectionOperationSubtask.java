@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.model.impl.lens;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.evolveum.midpoint.schema.reporting.ConnIdOperation;
+import com.evolveum.midpoint.task.api.ConnIdOperationsListener;
+import com.evolveum.midpoint.task.api.Task;
+
+/**
+ * In-memory subtask for a provisioning operation executed concurrently with other ones (see {@link ProjectionLanes})
+ * on behalf of a single task. Tasks are not thread-safe, so the original task must not be used by the operation.
+ *
+ * The subtask carries the channel, owner, execution mode, and the requestee of the original task. (It has no simulation
+ * transaction, so it is suitable only for the persistent execution mode.) The ConnId operations executed are recorded,
+ * and reported to the original task by {@link #reportConnIdOperations(Task)}, which must be called by the thread
+ * that owns that task.
+ */
+public class ProjectionOperationSubtask {
+
+    @NotNull private final Task subtask;
+
+    /** Written by the thread executing the operation, read by the owner of the original task after the operation. */
+    @NotNull private final List<ConnIdOperation> connIdOperations = new ArrayList<>();
+
+    private ProjectionOperationSubtask(@NotNull Task task) {
+        this.subtask = task.createSubtask();
+        subtask.setExecutionMode(task.getExecutionMode());
+        subtask.setRequesteeTransient(task.getRequestee());
+        subtask.registerConnIdOperationsListener(new ConnIdOperationsListener() {
+            @Override
+            public void onConnIdOperationEnd(@NotNull ConnIdOperation operation) {
+                connIdOperations.add(operation);
+            }
+        });
+    }
+
+    /** The original task is only read here. */
+    public static @NotNull ProjectionOperationSubtask create(@NotNull Task task) {
+        return new ProjectionOperationSubtask(task);
+    }
+
+    public @NotNull Task getSubtask() {
+        return subtask;
+    }
+
+    /** Reports the ConnId operations to the given task, as if they were executed right there. */
+    public void reportConnIdOperations(@NotNull Task task) {
+        for (ConnIdOperation operation : connIdOperations) {
+            task.onConnIdOperationStart(operation);
+            task.onConnIdOperationEnd(operation);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.model.impl.lens;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Node-wide pool of threads for {@link ProjectionLanes}. The executor is created on first use,
+ * and its threads terminate when idle.
+ */
+public class ProjectionThreadPool {
+
+    @NotNull private final String threadNamePrefix;
+    private final int maxThreads;
+
+    private ExecutorService executor;
+
+    public ProjectionThreadPool(@NotNull String threadNamePrefix, int maxThreads) {
+        this.threadNamePrefix = threadNamePrefix;
+        this.maxThreads = maxThreads;
+    }
+
+    public synchronized @NotNull ExecutorService getExecutor() {
+        if (executor == null) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            ThreadPoolExecutor newExecutor = new ThreadPoolExecutor(
+                    maxThreads, maxThreads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                    r -> {
+                        Thread thread = new Thread(r, threadNamePrefix + "-" + threadNumber.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            newExecutor.allowCoreThreadTimeOut(true);
+            executor = newExecutor;
+        }
+        return executor;
+    }
+
+    /**
+     * Workers that have not started yet are cancelled, so that nobody waits for them forever.
+     * (Their lanes are processed by the calling threads.)
+     */
+    public synchronized void shutdown() {
+        if (executor != null) {
+            for (Runnable notStarted : executor.shutdownNow()) {
+                if (notStarted instanceof Future<?> future) {
+                    future.cancel(false);
+                }
+            }
+            executor = null;
+        }
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.model.impl.lens.assignments;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.evolveum.midpoint.CacheInvalidationContext;
+import com.evolveum.midpoint.prism.PrismContext;
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.query.ObjectFilter;
+import com.evolveum.midpoint.repo.api.Cache;
+import com.evolveum.midpoint.repo.api.CacheRegistry;
+import com.evolveum.midpoint.repo.common.expression.ExpressionUtil;
+import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.*;
+
+/**
+ * Node-wide cache of targets of role inducements, as resolved by {@link TargetsEvaluation}.
+ *
+ * The assignment evaluation walks the same inducement chains (business role -> application role -> ...) for each focus
+ * being recomputed. Most of that walk must be done for each focus anew, as the conditions, constructions, mappings and
+ * activity of the path depend on the focus and the time. However, the resolution of inducement targets (by OID or,
+ * more importantly, by a filter - which means a repository search) does not depend on the focus, as long as there are
+ * no expressions in the filter. So the results are kept here across clockwork runs.
+ *
+ * The entries are keyed by OID and version of the role holding the inducement, and by the inducement ID.
+ * Only targets that are abstract roles are cached; and any change of any abstract role (or a global invalidation)
+ * clears the whole cache. It is harsh, but the filters can match any role; and roles should not change too often.
+ *
+ * The invalidation events come through the standard cache dispatcher, so they cover only changes made on this node
+ * (abstract roles are not invalidated cluster-wide). Changes made on other nodes are taken into account after
+ * the entries expire; the time to live is the same as the default one for the global repository caches,
+ * which have the same limitation.
+ *
+ * Targets are stored as immutable objects.
+ */
+@Component
+public class InducementTargetCache implements Cache {
+
+    private static final Trace LOGGER = TraceManager.getTrace(InducementTargetCache.class);
+    private static final Trace LOGGER_CONTENT = TraceManager.getTrace(InducementTargetCache.class.getName() + ".content");
+
+    /** If exceeded, the cache is cleared. Should be more than enough for any reasonable role structure. */
+    private static final int MAX_SIZE = 50_000;
+
+    /** Time to live of the entries, see the class javadoc. */
+    private static final long TIME_TO_LIVE = 60_000;
+
+    @Autowired private CacheRegistry cacheRegistry;
+    @Autowired private PrismContext prismContext;
+
+    private final Map<Key, Entry> cache = new ConcurrentHashMap<>();
+
+    /**
+     * Incremented on each invalidation. Targets resolved before an invalidation (that came during their resolution)
+     * must not be cached.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder passes = new LongAdder();
+
+    @PostConstruct
+    public void register() {
+        cacheRegistry.registerCache(this);
+    }
+
+    @PreDestroy
+    public void unregister() {
+        cacheRegistry.unregisterCache(this);
+    }
+
+    /**
+     * Returns the key for the inducement in given segment, or null if the segment is not eligible for caching.
+     * Full check is done only before putting the targets into the cache, see {@link #put(Key, ObjectReferenceType, List, long)}.
+     */
+    @Nullable Key createKey(@NotNull AssignmentPathSegmentImpl segment) {
+        if (segment.isAssignment()
+                || !(segment.source instanceof AbstractRoleType role)
+                || role.getOid() == null
+                || role.getVersion() == null
+                || segment.assignment.getId() == null) {
+            passes.increment();
+            return null;
+        }
+        ObjectReferenceType targetRef = segment.assignment.getTargetRef();
+        if (targetRef == null || targetRef.getObject() != null || targetRef.getOid() == null && targetRef.getFilter() == null) {
+            passes.increment();
+            return null;
+        }
+        return new Key(role.getOid(), role.getVersion(), segment.assignment.getId());
+    }
+
+    @Nullable List<PrismObject<? extends ObjectType>> get(@NotNull Key key) {
+        Entry entry = cache.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        } else if (entry.expiresAt() < System.currentTimeMillis()) {
+            cache.remove(key, entry);
+            misses.increment();
+            return null;
+        } else {
+            hits.increment();
+            return entry.targets();
+        }
+    }
+
+    /** To be obtained before the resolution of the targets, and passed to {@link #put(Key, ObjectReferenceType, List, long)}. */
+    long getGeneration() {
+        return generation.get();
+    }
+
+    /** Stores the targets, if they are cacheable, and if there was no invalidation since `generationBefore`. */
+    void put(@NotNull Key key, @NotNull ObjectReferenceType targetRef,
+            @NotNull List<PrismObject<? extends ObjectType>> targets, long generationBefore) throws SchemaException {
+        if (!isCacheable(targetRef, targets)) {
+            return;
+        }
+        List<PrismObject<? extends ObjectType>> immutableTargets = targets.stream()
+                .<PrismObject<? extends ObjectType>>map(this::toImmutable)
+                .toList();
+        if (cache.size() >= MAX_SIZE) {
+            LOGGER.debug("Inducement target cache is full ({} entries), clearing it", cache.size());
+            cache.clear();
+        }
+        cache.put(key, new Entry(immutableTargets, System.currentTimeMillis() + TIME_TO_LIVE));
+        if (generation.get() != generationBefore) {
+            // There was an invalidation in the meanwhile; the targets may be outdated.
+            cache.remove(key);
+        }
+    }
+
+    private boolean isCacheable(ObjectReferenceType targetRef, List<PrismObject<? extends ObjectType>> targets)
+            throws SchemaException {
+        if (targetRef.getType() == null) {
+            return false;
+        }
+        Class<?> targetClass = prismContext.getSchemaRegistry().determineCompileTimeClass(targetRef.getType());
+        if (targetClass == null || !AbstractRoleType.class.isAssignableFrom(targetClass)) {
+            return false; // we would not get invalidation events for such targets
+        }
+        for (PrismObject<? extends ObjectType> target : targets) {
+            if (!(target.asObjectable() instanceof AbstractRoleType)) {
+                return false;
+            }
+        }
+        if (targetRef.getOid() == null) {
+            //noinspection unchecked
+            ObjectFilter filter = prismContext.getQueryConverter().parseFilter(
+                    targetRef.getFilter(), (Class<? extends ObjectType>) targetClass);
+            if (ExpressionUtil.hasExpressions(filter)) {
+                return false; // the filter may depend on the focus
+            }
+        }
+        return true;
+    }
+
+    private PrismObject<? extends ObjectType> toImmutable(PrismObject<? extends ObjectType> object) {
+        if (object.isImmutable()) {
+            return object;
+        } else {
+            PrismObject<? extends ObjectType> clone = object.clone();
+            clone.freeze();
+            return clone;
+        }
+    }
+
+    @Override
+    public void invalidate(Class<?> type, String oid, CacheInvalidationContext context) {
+        if (type == null
+                || AbstractRoleType.class.isAssignableFrom(type)
+                || type.isAssignableFrom(AbstractRoleType.class)) {
+            generation.incrementAndGet();
+            if (!cache.isEmpty()) {
+                LOGGER.trace("Clearing inducement target cache because of invalidation of {}:{}", type, oid);
+                cache.clear();
+            }
+        }
+    }
+
+    @Override
+    public @NotNull Collection<SingleCacheStateInformationType> getStateInformation() {
+        return Collections.singleton(
+                new SingleCacheStateInformationType()
+                        .name(InducementTargetCache.class.getName())
+                        .size(cache.size())
+                        .performance(new SingleCachePerformanceInformationType()
+                                .name(InducementTargetCache.class.getName())
+                                .hitCount(hits.intValue())
+                                .missCount(misses.intValue())
+                                .passCount(passes.intValue())));
+    }
+
+    @Override
+    public void dumpContent() {
+        if (LOGGER_CONTENT.isInfoEnabled()) {
+            cache.forEach((k, v) -> LOGGER_CONTENT.info("Cached inducement targets: {}: {}", k, v.targets()));
+        }
+    }
+
+    /** Inducement identification: the role (with a version) and the inducement ID. */
+    record Key(@NotNull String roleOid, @NotNull String roleVersion, long inducementId) {
+    }
+
+    private record Entry(@NotNull List<PrismObject<? extends ObjectType>> targets, long expiresAt) {
+    }
+}
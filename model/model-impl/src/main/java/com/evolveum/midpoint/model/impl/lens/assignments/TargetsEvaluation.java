@@ -224,10 +224,34 @@ class TargetsEvaluation<AH extends AssignmentHolderType> extends AbstractEvaluat
         }
     }
 
+    /**
+     * Targets of role inducements are taken from (and stored into) the node-wide {@link InducementTargetCache},
+     * if possible.
+     */
     @NotNull
     private List<PrismObject<? extends ObjectType>> resolveTargets()
             throws SchemaException, ObjectNotFoundException, ExpressionEvaluationException,
             CommunicationException, ConfigurationException, SecurityViolationException {
+        InducementTargetCache cache = ModelBeans.get().inducementTargetCache;
+        InducementTargetCache.Key key = cache.createKey(segment);
+        if (key == null) {
+            return resolveTargetsUncached();
+        }
+        List<PrismObject<? extends ObjectType>> cached = cache.get(key);
+        if (cached != null) {
+            LOGGER.trace("Using cached targets for {}: {}", key, cached);
+            return cached;
+        }
+        long generation = cache.getGeneration();
+        List<PrismObject<? extends ObjectType>> targets = resolveTargetsUncached();
+        cache.put(key, targetRef, targets, generation);
+        return targets;
+    }
+
+    @NotNull
+    private List<PrismObject<? extends ObjectType>> resolveTargetsUncached()
+            throws SchemaException, ObjectNotFoundException, ExpressionEvaluationException,
+            CommunicationException, ConfigurationException, SecurityViolationException {
         var filterExpressionEvaluator =
                 createFilterExpressionEvaluator(segment.assignmentOrigin.child(AssignmentType.F_TARGET_REF));
         return ctx.ae.referenceResolver.resolve(
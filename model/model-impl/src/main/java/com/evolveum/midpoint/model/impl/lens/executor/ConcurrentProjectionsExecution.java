@@ -0,0 +1,272 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.model.impl.lens.executor;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.model.impl.ModelBeans;
+import com.evolveum.midpoint.model.impl.lens.*;
+import com.evolveum.midpoint.model.impl.lens.projector.DependencyProcessor;
+import com.evolveum.midpoint.model.impl.util.ModelImplUtils;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.task.api.Task;
+import com.evolveum.midpoint.util.exception.*;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ParallelProjectionProcessingConfigurationType;
+
+/**
+ * Executes changes of projections in the current execution wave concurrently. Used when `parallelProjectionExecution`
+ * is present in the internals configuration.
+ *
+ * Projections in the same wave do not depend on each other: {@link DependencyProcessor} puts dependent projections
+ * into later waves. However, the lens context is not thread-safe. Therefore, each {@link ProjectionChangeExecution}
+ * runs holding a lock on the context, and the lock is released only for the resource operations themselves
+ * (see {@link #releaseLock(Task)}). So, only the connector operations overlap; the processing around them is done
+ * by one thread at a time, just like before.
+ *
+ * . Projections on the same resource are divided into at most `maxThreadsPerResource` lanes; each lane is executed
+ * sequentially. See {@link ProjectionLanes}.
+ * . The clockwork task is accessed only while holding the lock. Resource operations get their own
+ * {@link ProjectionOperationSubtask}; the ConnId operations executed are reported to the clockwork task
+ * when the lock is re-acquired.
+ * . Each projection has its own operation result. They are put into the parent result in the order of projection
+ * contexts, not in the order of completion. Executed deltas (and hence audit records) are kept in the projection contexts,
+ * so they do not depend on the timing either.
+ * . Objects and deltas owned by the lens context are passed to the resource operations as copies, as the operations
+ * may modify them (e.g. set the OID) while other threads hold the lock. The results are applied to the context after
+ * the lock is re-acquired. The projections are executed sequentially if the lens context could be accessed
+ * by the resource operations themselves, e.g. via the audit event recording expression.
+ * . When the execution of a projection throws an exception, no other projections are started. The first exception
+ * (in the order of projection contexts) is re-thrown after the running ones finish. Errors that are only recorded
+ * in the result (and e.g. retried later by the consistency mechanism) are handled for each projection separately,
+ * as before.
+ */
+public class ConcurrentProjectionsExecution<O extends ObjectType> {
+
+    private static final Trace LOGGER = TraceManager.getTrace(ConcurrentProjectionsExecution.class);
+
+    private static final String OP_EXECUTE_PROJECTION = ConcurrentProjectionsExecution.class.getName() + ".executeProjection";
+
+    /** The lock held by the current thread while executing a projection (if any). */
+    private static final ThreadLocal<ReentrantLock> HELD_LOCK = new ThreadLocal<>();
+
+    @NotNull private final LensContext<O> context;
+    @NotNull private final List<LensProjectionContext> projectionContexts;
+    @NotNull private final ParallelProjectionProcessingConfigurationType config;
+    @NotNull private final ExecutorService executor;
+    @NotNull private final Task task;
+
+    /** Guards the lens context. */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Map<LensProjectionContext, OperationResult> results = new ConcurrentHashMap<>();
+    private final Map<LensProjectionContext, Throwable> exceptions = new ConcurrentHashMap<>();
+    private volatile boolean failed;
+
+    private ConcurrentProjectionsExecution(
+            @NotNull LensContext<O> context,
+            @NotNull List<LensProjectionContext> projectionContexts,
+            @NotNull ParallelProjectionProcessingConfigurationType config,
+            @NotNull ExecutorService executor,
+            @NotNull Task task) {
+        this.context = context;
+        this.projectionContexts = projectionContexts;
+        this.config = config;
+        this.executor = executor;
+        this.task = task;
+    }
+
+    /**
+     * Returns the execution, if the projections in the current wave can (and should) be executed concurrently.
+     * Returns null if they should be executed sequentially.
+     */
+    public static <O extends ObjectType> @Nullable ConcurrentProjectionsExecution<O> createIfApplicable(
+            @NotNull LensContext<O> context, @NotNull ExecutorService executor, @NotNull Task task,
+            @NotNull OperationResult result) {
+        var internals = context.getInternalsConfiguration();
+        var config = internals != null ? internals.getParallelProjectionExecution() : null;
+        if (config == null || ProjectionLanes.getMaxThreads(config) <= 1) {
+            return null;
+        }
+        if (result.isTraced()) {
+            LOGGER.trace("Executing projections sequentially, as the operation is traced");
+            return null;
+        }
+        if (!task.isExecutionFullyPersistent()) {
+            LOGGER.trace("Executing projections sequentially, as the execution is simulated");
+            return null;
+        }
+        if (isAuditRecordingExpressionPresent(context)) {
+            // The expression gets the lens context, and it is evaluated by provisioning when auditing resource
+            // operations, i.e. without the lock.
+            LOGGER.trace("Executing projections sequentially, as the audit event recording expression is configured");
+            return null;
+        }
+        List<LensProjectionContext> projectionContexts = new ArrayList<>(context.getProjectionContexts());
+        int toExecute = 0;
+        for (LensProjectionContext projCtx : projectionContexts) {
+            if (projCtx.getWave() != context.getExecutionWave() || projCtx.isCompleted() || !projCtx.isCanProject()) {
+                continue; // will be skipped by ProjectionChangeExecution anyway
+            }
+            String resourceOid = projCtx.getResourceOid();
+            if (config.getSequentialResourceRef().stream().anyMatch(ref -> Objects.equals(ref.getOid(), resourceOid))) {
+                LOGGER.trace("Executing projections sequentially, as {} is on a resource requiring ordered operations",
+                        projCtx.getHumanReadableName());
+                return null;
+            }
+            toExecute++;
+        }
+        if (toExecute < 2) {
+            return null; // nothing to gain
+        }
+        return new ConcurrentProjectionsExecution<>(context, projectionContexts, config, executor, task);
+    }
+
+    private static boolean isAuditRecordingExpressionPresent(@NotNull LensContext<?> context) {
+        return ModelBeans.get().auditHelper
+                .getAuditConfiguration(context.getSystemConfigurationBean())
+                .getEventRecordingExpression() != null;
+    }
+
+    public void execute(OperationResult result) throws ObjectNotFoundException, SchemaException, CommunicationException,
+            ConfigurationException, SecurityViolationException, PolicyViolationException, ExpressionEvaluationException,
+            ObjectAlreadyExistsException {
+
+        // The requestee is the same for all projections; so it is set here once, and not cleared by individual executions.
+        // (It is passed to the resource operations via their subtasks.)
+        ModelImplUtils.setRequestee(task, context);
+        try {
+            int threads = new ProjectionLanes<>(projectionContexts, LensProjectionContext::getResourceOid, config)
+                    .process(executor, this::executeProjection, () -> failed);
+            LOGGER.trace("Executed {} projection(s) using {} thread(s)", projectionContexts.size(), threads);
+        } finally {
+            ModelImplUtils.clearRequestee(task);
+        }
+
+        for (LensProjectionContext projCtx : projectionContexts) {
+            OperationResult projectionResult = results.get(projCtx);
+            if (projectionResult != null) {
+                projectionResult.getSubresults().forEach(result::addSubresult);
+            }
+        }
+        for (LensProjectionContext projCtx : projectionContexts) {
+            Throwable exception = exceptions.get(projCtx);
+            if (exception != null) {
+                throwException(exception);
+            }
+        }
+    }
+
+    private void executeProjection(LensProjectionContext projCtx) {
+        // Operation results are not thread-safe, so each projection gets its own one.
+        OperationResult result = new OperationResult(OP_EXECUTE_PROJECTION);
+        ReentrantLock previousLock = HELD_LOCK.get();
+        HELD_LOCK.set(lock);
+        lock.lock();
+        try {
+            context.checkAbortRequested();
+            new ProjectionChangeExecution<O>(projCtx, task)
+                    .execute(result);
+        } catch (Throwable t) {
+            exceptions.put(projCtx, t);
+            failed = true;
+        } finally {
+            lock.unlock();
+            HELD_LOCK.set(previousLock);
+            result.computeStatusIfUnknown();
+            results.put(projCtx, result);
+        }
+    }
+
+    private void throwException(Throwable exception) throws ObjectNotFoundException, SchemaException,
+            CommunicationException, ConfigurationException, SecurityViolationException, PolicyViolationException,
+            ExpressionEvaluationException, ObjectAlreadyExistsException {
+        if (exception instanceof ObjectNotFoundException e) {
+            throw e;
+        } else if (exception instanceof SchemaException e) {
+            throw e;
+        } else if (exception instanceof CommunicationException e) {
+            throw e;
+        } else if (exception instanceof ConfigurationException e) {
+            throw e;
+        } else if (exception instanceof SecurityViolationException e) {
+            throw e;
+        } else if (exception instanceof PolicyViolationException e) {
+            throw e;
+        } else if (exception instanceof ExpressionEvaluationException e) {
+            throw e;
+        } else if (exception instanceof ObjectAlreadyExistsException e) {
+            throw e;
+        } else if (exception instanceof RuntimeException e) {
+            throw e;
+        } else if (exception instanceof Error e) {
+            throw e;
+        } else {
+            throw new SystemException(exception);
+        }
+    }
+
+    /**
+     * To be called before a resource operation that is executed while a projection is being executed concurrently
+     * with others. Releases the lock on the lens context (if held by the current thread), so that other projections
+     * can proceed. Returns the information to be passed to {@link #reacquireLock(ReleasedLock)} after the operation;
+     * or null if no lock was released (e.g. the projections are executed sequentially).
+     *
+     * The operation must be executed using {@link #getOperationTask(ReleasedLock, Task)}, as the clockwork task
+     * is not thread-safe. The code called by the operation must not touch the lens context either; so, objects and deltas
+     * owned by the context must be passed to it as copies (see {@link #isLockHeld()}).
+     */
+    static @Nullable ReleasedLock releaseLock(@NotNull Task task) {
+        ReentrantLock lock = HELD_LOCK.get();
+        if (lock == null || !lock.isHeldByCurrentThread()) {
+            return null;
+        }
+        var subtask = ProjectionOperationSubtask.create(task); // while holding the lock
+        lock.unlock();
+        HELD_LOCK.remove(); // operations nested in the resource operation have nothing to do with our context
+        return new ReleasedLock(lock, task, subtask);
+    }
+
+    /** Returns the task to be used for the resource operation: the original one, or the subtask if the lock was released. */
+    static @NotNull Task getOperationTask(@Nullable ReleasedLock releasedLock, @NotNull Task task) {
+        return releasedLock != null ? releasedLock.subtask().getSubtask() : task;
+    }
+
+    /**
+     * Returns true if the current thread executes a projection concurrently with others, i.e. a subsequent
+     * {@link #releaseLock(Task)} will release the lock on the lens context.
+     */
+    static boolean isLockHeld() {
+        ReentrantLock lock = HELD_LOCK.get();
+        return lock != null && lock.isHeldByCurrentThread();
+    }
+
+    /** Re-acquires the lock, and reports the ConnId operations of the resource operation to the clockwork task. */
+    static void reacquireLock(@Nullable ReleasedLock releasedLock) {
+        if (releasedLock != null) {
+            releasedLock.lock().lock();
+            HELD_LOCK.set(releasedLock.lock());
+            releasedLock.subtask().reportConnIdOperations(releasedLock.task());
+        }
+    }
+
+    /** The lock released for the duration of a resource operation, with the task (and subtask) of the operation. */
+    record ReleasedLock(
+            @NotNull ReentrantLock lock,
+            @NotNull Task task,
+            @NotNull ProjectionOperationSubtask subtask) {
+    }
+}
@@ -569,14 +569,19 @@ class DeltaExecution<O extends ObjectType, E extends ObjectType> {
             scripts = null;
         }
 
-        ModelImplUtils.setRequestee(task, context);
+        ProvisioningOperationOptions options = getProvisioningOptions();
+        ProvisioningOperationContext ctx = context.createProvisioningOperationContext();
+        // The object is owned by the lens context, and provisioning modifies it. The OID is set by the caller.
+        PrismObject<E> objectToAdd = ConcurrentProjectionsExecution.isLockHeld() ? object.clone() : object;
+        var releasedLock = ConcurrentProjectionsExecution.releaseLock(task);
+        if (releasedLock == null) {
+            ModelImplUtils.setRequestee(task, context);
+        }
         try {
-            ProvisioningOperationOptions options = getProvisioningOptions();
-            ProvisioningOperationContext ctx = context.createProvisioningOperationContext();
-
-            return b.provisioningService.addObject(object, scripts, options, ctx, task, result);
+            return b.provisioningService.addObject(objectToAdd, scripts, options, ctx,
+                    ConcurrentProjectionsExecution.getOperationTask(releasedLock, task), result);
         } finally {
-            ModelImplUtils.clearRequestee(task);
+            releaseRequesteeOrReacquireLock(releasedLock);
         }
     }
 
@@ -743,13 +748,20 @@ class DeltaExecution<O extends ObjectType, E extends ObjectType> {
         } else {
             scripts = null;
         }
-        ModelImplUtils.setRequestee(task, context);
+        ProvisioningOperationOptions options = getProvisioningOptions();
+        ProvisioningOperationContext ctx = context.createProvisioningOperationContext();
+        // The delta is owned by the lens context, and provisioning may modify it.
+        ObjectDelta<E> deltaToExecute =
+                ConcurrentProjectionsExecution.isLockHeld() ? deltaForExecution.clone() : deltaForExecution;
+        var releasedLock = ConcurrentProjectionsExecution.releaseLock(task);
+        if (releasedLock == null) {
+            ModelImplUtils.setRequestee(task, context);
+        }
         try {
-            ProvisioningOperationOptions options = getProvisioningOptions();
-            ProvisioningOperationContext ctx = context.createProvisioningOperationContext();
             String updatedOid =
                     b.provisioningService.modifyObject(
-                            objectClass, oid, deltaForExecution.getModifications(), scripts, options, ctx, task, result);
+                            objectClass, oid, deltaToExecute.getModifications(), scripts, options, ctx,
+                            ConcurrentProjectionsExecution.getOperationTask(releasedLock, task), result);
             determineLivenessFromObject(objectToModify);
             return updatedOid;
         } catch (ObjectNotFoundException e) {
@@ -759,7 +771,7 @@ class DeltaExecution<O extends ObjectType, E extends ObjectType> {
             }
             throw e;
         } finally {
-            ModelImplUtils.clearRequestee(task);
+            releaseRequesteeOrReacquireLock(releasedLock);
         }
     }
 
@@ -912,10 +924,26 @@ class DeltaExecution<O extends ObjectType, E extends ObjectType> {
         } else {
             scripts = null;
         }
-        ModelImplUtils.setRequestee(task, context);
+        var releasedLock = ConcurrentProjectionsExecution.releaseLock(task);
+        if (releasedLock == null) {
+            ModelImplUtils.setRequestee(task, context);
+        }
         try {
-            return b.provisioningService.deleteObject(type, oid, options, scripts, ctx, task, result);
+            return b.provisioningService.deleteObject(type, oid, options, scripts, ctx,
+                    ConcurrentProjectionsExecution.getOperationTask(releasedLock, task), result);
         } finally {
+            releaseRequesteeOrReacquireLock(releasedLock);
+        }
+    }
+
+    /**
+     * Counterpart of the code before provisioning operations: when executing projections concurrently, the lock
+     * on the lens context was released (and the requestee is managed by {@link ConcurrentProjectionsExecution}).
+     */
+    private void releaseRequesteeOrReacquireLock(@Nullable ConcurrentProjectionsExecution.ReleasedLock releasedLock) {
+        if (releasedLock != null) {
+            ConcurrentProjectionsExecution.reacquireLock(releasedLock);
+        } else {
             ModelImplUtils.clearRequestee(task);
         }
     }
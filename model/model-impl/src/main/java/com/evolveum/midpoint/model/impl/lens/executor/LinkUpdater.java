@@ -453,20 +453,27 @@ class LinkUpdater<F extends FocusType> {
     private void executeShadowDelta(List<ItemDelta<?, ?>> syncSituationDeltas, OperationResult result)
             throws SchemaException, CommunicationException, ConfigurationException, SecurityViolationException,
             PolicyViolationException, ObjectAlreadyExistsException, ExpressionEvaluationException {
+        ProvisioningOperationOptions options = ProvisioningOperationOptions.createCompletePostponed(false);
+        options.setDoNotDiscovery(true);
+        ProvisioningOperationContext ctx = context.createProvisioningOperationContext();
+        var releasedLock = ConcurrentProjectionsExecution.releaseLock(task);
         try {
-            ModelImplUtils.setRequestee(task, focusContext);
-            ProvisioningOperationOptions options = ProvisioningOperationOptions.createCompletePostponed(false);
-            options.setDoNotDiscovery(true);
-            ProvisioningOperationContext ctx = context.createProvisioningOperationContext();
-            provisioningService.modifyObject(
-                    ShadowType.class, projectionOid, syncSituationDeltas, null, options, ctx, task, result);
+            if (releasedLock == null) {
+                ModelImplUtils.setRequestee(task, focusContext);
+            }
+            provisioningService.modifyObject(ShadowType.class, projectionOid, syncSituationDeltas, null, options, ctx,
+                    ConcurrentProjectionsExecution.getOperationTask(releasedLock, task), result);
         } catch (ObjectNotFoundException ex) {
             // if the object not found exception is thrown, it's ok..probably
             // the account was deleted by previous execution of changes..just
             // log in the trace the message for the user..
             LOGGER.debug("Situation in account could not be updated. Account not found on the resource.");
         } finally {
-            ModelImplUtils.clearRequestee(task);
+            if (releasedLock != null) {
+                ConcurrentProjectionsExecution.reacquireLock(releasedLock);
+            } else {
+                ModelImplUtils.clearRequestee(task);
+            }
         }
     }
 
@@ -123,11 +123,19 @@ class ScriptExecutor<O extends ObjectType> {
             OperationProvisioningScriptsType preparedScripts = prepareScripts(scripts, key,
                     ProvisioningOperationTypeType.RECONCILE, order, variables, expressionProfile, result);
             for (OperationProvisioningScriptType script : preparedScripts.getScript()) {
-                ModelImplUtils.setRequestee(task, context);
+                var releasedLock = ConcurrentProjectionsExecution.releaseLock(task);
+                if (releasedLock == null) {
+                    ModelImplUtils.setRequestee(task, context);
+                }
                 try {
-                    b.provisioningService.executeScript(resource.getOid(), script, task, result);
+                    b.provisioningService.executeScript(resource.getOid(), script,
+                            ConcurrentProjectionsExecution.getOperationTask(releasedLock, task), result);
                 } finally {
-                    ModelImplUtils.clearRequestee(task);
+                    if (releasedLock != null) {
+                        ConcurrentProjectionsExecution.reacquireLock(releasedLock);
+                    } else {
+                        ModelImplUtils.clearRequestee(task);
+                    }
                 }
             }
         } finally {
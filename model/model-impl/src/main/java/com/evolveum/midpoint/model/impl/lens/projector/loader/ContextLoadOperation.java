@@ -9,6 +9,7 @@ package com.evolveum.midpoint.model.impl.lens.projector.loader;
 
 import com.evolveum.midpoint.model.impl.ModelBeans;
 import com.evolveum.midpoint.model.impl.lens.*;
+import com.evolveum.midpoint.model.impl.lens.projector.loader.ProjectionsFetchOperation.FetchedShadow;
 import com.evolveum.midpoint.prism.delta.ObjectDelta;
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.task.api.Task;
@@ -19,7 +20,11 @@ import com.evolveum.midpoint.xml.ns._public.common.common_3.*;
 
 import org.jetbrains.annotations.NotNull;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 import static com.evolveum.midpoint.model.impl.lens.LensUtil.getExportType;
 
@@ -100,9 +105,10 @@ class ContextLoadOperation<F extends ObjectType> {
 
             context.checkConsistenceIfNeeded();
 
+            var fetchedShadows = fetchProjectionsInParallelIfConfigured(result);
             for (var projectionContext : context.getProjectionContexts()) {
                 context.checkAbortRequested();
-                updateProjection(projectionContext, result);
+                updateProjection(projectionContext, fetchedShadows.get(projectionContext), result);
             }
 
             context.checkConsistenceIfNeeded();
@@ -123,13 +129,47 @@ class ContextLoadOperation<F extends ObjectType> {
         }
     }
 
-    private void updateProjection(LensProjectionContext projectionContext, OperationResult result)
+    private void updateProjection(LensProjectionContext projectionContext, FetchedShadow fetchedShadow, OperationResult result)
             throws SchemaException, ExpressionEvaluationException, CommunicationException, SecurityViolationException,
             ConfigurationException, ObjectNotFoundException {
-        new ProjectionUpdateOperation<>(context, projectionContext, task)
+        new ProjectionUpdateOperation<>(context, projectionContext, task, fetchedShadow)
                 .update(result);
     }
 
+    /**
+     * Fetches the resource objects that are going to be loaded by {@link ProjectionUpdateOperation} concurrently,
+     * if configured so. Not done when tracing, as the worker threads would not be covered by the trace, and not done
+     * in simulations, as the simulation transaction is not available in the worker threads.
+     */
+    private Map<LensProjectionContext, FetchedShadow> fetchProjectionsInParallelIfConfigured(OperationResult result)
+            throws SchemaException, ConfigurationException {
+        InternalsConfigurationType internals = context.getInternalsConfiguration();
+        var config = internals != null ? internals.getParallelProjectionLoading() : null;
+        if (config == null || ProjectionLanes.getMaxThreads(config) <= 1 || result.isTraced()
+                || !task.isExecutionFullyPersistent()) {
+            return Map.of();
+        }
+        List<ProjectionsFetchOperation.Request> requests = new ArrayList<>();
+        for (var projectionContext : context.getProjectionContexts()) {
+            var options = new ProjectionUpdateOperation<>(context, projectionContext, task)
+                    .getOptionsForFetching(result);
+            if (options != null) {
+                String resourceOid = projectionContext.getResourceOid();
+                if (config.getSequentialResourceRef().stream().anyMatch(ref -> Objects.equals(ref.getOid(), resourceOid))) {
+                    LOGGER.trace("Not fetching projections in parallel, as {} is on a resource requiring ordered operations",
+                            projectionContext.getHumanReadableName());
+                    return Map.of();
+                }
+                requests.add(new ProjectionsFetchOperation.Request(projectionContext, projectionContext.getOid(), options));
+            }
+        }
+        if (requests.size() < 2) {
+            return Map.of(); // nothing to gain
+        }
+        return new ProjectionsFetchOperation(requests, config, beans.contextLoader.getFetchExecutor(), task)
+                .execute(result);
+    }
+
     private void loadProjections(OperationResult result)
             throws ObjectNotFoundException, SchemaException, CommunicationException, ConfigurationException,
             SecurityViolationException, PolicyViolationException, ExpressionEvaluationException, ObjectAlreadyExistsException {
@@ -13,12 +13,14 @@ import static com.evolveum.midpoint.util.DebugUtil.debugDumpLazily;
 import static com.evolveum.midpoint.util.MiscUtil.stateCheck;
 
 import java.util.*;
+import java.util.concurrent.ExecutorService;
 import javax.xml.datatype.XMLGregorianCalendar;
 
 import com.evolveum.midpoint.prism.PrismContext;
 import com.evolveum.midpoint.schema.util.ArchetypeTypeUtil;
 import com.evolveum.midpoint.util.MiscUtil;
 
+import jakarta.annotation.PreDestroy;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -29,6 +31,7 @@ import com.evolveum.midpoint.model.common.archetypes.ArchetypeManager;
 import com.evolveum.midpoint.model.impl.lens.LensContext;
 import com.evolveum.midpoint.model.impl.lens.LensFocusContext;
 import com.evolveum.midpoint.model.impl.lens.LensProjectionContext;
+import com.evolveum.midpoint.model.impl.lens.ProjectionThreadPool;
 import com.evolveum.midpoint.model.impl.lens.executor.FocusChangeExecution;
 import com.evolveum.midpoint.model.impl.lens.projector.ProjectorProcessor;
 import com.evolveum.midpoint.model.impl.lens.projector.util.ProcessorExecution;
@@ -69,6 +72,11 @@ public class ContextLoader implements ProjectorProcessor {
      */
     private static final int MAX_LOAD_ATTEMPTS = 3;
 
+    /** Node-wide limit for threads fetching projections concurrently, see {@link ProjectionsFetchOperation}. */
+    private static final int MAX_FETCH_THREADS = 32;
+
+    private final ProjectionThreadPool fetchThreadPool = new ProjectionThreadPool("projection-fetch", MAX_FETCH_THREADS);
+
     /**
      * Loads the whole context.
      *
@@ -370,6 +378,15 @@ public class ContextLoader implements ProjectorProcessor {
                 .loadFullShadow(result);
     }
 
+    @NotNull ExecutorService getFetchExecutor() {
+        return fetchThreadPool.getExecutor();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        fetchThreadPool.shutdown();
+    }
+
     public <F extends FocusType> void reloadSecurityPolicyIfNeeded(@NotNull LensContext<F> context,
             @NotNull LensFocusContext<F> focusContext, Task task, OperationResult result)
             throws ExpressionEvaluationException, SchemaException,
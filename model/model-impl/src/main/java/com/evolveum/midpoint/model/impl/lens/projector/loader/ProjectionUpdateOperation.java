@@ -19,6 +19,7 @@ import com.evolveum.midpoint.util.logging.LoggingUtils;
 
 import com.google.common.base.Preconditions;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import com.evolveum.midpoint.model.api.ModelExecuteOptions;
 import com.evolveum.midpoint.model.api.context.SynchronizationPolicyDecision;
@@ -26,6 +27,7 @@ import com.evolveum.midpoint.model.impl.ModelBeans;
 import com.evolveum.midpoint.model.impl.lens.LensContext;
 import com.evolveum.midpoint.model.impl.lens.LensProjectionContext;
 import com.evolveum.midpoint.model.impl.lens.LensUtil;
+import com.evolveum.midpoint.model.impl.lens.projector.loader.ProjectionsFetchOperation.FetchedShadow;
 import com.evolveum.midpoint.prism.PrismObject;
 import com.evolveum.midpoint.schema.GetOperationOptions;
 import com.evolveum.midpoint.schema.GetOperationOptionsBuilder;
@@ -56,6 +58,8 @@ import com.evolveum.midpoint.xml.ns._public.common.common_3.*;
  * See {@link #updateInternal(OperationResult)}.
  *
  * Note that full object can be loaded also in {@link ProjectionFullLoadOperation}.
+ *
+ * The object may be fetched from the resource in advance, see {@link ProjectionsFetchOperation}.
  */
 class ProjectionUpdateOperation<F extends ObjectType> {
 
@@ -78,15 +82,33 @@ class ProjectionUpdateOperation<F extends ObjectType> {
      */
     private ShadowType projectionObject;
 
+    /** The object fetched in advance (if any). Used only if it was fetched with the options we would use now. */
+    @Nullable private final FetchedShadow fetchedShadow;
+
+    /**
+     * When determining the options for fetching in advance, the projection context must not be changed.
+     * So instead of setting the reconciliation flag for volatile objects, we only remember it here.
+     */
+    private boolean reconciliationAssumed;
+
     ProjectionUpdateOperation(
             @NotNull LensContext<F> context,
             @NotNull LensProjectionContext projectionContext,
             @NotNull Task task) {
+        this(context, projectionContext, task, null);
+    }
+
+    ProjectionUpdateOperation(
+            @NotNull LensContext<F> context,
+            @NotNull LensProjectionContext projectionContext,
+            @NotNull Task task,
+            @Nullable FetchedShadow fetchedShadow) {
         this.context = context;
         this.projectionContext = projectionContext;
         this.projectionObjectOid = projectionContext.getOid();
         this.task = task;
         this.beans = ModelBeans.get();
+        this.fetchedShadow = fetchedShadow;
     }
 
     public void update(OperationResult parentResult)
@@ -176,7 +198,7 @@ class ProjectionUpdateOperation<F extends ObjectType> {
             return true;
         }
 
-        if (projectionContext.isDoReconciliation() && !projectionContext.isFullShadow()) {
+        if (isDoReconciliation() && !projectionContext.isFullShadow()) {
             LOGGER.trace("Will reload current object, because we are doing reconciliation and we do not have full shadow");
             return true; // Note that the loading options will ensure that the full object is loaded, unless cache is used.
         }
@@ -213,7 +235,7 @@ class ProjectionUpdateOperation<F extends ObjectType> {
 
         LOGGER.trace("No explicit reason for reloading current object "
                         + "(recon: {}, full: {}, order: {}, wave: {}, modified deps: {})",
-                projectionContext.isDoReconciliation(),
+                isDoReconciliation(),
                 projectionContext.isFullShadow(),
                 projectionContext.getOrder(),
                 projectionContext.getWave(),
@@ -221,6 +243,34 @@ class ProjectionUpdateOperation<F extends ObjectType> {
         return false;
     }
 
+    /**
+     * Returns the options for fetching the object from the resource, if the update would do that, and if the decision
+     * can be made without loading anything. Returns null otherwise. Used to fetch the objects in advance.
+     *
+     * Must be consistent with {@link #updateInternal(OperationResult)}, {@link #loadCurrentObject(OperationResult)},
+     * and {@link #createProjectionLoadingOptions(OperationResult)}. Any mismatch is harmless, though: if the options
+     * are different, the object fetched in advance is not used.
+     */
+    @Nullable Collection<SelectorOptions<GetOperationOptions>> getOptionsForFetching(OperationResult result)
+            throws SchemaException, ConfigurationException {
+        if (projectionContext.getSynchronizationPolicyDecision() == SynchronizationPolicyDecision.BROKEN
+                || projectionContext.getResource() == null
+                || projectionObjectOid == null
+                || projectionContext.isAdd() && !projectionContext.isCompleted()
+                || projectionContext.isInMaintenance()) {
+            return null;
+        }
+        reconciliationAssumed = projectionContext.isVolatilityUnpredictable(); // see setDoReconciliationFlagIfVolatile
+        projectionObject = asObjectable(projectionContext.getObjectCurrent());
+        if (!isDoReconciliation() && !context.isDoReconciliationForAllProjections()
+                || projectionContext.getCachedShadowsUse() != CachedShadowsUseType.USE_FRESH // deciding would need the shadow
+                || !shouldLoadCurrentObject()) {
+            return null;
+        }
+        var options = createProjectionLoadingOptions(result);
+        return isNoFetch(options) ? null : options;
+    }
+
     /**
      * If "limit propagation" option is set, we set `canProject` to `false` for resources other than triggering one.
      */
@@ -303,9 +353,7 @@ class ProjectionUpdateOperation<F extends ObjectType> {
             LOGGER.trace("Loading shadow {} for projection {}, options={}",
                     projectionObjectOid, projectionContext.getHumanReadableName(), options);
 
-            PrismObject<ShadowType> object =
-                    beans.provisioningService.getObject(
-                            ShadowType.class, projectionObjectOid, options, task, result);
+            PrismObject<ShadowType> object = getObject(options, result);
 
             logLoadedShadow(object, options);
             checkLoadedShadowConsistency(object);
@@ -353,6 +401,21 @@ class ProjectionUpdateOperation<F extends ObjectType> {
         return false;
     }
 
+    private PrismObject<ShadowType> getObject(Collection<SelectorOptions<GetOperationOptions>> options, OperationResult result)
+            throws SchemaException, ExpressionEvaluationException, CommunicationException, ConfigurationException,
+            ObjectNotFoundException, SecurityViolationException {
+        if (fetchedShadow != null) {
+            if (fetchedShadow.options().equals(options)) {
+                LOGGER.trace("Using shadow {} fetched in advance", projectionObjectOid);
+                return fetchedShadow.use(task, result);
+            } else {
+                LOGGER.trace("Not using shadow {} fetched in advance, as it was fetched with different options: {}",
+                        projectionObjectOid, fetchedShadow.options());
+            }
+        }
+        return beans.provisioningService.getObject(ShadowType.class, projectionObjectOid, options, task, result);
+    }
+
     private boolean isExceptionFatal(Throwable e) {
         ResourceType resource = projectionContext.getResource();
         if (resource == null) {
@@ -426,7 +489,7 @@ class ProjectionUpdateOperation<F extends ObjectType> {
 
         // Most probably reconciliation for all projections implies reconciliation for projContext
         // but we include both conditions just to be sure.
-        var reconciliation = projectionContext.isDoReconciliation() || context.isDoReconciliationForAllProjections();
+        var reconciliation = isDoReconciliation() || context.isDoReconciliationForAllProjections();
 
         if (projectionContext.isInMaintenance()) {
             LOGGER.trace("Using 'no fetch' mode because of resource maintenance (to avoid errors being reported)");
@@ -451,6 +514,10 @@ class ProjectionUpdateOperation<F extends ObjectType> {
         return builder.build();
     }
 
+    private boolean isDoReconciliation() {
+        return projectionContext.isDoReconciliation() || reconciliationAssumed;
+    }
+
     private boolean shouldUseFresh(OperationResult result) throws SchemaException, ConfigurationException {
         var decision = switch (projectionContext.getCachedShadowsUse()) {
             case USE_FRESH -> {
@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.model.impl.lens.projector.loader;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.model.impl.ModelBeans;
+import com.evolveum.midpoint.model.impl.lens.LensProjectionContext;
+import com.evolveum.midpoint.model.impl.lens.ProjectionLanes;
+import com.evolveum.midpoint.model.impl.lens.ProjectionOperationSubtask;
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.schema.GetOperationOptions;
+import com.evolveum.midpoint.schema.SelectorOptions;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.task.api.Task;
+import com.evolveum.midpoint.util.exception.*;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ParallelProjectionProcessingConfigurationType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ShadowType;
+
+/**
+ * Fetches resource objects for a set of projections concurrently, before the projections are updated (one by one)
+ * by {@link ProjectionUpdateOperation}. Used when `parallelProjectionLoading` is present in the internals configuration.
+ *
+ * Only the provisioning `getObject` calls are done in parallel. Everything that touches the lens context is done
+ * afterwards, in the original thread, just like without the fetching. Neither the operation result nor the task are
+ * shared with the worker threads:
+ *
+ * - Each fetch has its own operation result; it is put into its regular place in the result tree when the fetched object
+ * is used, see {@link FetchedShadow#use(Task, OperationResult)}.
+ * - Each fetch has its own {@link ProjectionOperationSubtask}. The ConnId operations executed are reported
+ * to the original task when the fetched object is used. As the subtask has no simulation transaction, nothing is fetched
+ * in advance when not in persistent execution mode.
+ *
+ * The threads are managed by {@link ProjectionLanes}.
+ */
+class ProjectionsFetchOperation {
+
+    private static final Trace LOGGER = TraceManager.getTrace(ProjectionsFetchOperation.class);
+
+    private static final String OP_EXECUTE = ProjectionsFetchOperation.class.getName() + ".execute";
+    private static final String OP_FETCH = ProjectionsFetchOperation.class.getName() + ".fetch";
+
+    @NotNull private final List<Request> requests;
+    @NotNull private final ParallelProjectionProcessingConfigurationType config;
+    @NotNull private final ExecutorService executor;
+    @NotNull private final Task task;
+    @NotNull private final ModelBeans beans = ModelBeans.get();
+
+    ProjectionsFetchOperation(
+            @NotNull List<Request> requests,
+            @NotNull ParallelProjectionProcessingConfigurationType config,
+            @NotNull ExecutorService executor,
+            @NotNull Task task) {
+        this.requests = requests;
+        this.config = config;
+        this.executor = executor;
+        this.task = task;
+    }
+
+    /**
+     * Returns the fetched objects (or exceptions), keyed by the projection context. Projections that were not fetched
+     * (e.g. because of an interruption) are missing; they are then loaded in the usual way.
+     */
+    @NotNull Map<LensProjectionContext, FetchedShadow> execute(OperationResult parentResult) {
+        OperationResult result = parentResult.subresult(OP_EXECUTE)
+                .setMinor()
+                .addParam("projections", requests.size())
+                .build();
+        try {
+            Map<LensProjectionContext, FetchedShadow> fetched = new ConcurrentHashMap<>();
+            long start = System.currentTimeMillis();
+            int workers = new ProjectionLanes<>(requests, request -> request.projectionContext().getResourceOid(), config)
+                    .process(executor, request -> fetched.put(request.projectionContext(), fetch(request)));
+            long wallTime = System.currentTimeMillis() - start;
+            if (Thread.currentThread().isInterrupted()) {
+                result.recordWarning("Interrupted while waiting for projections to be fetched");
+            }
+
+            long summedTime = fetched.values().stream().mapToLong(FetchedShadow::time).sum();
+            LOGGER.debug("Fetched {} projection(s) using {} thread(s) in {} ms (summed fetch time {} ms)",
+                    fetched.size(), workers, wallTime, summedTime);
+            beans.medic.projectionsFetched(fetched.size(), wallTime, summedTime);
+            result.addReturn("fetched", fetched.size());
+            result.addReturn("threads", workers);
+            result.addReturn("wallTime", wallTime);
+            result.addReturn("summedTime", summedTime);
+            return fetched;
+        } catch (Throwable t) {
+            result.recordFatalError(t);
+            throw t;
+        } finally {
+            result.close();
+        }
+    }
+
+    private FetchedShadow fetch(Request request) {
+        // Operation results and tasks are not thread-safe, so each fetch gets its own ones.
+        OperationResult result = new OperationResult(OP_FETCH);
+        ProjectionOperationSubtask fetchTask = ProjectionOperationSubtask.create(task);
+        long start = System.currentTimeMillis();
+        PrismObject<ShadowType> object = null;
+        Throwable exception = null;
+        try {
+            LOGGER.trace("Fetching shadow {}, options={}", request.oid(), request.options());
+            object = beans.provisioningService.getObject(
+                    ShadowType.class, request.oid(), request.options(), fetchTask.getSubtask(), result);
+        } catch (Throwable t) {
+            exception = t; // will be re-thrown when the object is used
+        }
+        result.computeStatusIfUnknown();
+        return new FetchedShadow(
+                request.options(), object, exception, result, fetchTask, System.currentTimeMillis() - start);
+    }
+
+    /** What should be fetched. */
+    record Request(
+            @NotNull LensProjectionContext projectionContext,
+            @NotNull String oid,
+            @NotNull Collection<SelectorOptions<GetOperationOptions>> options) {
+    }
+
+    /** Outcome of fetching: either the object or the exception. */
+    record FetchedShadow(
+            @NotNull Collection<SelectorOptions<GetOperationOptions>> options,
+            @Nullable PrismObject<ShadowType> object,
+            @Nullable Throwable exception,
+            @NotNull OperationResult result,
+            @NotNull ProjectionOperationSubtask fetchTask,
+            long time) {
+
+        /**
+         * Puts the results of the fetching into the given result and the ConnId operations into the given task
+         * (as if the provisioning was called right there), and returns the object or throws the exception.
+         */
+        @NotNull PrismObject<ShadowType> use(Task task, OperationResult parentResult)
+                throws ObjectNotFoundException, CommunicationException, SchemaException, ConfigurationException,
+                SecurityViolationException, ExpressionEvaluationException {
+            result.getSubresults().forEach(parentResult::addSubresult);
+            fetchTask.reportConnIdOperations(task);
+            if (exception instanceof ObjectNotFoundException e) {
+                throw e;
+            } else if (exception instanceof CommunicationException e) {
+                throw e;
+            } else if (exception instanceof SchemaException e) {
+                throw e;
+            } else if (exception instanceof ConfigurationException e) {
+                throw e;
+            } else if (exception instanceof SecurityViolationException e) {
+                throw e;
+            } else if (exception instanceof ExpressionEvaluationException e) {
+                throw e;
+            } else if (exception instanceof RuntimeException e) {
+                throw e;
+            } else if (exception instanceof Error e) {
+                throw e;
+            } else if (exception != null) {
+                throw new SystemException(exception);
+            }
+            return Objects.requireNonNull(object);
+        }
+    }
+}
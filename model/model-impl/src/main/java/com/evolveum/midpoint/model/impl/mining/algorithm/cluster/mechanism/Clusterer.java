@@ -25,6 +25,14 @@ public abstract class Clusterer<T extends Clusterable> {
         this.clusteringMode = clusteringMode;
     }
 
+    protected DistanceMeasure getMeasure() {
+        return measure;
+    }
+
+    protected ClusteringMode getClusteringMode() {
+        return clusteringMode;
+    }
+
     public abstract List<? extends Cluster<T>> cluster(Collection<T> var1, RoleAnalysisProgressIncrement handler);
 
     @SuppressWarnings({ "rawtypes", "ClassEscapesDefinedScope" })
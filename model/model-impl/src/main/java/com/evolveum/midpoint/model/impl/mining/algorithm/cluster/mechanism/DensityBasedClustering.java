@@ -13,6 +13,10 @@ import org.jetbrains.annotations.NotNull;
 /**
  * Performs density-based clustering of data points based on specified parameters and distance measure.
  * This class implements the Density-Based Spatial Clustering of Applications with Noise (DBSCAN) algorithm.
+ *
+ * If possible (see {@link IndexedNeighborSearch#isApplicable}), neighbors are found using an inverted index
+ * instead of comparing each point with all the others, and neighbors of cluster seeds are computed in parallel.
+ * The resulting clusters are the same as with the full scan.
  */
 public class DensityBasedClustering<T extends Clusterable> extends Clusterer<T> {
     private double eps;
@@ -20,6 +24,15 @@ public class DensityBasedClustering<T extends Clusterable> extends Clusterer<T>
     int minPropertiesOverlap;
     private static final Trace LOGGER = TraceManager.getTrace(DensityBasedClustering.class);
 
+    /** How many seeds (per available processor) have their neighbors computed in parallel when expanding a cluster. */
+    private static final int PREFETCH_SEEDS_PER_PROCESSOR = 8;
+
+    /** Whether to use {@link IndexedNeighborSearch} when it is applicable. */
+    private boolean indexedNeighborSearchEnabled = true;
+
+    /** Index used for the current {@link #cluster} call; null if the full scan is used. */
+    private IndexedNeighborSearch<T> indexedNeighborSearch;
+
     /**
      * Constructs a DensityBasedClustering instance with the specified parameters.
      *
@@ -47,6 +60,14 @@ public class DensityBasedClustering<T extends Clusterable> extends Clusterer<T>
         this.minPropertiesOverlap = minRolesOverlap;
     }
 
+    /**
+     * Enables or disables the use of the inverted index for finding neighbors. When disabled, each point
+     * is compared with all the other points. Enabled by default.
+     */
+    public void setIndexedNeighborSearchEnabled(boolean indexedNeighborSearchEnabled) {
+        this.indexedNeighborSearchEnabled = indexedNeighborSearchEnabled;
+    }
+
     /**
      * Performs density-based clustering on the provided collection of data points.
      *
@@ -60,6 +81,16 @@ public class DensityBasedClustering<T extends Clusterable> extends Clusterer<T>
 
         Set<ClusterExplanation> explanation = new HashSet<>();
 
+        if (indexedNeighborSearchEnabled && IndexedNeighborSearch.isApplicable(getClusteringMode(), getMeasure(), eps)) {
+            long start = System.currentTimeMillis();
+            indexedNeighborSearch = new IndexedNeighborSearch<>(
+                    points, getClusteringMode(), eps, ((JaccardDistancesMeasure) getMeasure()).getMinIntersection());
+            LOGGER.debug("Indexed {} points for neighbor search in {} ms", points.size(), System.currentTimeMillis() - start);
+        } else {
+            indexedNeighborSearch = null;
+            LOGGER.debug("Using full scan for neighbor search of {} points (mode: {})", points.size(), getClusteringMode());
+        }
+
         handler.setActive(true);
         handler.enterNewStep("Clustering");
         handler.setOperationCountToProcess(points.size());
@@ -69,7 +100,7 @@ public class DensityBasedClustering<T extends Clusterable> extends Clusterer<T>
             if (visited.get(point) == null) {
                 PointStatusWrapper pStatusWrapper = new PointStatusWrapper(RoleAnalysisOutlierNoiseCategoryType.PART_OF_CLUSTER);
 
-                List<T> neighbors = this.getNeighbors(point, points, explanation, this.eps, this.minPts, pStatusWrapper);
+                List<T> neighbors = findNeighbors(point, points, explanation, pStatusWrapper);
 
                 if(pStatusWrapper.pStatus == RoleAnalysisOutlierNoiseCategoryType.PART_OF_CLUSTER){
                     Cluster<T> cluster = new Cluster<>();
@@ -98,21 +129,67 @@ public class DensityBasedClustering<T extends Clusterable> extends Clusterer<T>
             }
         }
 
+        indexedNeighborSearch = null;
         return clusters;
     }
 
+    private List<T> findNeighbors(
+            T point, Collection<T> points, Set<ClusterExplanation> explanation, PointStatusWrapper pStatusWrapper) {
+        if (indexedNeighborSearch != null) {
+            return indexedNeighborSearch.getNeighbors(point, this.minPts, pStatusWrapper);
+        } else {
+            return this.getNeighbors(point, points, explanation, this.eps, this.minPts, pStatusWrapper);
+        }
+    }
+
+    /**
+     * Returns neighbors of the seed at given index. With the indexed search, neighbors of this and the following
+     * unvisited seeds are computed in parallel and kept in `prefetched` map for later use. Seeds that are unvisited
+     * now stay so until they are processed, so no computation is wasted.
+     */
+    private List<T> findSeedNeighbors(List<T> seeds, int index, Collection<T> points,
+            Map<Clusterable, RoleAnalysisOutlierNoiseCategoryType> visited, Set<ClusterExplanation> explanation,
+            Map<T, List<T>> prefetched) {
+        T current = seeds.get(index);
+        if (indexedNeighborSearch == null) {
+            PointStatusWrapper pStatusWrapper = new PointStatusWrapper(RoleAnalysisOutlierNoiseCategoryType.PART_OF_CLUSTER);
+            return this.getNeighbors(current, points, explanation, this.eps, this.minPts, pStatusWrapper);
+        }
+        List<T> neighbors = prefetched.remove(current);
+        if (neighbors != null) {
+            return neighbors;
+        }
+        int batchSize = PREFETCH_SEEDS_PER_PROCESSOR * Runtime.getRuntime().availableProcessors();
+        List<T> batch = new ArrayList<>();
+        for (int i = index; i < seeds.size() && batch.size() < batchSize; i++) {
+            T seed = seeds.get(i);
+            if (visited.get(seed) == null && !prefetched.containsKey(seed)) {
+                batch.add(seed);
+            }
+        }
+        IndexedNeighborSearch<T> search = indexedNeighborSearch;
+        List<List<T>> batchNeighbors = batch.parallelStream()
+                .map(seed -> search.getNeighbors(seed, this.minPts,
+                        new PointStatusWrapper(RoleAnalysisOutlierNoiseCategoryType.PART_OF_CLUSTER)))
+                .toList();
+        for (int i = 1; i < batch.size(); i++) {
+            prefetched.put(batch.get(i), batchNeighbors.get(i));
+        }
+        return batchNeighbors.get(0); // batch.get(0) is the current seed
+    }
+
     private Cluster<T> expandCluster(Cluster<T> cluster, T point, List<T> neighbors, Collection<T> points,
             Map<Clusterable, RoleAnalysisOutlierNoiseCategoryType> visited, Set<ClusterExplanation> explanation) {
         cluster.addPoint(point);
         visited.put(point, RoleAnalysisOutlierNoiseCategoryType.PART_OF_CLUSTER);
         List<T> seeds = new ArrayList<>(neighbors);
+        Map<T, List<T>> prefetched = new IdentityHashMap<>();
 
         for (int index = 0; index < seeds.size(); ++index) {
             T current = (T) ((List) seeds).get(index);
             RoleAnalysisOutlierNoiseCategoryType pStatus = visited.get(current);
             if (pStatus == null) {
-                PointStatusWrapper pStatusWrapper = new PointStatusWrapper(RoleAnalysisOutlierNoiseCategoryType.PART_OF_CLUSTER);
-                List<T> currentNeighbors = this.getNeighbors(current, points, explanation, this.eps, this.minPts, pStatusWrapper);
+                List<T> currentNeighbors = findSeedNeighbors(seeds, index, points, visited, explanation, prefetched);
                 int currentNeighborsCount = getNeightborsSize(currentNeighbors);
                 if (currentNeighborsCount >= this.minPts) {
                     this.merge(seeds, currentNeighbors);
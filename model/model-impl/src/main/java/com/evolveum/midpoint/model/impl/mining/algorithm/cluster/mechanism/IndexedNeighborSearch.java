@@ -0,0 +1,179 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.model.impl.mining.algorithm.cluster.mechanism;
+
+import java.util.*;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.evolveum.midpoint.xml.ns._public.common.common_3.RoleAnalysisOutlierNoiseCategoryType;
+
+/**
+ * Finds neighbors of data points using an inverted index (property -> points) instead of comparing the point
+ * with all the other points.
+ *
+ * Properties (OIDs) are mapped to dense int identifiers, and each point is represented by a sorted array of them.
+ * When looking for neighbors of a point, the posting lists of its properties are traversed, counting the size
+ * of the intersection for each point encountered. Points that share no property are never touched.
+ * The Jaccard distance is then computed from the intersection size and the sizes of both points.
+ *
+ * The results are exactly the same as of {@link Clusterer#getNeighbors} (including the order of neighbors),
+ * so this is only an optimization. It is applicable only if points sharing no property can never be neighbors,
+ * see {@link #isApplicable(ClusteringMode, DistanceMeasure, double)}.
+ *
+ * Thread safety: after construction, the index is read-only, so {@link #getNeighbors} can be called
+ * from multiple threads concurrently.
+ */
+class IndexedNeighborSearch<T extends Clusterable> {
+
+    @NotNull private final List<T> points;
+
+    /** Point -> its position in {@link #points}. Points are compared by identity, like in the original algorithm. */
+    @NotNull private final Map<T, Integer> pointIndex;
+
+    /** Sorted identifiers of properties of individual points. */
+    @NotNull private final int[][] pointProperties;
+
+    /** Property identifier -> positions of points having that property (in ascending order). */
+    @NotNull private final int[][] postings;
+
+    private final boolean balanced;
+    private final double eps;
+    private final int minIntersection;
+
+    /** Scratch array for intersection counting; one per thread, as the index can be used concurrently. */
+    @NotNull private final ThreadLocal<int[]> intersectionCounts;
+
+    IndexedNeighborSearch(
+            @NotNull Collection<T> points, @NotNull ClusteringMode clusteringMode, double eps, int minIntersection) {
+        this.points = new ArrayList<>(points);
+        this.balanced = clusteringMode == ClusteringMode.BALANCED;
+        this.eps = eps;
+        this.minIntersection = minIntersection;
+
+        int size = this.points.size();
+        pointIndex = new IdentityHashMap<>(size);
+        pointProperties = new int[size][];
+        Map<String, Integer> propertyIds = new HashMap<>();
+        List<Integer> postingSizes = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            T point = this.points.get(i);
+            pointIndex.putIfAbsent(point, i);
+            Set<String> properties = point.getPoint();
+            int[] ids = new int[properties.size()];
+            int j = 0;
+            for (String property : properties) {
+                int id = propertyIds.computeIfAbsent(property, k -> propertyIds.size());
+                if (id == postingSizes.size()) {
+                    postingSizes.add(0);
+                }
+                postingSizes.set(id, postingSizes.get(id) + 1);
+                ids[j++] = id;
+            }
+            Arrays.sort(ids);
+            pointProperties[i] = ids;
+        }
+
+        postings = new int[postingSizes.size()][];
+        for (int id = 0; id < postings.length; id++) {
+            postings[id] = new int[postingSizes.get(id)];
+        }
+        int[] filled = new int[postings.length];
+        for (int i = 0; i < size; i++) {
+            for (int id : pointProperties[i]) {
+                postings[id][filled[id]++] = i; // ascending, as we go through points in order
+            }
+        }
+
+        intersectionCounts = ThreadLocal.withInitial(() -> new int[size]);
+    }
+
+    /**
+     * Returns true if the index gives the same results as the full scan in {@link Clusterer#getNeighbors}.
+     * That is the case only for modes without rules, Jaccard measure and eps lower than 1.
+     * (Otherwise, points with no common property can be neighbors, too.)
+     */
+    static boolean isApplicable(@NotNull ClusteringMode clusteringMode, @NotNull DistanceMeasure measure, double eps) {
+        if (!(measure instanceof JaccardDistancesMeasure jaccard) || eps >= 1.0) {
+            return false;
+        }
+        return switch (clusteringMode) {
+            // Without any common property, the distance is 1 (or NaN for two empty points).
+            case BALANCED -> true;
+            // The distance is 0 if the intersection reaches the minimum, so zero intersection is OK if the minimum is zero.
+            case UNBALANCED -> jaccard.getMinIntersection() >= 1;
+            // Rules can make neighbors even from points with no common properties; rules distance also has
+            // side effects (explanations). Hence, these modes are not supported here.
+            case BALANCED_RULES, UNBALANCED_RULES, BALANCED_RULES_OUTLIER -> false;
+        };
+    }
+
+    /**
+     * Equivalent of {@link Clusterer#getNeighbors} for the supported modes.
+     */
+    List<T> getNeighbors(
+            @NotNull T point, int minPts, @NotNull DensityBasedClustering<T>.PointStatusWrapper pStatusWrapper) {
+        Integer index = pointIndex.get(point);
+        if (index == null) {
+            throw new IllegalArgumentException("Point is not indexed: " + point);
+        }
+        int[] properties = pointProperties[index];
+        int[] counts = intersectionCounts.get();
+
+        // Candidates are collected in the order they are first seen; they are sorted afterwards.
+        int[] candidates = new int[16];
+        int candidatesCount = 0;
+        for (int property : properties) {
+            for (int candidate : postings[property]) {
+                if (counts[candidate]++ == 0) {
+                    if (candidatesCount == candidates.length) {
+                        candidates = Arrays.copyOf(candidates, candidatesCount * 2);
+                    }
+                    candidates[candidatesCount++] = candidate;
+                }
+            }
+        }
+        Arrays.sort(candidates, 0, candidatesCount);
+
+        List<T> neighbors = new ArrayList<>();
+        int numberOfOveralRuleNeighbors = point.getMembersCount();
+        for (int c = 0; c < candidatesCount; c++) {
+            int candidate = candidates[c];
+            int intersection = counts[candidate];
+            counts[candidate] = 0; // cleaning up for the next call
+            T neighbor = points.get(candidate);
+            if (neighbor != point && isWithinDistance(intersection, properties.length, pointProperties[candidate].length)) {
+                neighbors.add(neighbor);
+                numberOfOveralRuleNeighbors += neighbor.getMembersCount();
+            }
+        }
+
+        if (numberOfOveralRuleNeighbors > minPts) {
+            pStatusWrapper.pStatus = RoleAnalysisOutlierNoiseCategoryType.PART_OF_CLUSTER;
+        } else {
+            pStatusWrapper.pStatus = RoleAnalysisOutlierNoiseCategoryType.OVERAL_NOISE;
+        }
+        return neighbors;
+    }
+
+    /**
+     * Mirrors {@link JaccardDistancesMeasure#computeBalancedDistance} and {@link JaccardDistancesMeasure#computeSimpleDistance}
+     * (the union size there is computed as "larger set size + unique elements of the smaller set", which is the same
+     * integer as here, so the resulting double value is the same as well).
+     */
+    private boolean isWithinDistance(int intersection, int sizeA, int sizeB) {
+        if (intersection < minIntersection) {
+            return 1 <= eps;
+        }
+        if (balanced) {
+            return 1 - (double) intersection / (sizeA + sizeB - intersection) <= eps;
+        } else {
+            return 0 <= eps;
+        }
+    }
+}
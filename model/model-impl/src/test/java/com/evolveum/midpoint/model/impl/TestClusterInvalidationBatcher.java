@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.model.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.tools.testng.AbstractUnitTest;
+import com.evolveum.midpoint.xml.ns._public.common.api_types_3.CacheInvalidationEventListType;
+
+/**
+ * Tests of {@link ClusterInvalidationBatcher} with a fake sender, no other nodes are needed.
+ */
+public class TestClusterInvalidationBatcher extends AbstractUnitTest {
+
+    private static final String USERS = "users";
+    private static final String ROLES = "roles";
+
+    private final List<List<String>> batches = Collections.synchronizedList(new ArrayList<>());
+
+    @Test
+    public void test100EventsAreCoalesced() {
+        given("batcher with a long interval");
+        batches.clear();
+        ClusterInvalidationBatcher batcher = new ClusterInvalidationBatcher(60_000, this::record);
+
+        when("duplicate and covered events are enqueued");
+        batcher.enqueue(USERS, "1");
+        batcher.enqueue(USERS, "1");
+        batcher.enqueue(USERS, "2");
+        batcher.enqueue(ROLES, "1");
+        batcher.enqueue(ROLES, null); // replaces roles/1
+        batcher.enqueue(ROLES, "2"); // covered by roles/*
+        batcher.shutdown();
+
+        then("a single batch without duplicates is sent");
+        assertThat(batches).containsExactly(List.of("users/1", "users/2", "roles/*"));
+        assertThat(batcher.getBatchesSent()).isEqualTo(1);
+        assertThat(batcher.getEventsSent()).isEqualTo(3);
+    }
+
+    @Test
+    public void test110GlobalInvalidationReplacesEverything() {
+        given("batcher with a long interval");
+        batches.clear();
+        ClusterInvalidationBatcher batcher = new ClusterInvalidationBatcher(60_000, this::record);
+
+        when("global invalidation is enqueued among other events");
+        batcher.enqueue(USERS, "1");
+        batcher.enqueue(ROLES, null);
+        batcher.enqueue(null, null);
+        batcher.enqueue(USERS, "2");
+        batcher.shutdown();
+
+        then("only the global invalidation is sent");
+        assertThat(batches).containsExactly(List.of("*/*"));
+    }
+
+    @Test
+    public void test200EventsAreSentInBatchesAfterInterval() throws Exception {
+        given("batcher with a short interval");
+        batches.clear();
+        ClusterInvalidationBatcher batcher = new ClusterInvalidationBatcher(200, this::record);
+
+        when("events are enqueued");
+        batcher.enqueue(USERS, "1");
+        batcher.enqueue(USERS, "2");
+
+        then("nothing is sent immediately, and the events are sent together after the interval");
+        assertThat(batches).isEmpty();
+        waitForBatches(1);
+        assertThat(batches).containsExactly(List.of("users/1", "users/2"));
+
+        when("more events are enqueued");
+        batcher.enqueue(USERS, "1");
+        batcher.enqueue(ROLES, "3");
+
+        then("they are sent in the next batch");
+        waitForBatches(2);
+        assertThat(batches.get(1)).containsExactly("users/1", "roles/3");
+
+        batcher.shutdown();
+        assertThat(batches).hasSize(2);
+        assertThat(batcher.getStatisticsDescription()).contains("received 4", "sent 4 in 2 batch(es)");
+    }
+
+    @Test
+    public void test300EventsAfterShutdownAreSentImmediately() {
+        given("batcher that was shut down");
+        batches.clear();
+        ClusterInvalidationBatcher batcher = new ClusterInvalidationBatcher(60_000, this::record);
+        batcher.enqueue(USERS, "1");
+        batcher.shutdown();
+        assertThat(batches).hasSize(1);
+
+        when("another event is enqueued");
+        batcher.enqueue(USERS, "2");
+
+        then("it is sent right away by the calling thread");
+        assertThat(batches).containsExactly(List.of("users/1"), List.of("users/2"));
+        assertThat(batcher.getBatchesSent()).isEqualTo(2);
+    }
+
+    private void record(CacheInvalidationEventListType batch) {
+        batches.add(batch.getEvent().stream()
+                .map(e -> (e.getType() != null ? e.getType() : "*") + "/" + (e.getOid() != null ? e.getOid() : "*"))
+                .toList());
+    }
+
+    private void waitForBatches(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (batches.size() < count && System.currentTimeMillis() < deadline) {
+            //noinspection BusyWait
+            Thread.sleep(20);
+        }
+        assertThat(batches).hasSize(count);
+    }
+}
@@ -36,6 +36,7 @@ import com.evolveum.midpoint.model.common.mapping.MappingImpl;
 import com.evolveum.midpoint.model.common.mapping.PrismValueDeltaSetTripleProducer;
 import com.evolveum.midpoint.model.impl.lens.assignments.AssignmentEvaluator;
 import com.evolveum.midpoint.model.impl.lens.assignments.EvaluatedAssignmentImpl;
+import com.evolveum.midpoint.model.impl.lens.assignments.InducementTargetCache;
 import com.evolveum.midpoint.model.impl.lens.construction.AssignedResourceObjectConstruction;
 import com.evolveum.midpoint.model.impl.lens.construction.EvaluatedAssignedResourceObjectConstructionImpl;
 import com.evolveum.midpoint.model.impl.lens.construction.ResourceObjectConstruction;
@@ -62,6 +63,7 @@ public abstract class AbstractAssignmentEvaluatorTest extends AbstractLensTest {
     @Autowired private ReferenceResolver referenceResolver;
     @Autowired private Clock clock;
     @Autowired private Projector projector;
+    @Autowired private InducementTargetCache inducementTargetCache;
 
     public abstract File[] getRoleCorpFiles();
 
@@ -450,6 +452,63 @@ public abstract class AbstractAssignmentEvaluatorTest extends AbstractLensTest {
         assertEquals("Wrong number of admin GUI configs", 1, evaluatedAssignment.getAdminGuiConfigurations().size());
     }
 
+    /**
+     * Inducement targets are cached across evaluations; modification of a role must clear the cache.
+     */
+    @Test
+    public void test155InducementTargetCacheIsInvalidatedOnRoleModification() throws Exception {
+        // GIVEN
+        Task task = getTestTask();
+        OperationResult result = task.getResult();
+        inducementTargetCache.invalidate(null, null, null);
+
+        // WHEN
+        when("Engineer assignment is evaluated twice");
+        evaluateRoleEngineer(task, result);
+        int hitsBefore = getInducementTargetCacheState().getPerformance().getHitCount();
+        evaluateRoleEngineer(task, result);
+
+        // THEN
+        then("Engineer -> Employee inducement target is taken from the cache");
+        assertTrue("No cached inducement targets", getInducementTargetCacheState().getSize() > 0);
+        assertTrue("No cache hits", getInducementTargetCacheState().getPerformance().getHitCount() > hitsBefore);
+
+        // WHEN
+        when("Employee role is modified");
+        repositoryService.modifyObject(RoleType.class, ROLE_CORP_EMPLOYEE_OID,
+                prismContext.deltaFor(RoleType.class)
+                        .item(RoleType.F_DESCRIPTION).replace("modified " + getTestNameShort())
+                        .asItemDeltas(),
+                result);
+
+        // THEN
+        then("the cache is cleared and the evaluation sees the modified role");
+        assertEquals("Wrong # of cached entries", 0, (int) getInducementTargetCacheState().getSize());
+        EvaluatedAssignmentImpl<UserType> evaluatedAssignment = evaluateRoleEngineer(task, result);
+        PrismObject<? extends AssignmentHolderType> employee = evaluatedAssignment.getRoles().getNonNegativeValues().stream()
+                .map(target -> target.getTarget())
+                .filter(target -> ROLE_CORP_EMPLOYEE_OID.equals(target.getOid()))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No Employee role among evaluated targets"));
+        assertEquals("Wrong Employee description", "modified " + getTestNameShort(),
+                employee.asObjectable().getDescription());
+        assertSuccess(result);
+    }
+
+    private EvaluatedAssignmentImpl<UserType> evaluateRoleEngineer(Task task, OperationResult result)
+            throws Exception {
+        AssignmentEvaluator<UserType> assignmentEvaluator = createAssignmentEvaluator();
+        AssignmentType assignmentType = getAssignmentBean(ASSIGNMENT_ROLE_ENGINEER_FILE);
+        return assignmentEvaluator.evaluate(
+                createAssignmentIdi(assignmentType), null, PlusMinusZero.ZERO, false,
+                userTypeJack, "testRoleEngineer", AssignmentOrigin.inObject(testOrigin()),
+                task, result);
+    }
+
+    private SingleCacheStateInformationType getInducementTargetCacheState() {
+        return inducementTargetCache.getStateInformation().iterator().next();
+    }
+
     @Test
     public void test160AddRoleEngineer() throws Exception {
         // GIVEN
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.model.impl.mining;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.*;
+
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.common.mining.objects.handler.RoleAnalysisProgressIncrement;
+import com.evolveum.midpoint.model.impl.mining.algorithm.cluster.mechanism.*;
+import com.evolveum.midpoint.tools.testng.AbstractUnitTest;
+
+/**
+ * Compares the indexed neighbor search in {@link DensityBasedClustering} with the original full scan
+ * on synthetic data: the clusters must be the same. The durations of both variants are displayed,
+ * so the test can serve as a rough benchmark as well (increase {@link #POINTS} for that).
+ */
+public class TestDensityBasedClustering extends AbstractUnitTest {
+
+    private static final int POINTS = 3000;
+    private static final int BUSINESS_ROLES = 40;
+    private static final int ROLES = 1000;
+
+    @Test
+    public void test100BalancedMode() {
+        compareEngines(ClusteringMode.BALANCED, 0.2, 5, 2);
+    }
+
+    @Test
+    public void test110BalancedModeZeroOverlap() {
+        compareEngines(ClusteringMode.BALANCED, 0.4, 3, 0);
+    }
+
+    @Test
+    public void test200UnbalancedMode() {
+        compareEngines(ClusteringMode.UNBALANCED, 0.2, 5, 8);
+    }
+
+    private void compareEngines(ClusteringMode mode, double eps, int minPts, int minOverlap) {
+        given("synthetic data points");
+        List<DataPoint> scanPoints = generatePoints(new Random(42));
+        List<DataPoint> indexedPoints = generatePoints(new Random(42));
+
+        when("clustering with the full scan");
+        long start = System.currentTimeMillis();
+        List<Cluster<DataPoint>> scanClusters = cluster(scanPoints, mode, eps, minPts, minOverlap, false);
+        long scanTime = System.currentTimeMillis() - start;
+
+        and("clustering with the indexed search");
+        start = System.currentTimeMillis();
+        List<Cluster<DataPoint>> indexedClusters = cluster(indexedPoints, mode, eps, minPts, minOverlap, true);
+        long indexedTime = System.currentTimeMillis() - start;
+
+        then("the results are the same");
+        display(String.format("%s: %d points, %d clusters; full scan: %d ms, indexed: %d ms",
+                mode, POINTS, scanClusters.size(), scanTime, indexedTime));
+        assertThat(describe(indexedClusters, indexedPoints)).isEqualTo(describe(scanClusters, scanPoints));
+        for (int i = 0; i < POINTS; i++) {
+            assertThat(indexedPoints.get(i).getPointStatus())
+                    .as("status of point #" + i)
+                    .isEqualTo(scanPoints.get(i).getPointStatus());
+        }
+    }
+
+    private List<Cluster<DataPoint>> cluster(
+            List<DataPoint> points, ClusteringMode mode, double eps, int minPts, int minOverlap, boolean indexed) {
+        DensityBasedClustering<DataPoint> dbscan =
+                new DensityBasedClustering<>(eps, minPts, new JaccardDistancesMeasure(minOverlap), minOverlap, mode);
+        dbscan.setIndexedNeighborSearchEnabled(indexed);
+        return dbscan.cluster(points, new RoleAnalysisProgressIncrement("test", 1));
+    }
+
+    /** Clusters as lists of point positions, to be comparable across the two runs. */
+    private List<List<Integer>> describe(List<Cluster<DataPoint>> clusters, List<DataPoint> points) {
+        Map<DataPoint, Integer> positions = new IdentityHashMap<>();
+        for (int i = 0; i < points.size(); i++) {
+            positions.put(points.get(i), i);
+        }
+        List<List<Integer>> rv = new ArrayList<>();
+        for (Cluster<DataPoint> cluster : clusters) {
+            rv.add(cluster.getPoints().stream().map(positions::get).toList());
+        }
+        return rv;
+    }
+
+    /**
+     * Each point gets roles of one or two "business roles" (sets of 5-15 roles), some of them randomly dropped,
+     * plus a few random roles.
+     */
+    private List<DataPoint> generatePoints(Random random) {
+        List<List<String>> businessRoles = new ArrayList<>();
+        for (int b = 0; b < BUSINESS_ROLES; b++) {
+            List<String> roles = new ArrayList<>();
+            int size = 5 + random.nextInt(11);
+            for (int r = 0; r < size; r++) {
+                roles.add(roleOid(random.nextInt(ROLES)));
+            }
+            businessRoles.add(roles);
+        }
+
+        List<DataPoint> points = new ArrayList<>();
+        for (int i = 0; i < POINTS; i++) {
+            Set<String> properties = new HashSet<>();
+            int templates = 1 + random.nextInt(2);
+            for (int t = 0; t < templates; t++) {
+                for (String role : businessRoles.get(random.nextInt(BUSINESS_ROLES))) {
+                    if (random.nextInt(10) != 0) {
+                        properties.add(role);
+                    }
+                }
+            }
+            int extra = random.nextInt(4);
+            for (int e = 0; e < extra; e++) {
+                properties.add(roleOid(random.nextInt(ROLES)));
+            }
+            Set<String> members = new HashSet<>();
+            int membersCount = 1 + random.nextInt(3);
+            for (int m = 0; m < membersCount; m++) {
+                members.add("user-" + i + "-" + m);
+            }
+            points.add(new DataPoint(members, properties));
+        }
+        return points;
+    }
+
+    private String roleOid(int number) {
+        return String.format("00000000-0000-0000-0000-%012d", number);
+    }
+}
@@ -8,16 +8,24 @@ package com.evolveum.midpoint.model.intest.multi;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
+import com.evolveum.midpoint.audit.api.AuditEventRecord;
 import com.evolveum.midpoint.audit.api.AuditEventStage;
 import com.evolveum.midpoint.model.api.ModelExecuteOptions;
+import com.evolveum.midpoint.model.api.context.ModelContext;
+import com.evolveum.midpoint.model.api.context.ModelProjectionContext;
 import com.evolveum.midpoint.model.intest.AbstractInitializedModelIntegrationTest;
 import com.evolveum.midpoint.model.test.CommonInitialObjects;
 import com.evolveum.midpoint.prism.*;
 import com.evolveum.midpoint.prism.delta.*;
 import com.evolveum.midpoint.prism.path.InfraItemName;
+import com.evolveum.midpoint.prism.path.ItemName;
 import com.evolveum.midpoint.prism.polystring.PolyString;
 import com.evolveum.midpoint.schema.constants.SchemaConstants;
 import com.evolveum.midpoint.test.DummyTestResource;
@@ -46,6 +54,8 @@ import com.evolveum.midpoint.test.asserter.UserAsserter;
 import com.evolveum.midpoint.test.util.TestUtil;
 import com.evolveum.midpoint.util.MiscUtil;
 
+import static org.assertj.core.api.Assertions.assertThat;
+
 import static com.evolveum.midpoint.model.test.CommonInitialObjects.*;
 import static com.evolveum.midpoint.schema.constants.SchemaConstants.ICFS_NAME_PATH;
 import static com.evolveum.midpoint.test.DummyResourceContoller.*;
@@ -3156,6 +3166,150 @@ public class TestMultiResource extends AbstractInitializedModelIntegrationTest {
         displayDumpable("resource", RESOURCE_DUMMY_NESTED.getDummyResource());
     }
 
+    /**
+     * Reconciles a user with accounts on three resources twice: loading the projections sequentially, and fetching them
+     * concurrently (`parallelProjectionLoading`). The same projections must be loaded in both cases.
+     */
+    @Test
+    public void test600ReconcileWithParallelProjectionLoading() throws Exception {
+        var task = getTestTask();
+        var result = task.getResult();
+
+        given("a user with accounts on three resources");
+        String userOid = addObject(
+                new UserType()
+                        .name("parallel")
+                        .fullName("Parallel Loader"),
+                task, result);
+        for (String resourceOid : List.of(RESOURCE_DUMMY_OID, RESOURCE_DUMMY_RED_OID, RESOURCE_DUMMY_BLUE_OID)) {
+            assignAccountToUser(userOid, resourceOid, null, task, result);
+        }
+        assertSuccess(result);
+
+        when("the user is reconciled with the projections loaded sequentially");
+        Map<String, String> sequential = reconcileAndDescribeProjections(userOid, task, result);
+
+        and("the user is reconciled with the projections fetched concurrently");
+        setParallelProjectionProcessing(InternalsConfigurationType.F_PARALLEL_PROJECTION_LOADING,
+                new ParallelProjectionProcessingConfigurationType().maxThreads(4), task, result);
+        Map<String, String> concurrent;
+        long fetchedInAdvance;
+        try {
+            concurrent = reconcileAndDescribeProjections(userOid, task, result);
+            fetchedInAdvance = profilingModelInspectorManager.getLastInspector().getProjectionsFetchedCount();
+        } finally {
+            setParallelProjectionProcessing(InternalsConfigurationType.F_PARALLEL_PROJECTION_LOADING, null, task, result);
+        }
+
+        then("the same projections are loaded");
+        displayValue("projections loaded sequentially", sequential);
+        displayValue("projections loaded concurrently", concurrent);
+        assertThat(sequential).as("projections loaded sequentially").hasSize(3);
+        assertThat(concurrent).as("projections loaded concurrently").isEqualTo(sequential);
+
+        and("they were fetched in advance");
+        assertThat(fetchedInAdvance).as("projections fetched in advance").isGreaterThanOrEqualTo(3);
+    }
+
+    /** Returns the projections from the lens context, keyed by resource OID: shadow OID, full shadow flag, attributes. */
+    private Map<String, String> reconcileAndDescribeProjections(String userOid, Task task, OperationResult result)
+            throws CommonException {
+        reconcileUser(userOid, task, result);
+        assertSuccess(result);
+
+        ModelContext<?> lensContext = profilingModelInspectorManager.getLastLensContext();
+        assertThat(lensContext).as("last lens context").isNotNull();
+        Map<String, String> projections = new TreeMap<>();
+        for (ModelProjectionContext projectionContext : lensContext.getProjectionContexts()) {
+            PrismObject<ShadowType> current = projectionContext.getObjectCurrent();
+            assertThat(current).as("current object in " + projectionContext.getKey()).isNotNull();
+            projections.put(
+                    projectionContext.getKey().getResourceOid(),
+                    current.getOid() + ", full: " + projectionContext.isFullShadow()
+                            + ", attributes: " + current.asObjectable().getAttributes().asPrismContainerValue().debugDump());
+        }
+        return projections;
+    }
+
+    /**
+     * Projections of a user created with accounts on three resources are executed in the same wave,
+     * so they are executed concurrently if configured. The result must be the same as if executed sequentially.
+     */
+    @Test
+    public void test610AddUserWithParallelProjectionExecution() throws Exception {
+        var task = getTestTask();
+        var result = task.getResult();
+
+        when("a user with accounts on three resources is created with the projections executed sequentially");
+        String sequential = addUserAndDescribeExecution("sequential", task, result);
+
+        and("a user with accounts on three resources is created with the projections executed concurrently");
+        setParallelProjectionProcessing(InternalsConfigurationType.F_PARALLEL_PROJECTION_EXECUTION,
+                new ParallelProjectionProcessingConfigurationType().maxThreads(4), task, result);
+        String concurrent;
+        try {
+            concurrent = addUserAndDescribeExecution("concurrent", task, result);
+        } finally {
+            setParallelProjectionProcessing(InternalsConfigurationType.F_PARALLEL_PROJECTION_EXECUTION, null, task, result);
+        }
+
+        then("the shadows, links and audit records are the same");
+        displayValue("executed sequentially", sequential);
+        displayValue("executed concurrently", concurrent);
+        assertThat(concurrent).isEqualTo(sequential.replace("sequential", "concurrent"));
+    }
+
+    /**
+     * Adds a user with accounts on DUMMY, RED and BLUE resources, and describes the result: linked shadows
+     * (keyed by resource OID, with the account on the resource checked), and audit records (sorted, as the order
+     * of resource records depends on the timing).
+     */
+    private String addUserAndDescribeExecution(String name, Task task, OperationResult result) throws Exception {
+        List<String> resourceOids = List.of(RESOURCE_DUMMY_OID, RESOURCE_DUMMY_RED_OID, RESOURCE_DUMMY_BLUE_OID);
+        UserType user = new UserType()
+                .name(name)
+                .fullName("Parallel Executor");
+        resourceOids.forEach(oid -> user.getAssignment().add(createAccountAssignment(oid, null)));
+
+        dummyAuditService.clear();
+        String userOid = addObject(user, task, result);
+        assertSuccess(result);
+
+        Map<String, String> shadows = new TreeMap<>();
+        for (ObjectReferenceType linkRef : getUser(userOid).asObjectable().getLinkRef()) {
+            ShadowType shadow = getShadowModel(linkRef.getOid()).asObjectable();
+            shadows.put(shadow.getResourceRef().getOid(), shadow.getName().getOrig());
+        }
+        assertThat(shadows.keySet()).as("resources of linked shadows").containsExactlyInAnyOrderElementsOf(resourceOids);
+        for (String dummyName : Arrays.asList(null, RESOURCE_DUMMY_RED_NAME, RESOURCE_DUMMY_BLUE_NAME)) {
+            assertDummyAccount(dummyName, name);
+        }
+
+        List<String> auditRecords = new ArrayList<>();
+        for (AuditEventRecord record : dummyAuditService.getRecords()) {
+            auditRecords.add(record.getEventStage() + " " + record.getEventType() + " " + record.getOutcome() + " "
+                    + record.getDeltas().stream()
+                    .map(d -> d.getObjectDelta().getObjectTypeClass().getSimpleName() + ":" + d.getObjectDelta().getChangeType()
+                            + ":" + (d.getExecutionResult() != null ? d.getExecutionResult().getStatus() : null))
+                    .sorted()
+                    .toList());
+        }
+        Collections.sort(auditRecords);
+        return "shadows: " + shadows + "\naudit: " + auditRecords;
+    }
+
+    private void setParallelProjectionProcessing(
+            ItemName item, ParallelProjectionProcessingConfigurationType config, Task task, OperationResult result)
+            throws CommonException {
+        executeChanges(
+                prismContext.deltaFor(SystemConfigurationType.class)
+                        .item(SystemConfigurationType.F_INTERNALS, item)
+                        .replaceRealValues(config != null ? List.of(config) : List.of())
+                        .asObjectDelta(SystemObjectsType.SYSTEM_CONFIGURATION.value()),
+                null, task, result);
+        assertSuccess(result);
+    }
+
     enum TestAction {
         RENAME, DISABLE
     }
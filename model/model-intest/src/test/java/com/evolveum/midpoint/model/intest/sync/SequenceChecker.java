@@ -7,41 +7,77 @@
 
 package com.evolveum.midpoint.model.intest.sync;
 
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Checks that related changes arrive in the correct order and in the single thread.
+ * Changes are related if they have the same key (e.g. account name).
  */
 public class SequenceChecker {
 
     public static final SequenceChecker INSTANCE = new SequenceChecker();
 
-    private Long threadId;
-    private Integer lastChangeSeen;
+    private final Map<Object, State> states = new ConcurrentHashMap<>();
+
+    /**
+     * If false, only the order is checked. Changes of the same key that do not overlap in time
+     * may be legally processed by different threads.
+     */
+    private volatile boolean checkThreads = true;
 
     public void reset() {
-        threadId = null;
-        lastChangeSeen = null;
+        states.clear();
+        checkThreads = true;
+    }
+
+    public void setCheckThreads(boolean checkThreads) {
+        this.checkThreads = checkThreads;
     }
 
     public void checkChange(int currentChange) {
-        long currentThreadId = Thread.currentThread().getId();
-        if (threadId != null) {
-            if (currentThreadId != threadId) {
-                throw new IllegalStateException("Current thread ID " + currentThreadId + " is different from the ID "
-                        + "of thread that processed previous requests: " + threadId);
-            } else {
-                System.out.println("Thread ID OK: " + threadId);
+        checkChange(null, currentChange);
+    }
+
+    public void checkChange(Object key, int currentChange) {
+        states.computeIfAbsent(Objects.requireNonNullElse(key, ""), k -> new State())
+                .check(key, currentChange, checkThreads);
+    }
+
+    /** Keys seen since the last reset. */
+    public Set<Object> getKeysSeen() {
+        return Set.copyOf(states.keySet());
+    }
+
+    private static class State {
+
+        private Long threadId;
+        private Integer lastChangeSeen;
+
+        private synchronized void check(Object key, int currentChange, boolean checkThreads) {
+            long currentThreadId = Thread.currentThread().getId();
+            if (threadId != null && checkThreads) {
+                if (currentThreadId != threadId) {
+                    throw new IllegalStateException("Current thread ID " + currentThreadId + " is different from the ID "
+                            + "of thread that processed previous requests: " + threadId + " (key: " + key + ")");
+                } else {
+                    System.out.println("Thread ID OK: " + threadId + " (key: " + key + ")");
+                }
+            } else if (threadId == null) {
+                threadId = currentThreadId;
             }
-        } else {
-            threadId = currentThreadId;
-        }
 
-        if (lastChangeSeen != null) {
-            if (currentChange < lastChangeSeen) {
-                throw new IllegalStateException("Current change # (" + currentChange + ") is under last processed change # (" + lastChangeSeen + ")");
-            } else {
-                System.out.println("Change # OK: " + lastChangeSeen + "->" + currentChange);
+            if (lastChangeSeen != null) {
+                if (currentChange < lastChangeSeen) {
+                    throw new IllegalStateException("Current change # (" + currentChange + ") is under last processed "
+                            + "change # (" + lastChangeSeen + ") (key: " + key + ")");
+                } else {
+                    System.out.println("Change # OK: " + lastChangeSeen + "->" + currentChange + " (key: " + key + ")");
+                }
             }
+            lastChangeSeen = currentChange;
         }
-        lastChangeSeen = currentChange;
     }
 }
@@ -23,6 +23,7 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.net.ConnectException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
@@ -1036,6 +1037,50 @@ public class TestLiveSyncTask extends AbstractInitializedModelIntegrationTest {
         assertTaskClosed(taskAfter);
     }
 
+    /**
+     * Changes of multiple accounts processed at once. When multithreaded, they are spread among the workers,
+     * but changes of each account must be still processed in the correct order.
+     */
+    @Test
+    public void test245MultipleAccountsWithMultipleChanges() throws Exception {
+        given();
+        Task task = getTestTask();
+        OperationResult result = task.getResult();
+
+        int accounts = 5;
+        int interests = 6;
+        Set<Object> names = new HashSet<>();
+        for (int a = 0; a < accounts; a++) {
+            String name = "multi-" + a;
+            DummyAccount account = RESOURCE_DUMMY_MULTI_CHANGES.controller.addAccount(name);
+            for (int i = 0; i < interests; i++) {
+                account.addAttributeValue(DummyAccount.ATTR_INTERESTS_NAME, String.valueOf(i));
+            }
+            names.add(name);
+        }
+
+        SequenceChecker.INSTANCE.reset();
+        // Changes of an account that do not overlap in time may go to different workers; only the order matters.
+        SequenceChecker.INSTANCE.setCheckThreads(false);
+
+        when();
+
+        try {
+            waitForTaskNextRun(TASK_MULTI_CHANGES.oid, 60000, true);
+        } finally {
+            SequenceChecker.INSTANCE.setCheckThreads(true);
+        }
+
+        then();
+
+        stabilize();
+        Task taskAfter = taskManager.getTaskWithResult(TASK_MULTI_CHANGES.oid, result);
+        display("Task after", taskAfter);
+        assertSuccess(taskAfter.getResult());
+        assertTaskClosed(taskAfter);
+        assertThat(SequenceChecker.INSTANCE.getKeysSeen()).containsAll(names);
+    }
+
     private TaskAsserter<Void> doXferLiveSync(TestObject<TaskType> xferTask) throws Exception {
         given();
 
@@ -49,6 +49,10 @@ public class ProfilingModelInspectorManager implements DiagnosticContextManager,
         LOGGER.info("Model diagnostics:{}", ctx.debugDump(1));
     }
 
+    public ProfilingModelInspector getLastInspector() {
+        return lastInspector;
+    }
+
     public ModelContext<?> getLastLensContext() {
         if (lastInspector == null) {
             return null;
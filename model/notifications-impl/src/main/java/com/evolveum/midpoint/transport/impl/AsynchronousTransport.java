@@ -0,0 +1,389 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.transport.impl;
+
+import static org.apache.commons.lang3.ObjectUtils.defaultIfNull;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.jetbrains.annotations.NotNull;
+import org.springframework.security.core.Authentication;
+
+import com.evolveum.midpoint.notifications.api.transports.Message;
+import com.evolveum.midpoint.notifications.api.transports.SendingContext;
+import com.evolveum.midpoint.notifications.api.transports.Transport;
+import com.evolveum.midpoint.notifications.api.transports.TransportSupport;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.security.api.SecurityContextManager;
+import com.evolveum.midpoint.task.api.Task;
+import com.evolveum.midpoint.task.api.TaskManager;
+import com.evolveum.midpoint.util.logging.LoggingUtils;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.AsynchronousSendingConfigurationType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.FocusType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.GeneralTransportConfigurationType;
+
+/**
+ * Wraps a transport, so that the messages are put into a queue and sent by dedicated threads,
+ * instead of being sent by the thread that created them.
+ *
+ * Used when `asynchronousSending` is present in the transport configuration. Features:
+ *
+ * . The queue is bounded. If it's full, the message is sent synchronously by the calling thread.
+ * . The sending rate can be limited.
+ * . Failed messages are re-tried, with exponentially growing delays.
+ * . The connections are reused while there are messages in the queue (if the transport supports that,
+ * see {@link ConnectionReusingTransport}).
+ * . Queue depth, sending latency (from enqueueing to sending) and failures are tracked and logged.
+ *
+ * The messages are sent under the identity of the user that created them, in a new (in-memory) task.
+ * The notification statistics are recorded in the task that created the message, as if it was sent synchronously.
+ *
+ * The queue is not persistent. On graceful shutdown, the messages that are waiting are sent before the node stops,
+ * and the messages waiting for a retry are re-tried immediately, for the last time. Messages that are not sent
+ * until the shutdown is finished are logged as dropped.
+ * When the transport is replaced by a reconfiguration, the waiting messages are sent in the background,
+ * see {@link #shutdownInBackground()}.
+ */
+class AsynchronousTransport<C extends GeneralTransportConfigurationType> implements Transport<C> {
+
+    private static final Trace LOGGER = TraceManager.getTrace(AsynchronousTransport.class);
+
+    private static final String OP_SEND = AsynchronousTransport.class.getName() + ".send";
+
+    private static final int DEFAULT_QUEUE_CAPACITY = 10_000;
+    private static final int DEFAULT_THREADS = 1;
+    private static final int DEFAULT_MAX_ATTEMPTS = 3;
+    private static final long DEFAULT_RETRY_INTERVAL = 10_000;
+
+    /** How long we wait for the messages to be sent when shutting down. */
+    private static final long SHUTDOWN_TIMEOUT = 30_000;
+
+    @NotNull private final Transport<C> delegate;
+    @NotNull private final TaskManager taskManager;
+    @NotNull private final SecurityContextManager securityContextManager;
+
+    private final int queueCapacity;
+    private final int maxAttempts;
+    private final long retryInterval;
+
+    /** Minimal time between two sendings (in nanoseconds), or 0 if the rate is not limited. */
+    private final long minSendInterval;
+
+    /** Earliest time (in terms of {@link System#nanoTime()}) the next message can be sent. Guarded by `this`. */
+    private long nextSendTime;
+
+    @NotNull private final ScheduledThreadPoolExecutor executor;
+
+    /** Messages that are waiting or being sent, including those waiting for retry. */
+    private final AtomicInteger queued = new AtomicInteger();
+
+    /** The same messages as counted by {@link #queued}, by their ID; kept to be able to log those dropped on shutdown. */
+    private final Map<Long, QueuedMessage> pendingMessages = new ConcurrentHashMap<>();
+
+    /** Messages waiting for retry, by their ID; see {@link #sendRetriesNow()}. */
+    private final Map<Long, ScheduledRetry> scheduledRetries = new ConcurrentHashMap<>();
+
+    private final AtomicLong messageIds = new AtomicLong();
+
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder sentSynchronously = new LongAdder();
+    private final LongAdder totalLatency = new LongAdder();
+    private final LongAccumulator maxLatency = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator maxQueueDepth = new LongAccumulator(Math::max, 0);
+
+    AsynchronousTransport(
+            @NotNull Transport<C> delegate,
+            @NotNull AsynchronousSendingConfigurationType config,
+            @NotNull TaskManager taskManager,
+            @NotNull SecurityContextManager securityContextManager) {
+        this.delegate = delegate;
+        this.taskManager = taskManager;
+        this.securityContextManager = securityContextManager;
+        queueCapacity = defaultIfNull(config.getQueueCapacity(), DEFAULT_QUEUE_CAPACITY);
+        maxAttempts = Math.max(1, defaultIfNull(config.getMaxAttempts(), DEFAULT_MAX_ATTEMPTS));
+        retryInterval = defaultIfNull(config.getRetryInterval(), DEFAULT_RETRY_INTERVAL);
+        Double maxMessagesPerSecond = config.getMaxMessagesPerSecond();
+        minSendInterval = maxMessagesPerSecond != null && maxMessagesPerSecond > 0
+                ? (long) (TimeUnit.SECONDS.toNanos(1) / maxMessagesPerSecond)
+                : 0;
+        int threads = Math.max(1, defaultIfNull(config.getThreads(), DEFAULT_THREADS));
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = new ScheduledThreadPoolExecutor(threads, r -> {
+            Thread thread = new Thread(r, "notification-sender-" + delegate.getName() + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Retries are not waited for on shutdown; they are sent immediately instead, see sendRetriesNow().
+        executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    }
+
+    @Override
+    public void configure(@NotNull C configuration, @NotNull TransportSupport transportSupport) {
+        delegate.configure(configuration, transportSupport);
+    }
+
+    @Override
+    public void send(Message message, String transportName, SendingContext ctx, OperationResult parentResult) {
+        int depth = queued.incrementAndGet();
+        if (depth > queueCapacity) {
+            queued.decrementAndGet();
+            sentSynchronously.increment();
+            LOGGER.debug("Queue for transport {} is full ({} messages), sending the message synchronously",
+                    getName(), queueCapacity);
+            delegate.send(message, transportName, ctx, parentResult);
+            return;
+        }
+        maxQueueDepth.accumulate(depth);
+        QueuedMessage queuedMessage = new QueuedMessage(messageIds.incrementAndGet(), message, transportName, ctx,
+                securityContextManager.getAuthentication(), System.currentTimeMillis());
+        pendingMessages.put(queuedMessage.id(), queuedMessage);
+        try {
+            executor.execute(() -> send(queuedMessage, 1));
+        } catch (RejectedExecutionException e) {
+            // We are shutting down.
+            pendingMessages.remove(queuedMessage.id());
+            queued.decrementAndGet();
+            sentSynchronously.increment();
+            delegate.send(message, transportName, ctx, parentResult);
+            if (executor.isTerminated()) {
+                closeConnections(); // nobody else would close them
+            }
+            return;
+        }
+        LOGGER.trace("Message for {} queued for sending via {}, queue depth is {}", message.getTo(), getName(), depth);
+        OperationResult result = parentResult.createMinorSubresult(OP_SEND);
+        result.addParam("queued", true);
+        result.addReturn("queueDepth", depth);
+        result.recordSuccess();
+    }
+
+    /** Executed in the sender thread. */
+    private void send(QueuedMessage queuedMessage, int attempt) {
+        boolean done = true;
+        long start = 0;
+        try {
+            waitForRateLimit();
+            securityContextManager.setupPreAuthenticatedSecurityContext(queuedMessage.authentication());
+            Task task = taskManager.createTaskInstance(OP_SEND);
+            OperationResult result = task.getResult();
+            result.addParam("attempt", attempt);
+            SendingContext ctx = new SendingContext(
+                    queuedMessage.ctx().expressionProfile(), queuedMessage.ctx().event(), task);
+            start = System.currentTimeMillis();
+            delegate.send(queuedMessage.message(), queuedMessage.transportName(), ctx, result);
+            result.computeStatusIfUnknown();
+            boolean success = result.isSuccess() || result.isHandledError() || result.isNotApplicable();
+            recordOperation(queuedMessage, success, start);
+            if (success) {
+                recordSent(queuedMessage);
+            } else if (attempt < maxAttempts && retry(queuedMessage, attempt)) {
+                done = false;
+            } else {
+                failed.increment();
+                LOGGER.warn("Couldn't send message to {} via {} in {} attempt(s), giving up: {}",
+                        queuedMessage.message().getTo(), getName(), attempt, result.getMessage());
+            }
+        } catch (Throwable t) {
+            failed.increment();
+            if (start != 0) {
+                recordOperation(queuedMessage, false, start);
+            }
+            LoggingUtils.logUnexpectedException(LOGGER, "Couldn't send message to {} via {}",
+                    t, queuedMessage.message().getTo(), getName());
+        } finally {
+            securityContextManager.setupPreAuthenticatedSecurityContext((Authentication) null);
+            if (done) {
+                pendingMessages.remove(queuedMessage.id());
+                if (queued.decrementAndGet() == 0) {
+                    onQueueDrained();
+                }
+            }
+        }
+    }
+
+    private boolean retry(QueuedMessage queuedMessage, int attempt) {
+        long delay = retryInterval << Math.min(attempt - 1, 20);
+        LOGGER.debug("Couldn't send message to {} via {} (attempt {}), will retry in {} ms",
+                queuedMessage.message().getTo(), getName(), attempt, delay);
+        long id = queuedMessage.id();
+        try {
+            ScheduledFuture<?> future = executor.schedule(() -> {
+                scheduledRetries.remove(id);
+                send(queuedMessage, attempt + 1);
+            }, delay, TimeUnit.MILLISECONDS);
+            scheduledRetries.put(id, new ScheduledRetry(queuedMessage, attempt + 1, future));
+            if (future.isDone()) {
+                scheduledRetries.remove(id); // it was faster than us
+            }
+            retried.increment();
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false; // shutting down
+        }
+    }
+
+    /**
+     * Sends the messages waiting for retry now, instead of dropping them on shutdown.
+     * If the attempt fails, the message is not re-tried again.
+     */
+    private void sendRetriesNow() {
+        for (Iterator<ScheduledRetry> iterator = scheduledRetries.values().iterator(); iterator.hasNext(); ) {
+            ScheduledRetry retry = iterator.next();
+            iterator.remove();
+            if (retry.future().cancel(false)) {
+                LOGGER.debug("Re-trying message to {} via {} now, because of shutdown",
+                        retry.message().message().getTo(), getName());
+                try {
+                    executor.execute(() -> send(retry.message(), retry.attempt()));
+                } catch (RejectedExecutionException e) {
+                    LOGGER.debug("Executor for {} is already shut down, the message will be logged as dropped", getName());
+                }
+            }
+        }
+    }
+
+    /**
+     * The task used for sending is thrown away, so the statistics go to the task that created the message.
+     * (Recording the statistics is thread-safe.)
+     */
+    private void recordOperation(QueuedMessage queuedMessage, boolean success, long start) {
+        queuedMessage.ctx().task().recordNotificationOperation(getName(), success, System.currentTimeMillis() - start);
+    }
+
+    private void recordSent(QueuedMessage queuedMessage) {
+        long latency = System.currentTimeMillis() - queuedMessage.enqueued();
+        sent.increment();
+        totalLatency.add(latency);
+        maxLatency.accumulate(latency);
+        LOGGER.trace("Message to {} sent via {}, latency {} ms", queuedMessage.message().getTo(), getName(), latency);
+    }
+
+    private void waitForRateLimit() throws InterruptedException {
+        if (minSendInterval == 0) {
+            return;
+        }
+        long waitTime;
+        synchronized (this) {
+            long now = System.nanoTime();
+            long sendTime = Math.max(now, nextSendTime);
+            nextSendTime = sendTime + minSendInterval;
+            waitTime = sendTime - now;
+        }
+        if (waitTime > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitTime);
+        }
+    }
+
+    private void onQueueDrained() {
+        closeConnections();
+        LOGGER.debug("Queue for transport {} drained; {}", getName(), getStatisticsDescription());
+    }
+
+    String getStatisticsDescription() {
+        long sentCount = sent.sum();
+        return "queue depth " + queued.get() + " (max " + maxQueueDepth.get() + ")"
+                + ", sent " + sentCount
+                + ", failed " + failed.sum()
+                + ", retried " + retried.sum()
+                + ", sent synchronously " + sentSynchronously.sum()
+                + ", average latency " + (sentCount > 0 ? totalLatency.sum() / sentCount : 0) + " ms"
+                + ", max latency " + maxLatency.get() + " ms";
+    }
+
+    private void closeConnections() {
+        if (delegate instanceof ConnectionReusingTransport connectionReusingTransport) {
+            connectionReusingTransport.closeConnections();
+        }
+    }
+
+    /**
+     * Sends the messages that are waiting, re-tries the failed ones immediately (instead of waiting
+     * for their retry time), and stops the sender threads.
+     */
+    void shutdown() {
+        sendRetriesNow();
+        executor.shutdown();
+        awaitTermination();
+    }
+
+    /**
+     * Stops accepting new messages (they are sent synchronously from now on), and lets a background thread
+     * wait for the messages that are already queued. Used when the transport is replaced by a new one,
+     * so that the caller does not wait for the queue to drain.
+     */
+    void shutdownInBackground() {
+        sendRetriesNow();
+        executor.shutdown();
+        Thread thread = new Thread(this::awaitTermination, "notification-sender-" + getName() + "-shutdown");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void awaitTermination() {
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                LOGGER.warn("Not all messages for transport {} were sent in {} ms; {}",
+                        getName(), SHUTDOWN_TIMEOUT, getStatisticsDescription());
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+        logDroppedMessages();
+        closeConnections();
+        LOGGER.debug("Asynchronous sending via {} stopped; {}", getName(), getStatisticsDescription());
+    }
+
+    /** Messages that were not sent, e.g. because of the shutdown timeout, or re-tried after the final attempt. */
+    private void logDroppedMessages() {
+        for (QueuedMessage queuedMessage : pendingMessages.values()) {
+            LOGGER.warn("Message to {} via {} was not sent before the shutdown, it is dropped",
+                    queuedMessage.message().getTo(), getName());
+        }
+    }
+
+    @Override
+    public String getDefaultRecipientAddress(FocusType recipient) {
+        return delegate.getDefaultRecipientAddress(recipient);
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public C getConfiguration() {
+        return delegate.getConfiguration();
+    }
+
+    private record QueuedMessage(
+            long id,
+            @NotNull Message message,
+            String transportName,
+            @NotNull SendingContext ctx,
+            Authentication authentication,
+            long enqueued) {
+    }
+
+    private record ScheduledRetry(
+            @NotNull QueuedMessage message,
+            int attempt,
+            @NotNull ScheduledFuture<?> future) {
+    }
+}
@@ -0,0 +1,17 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.transport.impl;
+
+/**
+ * Transport that keeps connections (to mail servers, SMS gateways, ...) open between messages.
+ * This is done only when the messages are sent asynchronously, see {@link AsynchronousTransport}.
+ */
+interface ConnectionReusingTransport {
+
+    /** Closes all connections that are currently open. Called when there are no more messages to be sent. */
+    void closeConnections();
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.transport.impl;
+
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import org.apache.commons.lang3.StringUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+
+/**
+ * Keeps connected SMTP transports, so that consecutive messages sent to the same server can use the same connection.
+ *
+ * Used by {@link MailMessageTransport} when the messages are sent asynchronously, see {@link AsynchronousTransport}.
+ * The connections are kept open only while there are messages in the queue; they are closed by {@link #closeAll()}
+ * when the queue is drained. A connection is used by a single thread at a time.
+ */
+class MailConnectionPool {
+
+    private static final Trace LOGGER = TraceManager.getTrace(MailConnectionPool.class);
+
+    /** Idle connections, keyed by server (host, port, username). */
+    private final Map<String, Deque<Transport>> idleConnections = new ConcurrentHashMap<>();
+
+    /**
+     * Sends the message using an idle connection to the server, if there is one; opens a new connection otherwise.
+     * The connection is returned to the pool after successful sending.
+     */
+    void send(@NotNull Session session, @NotNull String host, @Nullable Integer port, @Nullable String username,
+            @Nullable String password, @NotNull MimeMessage mimeMessage) throws MessagingException {
+        String key = host + ":" + port + ":" + username;
+        Deque<Transport> connections = idleConnections.computeIfAbsent(key, k -> new ConcurrentLinkedDeque<>());
+        Transport connection = connections.pollFirst();
+        if (connection != null) {
+            if (connection.isConnected()) {
+                try {
+                    connection.sendMessage(mimeMessage, mimeMessage.getAllRecipients());
+                    connections.addFirst(connection);
+                    return;
+                } catch (SendFailedException e) {
+                    // The problem is with the message (e.g. invalid addresses), not with the connection.
+                    connections.addFirst(connection);
+                    throw e;
+                } catch (MessagingException e) {
+                    LOGGER.debug("Couldn't send message via reused connection to {}, trying a new one: {}", key, e.getMessage());
+                }
+            }
+            close(connection);
+        }
+
+        connection = session.getTransport("smtp");
+        try {
+            if (StringUtils.isNotEmpty(username)) {
+                connection.connect(username, password);
+            } else {
+                connection.connect();
+            }
+            connection.sendMessage(mimeMessage, mimeMessage.getAllRecipients());
+        } catch (MessagingException | RuntimeException e) {
+            close(connection);
+            throw e;
+        }
+        connections.addFirst(connection);
+    }
+
+    /** Closes all idle connections. */
+    void closeAll() {
+        idleConnections.values().forEach(connections -> {
+            Transport connection;
+            while ((connection = connections.pollFirst()) != null) {
+                close(connection);
+            }
+        });
+    }
+
+    private void close(Transport connection) {
+        try {
+            connection.close();
+        } catch (MessagingException e) {
+            LOGGER.debug("Couldn't close SMTP connection: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -45,8 +45,10 @@ import com.evolveum.prism.xml.ns._public.types_3.RawType;
 
 /**
  * Message transport sending mail messages.
+ *
+ * If the messages are sent asynchronously, connections to mail servers are reused, see {@link MailConnectionPool}.
  */
-public class MailMessageTransport implements Transport<MailTransportConfigurationType> {
+public class MailMessageTransport implements Transport<MailTransportConfigurationType>, ConnectionReusingTransport {
 
     private static final Trace LOGGER = TraceManager.getTrace(MailMessageTransport.class);
 
@@ -56,6 +58,9 @@ public class MailMessageTransport implements Transport<MailTransportConfiguratio
     private MailTransportConfigurationType configuration;
     private TransportSupport transportSupport;
 
+    /** Present only if the messages are sent asynchronously. */
+    private MailConnectionPool connectionPool;
+
     @Override
     public void configure(
             @NotNull MailTransportConfigurationType configuration,
@@ -63,6 +68,7 @@ public class MailMessageTransport implements Transport<MailTransportConfiguratio
         this.configuration = Objects.requireNonNull(configuration);
         name = Objects.requireNonNull(configuration.getName());
         this.transportSupport = transportSupport;
+        connectionPool = configuration.getAsynchronousSending() != null ? new MailConnectionPool() : null;
     }
 
     @Override
@@ -273,32 +279,39 @@ public class MailMessageTransport implements Transport<MailTransportConfiguratio
                 }
 
                 mimeMessage.setContent(multipart);
-                try (jakarta.mail.Transport t = session.getTransport("smtp")) {
-                    if (StringUtils.isNotEmpty(mailServerConfigurationType.getUsername())) {
-                        ProtectedStringType passwordProtected = mailServerConfigurationType.getPassword();
-                        String password = null;
-                        if (passwordProtected != null) {
-                            try {
-                                password = transportSupport.protector().decryptString(passwordProtected);
-                            } catch (EncryptionException e) {
-                                String msg = "Couldn't send mail message to " + actualTo + " via " + host + ", because the plaintext password value couldn't be obtained. Trying another mail server, if there is any.";
-                                LoggingUtils.logException(LOGGER, msg, e);
-                                resultForServer.recordFatalError(msg, e);
-                                continue;
-                            }
+                String username = mailServerConfigurationType.getUsername();
+                String password = null;
+                if (StringUtils.isNotEmpty(username)) {
+                    ProtectedStringType passwordProtected = mailServerConfigurationType.getPassword();
+                    if (passwordProtected != null) {
+                        try {
+                            password = transportSupport.protector().decryptString(passwordProtected);
+                        } catch (EncryptionException e) {
+                            String msg = "Couldn't send mail message to " + actualTo + " via " + host + ", because the plaintext password value couldn't be obtained. Trying another mail server, if there is any.";
+                            LoggingUtils.logException(LOGGER, msg, e);
+                            resultForServer.recordFatalError(msg, e);
+                            continue;
                         }
-                        t.connect(mailServerConfigurationType.getUsername(), password);
-                    } else {
-                        t.connect();
                     }
-                    t.sendMessage(mimeMessage, mimeMessage.getAllRecipients());
-                    LOGGER.debug("Message sent successfully to " + actualTo + " via server " + host + ".");
-                    resultForServer.recordSuccess();
-                    result.recordSuccess();
-                    long duration = System.currentTimeMillis() - start;
-                    task.recordStateMessage("Notification mail sent successfully via " + host + ", in " + duration + " ms overall.");
-                    task.recordNotificationOperation(name, true, duration);
                 }
+                if (connectionPool != null) {
+                    connectionPool.send(session, host, mailServerConfigurationType.getPort(), username, password, mimeMessage);
+                } else {
+                    try (jakarta.mail.Transport t = session.getTransport("smtp")) {
+                        if (StringUtils.isNotEmpty(username)) {
+                            t.connect(username, password);
+                        } else {
+                            t.connect();
+                        }
+                        t.sendMessage(mimeMessage, mimeMessage.getAllRecipients());
+                    }
+                }
+                LOGGER.debug("Message sent successfully to " + actualTo + " via server " + host + ".");
+                resultForServer.recordSuccess();
+                result.recordSuccess();
+                long duration = System.currentTimeMillis() - start;
+                task.recordStateMessage("Notification mail sent successfully via " + host + ", in " + duration + " ms overall.");
+                task.recordNotificationOperation(name, true, duration);
                 return;
             } catch (MessagingException e) {
                 String msg = "Couldn't send mail message to " + actualTo + " via " + host + ", trying another mail server, if there is any";
@@ -312,6 +325,13 @@ public class MailMessageTransport implements Transport<MailTransportConfiguratio
         task.recordNotificationOperation(name, false, System.currentTimeMillis() - start);
     }
 
+    @Override
+    public void closeConnections() {
+        if (connectionPool != null) {
+            connectionPool.closeAll();
+        }
+    }
+
     @Override
     public String getDefaultRecipientAddress(FocusType recipient) {
         return recipient.getEmailAddress();
@@ -18,7 +18,9 @@ import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import javax.xml.namespace.QName;
 
@@ -70,8 +72,10 @@ import com.evolveum.prism.xml.ns._public.types_3.ProtectedStringType;
 
 /**
  * Message transport sending SMS messages.
+ *
+ * If the messages are sent asynchronously, HTTP clients (and their connections) are reused.
  */
-public class SmsMessageTransport implements Transport<SmsTransportConfigurationType> {
+public class SmsMessageTransport implements Transport<SmsTransportConfigurationType>, ConnectionReusingTransport {
 
     private static final Trace LOGGER = TraceManager.getTrace(SmsMessageTransport.class);
 
@@ -81,6 +85,9 @@ public class SmsMessageTransport implements Transport<SmsTransportConfigurationT
     private SmsTransportConfigurationType configuration;
     private TransportSupport transportSupport;
 
+    /** Request factories (gateway index + host -> factory). Present only if the messages are sent asynchronously. */
+    private Map<String, HttpComponentsClientHttpRequestFactory> requestFactories;
+
     @Override
     public void configure(
             @NotNull SmsTransportConfigurationType configuration,
@@ -88,6 +95,7 @@ public class SmsMessageTransport implements Transport<SmsTransportConfigurationT
         this.configuration = Objects.requireNonNull(configuration);
         name = Objects.requireNonNull(configuration.getName());
         this.transportSupport = transportSupport;
+        requestFactories = configuration.getAsynchronousSending() != null ? new ConcurrentHashMap<>() : null;
     }
 
     @Override
@@ -156,7 +164,9 @@ public class SmsMessageTransport implements Transport<SmsTransportConfigurationT
         List<String> to = message.getTo();
         assert !to.isEmpty();
 
+        int gatewayIndex = -1;
         for (SmsGatewayConfigurationType smsGatewayConfigurationType : configuration.getGateway()) {
+            gatewayIndex++;
             OperationResult resultForGateway = result.createSubresult(DOT_CLASS + "send.forGateway");
             resultForGateway.addContext("gateway name", smsGatewayConfigurationType.getName());
             try {
@@ -192,46 +202,8 @@ public class SmsMessageTransport implements Transport<SmsTransportConfigurationT
                     HttpHost host = HttpHost.create(URI.create(url));
                     HttpHost pHost = StringUtils.isNotBlank(proxyHost) ? (proxyPort != null ? new HttpHost(proxyHost, proxyPort) : new HttpHost(proxyHost)) : null;
 
-                    HttpClientBuilder builder = HttpClientBuilder.create();
-                    String username = smsGatewayConfigurationType.getUsername();
-                    ProtectedStringType password = smsGatewayConfigurationType.getPassword();
-                    BasicCredentialsProvider provider = new BasicCredentialsProvider();
-                    if (username != null) {
-                        String plainPassword = password != null ? transportSupport.protector().decryptString(password) : null;
-                        UsernamePasswordCredentials credentials = new UsernamePasswordCredentials(username, plainPassword.toCharArray());
-                        provider.setCredentials(new AuthScope(host, null, null), credentials);
-                        builder = builder.setDefaultCredentialsProvider(provider);
-                    }
-                    String proxyUsername = smsGatewayConfigurationType.getProxyUsername();
-                    ProtectedStringType proxyPassword = smsGatewayConfigurationType.getProxyPassword();
-                    if (StringUtils.isNotBlank(proxyHost)) {
-                        if (StringUtils.isNotBlank(proxyUsername)) {
-                            String plainProxyPassword = proxyPassword != null ? transportSupport.protector().decryptString(proxyPassword) : null;
-                            UsernamePasswordCredentials credentials = new UsernamePasswordCredentials(proxyUsername, plainProxyPassword.toCharArray());
-                            provider.setCredentials(new AuthScope(pHost), credentials);
-                        }
-                        builder = builder.setDefaultCredentialsProvider(provider);
-                        builder = builder.setProxy(pHost);
-                    }
-
-                    HttpClient client = builder.build();
-                    HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(client);
-
-                    // this is to setup preemptive authentication
-                    requestFactory.setHttpContextFactory((m, uri) -> {
-                        ContextBuilder ctxBuilder = ContextBuilder.create()
-                                .useCredentialsProvider(provider);
-                        if (username != null) {
-                            Credentials c = provider.getCredentials(new AuthScope(host, null, null), null);
-                            ctxBuilder = ctxBuilder.preemptiveBasicAuth(host, (UsernamePasswordCredentials) c);
-                        }
-                        if (proxyUsername != null) {
-                            Credentials c = provider.getCredentials(new AuthScope(pHost, null, null), null);
-                            ctxBuilder = ctxBuilder.preemptiveBasicAuth(pHost, (UsernamePasswordCredentials) c);
-                        }
-
-                        return ctxBuilder.build();
-                    });
+                    HttpComponentsClientHttpRequestFactory requestFactory =
+                            getRequestFactory(smsGatewayConfigurationType, gatewayIndex, host, pHost);
 
                     ClientHttpRequest request = requestFactory.createRequest(URI.create(url), HttpUtil.toHttpMethod(method));
                     setHeaders(request, headersList);
@@ -260,6 +232,94 @@ public class SmsMessageTransport implements Transport<SmsTransportConfigurationT
         result.recordWarning("Notification to " + message.getTo() + " could not be sent.");
     }
 
+    /**
+     * Returns the request factory (with its HTTP client) for given gateway and host. If the messages are sent asynchronously,
+     * the factories are kept, so the connections to the gateway are reused; see {@link #closeConnections()}.
+     */
+    private HttpComponentsClientHttpRequestFactory getRequestFactory(
+            SmsGatewayConfigurationType gateway, int gatewayIndex, HttpHost host, HttpHost pHost) throws EncryptionException {
+        if (requestFactories == null) {
+            return createRequestFactory(gateway, host, pHost);
+        }
+        String key = gatewayIndex + ":" + host;
+        HttpComponentsClientHttpRequestFactory existing = requestFactories.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        HttpComponentsClientHttpRequestFactory created = createRequestFactory(gateway, host, pHost);
+        existing = requestFactories.putIfAbsent(key, created);
+        if (existing != null) {
+            destroy(created);
+            return existing;
+        } else {
+            return created;
+        }
+    }
+
+    private HttpComponentsClientHttpRequestFactory createRequestFactory(
+            SmsGatewayConfigurationType gateway, HttpHost host, HttpHost pHost) throws EncryptionException {
+        String proxyHost = gateway.getProxyHost();
+        HttpClientBuilder builder = HttpClientBuilder.create();
+        String username = gateway.getUsername();
+        ProtectedStringType password = gateway.getPassword();
+        BasicCredentialsProvider provider = new BasicCredentialsProvider();
+        if (username != null) {
+            String plainPassword = password != null ? transportSupport.protector().decryptString(password) : null;
+            UsernamePasswordCredentials credentials = new UsernamePasswordCredentials(username, plainPassword.toCharArray());
+            provider.setCredentials(new AuthScope(host, null, null), credentials);
+            builder = builder.setDefaultCredentialsProvider(provider);
+        }
+        String proxyUsername = gateway.getProxyUsername();
+        ProtectedStringType proxyPassword = gateway.getProxyPassword();
+        if (StringUtils.isNotBlank(proxyHost)) {
+            if (StringUtils.isNotBlank(proxyUsername)) {
+                String plainProxyPassword = proxyPassword != null ? transportSupport.protector().decryptString(proxyPassword) : null;
+                UsernamePasswordCredentials credentials = new UsernamePasswordCredentials(proxyUsername, plainProxyPassword.toCharArray());
+                provider.setCredentials(new AuthScope(pHost), credentials);
+            }
+            builder = builder.setDefaultCredentialsProvider(provider);
+            builder = builder.setProxy(pHost);
+        }
+
+        HttpClient client = builder.build();
+        HttpComponentsClientHttpRequestFactory requestFactory = new HttpComponentsClientHttpRequestFactory(client);
+
+        // this is to setup preemptive authentication
+        requestFactory.setHttpContextFactory((m, uri) -> {
+            ContextBuilder ctxBuilder = ContextBuilder.create()
+                    .useCredentialsProvider(provider);
+            if (username != null) {
+                Credentials c = provider.getCredentials(new AuthScope(host, null, null), null);
+                ctxBuilder = ctxBuilder.preemptiveBasicAuth(host, (UsernamePasswordCredentials) c);
+            }
+            if (proxyUsername != null) {
+                Credentials c = provider.getCredentials(new AuthScope(pHost, null, null), null);
+                ctxBuilder = ctxBuilder.preemptiveBasicAuth(pHost, (UsernamePasswordCredentials) c);
+            }
+
+            return ctxBuilder.build();
+        });
+        return requestFactory;
+    }
+
+    @Override
+    public void closeConnections() {
+        if (requestFactories != null) {
+            requestFactories.values().removeIf(factory -> {
+                destroy(factory);
+                return true;
+            });
+        }
+    }
+
+    private void destroy(HttpComponentsClientHttpRequestFactory requestFactory) {
+        try {
+            requestFactory.destroy();
+        } catch (Exception e) {
+            LOGGER.debug("Couldn't close HTTP client for SMS gateway: {}", e.getMessage(), e);
+        }
+    }
+
     private void setHeaders(ClientHttpRequest request, List<String> headersList) {
         for (String headerAsString : headersList) {
             if (StringUtils.isEmpty(headerAsString)) {
@@ -7,12 +7,14 @@
 package com.evolveum.midpoint.transport.impl;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Supplier;
 
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -27,6 +29,8 @@ import com.evolveum.midpoint.repo.api.RepositoryService;
 import com.evolveum.midpoint.repo.api.SystemConfigurationChangeEvent;
 import com.evolveum.midpoint.repo.common.expression.ExpressionFactory;
 import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.security.api.SecurityContextManager;
+import com.evolveum.midpoint.task.api.TaskManager;
 import com.evolveum.midpoint.transport.impl.legacy.LegacyCustomTransport;
 import com.evolveum.midpoint.transport.impl.legacy.LegacyFileTransport;
 import com.evolveum.midpoint.transport.impl.legacy.LegacyMailTransport;
@@ -56,6 +60,8 @@ public class TransportServiceImpl implements TransportService {
     @Autowired private PrismContext prismContext;
     @Autowired private ExpressionFactory expressionFactory;
     @Autowired private Protector protector;
+    @Autowired private TaskManager taskManager;
+    @Autowired private SecurityContextManager securityContextManager;
 
     @Autowired
     @Qualifier("cacheRepositoryService")
@@ -106,9 +112,28 @@ public class TransportServiceImpl implements TransportService {
      * TODO do we need separate event when systemObjectCache is invalidated? (multi-node setup) NEEDS CHECK!
      */
     @EventListener
-    public void refreshTransportConfiguration(SystemConfigurationChangeEvent event) {
-        clearPreviousConfiguration();
+    public synchronized void refreshTransportConfiguration(SystemConfigurationChangeEvent event) {
+        Map<String, Transport<?>> previousTransports = new HashMap<>();
+        for (String transportName : transportsFromSysConfig) {
+            Transport<?> transport = transports.get(transportName);
+            if (transport != null) {
+                previousTransports.put(transportName, transport);
+            }
+        }
+        transportsFromSysConfig.clear();
+
+        // The new transports replace the previous ones in the map, so there is no moment when a transport is missing.
         createTransports(event.getSystemConfiguration());
+
+        previousTransports.forEach((transportName, transport) -> {
+            if (!transportsFromSysConfig.contains(transportName)) {
+                transports.remove(transportName, transport);
+            }
+            if (transport instanceof AsynchronousTransport<?> asynchronousTransport) {
+                // Messages queued for the previous transport are sent in the background, not to block the reconfiguration.
+                asynchronousTransport.shutdownInBackground();
+            }
+        });
     }
 
     /** TODO: Implicit legacy notifiers, this should go in 4.6. */
@@ -162,13 +187,29 @@ public class TransportServiceImpl implements TransportService {
         config.getCustomTransport().forEach(this::createCustomTransport);
     }
 
-    private void clearPreviousConfiguration() {
-        for (String transport : transportsFromSysConfig) {
-            transports.remove(transport);
+    @PreDestroy
+    public synchronized void shutdown() {
+        for (String transportName : transportsFromSysConfig) {
+            Transport<?> transport = transports.remove(transportName);
+            if (transport instanceof AsynchronousTransport<?> asynchronousTransport) {
+                asynchronousTransport.shutdown();
+            }
         }
         transportsFromSysConfig.clear();
     }
 
+    /** Wraps the configured transport, if the messages are to be sent asynchronously. */
+    private <C extends GeneralTransportConfigurationType> void registerConfiguredTransport(Transport<C> transport) {
+        C configuration = transport.getConfiguration();
+        if (configuration != null && configuration.getAsynchronousSending() != null) {
+            registerTransport(new AsynchronousTransport<>(
+                    transport, configuration.getAsynchronousSending(), taskManager, securityContextManager));
+        } else {
+            registerTransport(transport);
+        }
+        transportsFromSysConfig.add(transport.getName());
+    }
+
     private void createCustomTransport(CustomTransportConfigurationType customConfig) {
         String name = customConfig.getName();
         if (name == null) {
@@ -182,8 +223,7 @@ public class TransportServiceImpl implements TransportService {
                     ? (Transport<CustomTransportConfigurationType>) Class.forName(className).getConstructor().newInstance()
                     : new CustomMessageTransport();
             transport.configure(customConfig, transportSupport);
-            registerTransport(transport);
-            transportsFromSysConfig.add(transport.getName());
+            registerConfiguredTransport(transport);
         } catch (ReflectiveOperationException | ClassCastException e) {
             LOGGER.warn("CustomTransportConfigurationType creation problem, IGNORING: {}", customConfig, e);
         }
@@ -198,7 +238,6 @@ public class TransportServiceImpl implements TransportService {
         }
         Transport<C> transport = transportSupplier.get();
         transport.configure(transportConfig, transportSupport);
-        registerTransport(transport);
-        transportsFromSysConfig.add(transport.getName());
+        registerConfiguredTransport(transport);
     }
 }
@@ -0,0 +1,330 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.transport.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.jetbrains.annotations.NotNull;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.notifications.api.transports.*;
+import com.evolveum.midpoint.repo.api.SystemConfigurationChangeEvent;
+import com.evolveum.midpoint.schema.expression.ExpressionProfile;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.security.api.SecurityContextManager;
+import com.evolveum.midpoint.task.api.Task;
+import com.evolveum.midpoint.test.AbstractIntegrationTest;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.*;
+
+/**
+ * Tests of {@link AsynchronousTransport}, both standalone and as configured by {@link TransportServiceImpl}.
+ */
+@ContextConfiguration(locations = { "classpath:ctx-notifications-test.xml" })
+public class TestAsynchronousTransport extends AbstractIntegrationTest {
+
+    private static final String SLOW_TRANSPORT_NAME = "slow";
+
+    @Autowired private SecurityContextManager securityContextManager;
+    @Autowired private TransportServiceImpl transportService;
+
+    @Test
+    public void test100MessagesAreSentBySenderThreadWithStatisticsInOriginalTask() throws Exception {
+        given("asynchronous transport");
+        Task task = getTestTask();
+        RecordingTransport delegate = new RecordingTransport("async-100", 0);
+        AsynchronousTransport<CustomTransportConfigurationType> transport =
+                createTransport(delegate, new AsynchronousSendingConfigurationType());
+
+        when("messages are sent");
+        for (int i = 0; i < 3; i++) {
+            transport.send(message(i), delegate.getName(), sendingContext(task), task.getResult());
+        }
+
+        then("they are sent by the sender thread");
+        waitFor(() -> transport.getStatisticsDescription().contains("sent 3"));
+        assertThat(delegate.threadNames).hasSize(3)
+                .allMatch(name -> name.startsWith("notification-sender-async-100-"));
+        assertThat(delegate.tasks).doesNotContain(task);
+
+        and("statistics are recorded in the task that created the messages");
+        NotificationsStatisticsEntryType entry = getNotificationStatistics(task, delegate.getName());
+        assertThat(entry.getCountSuccess()).isEqualTo(3);
+        assertThat(entry.getCountFailure()).isEqualTo(0);
+
+        transport.shutdown();
+    }
+
+    @Test
+    public void test110MessageIsSentSynchronouslyWhenQueueIsFull() throws Exception {
+        given("asynchronous transport with no room in the queue");
+        Task task = getTestTask();
+        RecordingTransport delegate = new RecordingTransport("async-110", 0);
+        AsynchronousTransport<CustomTransportConfigurationType> transport =
+                createTransport(delegate, new AsynchronousSendingConfigurationType().queueCapacity(0));
+
+        when("message is sent");
+        transport.send(message(1), delegate.getName(), sendingContext(task), task.getResult());
+
+        then("it is sent by the calling thread");
+        assertThat(delegate.threadNames).containsExactly(Thread.currentThread().getName());
+        assertThat(transport.getStatisticsDescription()).contains("sent synchronously 1");
+
+        transport.shutdown();
+    }
+
+    @Test
+    public void test120FailedMessageIsRetried() throws Exception {
+        given("asynchronous transport failing for the first attempt");
+        Task task = getTestTask();
+        RecordingTransport delegate = new RecordingTransport("async-120", 1);
+        AsynchronousTransport<CustomTransportConfigurationType> transport =
+                createTransport(delegate, new AsynchronousSendingConfigurationType()
+                        .maxAttempts(3)
+                        .retryInterval(10L));
+
+        when("message is sent");
+        transport.send(message(1), delegate.getName(), sendingContext(task), task.getResult());
+
+        then("it is sent in the second attempt");
+        waitFor(() -> transport.getStatisticsDescription().contains("sent 1"));
+        assertThat(delegate.threadNames).hasSize(2);
+        assertThat(transport.getStatisticsDescription()).contains("retried 1", "failed 0");
+
+        and("both attempts are in the statistics");
+        NotificationsStatisticsEntryType entry = getNotificationStatistics(task, delegate.getName());
+        assertThat(entry.getCountSuccess()).isEqualTo(1);
+        assertThat(entry.getCountFailure()).isEqualTo(1);
+
+        transport.shutdown();
+    }
+
+    @Test
+    public void test130PendingRetryIsSentOnShutdown() throws Exception {
+        given("asynchronous transport failing for the first attempt, with a long retry interval");
+        Task task = getTestTask();
+        RecordingTransport delegate = new RecordingTransport("async-130", 1);
+        AsynchronousTransport<CustomTransportConfigurationType> transport =
+                createTransport(delegate, new AsynchronousSendingConfigurationType()
+                        .maxAttempts(3)
+                        .retryInterval(600_000L));
+
+        and("message that is waiting for the retry");
+        transport.send(message(1), delegate.getName(), sendingContext(task), task.getResult());
+        waitFor(() -> transport.getStatisticsDescription().contains("retried 1"));
+
+        when("transport is shut down");
+        long start = System.currentTimeMillis();
+        transport.shutdown();
+
+        then("the message is re-tried immediately and sent");
+        assertThat(System.currentTimeMillis() - start).isLessThan(10_000);
+        assertThat(delegate.threadNames).hasSize(2);
+        assertThat(transport.getStatisticsDescription()).contains("queue depth 0", "sent 1", "failed 0");
+    }
+
+    @Test
+    public void test200ReconfigurationDoesNotWaitForQueuedMessages() throws Exception {
+        given("configured asynchronous transport with a message stuck in sending");
+        Task task = getTestTask();
+        SlowTransport.reset();
+        SystemConfigurationType systemConfiguration = new SystemConfigurationType()
+                .messageTransportConfiguration(new MessageTransportConfigurationType()
+                        .customTransport(new CustomTransportConfigurationType()
+                                .name(SLOW_TRANSPORT_NAME)
+                                .type(SlowTransport.class.getName())
+                                .asynchronousSending(new AsynchronousSendingConfigurationType())));
+        transportService.refreshTransportConfiguration(new SystemConfigurationChangeEvent(systemConfiguration));
+        Transport<?> previousTransport = transportService.getTransport(SLOW_TRANSPORT_NAME);
+        assertThat(previousTransport).isInstanceOf(AsynchronousTransport.class);
+        transportService.send(message(1), SLOW_TRANSPORT_NAME, sendingContext(task), task.getResult());
+        waitFor(() -> SlowTransport.blocked.getCount() == 0);
+
+        and("thread sending messages all the time");
+        AtomicBoolean stop = new AtomicBoolean();
+        List<Throwable> sendingErrors = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger sentByThread = new AtomicInteger();
+        Thread sender = new Thread(() -> {
+            Task senderTask = taskManager.createTaskInstance("sender");
+            while (!stop.get()) {
+                try {
+                    transportService.send(message(sentByThread.incrementAndGet()), SLOW_TRANSPORT_NAME,
+                            sendingContext(senderTask), senderTask.getResult());
+                    //noinspection BusyWait
+                    Thread.sleep(1);
+                } catch (Throwable t) {
+                    sendingErrors.add(t);
+                }
+            }
+        });
+        sender.start();
+
+        when("transport configuration is refreshed");
+        long start = System.currentTimeMillis();
+        transportService.refreshTransportConfiguration(new SystemConfigurationChangeEvent(systemConfiguration));
+        long duration = System.currentTimeMillis() - start;
+        Thread.sleep(100);
+        stop.set(true);
+        sender.join();
+
+        then("reconfiguration does not wait for the stuck message");
+        assertThat(duration).isLessThan(5_000);
+
+        and("transport is replaced and it was available all the time");
+        assertThat(transportService.getTransport(SLOW_TRANSPORT_NAME))
+                .isInstanceOf(AsynchronousTransport.class)
+                .isNotSameAs(previousTransport);
+        assertThat(sendingErrors).isEmpty();
+
+        and("all the messages are sent when the stuck one is released");
+        SlowTransport.release.countDown();
+        waitFor(() -> SlowTransport.SENT.get() == 1 + sentByThread.get());
+
+        transportService.refreshTransportConfiguration(new SystemConfigurationChangeEvent(new SystemConfigurationType()));
+    }
+
+    private AsynchronousTransport<CustomTransportConfigurationType> createTransport(
+            RecordingTransport delegate, AsynchronousSendingConfigurationType config) {
+        return new AsynchronousTransport<>(delegate, config, taskManager, securityContextManager);
+    }
+
+    private Message message(int number) {
+        Message message = new Message();
+        message.setTo(List.of("user" + number + "@example.com"));
+        message.setBody("Message " + number);
+        return message;
+    }
+
+    private SendingContext sendingContext(Task task) {
+        return new SendingContext(ExpressionProfile.full(), null, task);
+    }
+
+    private NotificationsStatisticsEntryType getNotificationStatistics(Task task, String transportName) {
+        return task.getAggregatedLiveOperationStats()
+                .getEnvironmentalPerformanceInformation()
+                .getNotificationsStatistics()
+                .getEntry().stream()
+                .filter(e -> transportName.equals(e.getTransport()))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No notification statistics for " + transportName));
+    }
+
+    private void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).as("time to wait for the condition").isLessThan(deadline);
+            //noinspection BusyWait
+            Thread.sleep(20);
+        }
+    }
+
+    /** Records the messages, failing the first N of them. */
+    private static class RecordingTransport implements Transport<CustomTransportConfigurationType> {
+
+        private final String name;
+        private final AtomicInteger failuresLeft;
+        private final List<String> threadNames = Collections.synchronizedList(new ArrayList<>());
+        private final List<Task> tasks = Collections.synchronizedList(new ArrayList<>());
+
+        private RecordingTransport(String name, int failures) {
+            this.name = name;
+            this.failuresLeft = new AtomicInteger(failures);
+        }
+
+        @Override
+        public void configure(@NotNull CustomTransportConfigurationType configuration, @NotNull TransportSupport transportSupport) {
+        }
+
+        @Override
+        public void send(Message message, String transportName, SendingContext ctx, OperationResult parentResult) {
+            threadNames.add(Thread.currentThread().getName());
+            tasks.add(ctx.task());
+            ctx.task().recordNotificationOperation(name, failuresLeft.get() <= 0, 0);
+            if (failuresLeft.getAndDecrement() > 0) {
+                parentResult.createSubresult("send").recordFatalError("Simulated failure");
+            } else {
+                parentResult.createSubresult("send").recordSuccess();
+            }
+        }
+
+        @Override
+        public String getDefaultRecipientAddress(FocusType recipient) {
+            return null;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public CustomTransportConfigurationType getConfiguration() {
+            return null;
+        }
+    }
+
+    /** Custom transport that blocks the first message until released. */
+    public static class SlowTransport implements Transport<CustomTransportConfigurationType> {
+
+        private static volatile CountDownLatch blocked;
+        private static volatile CountDownLatch release;
+        private static final AtomicBoolean FIRST = new AtomicBoolean();
+        private static final AtomicInteger SENT = new AtomicInteger();
+
+        private CustomTransportConfigurationType configuration;
+
+        static void reset() {
+            blocked = new CountDownLatch(1);
+            release = new CountDownLatch(1);
+            FIRST.set(true);
+            SENT.set(0);
+        }
+
+        @Override
+        public void configure(@NotNull CustomTransportConfigurationType configuration, @NotNull TransportSupport transportSupport) {
+            this.configuration = configuration;
+        }
+
+        @Override
+        public void send(Message message, String transportName, SendingContext ctx, OperationResult parentResult) {
+            if (FIRST.compareAndSet(true, false)) {
+                blocked.countDown();
+                try {
+                    release.await(30, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            SENT.incrementAndGet();
+        }
+
+        @Override
+        public String getDefaultRecipientAddress(FocusType recipient) {
+            return null;
+        }
+
+        @Override
+        public String getName() {
+            return configuration.getName();
+        }
+
+        @Override
+        public CustomTransportConfigurationType getConfiguration() {
+            return configuration;
+        }
+    }
+}
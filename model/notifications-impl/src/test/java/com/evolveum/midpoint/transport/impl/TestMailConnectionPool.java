@@ -0,0 +1,196 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.transport.impl;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import jakarta.mail.*;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.tools.testng.AbstractUnitTest;
+
+/**
+ * Tests of {@link MailConnectionPool} with a fake SMTP transport, no mail server is needed.
+ */
+public class TestMailConnectionPool extends AbstractUnitTest {
+
+    private Session session;
+
+    @BeforeMethod
+    public void initSession() throws NoSuchProviderException {
+        FakeSmtpTransport.reset();
+        session = Session.getInstance(new Properties());
+        session.setProvider(new Provider(
+                Provider.Type.TRANSPORT, "smtp", FakeSmtpTransport.class.getName(), "midPoint", "test"));
+    }
+
+    @Test
+    public void test100ConnectionIsReused() throws Exception {
+        given("connection pool");
+        MailConnectionPool pool = new MailConnectionPool();
+
+        when("three messages are sent to the same server");
+        for (int i = 0; i < 3; i++) {
+            pool.send(session, "host1", 25, "user", "password", message(i));
+        }
+
+        then("they are sent over a single connection");
+        assertThat(FakeSmtpTransport.CONNECTS.get()).isEqualTo(1);
+        assertThat(FakeSmtpTransport.SENT.get()).isEqualTo(3);
+
+        when("connections are closed");
+        pool.closeAll();
+
+        then("the connection is closed");
+        assertThat(FakeSmtpTransport.CLOSES.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void test110ServersDoNotShareConnections() throws Exception {
+        given("connection pool");
+        MailConnectionPool pool = new MailConnectionPool();
+
+        when("messages are sent to two servers, and to one server under two users");
+        pool.send(session, "host1", 25, "user", "password", message(1));
+        pool.send(session, "host2", 25, "user", "password", message(2));
+        pool.send(session, "host1", 25, "other", "password", message(3));
+        pool.send(session, "host1", 25, "user", "password", message(4));
+
+        then("each server and user has its own connection");
+        assertThat(FakeSmtpTransport.CONNECTS.get()).isEqualTo(3);
+        assertThat(FakeSmtpTransport.SENT.get()).isEqualTo(4);
+
+        pool.closeAll();
+        assertThat(FakeSmtpTransport.CLOSES.get()).isEqualTo(3);
+    }
+
+    @Test
+    public void test120BrokenConnectionIsReplaced() throws Exception {
+        given("connection pool with an open connection");
+        MailConnectionPool pool = new MailConnectionPool();
+        pool.send(session, "host1", 25, null, null, message(1));
+
+        when("the connection breaks while sending the next message");
+        FakeSmtpTransport.NEXT_FAILURE.set(new MessagingException("Connection reset"));
+        pool.send(session, "host1", 25, null, null, message(2));
+
+        then("the broken connection is closed and the message is sent over a new one");
+        assertThat(FakeSmtpTransport.CONNECTS.get()).isEqualTo(2);
+        assertThat(FakeSmtpTransport.CLOSES.get()).isEqualTo(1);
+        assertThat(FakeSmtpTransport.SENT.get()).isEqualTo(2);
+
+        pool.closeAll();
+    }
+
+    @Test
+    public void test130InvalidRecipientDoesNotDropConnection() throws Exception {
+        given("connection pool with an open connection");
+        MailConnectionPool pool = new MailConnectionPool();
+        pool.send(session, "host1", 25, null, null, message(1));
+
+        when("message with invalid recipient is sent");
+        FakeSmtpTransport.NEXT_FAILURE.set(new SendFailedException("Invalid address"));
+
+        then("the failure is reported");
+        assertThatThrownBy(() -> pool.send(session, "host1", 25, null, null, message(2)))
+                .isInstanceOf(SendFailedException.class);
+
+        and("the connection is kept for the next message");
+        pool.send(session, "host1", 25, null, null, message(3));
+        assertThat(FakeSmtpTransport.CONNECTS.get()).isEqualTo(1);
+        assertThat(FakeSmtpTransport.CLOSES.get()).isEqualTo(0);
+        assertThat(FakeSmtpTransport.SENT.get()).isEqualTo(2);
+
+        pool.closeAll();
+    }
+
+    @Test
+    public void test140FailedConnectIsNotPooled() throws Exception {
+        given("connection pool and a server refusing connections");
+        MailConnectionPool pool = new MailConnectionPool();
+        FakeSmtpTransport.REFUSE_CONNECT.set(true);
+
+        expect("sending fails");
+        assertThatThrownBy(() -> pool.send(session, "host1", 25, "user", "wrong", message(1)))
+                .isInstanceOf(AuthenticationFailedException.class);
+
+        when("the server accepts connections again");
+        FakeSmtpTransport.REFUSE_CONNECT.set(false);
+        pool.send(session, "host1", 25, "user", "password", message(2));
+
+        then("new connection is used");
+        assertThat(FakeSmtpTransport.CONNECTS.get()).isEqualTo(1);
+        assertThat(FakeSmtpTransport.SENT.get()).isEqualTo(1);
+
+        pool.closeAll();
+    }
+
+    private MimeMessage message(int number) throws MessagingException {
+        MimeMessage message = new MimeMessage(session);
+        message.setRecipient(Message.RecipientType.TO, new InternetAddress("user" + number + "@example.com"));
+        message.setText("Message " + number);
+        return message;
+    }
+
+    /** Instantiated by {@link Session#getTransport(String)}, hence the static counters. */
+    public static class FakeSmtpTransport extends Transport {
+
+        private static final AtomicInteger CONNECTS = new AtomicInteger();
+        private static final AtomicInteger CLOSES = new AtomicInteger();
+        private static final AtomicInteger SENT = new AtomicInteger();
+        private static final AtomicReference<MessagingException> NEXT_FAILURE = new AtomicReference<>();
+        private static final AtomicReference<Boolean> REFUSE_CONNECT = new AtomicReference<>(false);
+
+        public FakeSmtpTransport(Session session, URLName urlName) {
+            super(session, urlName);
+        }
+
+        static void reset() {
+            CONNECTS.set(0);
+            CLOSES.set(0);
+            SENT.set(0);
+            NEXT_FAILURE.set(null);
+            REFUSE_CONNECT.set(false);
+        }
+
+        @Override
+        protected boolean protocolConnect(String host, int port, String user, String password)
+                throws MessagingException {
+            if (REFUSE_CONNECT.get()) {
+                throw new AuthenticationFailedException("Refused");
+            }
+            CONNECTS.incrementAndGet();
+            return true;
+        }
+
+        @Override
+        public void sendMessage(Message message, Address[] addresses) throws MessagingException {
+            assertThat(isConnected()).as("connected").isTrue();
+            MessagingException failure = NEXT_FAILURE.getAndSet(null);
+            if (failure != null) {
+                throw failure;
+            }
+            SENT.incrementAndGet();
+        }
+
+        @Override
+        public synchronized void close() throws MessagingException {
+            if (isConnected()) {
+                CLOSES.incrementAndGet();
+            }
+            super.close();
+        }
+    }
+}
@@ -10,14 +10,32 @@ package com.evolveum.midpoint.report.impl.activity;
 import org.jetbrains.annotations.NotNull;
 
 import com.evolveum.midpoint.repo.common.activity.definition.WorkDefinitionFactory;
+import com.evolveum.midpoint.util.DebugUtil;
 import com.evolveum.midpoint.util.exception.ConfigurationException;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.DistributedReportExportWorkDefinitionType;
 
 /**
  * Work definition for multi-node report export.
  */
 public class DistributedReportExportWorkDefinition extends AbstractReportWorkDefinition {
 
+    /** Whether bucket data are passed to the aggregation activity via files (instead of repository objects). */
+    private final boolean storePartialDataInFiles;
+
     DistributedReportExportWorkDefinition(@NotNull WorkDefinitionFactory.WorkDefinitionInfo info) throws ConfigurationException {
         super(info);
+        var typedDefinition = (DistributedReportExportWorkDefinitionType) info.getBean();
+        storePartialDataInFiles = Boolean.TRUE.equals(typedDefinition.isStorePartialDataInFiles());
+    }
+
+    boolean isStorePartialDataInFiles() {
+        return storePartialDataInFiles;
+    }
+
+    @Override
+    protected void debugDumpContent(StringBuilder sb, int indent) {
+        super.debugDumpContent(sb, indent);
+        sb.append("\n");
+        DebugUtil.debugDumpWithLabel(sb, "storePartialDataInFiles", storePartialDataInFiles, indent + 1);
     }
 }
@@ -9,6 +9,7 @@ package com.evolveum.midpoint.report.impl.activity;
 
 import static com.evolveum.midpoint.util.MiscUtil.or0;
 
+import java.nio.file.Path;
 import java.util.Collection;
 
 import com.evolveum.midpoint.prism.Containerable;
@@ -65,10 +66,10 @@ public class ExportActivitySupport extends ReportActivitySupport {
 
     /**
      * Save exported report to a file. This is the variant for distributed reports that assumes we have the
-     * aggregated data as a String, plus pre-existing (empty) aggregated {@link ReportDataType} object.
+     * aggregated data in a (temporary) file, plus pre-existing (empty) aggregated {@link ReportDataType} object.
      */
     void saveAggregatedReportData(
-            @NotNull String aggregatedData,
+            @NotNull Path aggregatedData,
             @NotNull ReportDataWriter<? extends ExportedReportDataRow, ? extends ExportedReportHeaderRow> completingDataWriter,
             @NotNull ObjectReferenceType aggregatedDataRef,
             @NotNull OperationResult result) throws CommonException {
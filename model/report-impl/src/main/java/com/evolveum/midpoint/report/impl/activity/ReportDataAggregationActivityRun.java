@@ -7,6 +7,10 @@
 
 package com.evolveum.midpoint.report.impl.activity;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Objects;
 
@@ -17,6 +21,7 @@ import com.evolveum.midpoint.report.impl.ReportUtils;
 import com.evolveum.midpoint.report.impl.controller.ExportedReportDataRow;
 import com.evolveum.midpoint.report.impl.controller.ExportedReportHeaderRow;
 import com.evolveum.midpoint.report.impl.controller.ReportDataWriter;
+import com.evolveum.midpoint.report.impl.controller.TemporaryReportFiles;
 import com.evolveum.midpoint.task.api.RunningTask;
 import com.evolveum.midpoint.util.logging.Trace;
 import com.evolveum.midpoint.util.logging.TraceManager;
@@ -29,6 +34,7 @@ import org.jetbrains.annotations.NotNull;
 
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.util.exception.CommonException;
+import com.evolveum.midpoint.util.exception.SystemException;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.ReportDataType;
 
 import static com.evolveum.midpoint.util.MiscUtil.stateCheck;
@@ -46,11 +52,12 @@ final class ReportDataAggregationActivityRun
     @NotNull private final DistributedReportExportActivitySupport support;
 
     /**
-     * Data from all the partial reports.
-     *
-     * TODO eliminate gathering in memory: write to a file immediately after getting the data.
+     * Temporary file with data from all the partial reports. They are appended to it as they are processed.
      */
-    private final StringBuilder aggregatedData = new StringBuilder();
+    private Path aggregatedDataFile;
+
+    /** Writer for {@link #aggregatedDataFile}. Open between {@link #beforeRun} and {@link #afterRun}. */
+    private Writer aggregatedDataWriter;
 
     /** Data writer which completes the content of the report (e.g. by providing HTML code at the end) */
     private ReportDataWriter<ExportedReportDataRow, ExportedReportHeaderRow> completingDataWriter;
@@ -82,6 +89,16 @@ final class ReportDataAggregationActivityRun
                 FileFormatTypeType.CSV, // default type
                 getActivityHandler().reportService,
                 support.getCompiledCollectionView(result));
+
+        try {
+            aggregatedDataFile = TemporaryReportFiles.create(
+                    "midpoint-report-aggregated-",
+                    TemporaryReportFiles.isCompressionEnabled(completingDataWriter.getFileFormatConfiguration()));
+            aggregatedDataWriter = TemporaryReportFiles.openWriter(aggregatedDataFile);
+        } catch (IOException e) {
+            TemporaryReportFiles.delete(aggregatedDataFile);
+            throw new SystemException("Couldn't create temporary file for aggregated report data: " + e.getMessage(), e);
+        }
     }
 
     @Override
@@ -106,8 +123,20 @@ final class ReportDataAggregationActivityRun
             throws CommonException {
         LOGGER.info("Appending data from {} (and deleting the object)", reportData);
         checkSequentialNumber(reportData); // TODO check also the total # of buckets (after we know it at the start!)
-        aggregatedData.append(reportData.getData());
+        Path partialDataFile = reportData.getFilePath() != null ? Path.of(reportData.getFilePath()) : null;
+        try {
+            if (reportData.getData() != null) {
+                aggregatedDataWriter.write(reportData.getData());
+            } else if (partialDataFile != null) {
+                stateCheck(Files.isReadable(partialDataFile),
+                        "Partial report data file %s is not accessible on this node", partialDataFile);
+                TemporaryReportFiles.copy(partialDataFile, aggregatedDataWriter);
+            }
+        } catch (IOException e) {
+            throw new SystemException("Couldn't append partial report data from " + reportData + ": " + e.getMessage(), e);
+        }
         getActivityHandler().commonTaskBeans.repositoryService.deleteObject(ReportDataType.class, reportData.getOid(), result);
+        TemporaryReportFiles.delete(partialDataFile);
         return true;
     }
 
@@ -122,10 +151,19 @@ final class ReportDataAggregationActivityRun
 
     @Override
     public void afterRun(OperationResult result) throws CommonException {
-        support.saveAggregatedReportData(
-                aggregatedData.toString(),
-                completingDataWriter,
-                support.getGlobalReportDataRef(),
-                result);
+        try {
+            try {
+                aggregatedDataWriter.close();
+            } catch (IOException e) {
+                throw new SystemException("Couldn't write aggregated report data: " + e.getMessage(), e);
+            }
+            support.saveAggregatedReportData(
+                    aggregatedDataFile,
+                    completingDataWriter,
+                    support.getGlobalReportDataRef(),
+                    result);
+        } finally {
+            TemporaryReportFiles.delete(aggregatedDataFile);
+        }
     }
 }
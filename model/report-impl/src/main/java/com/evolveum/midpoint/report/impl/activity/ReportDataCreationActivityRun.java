@@ -125,7 +125,8 @@ public final class ReportDataCreationActivityRun
                 support.getGlobalReportDataRef(),
                 reportService,
                 support.getCompiledCollectionView(result),
-                support.getReportParameters());
+                support.getReportParameters(),
+                getWorkDefinition().isStorePartialDataInFiles());
 
         controller.initialize(task, result);
 
@@ -6,9 +6,13 @@
  */
 package com.evolveum.midpoint.report.impl.activity;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.nio.charset.Charset;
+import java.nio.file.Path;
 import java.text.SimpleDateFormat;
 import java.util.*;
 
@@ -32,6 +36,8 @@ import com.evolveum.midpoint.report.impl.controller.DashboardReportDataWriter;
 import com.evolveum.midpoint.report.impl.controller.ExportedReportDataRow;
 import com.evolveum.midpoint.report.impl.controller.ExportedReportHeaderRow;
 import com.evolveum.midpoint.report.impl.controller.ReportDataWriter;
+import com.evolveum.midpoint.report.impl.controller.ReportDataWriter.DataContent;
+import com.evolveum.midpoint.report.impl.controller.TemporaryReportFiles;
 import com.evolveum.midpoint.schema.ObjectDeltaOperation;
 import com.evolveum.midpoint.schema.SearchResultList;
 import com.evolveum.midpoint.schema.constants.ExpressionConstants;
@@ -92,24 +98,32 @@ class SaveReportFileSupport {
     void saveSimpleReportData(
             ReportDataWriter<? extends ExportedReportDataRow, ? extends ExportedReportHeaderRow> dataWriter,
             OperationResult result) throws CommonException {
-        saveReportData(dataWriter.completeReport(), dataWriter, null, result);
+        try {
+            saveReportData(dataWriter::writeCompleteReport, dataWriter, null, result);
+        } finally {
+            dataWriter.reset(); // deletes temporary files, if there are any
+        }
     }
 
-    /** @see #saveAggregatedReportData(String, ReportDataWriter, ObjectReferenceType, OperationResult) */
+    /** @see ExportActivitySupport#saveAggregatedReportData(Path, ReportDataWriter, ObjectReferenceType, OperationResult) */
     void saveAggregatedReportData(
-            @NotNull String aggregatedData,
+            @NotNull Path aggregatedData,
             @NotNull ReportDataWriter<? extends ExportedReportDataRow, ? extends ExportedReportHeaderRow> completingDataWriter,
             @NotNull ObjectReferenceType preExistingDataRef,
             @NotNull OperationResult result) throws CommonException {
         saveReportData(
-                completingDataWriter.completeReport(aggregatedData),
+                output -> completingDataWriter.writeCompleteReport(
+                        output, data -> TemporaryReportFiles.copy(aggregatedData, data)),
                 completingDataWriter,
                 preExistingDataRef,
                 result);
     }
 
+    /**
+     * @param completedReport The complete content of the report; it is streamed directly into the report file.
+     */
     private void saveReportData(
-            String completedReport,
+            DataContent completedReport,
             ReportDataWriter<? extends ExportedReportDataRow, ? extends ExportedReportHeaderRow> dataWriter,
             @Nullable ObjectReferenceType emptyExportedDataObjectRef,
             OperationResult result) throws CommonException {
@@ -200,11 +214,10 @@ class SaveReportFileSupport {
         return formatDate.format(createDate);
     }
 
-    private void writeToReportFile(String contextOfFile, String aggregatedFilePath, @NotNull Charset encoding) {
-        try {
-            FileUtils.writeByteArrayToFile(
-                    new File(aggregatedFilePath),
-                    contextOfFile.getBytes(encoding));
+    private void writeToReportFile(DataContent contentOfFile, String aggregatedFilePath, @NotNull Charset encoding) {
+        try (Writer writer = new BufferedWriter(
+                new OutputStreamWriter(FileUtils.openOutputStream(new File(aggregatedFilePath)), encoding))) {
+            contentOfFile.writeTo(writer);
         } catch (IOException e) {
             throw new SystemException("Couldn't write aggregated report to " + aggregatedFilePath, e);
         }
@@ -6,19 +6,35 @@
  */
 package com.evolveum.midpoint.report.impl.controller;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.List;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.VisibleForTesting;
 
 import com.evolveum.midpoint.report.impl.ReportServiceImpl;
+import com.evolveum.midpoint.util.exception.SystemException;
 
 /**
  * Creates and manipulates exported reports.
+ *
+ * Data rows are kept in memory only up to {@link #DEFAULT_MAX_ROWS_IN_MEMORY}. Then they are formatted and spilled
+ * to temporary files (see {@link SpilledDataRows}), and merged back when the data are written out.
+ * So, when the report is written using the streaming methods (like {@link #writeCompleteReport(Writer)}),
+ * the number of rows is not limited by the available heap.
  */
 public abstract class AbstractReportDataWriter<ED extends ExportedReportDataRow, EH extends ExportedReportHeaderRow>
         implements ReportDataWriter<ED, EH> {
 
+    /** Maximal number of data rows kept in memory. Beyond that, the rows are spilled to temporary files. */
+    private static final int DEFAULT_MAX_ROWS_IN_MEMORY = 10_000;
+
+    /** The effective limit; lowered by tests to exercise the spilling. */
+    private static volatile int maxRowsInMemory = DEFAULT_MAX_ROWS_IN_MEMORY;
+
     /**
      * Header row to be put into resulting CSV file.
      */
@@ -29,6 +45,11 @@ public abstract class AbstractReportDataWriter<ED extends ExportedReportDataRow,
      */
     @NotNull private final List<ED> dataRows = new ArrayList<>();
 
+    /**
+     * Data rows that did not fit into {@link #dataRows}.
+     */
+    @NotNull private final SpilledDataRows spilledDataRows = new SpilledDataRows();
+
     @NotNull protected final ReportServiceImpl reportService;
 
     protected AbstractReportDataWriter(@NotNull ReportServiceImpl reportService) {
@@ -44,11 +65,32 @@ public abstract class AbstractReportDataWriter<ED extends ExportedReportDataRow,
         return headerRow;
     }
 
+    /**
+     * Returns data rows kept in memory. Beware, some rows may have been spilled to temporary files.
+     * Use {@link #writeDataRows(Writer)} to get all of them.
+     */
     @NotNull
     protected List<ED> getDataRows() {
         return dataRows;
     }
 
+    protected synchronized boolean hasDataRows() {
+        return !dataRows.isEmpty() || !spilledDataRows.isEmpty();
+    }
+
+    /**
+     * Writes all the data rows (formatted by {@link #formatDataRow(ExportedReportDataRow)}) to the output,
+     * in the correct order.
+     */
+    protected synchronized void writeDataRows(@NotNull Writer output) throws IOException {
+        spilledDataRows.writeMerged(dataRows, this::formatDataRow, output);
+    }
+
+    /**
+     * Returns the final text form of a data row, as it should appear in the output.
+     */
+    protected abstract String formatDataRow(ED row);
+
     /**
      * Thread safety: Guarded by `this`.
      *
@@ -73,27 +115,80 @@ public abstract class AbstractReportDataWriter<ED extends ExportedReportDataRow,
             }
         }
         getDataRows().add(i + 1, row);
+        if (dataRows.size() >= maxRowsInMemory) {
+            spillDataRows();
+        }
+    }
+
+    private void spillDataRows() {
+        try {
+            spilledDataRows.spill(
+                    dataRows, this::formatDataRow, TemporaryReportFiles.isCompressionEnabled(getFileFormatConfiguration()));
+            dataRows.clear();
+        } catch (IOException e) {
+            throw new SystemException("Couldn't write report data rows to a temporary file: " + e.getMessage(), e);
+        }
+    }
+
+    /** Sets the limit of rows kept in memory for writers filled from now on; `null` means the default. */
+    @VisibleForTesting
+    public static void setMaxRowsInMemory(Integer value) {
+        maxRowsInMemory = value != null ? value : DEFAULT_MAX_ROWS_IN_MEMORY;
     }
 
     @Override
-    public void reset() {
+    public synchronized void reset() {
         headerRow = null;
         dataRows.clear();
+        spilledDataRows.clear();
     }
 
     @Override
-    public abstract String getStringData();
+    public String getStringData() {
+        try {
+            StringWriter stringWriter = new StringWriter();
+            writeStringData(stringWriter);
+            return stringWriter.toString();
+        } catch (IOException e) {
+            throw new SystemException("Unexpected IOException: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public abstract void writeStringData(@NotNull Writer output) throws IOException;
 
     @Override
     public abstract boolean shouldWriteHeader();
 
     @Override
     public String completeReport(String aggregatedData) {
-        return aggregatedData;
+        return getReportPrefix() + aggregatedData + getReportSuffix();
     }
 
     @Override
     public String completeReport() {
         return completeReport(getStringData());
     }
+
+    @Override
+    public void writeCompleteReport(@NotNull Writer output, @NotNull DataContent aggregatedData) throws IOException {
+        output.write(getReportPrefix());
+        aggregatedData.writeTo(output);
+        output.write(getReportSuffix());
+    }
+
+    @Override
+    public void writeCompleteReport(@NotNull Writer output) throws IOException {
+        writeCompleteReport(output, this::writeStringData);
+    }
+
+    /** Text that goes before the data in the complete report. */
+    protected String getReportPrefix() {
+        return "";
+    }
+
+    /** Text that goes after the data in the complete report. */
+    protected String getReportSuffix() {
+        return "";
+    }
 }
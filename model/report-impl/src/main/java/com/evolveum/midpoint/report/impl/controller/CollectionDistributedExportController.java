@@ -7,12 +7,17 @@
 
 package com.evolveum.midpoint.report.impl.controller;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+
 import com.evolveum.midpoint.report.impl.activity.ReportDataCreationActivityRun;
 
 import org.jetbrains.annotations.NotNull;
 
 import com.evolveum.midpoint.model.api.authentication.CompiledObjectCollectionView;
 import com.evolveum.midpoint.prism.Containerable;
+import com.evolveum.midpoint.repo.common.reports.ReportSupportUtil;
 import com.evolveum.midpoint.report.impl.ReportServiceImpl;
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.schema.util.ObjectTypeUtil;
@@ -20,6 +25,7 @@ import com.evolveum.midpoint.task.api.RunningTask;
 import com.evolveum.midpoint.util.annotation.Experimental;
 import com.evolveum.midpoint.util.exception.ObjectAlreadyExistsException;
 import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.midpoint.util.exception.SystemException;
 import com.evolveum.midpoint.util.logging.Trace;
 import com.evolveum.midpoint.util.logging.TraceManager;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.*;
@@ -55,25 +61,33 @@ public class CollectionDistributedExportController<C extends Containerable> exte
      */
     @NotNull private final ObjectReferenceType globalReportDataRef;
 
+    /**
+     * If true, bucket data are written to a file in the export directory, and only the file path is stored
+     * in the partial report data object. Otherwise, the data are stored in the object itself.
+     */
+    private final boolean storePartialDataInFiles;
+
     public CollectionDistributedExportController(@NotNull ReportDataSource<C> dataSource,
             @NotNull ReportDataWriter<ExportedReportDataRow, ExportedReportHeaderRow> dataWriter,
             @NotNull ReportType report,
             @NotNull ObjectReferenceType globalReportDataRef,
             @NotNull ReportServiceImpl reportService,
             @NotNull CompiledObjectCollectionView compiledCollection,
-            ReportParameterType reportParameters) {
+            ReportParameterType reportParameters,
+            boolean storePartialDataInFiles) {
 
         super(dataSource, dataWriter, report, reportService, compiledCollection, reportParameters);
 
         this.globalReportDataRef = globalReportDataRef;
+        this.storePartialDataInFiles = storePartialDataInFiles;
     }
 
     /**
      * Called after bucket of data is executed, i.e. after all the data from current bucket were passed to
      * {@link #handleDataRecord(int, Containerable, RunningTask, OperationResult)} method.
      *
-     * We have to store the data into partial report data object in the repository, to be aggregated into final
-     * report afterwards.
+     * We have to store the data into partial report data object in the repository (or into a file referenced
+     * by such object), to be aggregated into final report afterwards.
      */
     public void afterBucketExecution(int bucketNumber, @NotNull RunningTask runningTask, OperationResult result)
             throws SchemaException, ObjectAlreadyExistsException {
@@ -84,12 +98,6 @@ public class CollectionDistributedExportController<C extends Containerable> exte
             return;
         }
 
-        String data = dataWriter.getStringData();
-        dataWriter.reset();
-
-        LOGGER.debug("Bucket {} is complete ({} chars in report). Let's create the partial report data object:\n{}",
-                bucketNumber, data.length(), data);
-
         // Note that we include [oid] in the object name to allow a poor man searching over the children.
         // It's until parentRef is properly indexed in the repository.
         // We also make the name sortable by padding the number with zeros: until we can sort on the sequential number.
@@ -99,8 +107,38 @@ public class CollectionDistributedExportController<C extends Containerable> exte
                 .name(name)
                 .reportRef(ObjectTypeUtil.createObjectRef(report))
                 .parentRef(globalReportDataRef.clone())
-                .sequentialNumber(bucketNumber)
-                .data(data);
+                .sequentialNumber(bucketNumber);
+
+        if (storePartialDataInFiles) {
+            Path file = writePartialDataFile(bucketNumber);
+            LOGGER.debug("Bucket {} is complete (written to {}). Let's create the partial report data object.",
+                    bucketNumber, file);
+            partialReportData.filePath(file.toString());
+        } else {
+            String data = dataWriter.getStringData();
+            LOGGER.debug("Bucket {} is complete ({} chars in report). Let's create the partial report data object:\n{}",
+                    bucketNumber, data.length(), data);
+            partialReportData.data(data);
+        }
+        dataWriter.reset();
+
         repositoryService.addObject(partialReportData.asPrismObject(), null, result);
     }
+
+    private @NotNull Path writePartialDataFile(int bucketNumber) {
+        Path file = null;
+        try {
+            file = TemporaryReportFiles.create(
+                    ReportSupportUtil.getOrCreateExportDir(),
+                    String.format("partial-%s-%08d-", globalReportDataRef.getOid(), bucketNumber),
+                    TemporaryReportFiles.isCompressionEnabled(dataWriter.getFileFormatConfiguration()));
+            try (Writer writer = TemporaryReportFiles.openWriter(file)) {
+                dataWriter.writeStringData(writer);
+            }
+            return file;
+        } catch (IOException e) {
+            TemporaryReportFiles.delete(file);
+            throw new SystemException("Couldn't write partial report data for bucket " + bucketNumber + ": " + e.getMessage(), e);
+        }
+    }
 }
@@ -7,7 +7,7 @@
 package com.evolveum.midpoint.report.impl.controller;
 
 import java.io.IOException;
-import java.io.StringWriter;
+import java.io.Writer;
 import java.nio.charset.Charset;
 import java.util.HashMap;
 import java.util.List;
@@ -31,6 +31,9 @@ public class CsvReportDataWriter extends AbstractReportDataWriter<ExportedReport
 
     @NotNull private final CommonCsvSupport support;
 
+    /** Format used to print individual data rows (i.e. without the header). */
+    @NotNull private final CSVFormat dataRowFormat;
+
     @Nullable private final FileFormatConfigurationType configuration;
 
     @NotNull private final Map<String, String> widgetsData = new HashMap<>();
@@ -40,6 +43,7 @@ public class CsvReportDataWriter extends AbstractReportDataWriter<ExportedReport
             @Nullable FileFormatConfigurationType configuration) {
         super(reportService);
         this.support = new CommonCsvSupport(configuration);
+        this.dataRowFormat = support.createCsvFormat();
         this.configuration = configuration;
     }
 
@@ -55,17 +59,20 @@ public class CsvReportDataWriter extends AbstractReportDataWriter<ExportedReport
     }
 
     @Override
-    public String getStringData() {
+    public void writeStringData(@NotNull Writer output) throws IOException {
+        // The printer writes the header (if there is any) when created. We do not close it, as that would close the output.
+        new CSVPrinter(output, createCsvFormat())
+                .flush();
+        writeDataRows(output);
+    }
+
+    @Override
+    protected String formatDataRow(ExportedReportDataRow row) {
         try {
-            StringWriter stringWriter = new StringWriter();
-            CSVFormat csvFormat = createCsvFormat();
-            CSVPrinter printer = new CSVPrinter(stringWriter, csvFormat);
-
-            for (ExportedReportDataRow row : getDataRows()) {
-                printer.printRecord(createPhysicalColumnsList(row));
-            }
-            printer.flush();
-            return stringWriter.toString();
+            StringBuilder sb = new StringBuilder();
+            new CSVPrinter(sb, dataRowFormat)
+                    .printRecord(createPhysicalColumnsList(row));
+            return sb.toString();
         } catch (IOException e) {
             throw new SystemException("Unexpected IOException: " + e.getMessage(), e);
         }
@@ -125,16 +132,14 @@ public class CsvReportDataWriter extends AbstractReportDataWriter<ExportedReport
     }
 
     @Override
-    public String completeReport(String aggregatedData) {
-        String reportContent = super.completeReport(aggregatedData);
-
+    protected String getReportSuffix() {
         String subscriptionFooter = reportService.missingSubscriptionFooter();
         if (subscriptionFooter != null) {
             // CSV has final line terminator, so this goes on a new line:
-            reportContent += subscriptionFooter + System.lineSeparator();
+            return subscriptionFooter + System.lineSeparator();
+        } else {
+            return "";
         }
-
-        return reportContent;
     }
 
     @Override
@@ -6,6 +6,9 @@
  */
 package com.evolveum.midpoint.report.impl.controller;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.util.*;
 import java.util.function.Function;
 
@@ -121,6 +124,25 @@ public class HtmlDashboardReportDataWriter
         return sb.toString();
     }
 
+    // Dashboard data are small and kept in memory, so the streaming methods simply write the string forms.
+
+    @Override
+    public void writeStringData(@NotNull Writer output) throws IOException {
+        output.write(getStringData());
+    }
+
+    @Override
+    public void writeCompleteReport(@NotNull Writer output, @NotNull DataContent aggregatedData) throws IOException {
+        StringWriter data = new StringWriter();
+        aggregatedData.writeTo(data);
+        output.write(completeReport(data.toString()));
+    }
+
+    @Override
+    public void writeCompleteReport(@NotNull Writer output) throws IOException {
+        output.write(completeReport());
+    }
+
     @Override
     public boolean shouldWriteHeader() {
         return true;
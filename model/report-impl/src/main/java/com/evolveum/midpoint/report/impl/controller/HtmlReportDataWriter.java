@@ -6,6 +6,8 @@
  */
 package com.evolveum.midpoint.report.impl.controller;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.List;
 
 import j2html.TagCreator;
@@ -21,10 +23,17 @@ import com.evolveum.midpoint.xml.ns._public.common.common_3.FileFormatConfigurat
 
 /**
  * Creates and manipulates exported reports in HTML format.
+ *
+ * When streamed (see {@link #writeStringData(Writer)}), each piece of data gets its own `tbody` element.
+ * So, a report aggregated from streamed partial data contains one `tbody` per bucket; unlike {@link #completeReport(String)},
+ * the streaming methods do not merge them, as multiple `tbody` elements in a table are perfectly valid.
  */
 public class HtmlReportDataWriter<ED extends ExportedReportDataRow, EH extends ExportedReportHeaderRow>
         extends AbstractReportDataWriter<ED, EH> {
 
+    private static final String TABLE_START = "<table class=\"table table-striped table-hover table-bordered\">";
+    private static final String TABLE_END = "</table></div>";
+
     @NotNull private final CommonHtmlSupport support;
 
     final LocalizationService localizationService;
@@ -42,8 +51,20 @@ public class HtmlReportDataWriter<ED extends ExportedReportDataRow, EH extends E
     }
 
     @Override
-    public String getStringData() {
-        return getStringDataInternal(getHeaderRow(), getDataRows());
+    public void writeStringData(@NotNull Writer output) throws IOException {
+        if (getHeaderRow() != null) {
+            output.write(createTHead(getHeaderRow()));
+        }
+        if (hasDataRows()) {
+            output.write("<tbody>");
+            writeDataRows(output);
+            output.write("</tbody>");
+        }
+    }
+
+    @Override
+    protected String formatDataRow(ED row) {
+        return createTr(row).render();
     }
 
     protected String getStringDataInternal(ExportedReportHeaderRow headerRow, List<ED> dataRows) {
@@ -52,24 +73,26 @@ public class HtmlReportDataWriter<ED extends ExportedReportDataRow, EH extends E
             sb.append(createTHead(headerRow));
         }
         ContainerTag tBody = TagCreator.tbody();
-        dataRows.forEach(row -> {
-            ContainerTag tr = TagCreator.tr();
-            row.getValues().forEach(values -> {
-                if (values.size() == 1 && values.iterator().next().startsWith(CommonHtmlSupport.VALUE_CSS_STYLE_TAG)) {
-                    String value = values.iterator().next();
-                    tr.with(TagCreator.th().withStyle(value.substring((value.indexOf("{") + 1), value.indexOf("}"))));
-                } else {
-                    tr.with(TagCreator.th(formatColumn(values)));
-                }
-            });
-            tBody.with(tr);
-        });
+        dataRows.forEach(row -> tBody.with(createTr(row)));
         if (tBody.getNumChildren() != 0) {
             sb.append(tBody.render());
         }
         return sb.toString();
     }
 
+    private ContainerTag createTr(ED row) {
+        ContainerTag tr = TagCreator.tr();
+        row.getValues().forEach(values -> {
+            if (values.size() == 1 && values.iterator().next().startsWith(CommonHtmlSupport.VALUE_CSS_STYLE_TAG)) {
+                String value = values.iterator().next();
+                tr.with(TagCreator.th().withStyle(value.substring((value.indexOf("{") + 1), value.indexOf("}"))));
+            } else {
+                tr.with(TagCreator.th(formatColumn(values)));
+            }
+        });
+        return tr;
+    }
+
     @Override
     public boolean shouldWriteHeader() {
         return true;
@@ -124,48 +147,56 @@ public class HtmlReportDataWriter<ED extends ExportedReportDataRow, EH extends E
     }
 
     private String completeReportInternal(String aggregatedData, boolean parseData) {
-        String cssStyle = support.getCssStyle();
+        String parsedData;
+        if (parseData) {
+            parsedData = parseAggregatedData(aggregatedData);
+        } else {
+            parsedData = aggregatedData;
+        }
+        return getReportPrefix() + parsedData + getReportSuffix();
+    }
 
-        StringBuilder body = new StringBuilder();
-        body.append("<div> <style> ").append(cssStyle).append(" </style>");
+    @Override
+    protected String getReportPrefix() {
+        return "<div> <style> " + support.getCssStyle() + " </style>"
+                + createTableBoxStart(support)
+                + TABLE_START;
+    }
 
-        String table = createTableBox(aggregatedData, support, parseData);
-        body.append(table).append("</div>");
+    @Override
+    protected String getReportSuffix() {
+        StringBuilder suffix = new StringBuilder();
+        suffix.append(TABLE_END).append("</div>");
 
         String subscriptionFooter = reportService.missingSubscriptionFooter();
         if (subscriptionFooter != null) {
-            body.append("<div>")
+            suffix.append("<div>")
                     .append(subscriptionFooter)
                     .append("</div>");
         }
-
-        return body.toString();
+        return suffix.toString();
     }
 
     protected String createTableBox(String aggregatedData, CommonHtmlSupport support, boolean parseData) {
-        StringBuilder table = new StringBuilder();
-        String style = support.getCssStyleOfTable();
-        String classes = support.getCssClassOfTable();
-
-        ContainerTag div = TagCreator.div().withClasses("box-body", "no-padding").with(TagCreator.h1(support.getTableName(localizationService)))
-                .with(TagCreator.p(GenericSupport.getMessage(localizationService, CommonHtmlSupport.REPORT_GENERATED_ON, support.getActualTime())));
-
-        String tableBox = TagCreator.div().withClasses("box", "boxed-table", classes).withStyle(style).with(div).render();
-        tableBox = tableBox.substring(0, tableBox.length() - 6);
-
         String parsedData;
         if (parseData) {
             parsedData = parseAggregatedData(aggregatedData);
         } else {
             parsedData = aggregatedData;
         }
+        return createTableBoxStart(support) + TABLE_START + parsedData + TABLE_END;
+    }
+
+    /** Returns the opening part of the table box, i.e. without the closing `div` tag. */
+    private String createTableBoxStart(CommonHtmlSupport support) {
+        String style = support.getCssStyleOfTable();
+        String classes = support.getCssClassOfTable();
 
-        table.append(tableBox)
-                .append("<table class=\"table table-striped table-hover table-bordered\">")
-                .append(parsedData)
-                .append("</table>")
-                .append("</div>");
-        return table.toString();
+        ContainerTag div = TagCreator.div().withClasses("box-body", "no-padding").with(TagCreator.h1(support.getTableName(localizationService)))
+                .with(TagCreator.p(GenericSupport.getMessage(localizationService, CommonHtmlSupport.REPORT_GENERATED_ON, support.getActualTime())));
+
+        String tableBox = TagCreator.div().withClasses("box", "boxed-table", classes).withStyle(style).with(div).render();
+        return tableBox.substring(0, tableBox.length() - 6);
     }
 
     private String parseAggregatedData(String aggregatedData) {
@@ -6,6 +6,9 @@
  */
 package com.evolveum.midpoint.report.impl.controller;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.function.Function;
@@ -23,9 +26,10 @@ import com.evolveum.midpoint.xml.ns._public.common.common_3.FileFormatConfigurat
  * 1. Buffers semi-formatted ({@link ExportedReportHeaderRow} and {@link ExportedReportDataRow}) objects,
  * maintaining their correct order.
  *
- * 2. Produces final string form when asked to do so.
+ * 2. Produces final string form when asked to do so; either as a {@link String}, or streamed to a {@link Writer}.
+ * The latter is preferred for large reports, as the writer need not keep all the rows in memory.
  *
- * 2. Holds the file-format-specific configuration.
+ * 3. Holds the file-format-specific configuration.
  */
 public interface ReportDataWriter<ED extends ExportedReportDataRow, EH extends ExportedReportHeaderRow> {
 
@@ -52,6 +56,13 @@ public interface ReportDataWriter<ED extends ExportedReportDataRow, EH extends E
      */
     String getStringData();
 
+    /**
+     * Streaming variant of {@link #getStringData()}: writes the text output of the writer to the output.
+     */
+    default void writeStringData(@NotNull Writer output) throws IOException {
+        output.write(getStringData());
+    }
+
     /**
      * Returns true if the output report should contain a header.
      *
@@ -71,6 +82,23 @@ public interface ReportDataWriter<ED extends ExportedReportDataRow, EH extends E
      */
     String completeReport();
 
+    /**
+     * Streaming variant of {@link #completeReport(String)}: writes the complete report to the output,
+     * taking the data from the provided content (e.g. a file with data aggregated from partial reports).
+     */
+    default void writeCompleteReport(@NotNull Writer output, @NotNull DataContent aggregatedData) throws IOException {
+        StringWriter data = new StringWriter();
+        aggregatedData.writeTo(data);
+        output.write(completeReport(data.toString()));
+    }
+
+    /**
+     * Streaming variant of {@link #completeReport()}.
+     */
+    default void writeCompleteReport(@NotNull Writer output) throws IOException {
+        output.write(completeReport());
+    }
+
     @Nullable
     default Function<String, String> getFunctionForWidgetStatus() {
         return null;
@@ -89,4 +117,12 @@ public interface ReportDataWriter<ED extends ExportedReportDataRow, EH extends E
     default Charset getEncoding() {
         return StandardCharsets.UTF_8;
     }
+
+    /**
+     * Textual content that can be written to a {@link Writer}, without the need to have it in memory as a whole.
+     */
+    @FunctionalInterface
+    interface DataContent {
+        void writeTo(@NotNull Writer output) throws IOException;
+    }
 }
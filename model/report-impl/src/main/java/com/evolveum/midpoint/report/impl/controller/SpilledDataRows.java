@@ -0,0 +1,178 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.report.impl.controller;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Function;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+
+/**
+ * Data rows of {@link AbstractReportDataWriter} that did not fit into memory.
+ *
+ * Rows are spilled in "runs": each run is a temporary file with formatted rows ordered by their sequential number.
+ * (Rows come from multiple threads, so a later run may contain rows with lower sequential numbers than an earlier one.)
+ * When writing the data, all the runs and the rows still kept in memory are merged, so the output is ordered
+ * in the same way as if all the rows were kept in memory. Rows with the same sequential number keep the order
+ * in which they were appended, because they are produced by a single thread: earlier ones are in earlier runs.
+ *
+ * Each row is stored as its sequential number, followed by the length and the bytes of the formatted text (in UTF-8).
+ *
+ * Thread safety: guarded by the owning writer.
+ */
+class SpilledDataRows {
+
+    private static final Trace LOGGER = TraceManager.getTrace(SpilledDataRows.class);
+
+    private static final String FILE_PREFIX = "midpoint-report-rows-";
+
+    @NotNull private final List<Path> runs = new ArrayList<>();
+
+    private int spilledRows;
+
+    boolean isEmpty() {
+        return runs.isEmpty();
+    }
+
+    /** Writes the rows (already ordered by sequential number) into a new run file. */
+    <ED extends ExportedReportDataRow> void spill(
+            @NotNull List<ED> orderedRows, @NotNull Function<ED, String> formatter, boolean compressed)
+            throws IOException {
+        Path file = TemporaryReportFiles.create(FILE_PREFIX, compressed);
+        runs.add(file);
+        try (DataOutputStream out = new DataOutputStream(TemporaryReportFiles.openOutputStream(file))) {
+            for (ED row : orderedRows) {
+                byte[] bytes = formatter.apply(row).getBytes(StandardCharsets.UTF_8);
+                out.writeInt(row.getSequentialNumber());
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        }
+        spilledRows += orderedRows.size();
+        LOGGER.trace("Spilled {} rows into {} ({} rows in {} runs so far)", orderedRows.size(), file, spilledRows, runs.size());
+    }
+
+    /**
+     * Writes all the spilled rows, merged with the rows kept in memory (ordered by sequential number), to the output.
+     */
+    <ED extends ExportedReportDataRow> void writeMerged(
+            @NotNull List<ED> rowsInMemory, @NotNull Function<ED, String> formatter, @NotNull Writer output)
+            throws IOException {
+        List<Cursor> cursors = new ArrayList<>();
+        try {
+            for (Path run : runs) {
+                cursors.add(new RunCursor(cursors.size(), run));
+            }
+            cursors.add(new MemoryCursor<>(cursors.size(), rowsInMemory, formatter));
+
+            PriorityQueue<Cursor> queue = new PriorityQueue<>(
+                    Comparator.comparingInt((Cursor c) -> c.sequentialNumber)
+                            .thenComparingInt(c -> c.index));
+            for (Cursor cursor : cursors) {
+                if (cursor.advance()) {
+                    queue.add(cursor);
+                }
+            }
+            while (!queue.isEmpty()) {
+                Cursor cursor = queue.poll();
+                output.write(cursor.text);
+                if (cursor.advance()) {
+                    queue.add(cursor);
+                }
+            }
+        } finally {
+            for (Cursor cursor : cursors) {
+                cursor.close();
+            }
+        }
+    }
+
+    /** Deletes all the run files. */
+    void clear() {
+        runs.forEach(TemporaryReportFiles::delete);
+        runs.clear();
+        spilledRows = 0;
+    }
+
+    /** Current position in a run (or in the in-memory rows). */
+    private abstract static class Cursor implements Closeable {
+
+        /** Position of the cursor among the others; used to keep the order of rows with the same sequential number. */
+        final int index;
+
+        int sequentialNumber;
+        String text;
+
+        Cursor(int index) {
+            this.index = index;
+        }
+
+        /** Moves to the next row; returns false if there is none. */
+        abstract boolean advance() throws IOException;
+
+        @Override
+        public void close() throws IOException {
+        }
+    }
+
+    private static class RunCursor extends Cursor {
+
+        @NotNull private final DataInputStream input;
+
+        RunCursor(int index, @NotNull Path file) throws IOException {
+            super(index);
+            this.input = new DataInputStream(TemporaryReportFiles.openInputStream(file));
+        }
+
+        @Override
+        boolean advance() throws IOException {
+            try {
+                sequentialNumber = input.readInt();
+            } catch (EOFException e) {
+                return false;
+            }
+            byte[] bytes = new byte[input.readInt()];
+            input.readFully(bytes);
+            text = new String(bytes, StandardCharsets.UTF_8);
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            input.close();
+        }
+    }
+
+    private static class MemoryCursor<ED extends ExportedReportDataRow> extends Cursor {
+
+        @NotNull private final Iterator<ED> iterator;
+        @NotNull private final Function<ED, String> formatter;
+
+        MemoryCursor(int index, @NotNull List<ED> rows, @NotNull Function<ED, String> formatter) {
+            super(index);
+            this.iterator = rows.iterator();
+            this.formatter = formatter;
+        }
+
+        @Override
+        boolean advance() {
+            if (!iterator.hasNext()) {
+                return false;
+            }
+            ED row = iterator.next();
+            sequentialNumber = row.getSequentialNumber();
+            text = formatter.apply(row);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.report.impl.controller;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.FileFormatConfigurationType;
+
+/**
+ * Helper methods for temporary files used during report export: rows spilled from data writers,
+ * partial data of buckets and aggregated data of distributed exports.
+ *
+ * Temporary data are always stored in UTF-8, regardless of the encoding of the final report. Compressed files
+ * are recognized by the {@link #COMPRESSED_SUFFIX}, so the reader does not need to know the configuration
+ * the file was written with.
+ */
+public class TemporaryReportFiles {
+
+    private static final Trace LOGGER = TraceManager.getTrace(TemporaryReportFiles.class);
+
+    private static final String SUFFIX = ".tmp";
+    private static final String COMPRESSED_SUFFIX = ".tmp.gz";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    public static boolean isCompressionEnabled(@Nullable FileFormatConfigurationType configuration) {
+        return configuration != null && Boolean.TRUE.equals(configuration.isCompressTemporaryData());
+    }
+
+    /** Creates a temporary file in the default temporary-file directory. */
+    public static @NotNull Path create(@NotNull String prefix, boolean compressed) throws IOException {
+        return Files.createTempFile(prefix, compressed ? COMPRESSED_SUFFIX : SUFFIX);
+    }
+
+    /** Creates a temporary file in the given directory. */
+    public static @NotNull Path create(@NotNull File directory, @NotNull String prefix, boolean compressed)
+            throws IOException {
+        return Files.createTempFile(directory.toPath(), prefix, compressed ? COMPRESSED_SUFFIX : SUFFIX);
+    }
+
+    private static boolean isCompressed(@NotNull Path file) {
+        return file.getFileName().toString().endsWith(COMPRESSED_SUFFIX);
+    }
+
+    public static @NotNull OutputStream openOutputStream(@NotNull Path file) throws IOException {
+        OutputStream out = Files.newOutputStream(file);
+        if (isCompressed(file)) {
+            return new GZIPOutputStream(out, BUFFER_SIZE);
+        } else {
+            return new BufferedOutputStream(out, BUFFER_SIZE);
+        }
+    }
+
+    public static @NotNull InputStream openInputStream(@NotNull Path file) throws IOException {
+        InputStream in = Files.newInputStream(file);
+        if (isCompressed(file)) {
+            return new GZIPInputStream(in, BUFFER_SIZE);
+        } else {
+            return new BufferedInputStream(in, BUFFER_SIZE);
+        }
+    }
+
+    public static @NotNull Writer openWriter(@NotNull Path file) throws IOException {
+        return new OutputStreamWriter(openOutputStream(file), StandardCharsets.UTF_8);
+    }
+
+    public static @NotNull Reader openReader(@NotNull Path file) throws IOException {
+        return new InputStreamReader(openInputStream(file), StandardCharsets.UTF_8);
+    }
+
+    /** Copies the (textual) content of the file to the output. */
+    public static void copy(@NotNull Path file, @NotNull Writer output) throws IOException {
+        try (Reader reader = openReader(file)) {
+            reader.transferTo(output);
+        }
+    }
+
+    /** Deletes the file, if it exists. Failures are only logged, as they should not break the report export. */
+    public static void delete(@Nullable Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            LOGGER.warn("Couldn't delete temporary report file {}: {}", file, e.getMessage(), e);
+        }
+    }
+}
@@ -8,6 +8,7 @@ package com.evolveum.midpoint.report;
 
 import static com.evolveum.midpoint.schema.util.ReportParameterTypeUtil.createParameters;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.testng.AssertJUnit.assertTrue;
 
 import java.io.File;
@@ -21,6 +22,7 @@ import com.evolveum.midpoint.model.api.ModelExecuteOptions;
 import com.evolveum.midpoint.prism.PrismObject;
 import com.evolveum.midpoint.prism.delta.ChangeType;
 import com.evolveum.midpoint.prism.delta.ObjectDelta;
+import com.evolveum.midpoint.report.impl.controller.AbstractReportDataWriter;
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.task.api.Task;
 import com.evolveum.midpoint.test.util.MidPointTestConstants;
@@ -248,5 +250,25 @@ public class TestCsvReportExportClassic extends TestCsvReport {
         testClassicExport(REPORT_SUBREPORT_AUDIT, 5, 4, null, parameters);
     }
 
+    /** Rows spilled to temporary files must produce the same output as rows kept in memory. */
+    @Test
+    public void test150ObjectCollectionReportWithSpilledRows() throws Exception {
+        given("report exported with all rows kept in memory");
+        testClassicExport(REPORT_OBJECT_COLLECTION_WITH_DEFAULT_COLUMN, 54, 5, null);
+        List<String> inMemoryLines = getLinesOfOutputFile(
+                getObject(TaskType.class, TASK_EXPORT_CLASSIC.oid), getTestOperationResult());
+
+        when("the same report is exported with rows spilled after every 7 rows");
+        AbstractReportDataWriter.setMaxRowsInMemory(7);
+        try {
+            testClassicExport(REPORT_OBJECT_COLLECTION_WITH_DEFAULT_COLUMN, 54, 5, null);
+        } finally {
+            AbstractReportDataWriter.setMaxRowsInMemory(null);
+        }
 
+        then("the output is the same");
+        List<String> spilledLines = getLinesOfOutputFile(
+                getObject(TaskType.class, TASK_EXPORT_CLASSIC.oid), getTestOperationResult());
+        assertThat(spilledLines).containsExactlyElementsOf(inMemoryLines);
+    }
 }
@@ -10,12 +10,15 @@ import static org.springframework.http.ResponseEntity.status;
 
 import static com.evolveum.midpoint.security.api.RestAuthorizationAction.*;
 
+import java.io.IOException;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import java.util.List;
 import java.util.Objects;
 import javax.xml.namespace.QName;
 
+import jakarta.servlet.http.HttpServletResponse;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.Validate;
 import org.jetbrains.annotations.NotNull;
@@ -30,11 +33,15 @@ import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 import com.evolveum.midpoint.model.api.*;
 import com.evolveum.midpoint.model.impl.ModelCrudService;
 import com.evolveum.midpoint.model.impl.scripting.PipelineData;
+import com.evolveum.midpoint.prism.PrismConstants;
 import com.evolveum.midpoint.prism.PrismObject;
 import com.evolveum.midpoint.prism.delta.ItemDelta;
 import com.evolveum.midpoint.prism.path.ItemPath;
 import com.evolveum.midpoint.prism.path.ItemPathCollectionsUtil;
+import com.evolveum.midpoint.prism.query.ObjectFilter;
 import com.evolveum.midpoint.prism.query.ObjectQuery;
+import com.evolveum.midpoint.prism.query.OrderDirection;
+import com.evolveum.midpoint.prism.query.QueryFactory;
 import com.evolveum.midpoint.schema.DefinitionProcessingOption;
 import com.evolveum.midpoint.schema.DeltaConvertor;
 import com.evolveum.midpoint.schema.GetOperationOptions;
@@ -45,6 +52,7 @@ import com.evolveum.midpoint.schema.constants.MidPointConstants;
 import com.evolveum.midpoint.schema.constants.ObjectTypes;
 import com.evolveum.midpoint.schema.expression.VariablesMap;
 import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.schema.util.ObjectQueryUtil;
 import com.evolveum.midpoint.schema.util.WorkItemId;
 import com.evolveum.midpoint.security.api.RestHandlerMethod;
 import com.evolveum.midpoint.security.api.SecurityUtil;
@@ -662,6 +670,118 @@ public class ModelRestController extends AbstractRestController {
         return response;
     }
 
+    /**
+     * Streaming variant of {@link #searchObjects}: the objects are written to the response as they are found,
+     * as newline-delimited JSON (one object per line). So they are never held in memory all at once.
+     *
+     * The objects are returned ordered by OID; paging in the query (if any) is ignored. Large result sets
+     * can be fetched in chunks: `maxSize` limits the number of objects returned, and `cursor` (the OID of the last
+     * object received) makes the search continue after that object.
+     *
+     * After the objects, a `searchCursor` record is written as the last line. It contains the cursor for the next
+     * chunk (`next`) and the information whether there are no more objects to fetch (`complete`).
+     *
+     * If the search fails after the streaming has started, the HTTP status cannot be changed any more.
+     * The operation result is written as the last line then (with `result` as the root element).
+     */
+    @RestHandlerMethod(authorization = SEARCH_OBJECTS)
+    @PostMapping("/{type}/search/stream")
+    public ResponseEntity<?> searchObjectsStreaming(
+            @PathVariable("type") String type,
+            @RequestParam(value = "options", required = false) List<String> options,
+            @RequestParam(value = "include", required = false) List<String> include,
+            @RequestParam(value = "exclude", required = false) List<String> exclude,
+            @RequestParam(value = "resolveNames", required = false) List<String> resolveNames,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "maxSize", required = false) Integer maxSize,
+            @RequestBody QueryType queryType,
+            HttpServletResponse httpResponse) {
+
+        Task task = initRequest();
+        OperationResult result = task.getResult().createSubresult("searchObjectsStreaming");
+        result.addParam("cursor", cursor);
+        result.addParam("maxSize", maxSize);
+
+        Class<? extends ObjectType> clazz = ObjectTypes.getClassFromRestType(type);
+        ResponseEntity<?> response = null;
+        ObjectStreamWriter writer = null;
+        try {
+            ObjectQuery query = createStreamingQuery(clazz, queryType, cursor, maxSize);
+            Collection<SelectorOptions<GetOperationOptions>> searchOptions = GetOperationOptions.fromRestOptions(options, include,
+                    exclude, resolveNames, DefinitionProcessingOption.ONLY_IF_EXISTS, prismContext);
+            List<ItemPath> excludePaths = ItemPathCollectionsUtil.pathListFromStrings(exclude, prismContext);
+
+            httpResponse.setStatus(HttpStatus.OK.value());
+            httpResponse.setContentType(ObjectStreamWriter.MEDIA_TYPE);
+            httpResponse.setCharacterEncoding(StandardCharsets.UTF_8.name());
+            writer = new ObjectStreamWriter(prismContext, httpResponse.getOutputStream());
+
+            ObjectStreamWriter finalWriter = writer;
+            modelService.searchObjectsIterative(clazz, query, (object, lResult) -> {
+                object.getValue().removePaths(excludePaths); // temporary measure until fixed in repo
+                try {
+                    finalWriter.write(object);
+                    return true;
+                } catch (SchemaException e) {
+                    throw new SystemException("Couldn't serialize " + object + ": " + e.getMessage(), e);
+                } catch (IOException e) {
+                    throw new SystemException("Couldn't write " + object + " to the response: " + e.getMessage(), e);
+                }
+            }, searchOptions, task, result);
+
+            writer.writeCursor(new SearchCursorType()
+                    .next(writer.getLastOid() != null ? writer.getLastOid() : cursor)
+                    .complete(maxSize == null || writer.getCount() < maxSize));
+            result.recordSuccessIfUnknown();
+            result.addReturn("count", writer.getCount());
+            writer.flush();
+        } catch (Exception ex) {
+            response = handleStreamingException(result, ex, writer, httpResponse);
+        }
+
+        result.computeStatus();
+        finishRequest(task, result);
+        return response; // null means the response was already written
+    }
+
+    /** Ordering by OID (and filtering by the cursor) is what makes the continuation possible. */
+    private ObjectQuery createStreamingQuery(
+            Class<? extends ObjectType> clazz, QueryType queryType, String cursor, Integer maxSize)
+            throws SchemaException {
+        ObjectQuery query = prismContext.getQueryConverter().createObjectQuery(clazz, queryType);
+        ObjectFilter filter = query != null ? query.getFilter() : null;
+        if (cursor != null) {
+            filter = ObjectQueryUtil.filterAnd(
+                    filter,
+                    prismContext.queryFor(clazz)
+                            .item(PrismConstants.T_ID).gt(cursor)
+                            .buildFilter());
+        }
+        QueryFactory queryFactory = prismContext.queryFactory();
+        return queryFactory.createQuery(
+                filter,
+                queryFactory.createPaging(null, maxSize, PrismConstants.T_ID, OrderDirection.ASCENDING));
+    }
+
+    private ResponseEntity<?> handleStreamingException(
+            OperationResult result, Exception ex, ObjectStreamWriter writer, HttpServletResponse httpResponse) {
+        if (writer == null || writer.getCount() == 0 && !httpResponse.isCommitted()) {
+            // Nothing was sent yet, so we can respond in the usual way.
+            httpResponse.reset();
+            return handleException(result, ex);
+        }
+        LoggingUtils.logUnexpectedException(logger, "Streaming search failed after {} object(s)", ex, writer.getCount());
+        result.recordFatalError(ex);
+        try {
+            writer.writeResult(result.createOperationResultType());
+            writer.flush();
+        } catch (SchemaException | IOException | RuntimeException e) {
+            // Most probably the client has gone away.
+            LoggingUtils.logException(logger, "Couldn't write operation result to the response", e);
+        }
+        return null;
+    }
+
     private void removeExcludes(PrismObject<? extends ObjectType> object, List<String> exclude)
             throws SchemaException {
         object.getValue().removePaths(
@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.rest.impl;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import javax.xml.namespace.QName;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.evolveum.midpoint.prism.PrismContext;
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.PrismSerializer;
+import com.evolveum.midpoint.prism.SerializationOptions;
+import com.evolveum.midpoint.schema.constants.SchemaConstants;
+import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.midpoint.xml.ns._public.common.api_types_3.SearchCursorType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.OperationResultType;
+
+/**
+ * Writes objects to the output stream as newline-delimited JSON: one object per line, as soon as it is provided.
+ * The stream is terminated by the search cursor record (or by the operation result, in case of a failure).
+ *
+ * Used by streaming search, see {@link ModelRestController#searchObjectsStreaming}.
+ */
+class ObjectStreamWriter {
+
+    static final String MEDIA_TYPE = "application/x-ndjson";
+
+    private static final QName SEARCH_CURSOR =
+            new QName(SchemaConstants.NS_MIDPOINT_PUBLIC_COMMON + "/api-types-3", "searchCursor");
+
+    @NotNull private final PrismSerializer<String> serializer;
+    @NotNull private final BufferedWriter writer;
+
+    /** Number of objects written. */
+    private int count;
+
+    /** OID of the last object written. */
+    private String lastOid;
+
+    ObjectStreamWriter(@NotNull PrismContext prismContext, @NotNull OutputStream outputStream) {
+        this.serializer = prismContext.jsonSerializer()
+                .options(SerializationOptions.createSerializeReferenceNames());
+        this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+    }
+
+    void write(@NotNull PrismObject<?> object) throws SchemaException, IOException {
+        writeLine(serializer.serialize(object));
+        count++;
+        lastOid = object.getOid();
+    }
+
+    /** Written after all the objects were found. */
+    void writeCursor(@NotNull SearchCursorType cursor) throws SchemaException, IOException {
+        writeLine(serializer.serializeRealValue(cursor, SEARCH_CURSOR));
+    }
+
+    /** Used to report a failure after some objects were already written; the HTTP status cannot be changed then. */
+    void writeResult(@NotNull OperationResultType result) throws SchemaException, IOException {
+        writeLine(serializer.serializeRealValue(result, SchemaConstants.C_RESULT));
+    }
+
+    /** Line breaks in JSON strings are always escaped, so we can safely remove all the other ones. */
+    private void writeLine(String json) throws IOException {
+        for (int i = 0; i < json.length(); i++) {
+            char c = json.charAt(i);
+            if (c != '\n' && c != '\r') {
+                writer.write(c);
+            }
+        }
+        writer.write('\n');
+    }
+
+    void flush() throws IOException {
+        writer.flush();
+    }
+
+    int getCount() {
+        return count;
+    }
+
+    String getLastOid() {
+        return lastOid;
+    }
+}
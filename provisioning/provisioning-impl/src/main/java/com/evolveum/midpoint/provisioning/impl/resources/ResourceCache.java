@@ -22,6 +22,7 @@ import com.evolveum.midpoint.util.exception.SchemaException;
 import com.evolveum.midpoint.util.logging.Trace;
 import com.evolveum.midpoint.util.logging.TraceManager;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.ResourceType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.SingleCachePerformanceInformationType;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.SingleCacheStateInformationType;
 
 import com.google.common.collect.HashMultimap;
@@ -39,6 +40,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.HashSet;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 import static com.evolveum.midpoint.util.MiscUtil.schemaCheck;
 import static com.evolveum.midpoint.util.caching.CacheConfiguration.StatisticsLevel.PER_CACHE;
@@ -53,6 +55,11 @@ import static com.evolveum.midpoint.util.caching.CacheConfiguration.StatisticsLe
  * The cache deals with concrete resources, i.e. _not_ the abstract ones. So, when an abstract resource is invalidated,
  * all concrete ones that inherit from it should be invalidated as well.
  *
+ * Reading is lock-free: the cached resources are immutable snapshots that are replaced as a whole, so {@link #get(String,
+ * String, boolean)} needs no synchronization. Read-only callers get the snapshot itself; only the callers that may
+ * modify the resource get a clone (created outside any lock). Modifications of the cache (putting, invalidation) are
+ * still synchronized, because they have to keep {@link #dependencyMap} consistent with the cached entries.
+ *
  * @author Radovan Semancik
  */
 @Component
@@ -79,7 +86,8 @@ public class ResourceCache implements Cache {
      * Note that prism objects in this map are always not null and immutable.
      * And they must remain immutable after getting them from the cache.
      *
-     * As for ConcurrentHashMap: Although we use synchronization whenever possible, let's be extra cautious here.
+     * The map is read without synchronization (see {@link #get(String, String, boolean)}), and updated only when
+     * holding `this`.
      */
     private final Map<String, PrismObject<ResourceType>> cache = new ConcurrentHashMap<>();
 
@@ -88,6 +96,15 @@ public class ResourceCache implements Cache {
      */
     private final SetMultimap<String, String> dependencyMap = HashMultimap.create();
 
+    /** Number of hits where the cached (immutable) resource was returned directly. */
+    private final LongAdder readOnlyHits = new LongAdder();
+
+    /** Number of hits where a clone of the cached resource had to be returned. */
+    private final LongAdder cloningHits = new LongAdder();
+
+    /** Number of misses (including the ones caused by a version mismatch). */
+    private final LongAdder misses = new LongAdder();
+
     /**
      * Puts a (complete) resource into the cache.
      *
@@ -144,8 +161,11 @@ public class ResourceCache implements Cache {
 
     /**
      * Gets a resource if it has specified version. If it has not, purges it from the cache (even if it exists there).
+     *
+     * Not synchronized: the cached resource is an immutable snapshot, so it can be safely returned (or cloned)
+     * while other threads replace or invalidate the cache entry.
      */
-    synchronized PrismObject<ResourceType> get(@NotNull String oid, String requestedVersion, boolean readOnly) {
+    PrismObject<ResourceType> get(@NotNull String oid, String requestedVersion, boolean readOnly) {
         InternalMonitor.getResourceCacheStats().recordRequest();
 
         PrismObject<ResourceType> resourceToReturn;
@@ -157,14 +177,16 @@ public class ResourceCache implements Cache {
             LOGGER.debug("MISS(wrong version) for {} (req={}, actual={})", oid, requestedVersion, cachedResource.getVersion());
             LOGGER.trace("Cached resource version {} does not match requested resource version {}, purging from cache",
                     cachedResource.getVersion(), requestedVersion);
-            invalidateSingle(oid);
+            invalidateIfStillCached(oid, cachedResource);
             resourceToReturn = null;
         } else if (readOnly) {
             cachedResource.checkImmutable();
             LOGGER.trace("HIT(read only) for {} (v{})", cachedResource, cachedResource.getVersion());
+            readOnlyHits.increment();
             resourceToReturn = cachedResource;
         } else {
             LOGGER.debug("HIT(returning clone) for {} (v{})", cachedResource, cachedResource.getVersion());
+            cloningHits.increment();
             resourceToReturn = cachedResource.clone();
         }
 
@@ -172,12 +194,25 @@ public class ResourceCache implements Cache {
             CachePerformanceCollector.INSTANCE.registerHit(ResourceCache.class, ResourceType.class, PER_CACHE);
             InternalMonitor.getResourceCacheStats().recordHit();
         } else {
+            misses.increment();
             CachePerformanceCollector.INSTANCE.registerMiss(ResourceCache.class, ResourceType.class, PER_CACHE);
             InternalMonitor.getResourceCacheStats().recordMiss();
         }
         return resourceToReturn;
     }
 
+    /**
+     * Invalidates the resource (and its descendants), unless the outdated snapshot was already replaced by another thread
+     * in the meanwhile.
+     */
+    private synchronized void invalidateIfStillCached(@NotNull String oid, @NotNull PrismObject<ResourceType> outdated) {
+        if (cache.get(oid) == outdated) {
+            invalidateSingle(oid);
+        } else {
+            LOGGER.trace("Outdated version of {} was already replaced or removed, not invalidating it", oid);
+        }
+    }
+
     /**
      * Gets a resource without specifying requested version: returns one only if it has the same version as in the repo.
      *
@@ -192,20 +227,21 @@ public class ResourceCache implements Cache {
             return get(oid, version, readonly);
         } else {
             LOGGER.debug("MISS(not cached) for {} (getIfLatest)", oid);
+            misses.increment();
             CachePerformanceCollector.INSTANCE.registerMiss(ResourceCache.class, ResourceType.class, PER_CACHE);
             InternalMonitor.getResourceCacheStats().recordMiss();
             return null;
         }
     }
 
-    private synchronized boolean contains(@NotNull String oid) {
+    private boolean contains(@NotNull String oid) {
         return cache.containsKey(oid);
     }
 
     /**
      * Returns currently cached version. FOR DIAGNOSTICS ONLY.
      */
-    synchronized String getVersion(String oid) {
+    String getVersion(String oid) {
         if (oid == null) {
             return null;
         }
@@ -254,13 +290,22 @@ public class ResourceCache implements Cache {
         dependencyMap.clear();
     }
 
+    /**
+     * Besides the size, reports the hits and misses since the start. Hits returning the cached resource directly
+     * are reported as "hits", hits that required cloning the resource are reported as "weak hits".
+     */
     @NotNull
     @Override
-    public synchronized Collection<SingleCacheStateInformationType> getStateInformation() {
+    public Collection<SingleCacheStateInformationType> getStateInformation() {
         return Collections.singleton(
                 new SingleCacheStateInformationType()
                         .name(ResourceCache.class.getName())
                         .size(cache.size())
+                        .performance(new SingleCachePerformanceInformationType()
+                                .name(ResourceCache.class.getName())
+                                .hitCount(readOnlyHits.intValue())
+                                .weakHitCount(cloningHits.intValue())
+                                .missCount(misses.intValue()))
         );
     }
 
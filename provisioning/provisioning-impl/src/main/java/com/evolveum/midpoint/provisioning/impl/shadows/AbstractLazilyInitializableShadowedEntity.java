@@ -20,6 +20,7 @@ import com.evolveum.midpoint.provisioning.impl.resourceobjects.ExistingResourceO
 import com.evolveum.midpoint.provisioning.impl.shadows.sync.NotApplicableException;
 import com.evolveum.midpoint.provisioning.util.InitializationState;
 import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.schema.util.RawRepoShadow;
 import com.evolveum.midpoint.task.api.Task;
 import com.evolveum.midpoint.util.exception.CommonException;
 import com.evolveum.midpoint.util.exception.ConfigurationException;
@@ -118,9 +119,22 @@ public abstract class AbstractLazilyInitializableShadowedEntity implements Lazil
     @NotNull
     RepoShadowWithState acquireRepoShadow(@NotNull ExistingResourceObjectShadow resourceObject, OperationResult result)
             throws SchemaException, ConfigurationException, EncryptionException {
+        return acquireRepoShadow(resourceObject, null, result);
+    }
+
+    /**
+     * As {@link #acquireRepoShadow(ExistingResourceObjectShadow, OperationResult)}, but with the live shadow possibly
+     * looked up beforehand. The emergency modes (if needed) always look up the shadow anew.
+     */
+    @NotNull
+    RepoShadowWithState acquireRepoShadow(
+            @NotNull ExistingResourceObjectShadow resourceObject,
+            @Nullable RawRepoShadow prefetchedLiveShadow,
+            OperationResult result)
+            throws SchemaException, ConfigurationException, EncryptionException {
 
         try {
-            return ShadowAcquisition.acquireRepoShadow(effectiveCtx, resourceObject, result);
+            return ShadowAcquisition.acquireRepoShadow(effectiveCtx, resourceObject, prefetchedLiveShadow, result);
         } catch (Exception e) {
             // No need to log stack trace now. It will be logged at the place where the exception is processed.
             LoggingUtils.logExceptionAsWarning(
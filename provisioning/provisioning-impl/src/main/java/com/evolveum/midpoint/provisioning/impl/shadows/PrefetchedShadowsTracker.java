@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.provisioning.impl.shadows;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.evolveum.midpoint.CacheInvalidationContext;
+import com.evolveum.midpoint.repo.api.Cache;
+import com.evolveum.midpoint.repo.api.CacheRegistry;
+import com.evolveum.midpoint.schema.util.RawRepoShadow;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ShadowType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.SingleCacheStateInformationType;
+
+/**
+ * Keeps track of shadows that were looked up in advance for a batch of objects found on a resource
+ * (see {@link ShadowSearchLikeOperation}), and of the modifications of these shadows that occur while the batch
+ * is being processed. The upstream handler may modify shadows of objects that are still waiting in the batch
+ * (e.g. when synchronizing an object updates also its "sibling" shadows), so the prefetched versions of such shadows
+ * must not be used.
+ *
+ * We learn about the modifications from the repository cache invalidation events, so the tracker is registered as
+ * a {@link Cache}, although it caches nothing by itself.
+ */
+@Component
+public class PrefetchedShadowsTracker implements Cache {
+
+    private static final Trace LOGGER = TraceManager.getTrace(PrefetchedShadowsTracker.class);
+
+    @Autowired private CacheRegistry cacheRegistry;
+
+    /** Batches that are currently being processed (by any thread). */
+    private final Set<PrefetchedShadows> active = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void register() {
+        cacheRegistry.registerCache(this);
+    }
+
+    @PreDestroy
+    public void unregister() {
+        cacheRegistry.unregisterCache(this);
+    }
+
+    /**
+     * Starts tracking modifications of shadows. Should be called before the shadows are looked up, so that
+     * no modification is missed. The caller must close the returned object.
+     */
+    @NotNull PrefetchedShadows startTracking() {
+        var prefetchedShadows = new PrefetchedShadows();
+        active.add(prefetchedShadows);
+        return prefetchedShadows;
+    }
+
+    @Override
+    public void invalidate(Class<?> type, String oid, CacheInvalidationContext context) {
+        if (active.isEmpty()) {
+            return;
+        }
+        if (type != null && !type.isAssignableFrom(ShadowType.class)) {
+            return;
+        }
+        for (PrefetchedShadows prefetchedShadows : active) {
+            prefetchedShadows.markStale(oid);
+        }
+    }
+
+    @Override
+    public @NotNull Collection<SingleCacheStateInformationType> getStateInformation() {
+        return Set.of(
+                new SingleCacheStateInformationType()
+                        .name(PrefetchedShadowsTracker.class.getName())
+                        .size(active.size()));
+    }
+
+    @Override
+    public void dumpContent() {
+        // Nothing interesting here.
+    }
+
+    /** Shadows prefetched for a single batch. */
+    class PrefetchedShadows implements AutoCloseable {
+
+        /** Prefetched shadows indexed by primary identifier value. */
+        @NotNull private volatile Map<String, RawRepoShadow> shadows = Map.of();
+
+        /**
+         * OIDs of {@link #shadows}, to ignore invalidation events for unrelated shadows.
+         * Null until the shadows are known; all the events are recorded in the meanwhile.
+         */
+        @Nullable private volatile Set<String> oids;
+
+        /** OIDs of shadows modified (or deleted) since the tracking started. */
+        @NotNull private final Set<String> staleOids = ConcurrentHashMap.newKeySet();
+
+        /** True if an invalidation event without OID arrived, so we cannot trust any of the shadows. */
+        private volatile boolean allStale;
+
+        void setShadows(@NotNull Map<String, RawRepoShadow> shadows) {
+            this.shadows = shadows;
+            Set<String> shadowsOids = shadows.values().stream()
+                    .map(RawRepoShadow::getOid)
+                    .collect(Collectors.toSet());
+            this.oids = shadowsOids;
+            staleOids.retainAll(shadowsOids);
+        }
+
+        /** Returns the prefetched shadow, unless there is none or it was modified in the meanwhile. */
+        @Nullable RawRepoShadow get(@Nullable String primaryIdentifierValue) {
+            if (primaryIdentifierValue == null) {
+                return null;
+            }
+            RawRepoShadow shadow = shadows.get(primaryIdentifierValue);
+            if (shadow == null) {
+                return null;
+            }
+            if (allStale || staleOids.contains(shadow.getOid())) {
+                LOGGER.trace("Prefetched shadow {} was modified in the meanwhile, it will be looked up again", shadow);
+                return null;
+            }
+            return shadow;
+        }
+
+        private void markStale(@Nullable String oid) {
+            if (oid == null) {
+                allStale = true;
+            } else {
+                Set<String> knownOids = oids;
+                if (knownOids == null || knownOids.contains(oid)) {
+                    staleOids.add(oid);
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            active.remove(this);
+        }
+    }
+}
@@ -13,7 +13,10 @@ import com.evolveum.midpoint.provisioning.impl.RepoShadow;
 
 import com.evolveum.midpoint.schema.processor.ResourceObjectIdentification;
 
+import com.evolveum.midpoint.schema.util.RawRepoShadow;
+
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import com.evolveum.midpoint.prism.crypto.EncryptionException;
 import com.evolveum.midpoint.provisioning.impl.ProvisioningContext;
@@ -55,14 +58,22 @@ class ShadowAcquisition {
     /** The resource object we try to acquire shadow for. May be minimalistic in extreme cases (sync changes, emergency). */
     @NotNull private final ExistingResourceObjectShadow resourceObject;
 
+    /**
+     * Live shadow for the resource object, if it was already looked up by the caller (e.g. in a batch for more objects).
+     * If null, the lookup is done here.
+     */
+    @Nullable private final RawRepoShadow prefetchedLiveShadow;
+
     private final ShadowsLocalBeans b = ShadowsLocalBeans.get();
 
     private ShadowAcquisition(
             @NotNull ProvisioningContext ctx,
-            @NotNull ExistingResourceObjectShadow resourceObject) throws SchemaException {
+            @NotNull ExistingResourceObjectShadow resourceObject,
+            @Nullable RawRepoShadow prefetchedLiveShadow) throws SchemaException {
         this.ctx = ctx;
         this.primaryIdentification = resourceObject.getPrimaryIdentification();
         this.resourceObject = resourceObject;
+        this.prefetchedLiveShadow = prefetchedLiveShadow;
     }
 
 
@@ -80,14 +91,30 @@ class ShadowAcquisition {
             @NotNull OperationResult result)
             throws SchemaException, ConfigurationException, EncryptionException {
 
-        return new ShadowAcquisition(ctx, resourceObject)
+        return acquireRepoShadow(ctx, resourceObject, null, result);
+    }
+
+    /**
+     * As {@link #acquireRepoShadow(ProvisioningContext, ExistingResourceObjectShadow, OperationResult)}, but the live shadow
+     * may be already known to the caller. If it's not (`prefetchedLiveShadow` is null), it is looked up in the usual way.
+     */
+    static @NotNull RepoShadowWithState acquireRepoShadow(
+            @NotNull ProvisioningContext ctx,
+            @NotNull ExistingResourceObjectShadow resourceObject,
+            @Nullable RawRepoShadow prefetchedLiveShadow,
+            @NotNull OperationResult result)
+            throws SchemaException, ConfigurationException, EncryptionException {
+
+        return new ShadowAcquisition(ctx, resourceObject, prefetchedLiveShadow)
                 .execute(result);
     }
 
     private @NotNull RepoShadowWithState execute(OperationResult result)
             throws SchemaException, ConfigurationException, EncryptionException {
 
-        var existingLiveRepoShadow = b.shadowFinder.lookupLiveRepoShadowByPrimaryId(ctx, primaryIdentification, result);
+        var existingLiveRepoShadow = prefetchedLiveShadow != null ?
+                ctx.adoptRawRepoShadow(prefetchedLiveShadow) :
+                b.shadowFinder.lookupLiveRepoShadowByPrimaryId(ctx, primaryIdentification, result);
         if (existingLiveRepoShadow != null) {
             LOGGER.trace("Found live shadow object in the repository {}", existingLiveRepoShadow.shortDumpLazily());
             return RepoShadowWithState.existing(existingLiveRepoShadow);
@@ -10,9 +10,7 @@ import static com.evolveum.midpoint.provisioning.impl.shadows.RepoShadowWithStat
 import static com.evolveum.midpoint.provisioning.util.ProvisioningUtil.determineContentDescription;
 import static com.evolveum.midpoint.schema.GetOperationOptions.getErrorReportingMethod;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
+import java.util.*;
 
 import com.evolveum.midpoint.provisioning.impl.RepoShadow;
 
@@ -28,15 +26,18 @@ import com.evolveum.midpoint.prism.query.*;
 import com.evolveum.midpoint.provisioning.api.ProvisioningOperationContext;
 import com.evolveum.midpoint.provisioning.impl.ProvisioningContext;
 import com.evolveum.midpoint.provisioning.impl.resourceobjects.ResourceObjectFound;
-import com.evolveum.midpoint.provisioning.impl.resourceobjects.ResourceObjectHandler;
+import com.evolveum.midpoint.provisioning.impl.shadows.manager.ShadowFinder;
 import com.evolveum.midpoint.provisioning.util.DefinitionsUtil;
 import com.evolveum.midpoint.provisioning.util.ProvisioningUtil;
+import com.evolveum.midpoint.repo.cache.RepositoryCache;
 import com.evolveum.midpoint.schema.*;
 import com.evolveum.midpoint.schema.internals.InternalCounters;
 import com.evolveum.midpoint.schema.internals.InternalMonitor;
 import com.evolveum.midpoint.schema.internals.InternalsConfig;
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.schema.util.ObjectQueryUtil;
+import com.evolveum.midpoint.schema.util.RawRepoShadow;
+import com.evolveum.midpoint.task.api.RunningTask;
 import com.evolveum.midpoint.task.api.Task;
 import com.evolveum.midpoint.util.exception.*;
 import com.evolveum.midpoint.util.logging.Trace;
@@ -53,6 +54,9 @@ class ShadowSearchLikeOperation {
 
     private static final Trace LOGGER = TraceManager.getTrace(ShadowSearchLikeOperation.class);
 
+    /** How many objects found on the resource are collected to have their shadows looked up by a single query. */
+    private static final int SHADOW_LOOKUP_BATCH_SIZE = 50;
+
     @NotNull private final ProvisioningContext ctx;
     @Nullable private final ObjectQuery query;
 
@@ -157,31 +161,206 @@ class ShadowSearchLikeOperation {
         // We need to record the fetch down here. Now it is certain that we are going to fetch from resource.
         InternalMonitor.recordCount(InternalCounters.SHADOW_FETCH_OPERATION_COUNT);
 
-        ResourceObjectHandler shadowHandler = (ResourceObjectFound objectFound, OperationResult lResult) -> {
+        var batch = new ObjectsFoundBatch(handler, ucfErrorReportingMethod, result);
+
+        boolean fetchAssociations = SelectorOptions.hasToIncludePath(ShadowType.F_ASSOCIATIONS, options, true);
+        try {
+            var metadata = b.resourceObjectConverter.searchResourceObjects(
+                    ctx, batch::add, createOnResourceQuery(), fetchAssociations, ucfErrorReportingMethod, result);
+            batch.processRemaining(result);
+            return metadata;
+        } catch (TunnelException e) {
+            batch.processRemainingAfterFailure(e, result);
+            unwrapAndThrowSearchingTunnelException(e);
+            throw new AssertionError();
+        } catch (Throwable t) {
+            batch.processRemainingAfterFailure(t, result);
+            throw t;
+        }
+    }
+
+    /**
+     * Collects objects found on the resource, so that their shadows can be looked up using a single repository query,
+     * see {@link ShadowFinder#lookupLiveShadowsByIndexedPrimaryIdValues(ProvisioningContext, Collection, OperationResult)}.
+     * The objects are then processed (shadowed and passed to the upstream handler) one by one, in the original order.
+     * Shadows that were not found by the batch lookup, or that were modified after the lookup (e.g. by the upstream
+     * handler processing an earlier object of the batch), are acquired in the usual way.
+     *
+     * Notes:
+     *
+     * . The results of the object-level processing are created right under the search operation result, one for each
+     * object, because the object-level results provided by the resource object search are already closed at that time.
+     * . If the upstream handler asks to stop, the remaining objects in the batch are not processed. To not defer the
+     * stopping of a running task until the batch is full, the batch is processed immediately if the task is asked to stop.
+     * . If the search fails (e.g. the connector fails after returning some objects), the objects collected so far
+     * are processed before the exception is propagated.
+     */
+    private class ObjectsFoundBatch {
+
+        @NotNull private final ResultHandler<ShadowType> upstreamHandler;
+        @Nullable private final FetchErrorReportingMethodType ucfErrorReportingMethod;
+
+        /** The result of the whole search operation; results for the individual objects are created here. */
+        @NotNull private final OperationResult searchResult;
+
+        @NotNull private final List<ResourceObjectFound> objectsFound = new ArrayList<>(SHADOW_LOOKUP_BATCH_SIZE);
+
+        /** False if the upstream handler requested the search to stop. */
+        private boolean canContinue = true;
 
+        ObjectsFoundBatch(
+                @NotNull ResultHandler<ShadowType> upstreamHandler,
+                @Nullable FetchErrorReportingMethodType ucfErrorReportingMethod,
+                @NotNull OperationResult searchResult) {
+            this.upstreamHandler = upstreamHandler;
+            this.ucfErrorReportingMethod = ucfErrorReportingMethod;
+            this.searchResult = searchResult;
+        }
+
+        /** Called for each object found on the resource. Processes the batch if it's full (or if the task is stopping). */
+        boolean add(ResourceObjectFound objectFound, OperationResult lResult) {
+            try {
+                if (!canContinue) {
+                    return false;
+                }
+                objectsFound.add(objectFound);
+                if (objectsFound.size() >= SHADOW_LOOKUP_BATCH_SIZE || isTaskStopping()) {
+                    process(lResult);
+                }
+                return canContinue;
+            } finally {
+                lResult.close();
+            }
+        }
+
+        private boolean isTaskStopping() {
+            return ctx.getTask() instanceof RunningTask runningTask && !runningTask.canRun();
+        }
+
+        /**
+         * Called when the search failed, e.g. because the connector failed in the middle of it. The objects found before
+         * the failure are processed (as they would be without batching); the original exception is then rethrown by the
+         * caller. An exception thrown during this processing is attached to the original one.
+         */
+        void processRemainingAfterFailure(Throwable failure, OperationResult result) {
+            try {
+                processRemaining(result);
+            } catch (Throwable t) {
+                LOGGER.debug("Couldn't process objects found before the search failed", t);
+                failure.addSuppressed(t);
+            }
+        }
+
+        /** Called after the search is over. */
+        void processRemaining(OperationResult result) {
+            if (objectsFound.isEmpty() || !canContinue) {
+                return;
+            }
+            // The same as for the objects processed right within the search (see ResourceObjectSearchOperation).
+            RepositoryCache.enterLocalCaches(b.cacheConfigurationManager);
+            try {
+                process(result);
+            } finally {
+                RepositoryCache.exitLocalCaches();
+            }
+        }
+
+        /** The lookup result goes to the `lookupResult`, the processing of objects is recorded under {@link #searchResult}. */
+        private void process(OperationResult lookupResult) {
+            List<ResourceObjectFound> objectsToProcess = new ArrayList<>(objectsFound);
+            objectsFound.clear();
+            int prefetchedShadowsUsed = 0;
+            try (var prefetchedShadows = b.prefetchedShadowsTracker.startTracking()) {
+                prefetchedShadows.setShadows(
+                        lookupLiveShadows(objectsToProcess, lookupResult));
+                for (ResourceObjectFound objectFound : objectsToProcess) {
+                    if (!canContinue) {
+                        break;
+                    }
+                    String primaryIdentifierValue = getPrimaryIdentifierValue(objectFound);
+                    RawRepoShadow liveShadow = prefetchedShadows.get(primaryIdentifierValue);
+                    if (liveShadow != null) {
+                        prefetchedShadowsUsed++;
+                    }
+                    OperationResult result = searchResult.subresult(ShadowsFacade.OP_HANDLE_OBJECT)
+                            .setMinor()
+                            .addParam("primaryIdentifierValue", primaryIdentifierValue)
+                            .build();
+                    try {
+                        canContinue = processObjectFound(objectFound, liveShadow, result);
+                    } catch (Throwable t) {
+                        result.recordException(t);
+                        throw t;
+                    } finally {
+                        result.close();
+                        // The same as in ResourceObjectSearchOperation, to keep the search result reasonably small.
+                        if (result.isSuccess() && result.canBeCleanedUp()) {
+                            result.getSubresults().clear();
+                        }
+                        searchResult.summarize();
+                    }
+                }
+            } finally {
+                if (prefetchedShadowsUsed > 1) {
+                    // One repository query was needed for the batch lookup.
+                    InternalMonitor.recordCount(InternalCounters.SHADOW_LOOKUP_SAVED_COUNT, prefetchedShadowsUsed - 1);
+                }
+            }
+        }
+
+        private boolean processObjectFound(
+                ResourceObjectFound objectFound, RawRepoShadow prefetchedLiveShadow, OperationResult result) {
             ShadowedObjectFound shadowedObjectFound = new ShadowedObjectFound(objectFound);
-            shadowedObjectFound.initialize(ctx.getTask(), lResult);
-            ShadowType shadowedObject = shadowedObjectFound.getResultingObject(ucfErrorReportingMethod, lResult);
+            shadowedObjectFound.setPrefetchedLiveShadow(prefetchedLiveShadow);
+            shadowedObjectFound.initialize(ctx.getTask(), result);
+            ShadowType shadowedObject = shadowedObjectFound.getResultingObject(ucfErrorReportingMethod, result);
             shadowedObject.setContentDescription(
                     determineContentDescription(options, shadowedObjectFound.isError()));
+            return upstreamHandler.handle(shadowedObject.asPrismObject(), result);
+        }
 
+        /**
+         * Looks up shadows for the objects in the batch. Errors are not fatal here: the shadows will be looked up
+         * (and the errors reported) for each object separately.
+         */
+        private @NotNull Map<String, RawRepoShadow> lookupLiveShadows(
+                List<ResourceObjectFound> objectsToProcess, OperationResult result) {
+            if (objectsToProcess.size() < 2) {
+                return Map.of(); // nothing to be saved here
+            }
+            Set<String> primaryIdentifierValues = new HashSet<>();
+            for (ResourceObjectFound objectFound : objectsToProcess) {
+                String value = getPrimaryIdentifierValue(objectFound);
+                if (value != null) {
+                    primaryIdentifierValues.add(value);
+                }
+            }
+            if (primaryIdentifierValues.size() < 2) {
+                return Map.of();
+            }
             try {
-                return handler.handle(shadowedObject.asPrismObject(), lResult);
-            } catch (Throwable t) {
-                lResult.recordException(t);
-                throw t;
-            } finally {
-                lResult.close();
+                var liveShadows =
+                        b.shadowFinder.lookupLiveShadowsByIndexedPrimaryIdValues(ctx, primaryIdentifierValues, result);
+                InternalMonitor.recordCount(InternalCounters.SHADOW_BATCH_LOOKUP_COUNT);
+                LOGGER.trace("Batch lookup of shadows for {} objects found {} live shadows",
+                        primaryIdentifierValues.size(), liveShadows.size());
+                return liveShadows;
+            } catch (Exception e) {
+                LOGGER.debug("Couldn't look up shadows in a batch, will look them up one by one: {}", e.getMessage(), e);
+                return Map.of();
             }
-        };
+        }
 
-        boolean fetchAssociations = SelectorOptions.hasToIncludePath(ShadowType.F_ASSOCIATIONS, options, true);
-        try {
-            return b.resourceObjectConverter.searchResourceObjects(
-                    ctx, shadowHandler, createOnResourceQuery(), fetchAssociations, ucfErrorReportingMethod, result);
-        } catch (TunnelException e) {
-            unwrapAndThrowSearchingTunnelException(e);
-            throw new AssertionError();
+        /** Returns the (normalized) value of the primary identifier, as stored in repo shadow; or null if not available. */
+        private @Nullable String getPrimaryIdentifierValue(ResourceObjectFound objectFound) {
+            try {
+                var normValue = objectFound.getResourceObject().getPrimaryIdentification().getPrimaryIdentifier().getNormValue();
+                return normValue instanceof String string ? string : null;
+            } catch (Exception e) {
+                // The object is probably broken; this will be dealt with when processing it.
+                LOGGER.trace("Couldn't determine primary identifier value for {}: {}", objectFound, e.getMessage(), e);
+                return null;
+            }
         }
     }
 
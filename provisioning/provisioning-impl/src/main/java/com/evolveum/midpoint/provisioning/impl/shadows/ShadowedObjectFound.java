@@ -22,6 +22,7 @@ import com.evolveum.midpoint.provisioning.impl.resourceobjects.ResourceObjectFou
 import com.evolveum.midpoint.provisioning.util.ProvisioningUtil;
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.schema.util.ObjectTypeUtil;
+import com.evolveum.midpoint.schema.util.RawRepoShadow;
 import com.evolveum.midpoint.task.api.Task;
 import com.evolveum.midpoint.util.DebugUtil;
 import com.evolveum.midpoint.util.exception.CommonException;
@@ -44,6 +45,9 @@ public class ShadowedObjectFound extends AbstractLazilyInitializableShadowedEnti
     /** The resource object that corresponds to this instance. */
     @NotNull private final ResourceObjectFound resourceObjectFound;
 
+    /** Live repo shadow, if it was looked up in advance (in a batch with other objects found). Null means "not known". */
+    @Nullable private RawRepoShadow prefetchedLiveShadow;
+
 //    /**
 //     * The object after "shadowization". Fulfills the following:
 //     *
@@ -66,6 +70,11 @@ public class ShadowedObjectFound extends AbstractLazilyInitializableShadowedEnti
         this.resourceObjectFound = resourceObjectFound;
     }
 
+    /** Must be called before the initialization. */
+    void setPrefetchedLiveShadow(@Nullable RawRepoShadow prefetchedLiveShadow) {
+        this.prefetchedLiveShadow = prefetchedLiveShadow;
+    }
+
     @Override
     public @NotNull AbstractLazilyInitializableResourceEntity getPrerequisite() {
         return resourceObjectFound;
@@ -75,7 +84,7 @@ public class ShadowedObjectFound extends AbstractLazilyInitializableShadowedEnti
     @Override
     protected RepoShadowWithState acquireOrLookupRepoShadow(OperationResult result)
             throws SchemaException, ConfigurationException, EncryptionException {
-        return acquireRepoShadow(resourceObjectFound.getResourceObject(), result);
+        return acquireRepoShadow(resourceObjectFound.getResourceObject(), prefetchedLiveShadow, result);
     }
 
     @Override
@@ -66,6 +66,7 @@ public class ShadowsLocalBeans {
     @Autowired DefinitionsHelper definitionsHelper;
 
     @Autowired CacheConfigurationManager cacheConfigurationManager;
+    @Autowired PrefetchedShadowsTracker prefetchedShadowsTracker;
 
     @Autowired SchemaService schemaService;
 }
@@ -11,8 +11,7 @@ import static com.evolveum.midpoint.schema.GetOperationOptions.updateToDistinct;
 import static com.evolveum.midpoint.schema.GetOperationOptions.zeroStalenessOptions;
 import static com.evolveum.midpoint.util.DebugUtil.lazy;
 
-import java.util.Collection;
-import java.util.List;
+import java.util.*;
 
 import com.evolveum.midpoint.schema.util.RawRepoShadow;
 
@@ -219,6 +218,51 @@ public class ShadowFinder {
                 lazy(() -> "primary identifier value " + primaryIdentifierValue + " (impossible because of DB constraint)"));
     }
 
+    /**
+     * Looks up live shadows for a number of primary identifier values using a single query on the indexed
+     * shadow.primaryIdentifierValue property. Used to avoid separate repository round trips for individual objects
+     * found by a search on the resource.
+     *
+     * Only values with exactly one live shadow are present in the returned map. For all other values (no shadow,
+     * more shadows, shadows without the indexed value), the caller should fall back to the regular lookup, e.g.
+     * {@link #lookupLiveRepoShadowByPrimaryId(ProvisioningContext, WithPrimary, OperationResult)}.
+     *
+     * @return primary identifier value -> live shadow (raw, as retrieved from the repository)
+     */
+    public @NotNull Map<String, RawRepoShadow> lookupLiveShadowsByIndexedPrimaryIdValues(
+            @NotNull ProvisioningContext ctx, @NotNull Collection<String> primaryIdentifierValues, OperationResult result)
+            throws SchemaException {
+
+        if (primaryIdentifierValues.isEmpty()) {
+            return Map.of();
+        }
+
+        ObjectQuery query = prismContext.queryFor(ShadowType.class)
+                .item(ShadowType.F_PRIMARY_IDENTIFIER_VALUE).eq(primaryIdentifierValues.toArray())
+                .and().item(ShadowType.F_OBJECT_CLASS).eq(ctx.getObjectClassNameRequired())
+                .and().item(ShadowType.F_RESOURCE_REF).ref(ctx.getResourceOid())
+                .build();
+        LOGGER.trace("Searching for shadows by {} primaryIdentifierValues using filter:\n{}",
+                primaryIdentifierValues.size(), query.debugDumpLazily(1));
+
+        List<PrismObject<ShadowType>> shadowsFound = searchRepoShadows(query, zeroStalenessOptions(), result); // no caching!
+        LOGGER.trace("Found {} shadows (live or dead)", shadowsFound.size());
+
+        Map<String, RawRepoShadow> liveShadows = new HashMap<>();
+        Set<String> ambiguousValues = new HashSet<>();
+        for (PrismObject<ShadowType> shadow : shadowsFound) {
+            String value = shadow.asObjectable().getPrimaryIdentifierValue();
+            if (value == null || ShadowUtil.isDead(shadow)) {
+                continue;
+            }
+            if (liveShadows.put(value, RawRepoShadow.of(shadow)) != null) {
+                ambiguousValues.add(value); // should not occur because of the DB constraint; left to the regular lookup
+            }
+        }
+        liveShadows.keySet().removeAll(ambiguousValues);
+        return liveShadows;
+    }
+
     private static @Nullable RepoShadow selectSingleShadow(
             @NotNull ProvisioningContext ctx, @NotNull List<PrismObject<ShadowType>> rawShadows, Object context)
             throws SchemaException, ConfigurationException {
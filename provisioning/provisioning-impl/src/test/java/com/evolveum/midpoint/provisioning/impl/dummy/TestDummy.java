@@ -841,6 +841,118 @@ public class TestDummy extends AbstractBasicDummyTest {
         assertSteadyResource();
     }
 
+    /** All the accounts have their shadows already, so they should be looked up by a single repository query. */
+    @Test
+    public void test119aSearchLooksUpShadowsInBatch() throws Exception {
+        given();
+        Task task = getTestTask();
+        OperationResult result = createOperationResult();
+        ObjectQuery query = createAllAccountsQuery();
+
+        List<PrismObject<ShadowType>> foundObjects = new ArrayList<>();
+        rememberCounter(InternalCounters.SHADOW_BATCH_LOOKUP_COUNT);
+        rememberCounter(InternalCounters.SHADOW_LOOKUP_SAVED_COUNT);
+
+        when();
+        provisioningService.searchObjectsIterative(
+                ShadowType.class, query, null, (object, lResult) -> foundObjects.add(object), task, result);
+
+        then();
+        assertSuccess(result);
+        assertEquals("Wrong number of objects found", 4, foundObjects.size());
+        assertCounterIncrement(InternalCounters.SHADOW_BATCH_LOOKUP_COUNT, 1);
+        assertCounterIncrement(InternalCounters.SHADOW_LOOKUP_SAVED_COUNT, 3); // 4 shadows, 1 query
+
+        assertSteadyResource();
+    }
+
+    /**
+     * The handler modifies shadows of the objects that are still waiting in the batch.
+     * Their prefetched (now stale) versions must not be used.
+     */
+    @Test
+    public void test119bSearchWithHandlerModifyingOtherShadows() throws Exception {
+        given();
+        Task task = getTestTask();
+        OperationResult result = createOperationResult();
+        ObjectQuery query = createAllAccountsQuery();
+        String description = "modified by handler";
+
+        List<PrismObject<ShadowType>> foundObjects = new ArrayList<>();
+        ResultHandler<ShadowType> handler = (object, lResult) -> {
+            if (foundObjects.isEmpty()) {
+                try {
+                    for (var repoShadow : repositoryService.searchObjects(ShadowType.class, query, null, lResult)) {
+                        if (!repoShadow.getOid().equals(object.getOid())) {
+                            repositoryService.modifyObject(ShadowType.class, repoShadow.getOid(),
+                                    deltaFor(ShadowType.class)
+                                            .item(ShadowType.F_DESCRIPTION).replace(description)
+                                            .asItemDeltas(),
+                                    lResult);
+                        }
+                    }
+                } catch (CommonException e) {
+                    throw new SystemException(e);
+                }
+            }
+            foundObjects.add(object);
+            return true;
+        };
+        rememberCounter(InternalCounters.SHADOW_BATCH_LOOKUP_COUNT);
+        rememberCounter(InternalCounters.SHADOW_LOOKUP_SAVED_COUNT);
+
+        when();
+        provisioningService.searchObjectsIterative(ShadowType.class, query, null, handler, task, result);
+
+        then();
+        assertSuccess(result);
+        assertEquals("Wrong number of objects found", 4, foundObjects.size());
+        for (PrismObject<ShadowType> object : foundObjects.subList(1, foundObjects.size())) {
+            assertEquals("Stale shadow used for " + object, description, object.asObjectable().getDescription());
+        }
+        assertCounterIncrement(InternalCounters.SHADOW_BATCH_LOOKUP_COUNT, 1);
+        assertCounterIncrement(InternalCounters.SHADOW_LOOKUP_SAVED_COUNT, 0); // only the first shadow was used
+
+        and("descriptions are cleaned up");
+        for (PrismObject<ShadowType> object : foundObjects) {
+            repositoryService.modifyObject(ShadowType.class, object.getOid(),
+                    deltaFor(ShadowType.class)
+                            .item(ShadowType.F_DESCRIPTION).replace()
+                            .asItemDeltas(),
+                    result);
+        }
+
+        assertSteadyResource();
+    }
+
+    /** The connector fails in the middle of the search. Objects found before the failure must not be lost in the batch. */
+    @Test
+    public void test119cSearchFailingInTheMiddle() throws Exception {
+        given();
+        Task task = getTestTask();
+        OperationResult result = createOperationResult();
+        ObjectQuery query = createAllAccountsQuery();
+        dummyResource.setSearchBreakAfterObjects(2);
+
+        List<PrismObject<ShadowType>> foundObjects = new ArrayList<>();
+        try {
+            when();
+            provisioningService.searchObjectsIterative(
+                    ShadowType.class, query, null, (object, lResult) -> foundObjects.add(object), task, result);
+            fail("unexpected success");
+        } catch (CommunicationException e) {
+            displayExpectedException(e);
+        } finally {
+            dummyResource.resetBreakMode();
+        }
+
+        then();
+        assertEquals("Wrong number of objects found before the failure", 2, foundObjects.size());
+        for (PrismObject<ShadowType> object : foundObjects) {
+            assertNotNull("No OID in " + object, object.getOid());
+        }
+    }
+
     @Test
     public void test120ModifyWillReplaceFullname() throws Exception {
         Task task = getTestTask();
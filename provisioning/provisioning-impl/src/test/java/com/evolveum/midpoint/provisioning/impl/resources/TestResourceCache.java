@@ -0,0 +1,173 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.provisioning.impl.resources;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.provisioning.impl.dummy.AbstractDummyTest;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.task.api.Task;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ResourceType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.SingleCachePerformanceInformationType;
+
+/**
+ * Tests {@link ResourceCache} directly: the hit/miss counters reported in its state information,
+ * and the lock-free {@link ResourceCache#get(String, String, boolean)} running concurrently with
+ * {@link ResourceCache#put(ResourceType, java.util.Collection)}.
+ *
+ * Cached resources use their own (random) OIDs, so they do not interfere with the dummy resource used by other tests.
+ */
+@ContextConfiguration(locations = "classpath:ctx-provisioning-test-main.xml")
+@DirtiesContext
+public class TestResourceCache extends AbstractDummyTest {
+
+    private static final int READERS = 4;
+    private static final int VERSIONS = 500;
+
+    @Autowired private ResourceCache resourceCache;
+
+    @Test
+    public void test100HitAndMissCounters() throws Exception {
+        given("a complete resource with its own OID");
+        Task task = getTestTask();
+        OperationResult result = task.getResult();
+        String oid = UUID.randomUUID().toString();
+        ResourceType resource = createCompleteResource(oid, "1", task, result);
+        SingleCachePerformanceInformationType before = getPerformance();
+
+        when("resource is requested before and after it's cached, read-only and for modification, and in a wrong version");
+        PrismObject<ResourceType> notCached = resourceCache.get(oid, "1", true);
+        resourceCache.put(resource, List.of());
+        PrismObject<ResourceType> readOnly = resourceCache.get(oid, "1", true);
+        PrismObject<ResourceType> mutable = resourceCache.get(oid, "1", false);
+        PrismObject<ResourceType> wrongVersion = resourceCache.get(oid, "2", true);
+
+        then("the returned objects are correct");
+        assertThat(notCached).isNull();
+        assertThat(readOnly).isNotNull();
+        assertThat(readOnly.isImmutable()).as("read-only hit is immutable").isTrue();
+        assertThat(mutable).isNotNull().isNotSameAs(readOnly);
+        assertThat(mutable.isImmutable()).as("hit for modification is mutable").isFalse();
+        assertThat(wrongVersion).isNull();
+
+        and("the entry with the wrong version is purged");
+        assertThat(resourceCache.getVersion(oid)).isNull();
+
+        and("counters are updated");
+        SingleCachePerformanceInformationType after = getPerformance();
+        assertThat(after.getHitCount() - before.getHitCount()).as("hits").isEqualTo(1);
+        assertThat(after.getWeakHitCount() - before.getWeakHitCount()).as("weak hits").isEqualTo(1);
+        assertThat(after.getMissCount() - before.getMissCount()).as("misses").isEqualTo(2);
+    }
+
+    /**
+     * Readers repeatedly get the resource in the currently cached version, while the writer keeps replacing it
+     * with newer versions. A reader may miss (the version was replaced in the meanwhile), but it must never get
+     * a resource in a version different from the requested one, or a mutable read-only instance.
+     */
+    @Test
+    public void test200GetConcurrentWithPut() throws Exception {
+        given("a complete resource in many versions");
+        Task task = getTestTask();
+        OperationResult result = task.getResult();
+        String oid = UUID.randomUUID().toString();
+        ResourceType resource = createCompleteResource(oid, "0", task, result);
+        resourceCache.put(resource, List.of());
+
+        Queue<String> problems = new ConcurrentLinkedQueue<>();
+        AtomicBoolean writerDone = new AtomicBoolean();
+        AtomicInteger hits = new AtomicInteger();
+        Runnable reader = () -> {
+            try {
+                while (!writerDone.get()) {
+                    String version = resourceCache.getVersion(oid);
+                    if (version == null) {
+                        continue;
+                    }
+                    boolean readOnly = hits.get() % 2 == 0;
+                    PrismObject<ResourceType> cached = resourceCache.get(oid, version, readOnly);
+                    if (cached != null) {
+                        hits.incrementAndGet();
+                        if (!version.equals(cached.getVersion())) {
+                            problems.add("requested version " + version + ", got " + cached.getVersion());
+                        }
+                        if (readOnly != cached.isImmutable()) {
+                            problems.add("read-only " + readOnly + " but immutable " + cached.isImmutable());
+                        }
+                    }
+                }
+            } catch (Throwable t) {
+                problems.add(t.toString());
+            }
+        };
+
+        when("readers run while the resource is being replaced");
+        List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < READERS; i++) {
+            Thread thread = new Thread(reader, "reader-" + i);
+            thread.start();
+            readers.add(thread);
+        }
+        try {
+            for (int version = 1; version <= VERSIONS; version++) {
+                ResourceType newVersion = resource.clone();
+                newVersion.setVersion(String.valueOf(version));
+                resourceCache.put(newVersion, List.of());
+            }
+        } finally {
+            writerDone.set(true);
+            for (Thread thread : readers) {
+                thread.join();
+            }
+        }
+
+        then("no reader got a wrong version or mutability");
+        displayValue("hits", hits.get());
+        assertThat(problems).isEmpty();
+
+        and("the last version is cached");
+        String lastVersion = String.valueOf(VERSIONS);
+        ResourceType last = resource.clone();
+        last.setVersion(lastVersion);
+        resourceCache.put(last, List.of());
+        PrismObject<ResourceType> cached = resourceCache.get(oid, lastVersion, true);
+        assertThat(cached).isNotNull();
+        assertThat(cached.getVersion()).isEqualTo(lastVersion);
+
+        resourceCache.invalidateSingle(oid);
+    }
+
+    /** Returns the (complete) dummy resource under a different OID and with given version. */
+    private ResourceType createCompleteResource(String oid, String version, Task task, OperationResult result)
+            throws Exception {
+        ResourceType resource = provisioningService
+                .getObject(ResourceType.class, RESOURCE_DUMMY_OID, null, task, result)
+                .asObjectable()
+                .clone();
+        resource.setOid(oid);
+        resource.setVersion(version);
+        return resource;
+    }
+
+    private SingleCachePerformanceInformationType getPerformance() {
+        return resourceCache.getStateInformation().iterator().next().getPerformance();
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.provisioning.ucf.impl.connid;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.configuration2.Configuration;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.VisibleForTesting;
+
+/**
+ * Configuration and threads for the buffered mode of {@link SearchExecutor}.
+ *
+ * In this mode, the connector reads the objects in its own thread and only puts them into a bounded buffer.
+ * The conversion to UCF objects is done in a small pool of threads, and the midPoint handler consumes the converted objects
+ * in the thread that invoked the search. So, the reading from the resource is not stalled by the processing of the objects
+ * (unless the buffer is full).
+ *
+ * Configured in `midpoint.icf` section of `config.xml`:
+ *
+ * - `searchBufferSize`: how many objects can wait in the buffer; 0 (the default) means that the buffered mode is disabled,
+ * - `searchConversionThreads`: how many threads convert the objects (shared by all buffered searches; default is 2).
+ */
+class BufferedSearchSupport {
+
+    private static final String CONF_SEARCH_BUFFER_SIZE = "searchBufferSize";
+    private static final String CONF_SEARCH_CONVERSION_THREADS = "searchConversionThreads";
+
+    private static final int DEFAULT_SEARCH_CONVERSION_THREADS = 2;
+
+    /** Support with the buffered mode disabled. */
+    static final BufferedSearchSupport DISABLED = new BufferedSearchSupport(0, 0);
+
+    private final int bufferSize;
+    private final int conversionThreads;
+
+    /** Threads running the ConnId search operations. Created on first use. */
+    private ExecutorService readerExecutor;
+
+    /** Threads converting ConnId objects to UCF ones. Created on first use. */
+    private ExecutorService conversionExecutor;
+
+    /** Number of ConnId searches currently running in the reader threads. */
+    private final AtomicInteger activeReaders = new AtomicInteger();
+
+    private BufferedSearchSupport(int bufferSize, int conversionThreads) {
+        this.bufferSize = bufferSize;
+        this.conversionThreads = conversionThreads;
+    }
+
+    static @NotNull BufferedSearchSupport fromConfiguration(@NotNull Configuration configuration) {
+        int bufferSize = configuration.getInt(CONF_SEARCH_BUFFER_SIZE, 0);
+        if (bufferSize <= 0) {
+            return DISABLED;
+        }
+        return new BufferedSearchSupport(
+                bufferSize,
+                Math.max(1, configuration.getInt(CONF_SEARCH_CONVERSION_THREADS, DEFAULT_SEARCH_CONVERSION_THREADS)));
+    }
+
+    boolean isEnabled() {
+        return bufferSize > 0;
+    }
+
+    int getBufferSize() {
+        return bufferSize;
+    }
+
+    synchronized @NotNull ExecutorService getReaderExecutor() {
+        if (readerExecutor == null) {
+            readerExecutor = Executors.newCachedThreadPool(createThreadFactory("connid-search-reader-"));
+        }
+        return readerExecutor;
+    }
+
+    synchronized @NotNull ExecutorService getConversionExecutor() {
+        if (conversionExecutor == null) {
+            conversionExecutor = Executors.newFixedThreadPool(
+                    conversionThreads, createThreadFactory("connid-search-conversion-"));
+        }
+        return conversionExecutor;
+    }
+
+    void readerStarted() {
+        activeReaders.incrementAndGet();
+    }
+
+    void readerFinished() {
+        activeReaders.decrementAndGet();
+    }
+
+    @VisibleForTesting
+    int getActiveReaders() {
+        return activeReaders.get();
+    }
+
+    private static ThreadFactory createThreadFactory(String namePrefix) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, namePrefix + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    synchronized void shutdown() {
+        if (readerExecutor != null) {
+            readerExecutor.shutdownNow();
+            readerExecutor = null;
+        }
+        if (conversionExecutor != null) {
+            conversionExecutor.shutdownNow();
+            conversionExecutor = null;
+        }
+    }
+}
@@ -159,6 +159,7 @@ public class ConnectorFactoryConnIdImpl implements ConnectorFactory {
     @Autowired private Protector protector;
     @Autowired private PrismContext prismContext;
     @Autowired private LocalizationService localizationService;
+    @NotNull private BufferedSearchSupport bufferedSearchSupport = BufferedSearchSupport.DISABLED;
     private CopyOnWriteArrayList<ConnectorDiscoveryListener> listeners = new CopyOnWriteArrayList<>();
 
     public ConnectorFactoryConnIdImpl() {
@@ -195,6 +196,11 @@ public class ConnectorFactoryConnIdImpl implements ConnectorFactory {
             localConnectorInfoManager.uriAdded(u);
         }
         localConnectorInfoManager.start();
+
+        bufferedSearchSupport = BufferedSearchSupport.fromConfiguration(config);
+        if (bufferedSearchSupport.isEnabled()) {
+            LOGGER.info("Buffered search is enabled, buffer size: {}", bufferedSearchSupport.getBufferSize());
+        }
     }
 
     /**
@@ -244,6 +250,7 @@ public class ConnectorFactoryConnIdImpl implements ConnectorFactory {
         ConnectorInstanceConnIdImpl connectorImpl = new ConnectorInstanceConnIdImpl(cinfo, connectorBean, connectorSchema);
         connectorImpl.setDescription(instanceDescription);
         connectorImpl.setInstanceName(instanceName);
+        connectorImpl.setBufferedSearchSupport(bufferedSearchSupport);
 
         return connectorImpl;
     }
@@ -880,6 +887,7 @@ public class ConnectorFactoryConnIdImpl implements ConnectorFactory {
         if (localConnectorInfoManager != null) {
             localConnectorInfoManager.shutdown();
         }
+        bufferedSearchSupport.shutdown();
     }
 
     @Override
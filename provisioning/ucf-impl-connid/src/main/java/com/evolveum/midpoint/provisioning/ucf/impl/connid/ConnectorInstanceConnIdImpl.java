@@ -138,6 +138,8 @@ public class ConnectorInstanceConnIdImpl implements ConnectorInstance, Connector
     private String description;
     private String instanceName; // resource name
 
+    @NotNull private BufferedSearchSupport bufferedSearchSupport = BufferedSearchSupport.DISABLED;
+
     ConnectorInstanceConnIdImpl(
             ConnectorInfo connectorInfo,
             ConnectorType connectorBean,
@@ -166,6 +168,14 @@ public class ConnectorInstanceConnIdImpl implements ConnectorInstance, Connector
         return instanceName;
     }
 
+    @NotNull BufferedSearchSupport getBufferedSearchSupport() {
+        return bufferedSearchSupport;
+    }
+
+    void setBufferedSearchSupport(@NotNull BufferedSearchSupport bufferedSearchSupport) {
+        this.bufferedSearchSupport = bufferedSearchSupport;
+    }
+
     void setInstanceName(String instanceName) {
         this.instanceName = instanceName;
     }
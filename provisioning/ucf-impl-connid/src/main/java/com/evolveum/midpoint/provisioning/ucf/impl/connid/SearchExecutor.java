@@ -10,7 +10,17 @@ package com.evolveum.midpoint.provisioning.ucf.impl.connid;
 import static com.evolveum.midpoint.provisioning.ucf.impl.connid.ConnIdNameMapper.ucfAttributeNameToConnId;
 import static com.evolveum.midpoint.provisioning.ucf.impl.connid.ConnIdUtil.processConnIdException;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import javax.xml.namespace.QName;
 
 import com.evolveum.midpoint.schema.reporting.ConnIdOperation;
@@ -223,12 +233,18 @@ class SearchExecutor {
 
         try {
             LOGGER.trace("Executing ConnId search operation: {}", operation);
-            connIdSearchResult = connectorInstance.getConnIdConnectorFacade()
-                    .search(
-                            icfObjectClass,
-                            connIdFilter,
-                            new SearchResultsHandler(operation, result),
-                            connIdOptions);
+            var bufferedSearchSupport = connectorInstance.getBufferedSearchSupport();
+            if (bufferedSearchSupport.isEnabled()) {
+                connIdSearchResult = new BufferedSearch(bufferedSearchSupport, operation, result)
+                        .execute(connIdOptions);
+            } else {
+                connIdSearchResult = connectorInstance.getConnIdConnectorFacade()
+                        .search(
+                                icfObjectClass,
+                                connIdFilter,
+                                new SearchResultsHandler(operation, result),
+                                connIdOptions);
+            }
             recordIcfOperationEnd(operation, null);
 
             result.recordSuccess();
@@ -320,6 +336,27 @@ class SearchExecutor {
         return pagedSearchConfiguration == null;
     }
 
+    /** Returns true if the object with given number (starting at 0) is before the page requested by simulated paging. */
+    private boolean isBeforeSimulatedPage(int number) {
+        if (isNoConnectorPaging() && query != null && query.getPaging() != null) {
+            int offset = MoreObjects.firstNonNull(query.getPaging().getOffset(), 0);
+            return number < offset;
+        } else {
+            return false;
+        }
+    }
+
+    /** Returns true if the object with given number (starting at 0) is after the page requested by simulated paging. */
+    private boolean isAfterSimulatedPage(int number) {
+        if (isNoConnectorPaging() && query != null && query.getPaging() != null) {
+            int offset = MoreObjects.firstNonNull(query.getPaging().getOffset(), 0);
+            Integer maxSize = query.getPaging().getMaxSize();
+            return maxSize != null && number >= offset + maxSize;
+        } else {
+            return false;
+        }
+    }
+
     private class SearchResultsHandler implements ResultsHandler {
 
         @NotNull private final ConnIdOperation operation;
@@ -337,17 +374,11 @@ class SearchExecutor {
             recordIcfOperationSuspend(operation);
             try {
                 int number = objectsFetched.getAndIncrement(); // The numbering starts at 0
-                if (isNoConnectorPaging()) {
-                    if (query != null && query.getPaging() != null) {
-                        int offset = MoreObjects.firstNonNull(query.getPaging().getOffset(), 0);
-                        Integer maxSize = query.getPaging().getMaxSize();
-                        if (number < offset) {
-                            return true;
-                        }
-                        if (maxSize != null && number >= offset + maxSize) {
-                            return false;
-                        }
-                    }
+                if (isBeforeSimulatedPage(number)) {
+                    return true;
+                }
+                if (isAfterSimulatedPage(number)) {
+                    return false;
                 }
 
                 var ucfObject = connectorInstance.connIdObjectConvertor.convertToUcfObject(
@@ -367,4 +398,200 @@ class SearchExecutor {
             return "(midPoint searching result handler)";
         }
     }
+
+    /**
+     * Search in the buffered mode (see {@link BufferedSearchSupport}).
+     *
+     * The ConnId search runs in a reader thread that only submits the objects for conversion and puts the (future) results
+     * into a bounded buffer. The conversion runs in the conversion threads. The objects are passed to the handler in the
+     * current thread, in the order in which they were returned by the connector.
+     *
+     * If the buffer is full, the reader waits (back-pressure). If the handler asks to stop or fails, the reader is told
+     * to stop at the next object, and we wait for the ConnId search to finish.
+     */
+    private class BufferedSearch {
+
+        /** How long the reader waits for a free place in the buffer before checking whether it should stop. */
+        private static final long OFFER_TIMEOUT_MS = 100;
+
+        /** Marks the end of the objects in the buffer. */
+        private static final Future<ConvertedObject> END = CompletableFuture.completedFuture(null);
+
+        @NotNull private final BufferedSearchSupport support;
+        @NotNull private final ConnIdOperation operation;
+        @NotNull private final OperationResult result;
+
+        @NotNull private final BlockingQueue<Future<ConvertedObject>> buffer;
+
+        /** Set when the objects are no longer needed: the handler asked to stop or failed. */
+        private volatile boolean stopped;
+
+        /** Time spent in conversion threads (in nanoseconds). */
+        @NotNull private final LongAdder conversionTime = new LongAdder();
+
+        BufferedSearch(
+                @NotNull BufferedSearchSupport support, @NotNull ConnIdOperation operation, @NotNull OperationResult result) {
+            this.support = support;
+            this.operation = operation;
+            this.result = result;
+            this.buffer = new ArrayBlockingQueue<>(support.getBufferSize());
+        }
+
+        SearchResult execute(OperationOptions connIdOptions) throws Throwable {
+            Future<SearchResult> reading = support.getReaderExecutor().submit(() -> read(connIdOptions));
+            long waitTime = 0;
+            try {
+                for (;;) {
+                    long waitStart = System.nanoTime();
+                    UcfResourceObject ucfObject = getConverted(buffer.take());
+                    waitTime += System.nanoTime() - waitStart;
+                    if (ucfObject == null) {
+                        break;
+                    }
+                    recordIcfOperationSuspend(operation);
+                    try {
+                        if (!handler.handle(ucfObject, result)) {
+                            break;
+                        }
+                    } finally {
+                        recordIcfOperationResume(operation);
+                    }
+                }
+            } catch (Throwable t) {
+                stop();
+                // The connector must not be returned to the pool (by the caller) while the ConnId search is still running.
+                // The reader stops at the next object, so this should not take long. The reader failure (if any)
+                // is ignored here, as the handler or conversion failure is more relevant.
+                awaitReader(reading);
+                throw t;
+            } finally {
+                operation.setBufferWaitTime(TimeUnit.NANOSECONDS.toMillis(waitTime));
+                operation.setConversionTime(TimeUnit.NANOSECONDS.toMillis(conversionTime.sum()));
+            }
+            stop();
+            try {
+                return awaitReader(reading);
+            } catch (ExecutionException e) {
+                throw e.getCause(); // original ConnId exception, to be processed by the caller
+            }
+        }
+
+        /** Tells the reader to stop, and releases it if it's waiting for a place in the buffer. */
+        private void stop() {
+            stopped = true;
+            List<Future<ConvertedObject>> unprocessed = new ArrayList<>();
+            buffer.drainTo(unprocessed);
+            unprocessed.forEach(future -> future.cancel(false));
+        }
+
+        /**
+         * Waits for the reader even if the current thread is interrupted (the interrupt flag is restored afterwards).
+         * The handler and the caller expect the search to be over when this method returns.
+         */
+        private SearchResult awaitReader(Future<SearchResult> reading) throws ExecutionException {
+            boolean interrupted = false;
+            try {
+                for (;;) {
+                    try {
+                        return reading.get();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    } catch (CancellationException e) {
+                        return null; // the reader executor was shut down
+                    }
+                }
+            } finally {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        /**
+         * Executed in the reader thread. Only the ConnId facade is called here (and the conversion is submitted), so no
+         * midPoint thread-local state (task, operation result, repository cache, security context) is needed.
+         * The task-related processing (statistics, results, the handler) stays in the invoking thread.
+         */
+        private SearchResult read(OperationOptions connIdOptions) {
+            support.readerStarted();
+            try {
+                return connectorInstance.getConnIdConnectorFacade()
+                        .search(icfObjectClass, connIdFilter, this::enqueue, connIdOptions);
+            } finally {
+                put(END);
+                support.readerFinished();
+            }
+        }
+
+        /** The ConnId handler, executed in the reader thread. */
+        private boolean enqueue(ConnectorObject connectorObject) {
+            Validate.notNull(connectorObject, "null connector object"); // todo apply error reporting method?
+            if (stopped) {
+                return false;
+            }
+            int number = objectsFetched.getAndIncrement(); // The numbering starts at 0
+            if (isBeforeSimulatedPage(number)) {
+                return true;
+            }
+            if (isAfterSimulatedPage(number)) {
+                return false;
+            }
+            return put(support.getConversionExecutor().submit(() -> convert(connectorObject)));
+        }
+
+        /** Executed in a conversion thread. The operation result is local here, to be merged into the main one later. */
+        private ConvertedObject convert(ConnectorObject connectorObject) throws SchemaException {
+            long start = System.nanoTime();
+            OperationResult conversionResult = new OperationResult(SearchExecutor.class.getName() + ".convert");
+            try {
+                return new ConvertedObject(
+                        connectorInstance.connIdObjectConvertor.convertToUcfObject(
+                                connectorObject, resourceObjectDefinition, errorReportingMethod, conversionResult),
+                        conversionResult);
+            } finally {
+                conversionTime.add(System.nanoTime() - start);
+            }
+        }
+
+        private boolean put(Future<ConvertedObject> future) {
+            try {
+                while (!stopped) {
+                    if (buffer.offer(future, OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                        return true;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return false;
+        }
+
+        /** Returns the converted object (null for the end marker). Conversion exceptions are rethrown as in the unbuffered mode. */
+        private UcfResourceObject getConverted(Future<ConvertedObject> future) throws InterruptedException {
+            try {
+                ConvertedObject converted = future.get();
+                if (converted == null) {
+                    return null;
+                }
+                OperationResult conversionSubresult = converted.conversionResult.getLastSubresult();
+                if (conversionSubresult != null) {
+                    result.addSubresult(conversionSubresult);
+                }
+                return converted.ucfObject;
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof SchemaException schemaException) {
+                    throw new IntermediateException(schemaException);
+                } else if (e.getCause() instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                } else if (e.getCause() instanceof Error error) {
+                    throw error;
+                } else {
+                    throw new SystemException(e.getCause());
+                }
+            }
+        }
+    }
+
+    private record ConvertedObject(@NotNull UcfResourceObject ucfObject, @NotNull OperationResult conversionResult) {
+    }
 }
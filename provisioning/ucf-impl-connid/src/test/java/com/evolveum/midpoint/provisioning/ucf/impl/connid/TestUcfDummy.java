@@ -27,6 +27,7 @@ import com.evolveum.midpoint.test.DummyHrScenario.*;
 import com.evolveum.midpoint.util.MiscUtil;
 import com.evolveum.midpoint.util.exception.*;
 
+import org.apache.commons.configuration2.BaseConfiguration;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.test.context.ContextConfiguration;
 import org.testng.AssertJUnit;
@@ -334,6 +335,120 @@ public class TestUcfDummy extends AbstractUcfDummyTest {
         assertEquals("Unexpected number of search results", 1, searchResults.size());
     }
 
+    /** The buffered search (with a small buffer) returns the same objects in the same order as the regular one. */
+    @Test
+    public void test052BufferedSearch() throws Exception {
+        given("a couple of accounts");
+        List<String> extraAccounts = addExtraAccounts(10);
+        OperationResult result = createOperationResult();
+        try {
+            List<String> expectedNames = searchAccountNames(null, result);
+            assertThat(expectedNames).hasSize(11);
+
+            BufferedSearchSupport support = createBufferedSearchSupport();
+            try {
+                when("searching in the buffered mode");
+                List<String> names = searchAccountNames(support, result);
+
+                then("all accounts are found, in the original order");
+                assertThat(names).containsExactlyElementsOf(expectedNames);
+                assertThat(support.getActiveReaders()).as("active readers").isZero();
+                result.computeStatus();
+                TestUtil.assertSuccess(result);
+            } finally {
+                support.shutdown();
+            }
+        } finally {
+            deleteExtraAccounts(extraAccounts);
+        }
+    }
+
+    /** When the handler fails in the buffered mode, the ConnId search is finished before the search method returns. */
+    @Test
+    public void test053BufferedSearchHandlerFailure() throws Exception {
+        given("a couple of accounts");
+        List<String> extraAccounts = addExtraAccounts(10);
+        OperationResult result = createOperationResult();
+        BufferedSearchSupport support = createBufferedSearchSupport();
+        var connectorImpl = (ConnectorInstanceConnIdImpl) cc;
+        connectorImpl.setBufferedSearchSupport(support);
+        try {
+            var accountClassDefinition = resourceSchema.findObjectClassDefinitionRequired(RI_ACCOUNT_OBJECT_CLASS);
+            List<String> names = new ArrayList<>();
+            UcfObjectHandler handler = (ucfObject, lResult) -> {
+                if (names.size() == 3) {
+                    throw new IllegalStateException("Simulated handler failure");
+                }
+                names.add(String.valueOf(ucfObject.getPrimaryIdentifierValue()));
+                return true;
+            };
+
+            when("searching in the buffered mode with a failing handler");
+            try {
+                cc.search(
+                        accountClassDefinition, null, handler,
+                        null, null, null, null,
+                        createExecutionContext(), result);
+                fail("unexpected success");
+            } catch (Exception e) {
+                then("the exception is propagated");
+                assertExpectedException(e);
+            }
+
+            and("the reader is not running anymore");
+            assertThat(names).hasSize(3);
+            assertThat(support.getActiveReaders()).as("active readers").isZero();
+
+            and("the connector can be used again");
+            assertThat(searchAccountNames(support, createOperationResult())).hasSize(11);
+        } finally {
+            connectorImpl.setBufferedSearchSupport(BufferedSearchSupport.DISABLED);
+            support.shutdown();
+            deleteExtraAccounts(extraAccounts);
+        }
+    }
+
+    private BufferedSearchSupport createBufferedSearchSupport() {
+        BaseConfiguration configuration = new BaseConfiguration();
+        configuration.setProperty("searchBufferSize", 2);
+        configuration.setProperty("searchConversionThreads", 2);
+        return BufferedSearchSupport.fromConfiguration(configuration);
+    }
+
+    /** Searches for all accounts, in buffered mode if `support` is not null. */
+    private List<String> searchAccountNames(BufferedSearchSupport support, OperationResult result) throws Exception {
+        var connectorImpl = (ConnectorInstanceConnIdImpl) cc;
+        var accountClassDefinition = resourceSchema.findObjectClassDefinitionRequired(RI_ACCOUNT_OBJECT_CLASS);
+        List<String> names = new ArrayList<>();
+        connectorImpl.setBufferedSearchSupport(support != null ? support : BufferedSearchSupport.DISABLED);
+        try {
+            cc.search(
+                    accountClassDefinition, null,
+                    (ucfObject, lResult) -> names.add(String.valueOf(ucfObject.getPrimaryIdentifierValue())),
+                    null, null, null, null,
+                    createExecutionContext(), result);
+        } finally {
+            connectorImpl.setBufferedSearchSupport(BufferedSearchSupport.DISABLED);
+        }
+        return names;
+    }
+
+    private List<String> addExtraAccounts(int count) throws Exception {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String name = "buffered-" + i;
+            dummyResource.addAccount(new DummyAccount(name));
+            names.add(name);
+        }
+        return names;
+    }
+
+    private void deleteExtraAccounts(List<String> names) throws Exception {
+        for (String name : names) {
+            dummyResource.deleteAccountByName(name);
+        }
+    }
+
     private void checkUcfObject(UcfResourceObject ucfResourceObject, ResourceObjectClassDefinition objectClassDefinition) {
         var object = ucfResourceObject.getPrismObject();
         ShadowType bean = object.asObjectable();
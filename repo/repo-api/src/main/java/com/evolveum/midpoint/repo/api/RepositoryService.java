@@ -7,6 +7,7 @@
 package com.evolveum.midpoint.repo.api;
 
 import java.util.Collection;
+import java.util.List;
 
 import com.evolveum.midpoint.prism.*;
 
@@ -121,6 +122,7 @@ public interface RepositoryService extends OrgTreeEvaluator, CaseSupportMixin, A
 
     String OP_ADD_OBJECT = "addObject";
     String OP_ADD_OBJECT_OVERWRITE = "addObjectOverwrite"; // addObject with overwrite option
+    String OP_ADD_OBJECTS = "addObjects";
     String OP_DELETE_OBJECT = "deleteObject";
     String OP_COUNT_OBJECTS = "countObjects";
     String OP_MODIFY_OBJECT = "modifyObject";
@@ -261,6 +263,32 @@ public interface RepositoryService extends OrgTreeEvaluator, CaseSupportMixin, A
             @NotNull OperationResult parentResult)
             throws ObjectAlreadyExistsException, SchemaException;
 
+    /**
+     * Adds multiple new objects at once; intended for bulk imports into an empty (or fresh) repository.
+     *
+     * The operation is all-or-nothing: if any of the objects cannot be added (e.g. because an object
+     * with the same OID already exists), no object is added and an exception is thrown. The caller can then
+     * fall back to {@link #addObject(PrismObject, RepoAddOptions, OperationResult)} for individual objects
+     * to find out which ones are problematic. Overwriting is not supported.
+     *
+     * Supported only by the native repository, see {@link #supportsAddObjects()}.
+     *
+     * @return OIDs of the added objects, in the order of the input list
+     */
+    @Experimental
+    default @NotNull List<String> addObjects(
+            @NotNull List<PrismObject<? extends ObjectType>> objects,
+            @Nullable RepoAddOptions options,
+            @NotNull OperationResult parentResult)
+            throws ObjectAlreadyExistsException, SchemaException {
+        throw new UnsupportedOperationException();
+    }
+
+    /** Is {@link #addObjects(List, RepoAddOptions, OperationResult)} supported? */
+    default boolean supportsAddObjects() {
+        return false;
+    }
+
     /**
      * <p>Modifies object using relative change description.</p>
      * Must fail if user with provided OID does not exist.
@@ -9,17 +9,25 @@ package com.evolveum.midpoint.repo.cache.global;
 
 import org.jetbrains.annotations.NotNull;
 
+import com.evolveum.midpoint.repo.cache.local.QueryKey;
 import com.evolveum.midpoint.schema.SearchResultList;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectType;
 
 public class GlobalCacheQueryValue<T extends ObjectType> extends AbstractGlobalCacheValue {
 
+    @NotNull private final QueryKey<?> key;
     @NotNull private final SearchResultList<T> result;
 
-    GlobalCacheQueryValue(@NotNull SearchResultList<T> result) {
+    GlobalCacheQueryValue(@NotNull QueryKey<?> key, @NotNull SearchResultList<T> result) {
+        this.key = key;
         this.result = result;
     }
 
+    /** The key under which this value is (or was) stored. Needed for the invalidation index. */
+    @NotNull QueryKey<?> getKey() {
+        return key;
+    }
+
     public @NotNull SearchResultList<T> getResult() {
         return result;
     }
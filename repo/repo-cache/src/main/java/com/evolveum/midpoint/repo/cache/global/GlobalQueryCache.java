@@ -18,6 +18,8 @@ import com.evolveum.midpoint.xml.ns._public.common.common_3.SingleCacheStateInfo
 
 import org.apache.commons.lang3.tuple.MutablePair;
 import org.cache2k.Cache2kBuilder;
+import org.cache2k.event.CacheEntryEvictedListener;
+import org.cache2k.event.CacheEntryExpiredListener;
 import org.cache2k.expiry.ExpiryPolicy;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.stereotype.Component;
@@ -26,8 +28,12 @@ import jakarta.annotation.PreDestroy;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Predicate;
 
 import static com.evolveum.midpoint.repo.cache.handlers.SearchOpHandler.QUERY_RESULT_SIZE_LIMIT;
@@ -45,6 +51,21 @@ public class GlobalQueryCache extends AbstractGlobalCache {
 
     private org.cache2k.Cache<QueryKey, GlobalCacheQueryValue> cache;
 
+    /** Secondary index used to find entries affected by a change without scanning the whole cache. */
+    private final GlobalQueryCacheIndex index = new GlobalQueryCacheIndex();
+
+    /**
+     * Makes {@link #clear()} atomic with respect to {@link #put(QueryKey, SearchResultList)}: otherwise, a value could be
+     * indexed before the cache is cleared and put into the cache before the index is cleared, remaining in the cache
+     * without being indexed (and hence never invalidated). Puts use the shared lock, so they do not block each other.
+     */
+    private final ReadWriteLock clearLock = new ReentrantReadWriteLock();
+
+    /** Invalidation statistics (since the start or the last clear). */
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong entriesExamined = new AtomicLong();
+    private final AtomicLong entriesRemoved = new AtomicLong();
+
     public void initialize() {
         if (cache != null) {
             LOGGER.warn("Global query cache was already initialized -- ignoring this request.");
@@ -59,6 +80,10 @@ public class GlobalQueryCache extends AbstractGlobalCache {
                     .name(CACHE_NAME)
                     .entryCapacity(capacity)
                     .expiryPolicy(getExpirePolicy())
+                    .addListener((CacheEntryExpiredListener<QueryKey, GlobalCacheQueryValue>)
+                            (c, entry) -> index.remove(entry.getValue()))
+                    .addListener((CacheEntryEvictedListener<QueryKey, GlobalCacheQueryValue>)
+                            (c, entry) -> index.remove(entry.getValue()))
                     .build();
             LOGGER.info("Created global repository query cache with a capacity of {} queries", capacity);
         }
@@ -74,6 +99,7 @@ public class GlobalQueryCache extends AbstractGlobalCache {
             cache.close();
             cache = null;
         }
+        index.clear();
     }
 
     public boolean isAvailable() {
@@ -92,7 +118,7 @@ public class GlobalQueryCache extends AbstractGlobalCache {
 
     public void remove(QueryKey cacheKey) {
         if (cache != null) {
-            cache.remove(cacheKey);
+            index.remove(cache.peekAndRemove(cacheKey));
         }
     }
 
@@ -103,14 +129,50 @@ public class GlobalQueryCache extends AbstractGlobalCache {
                 throw new IllegalStateException("Trying to cache result list greater than " + QUERY_RESULT_SIZE_LIMIT + ": " + cacheObject.size());
             }
             //noinspection unchecked
-            cache.put(key, new GlobalCacheQueryValue(cacheObject));
+            GlobalCacheQueryValue<?> value = new GlobalCacheQueryValue(key, cacheObject);
+            clearLock.readLock().lock();
+            try {
+                // Indexing before putting into the cache, so that concurrent invalidation cannot miss the entry.
+                index.add(value);
+                index.remove(cache.peekAndPut(key, value));
+            } finally {
+                clearLock.readLock().unlock();
+            }
         }
     }
 
-    public void deleteMatching(Predicate<Map.Entry<QueryKey, GlobalCacheQueryValue>> predicate) {
-        if (cache != null) {
-            cache.asMap().entrySet().removeIf(predicate);
+    /**
+     * Deletes entries matching given predicate. Only entries selected by the index (for given type, OID, and scope)
+     * are examined, so the scope must be consistent with the predicate: the predicate would return false
+     * for any entry outside the scope.
+     */
+    public void deleteMatching(@NotNull Class<?> type, String oid, @NotNull QueryInvalidationScope scope,
+            Predicate<Map.Entry<QueryKey, GlobalCacheQueryValue>> predicate) {
+        if (cache == null) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        int examined = 0;
+        int removed = 0;
+        for (GlobalCacheQueryValue<?> candidate : index.getCandidates(type, oid, scope)) {
+            QueryKey key = candidate.getKey();
+            if (cache.peek(key) != candidate) {
+                // Either already gone (and will be/was removed from the index), or not yet put into the cache.
+                continue;
+            }
+            examined++;
+            if (predicate.test(Map.<QueryKey, GlobalCacheQueryValue>entry(key, candidate))) {
+                if (cache.asMap().remove(key, candidate)) {
+                    index.remove(candidate);
+                    removed++;
+                }
+            }
         }
+        invalidations.incrementAndGet();
+        entriesExamined.addAndGet(examined);
+        entriesRemoved.addAndGet(removed);
+        LOGGER.trace("Removed (from global cache) {} (of {} examined, {} indexed) query result entries of type {} (scope: {}) in {} ms",
+                removed, examined, index.size(), type, scope, System.currentTimeMillis() - start);
     }
 
     @Override
@@ -124,9 +186,18 @@ public class GlobalQueryCache extends AbstractGlobalCache {
 
     @Override
     public void clear() {
-        if (cache != null) {
-            cache.clear();
+        clearLock.writeLock().lock();
+        try {
+            if (cache != null) {
+                cache.clear();
+            }
+            index.clear();
+        } finally {
+            clearLock.writeLock().unlock();
         }
+        invalidations.set(0);
+        entriesExamined.set(0);
+        entriesRemoved.set(0);
     }
 
     public Collection<SingleCacheStateInformationType> getStateInformation() {
@@ -158,12 +229,26 @@ public class GlobalQueryCache extends AbstractGlobalCache {
                             .name(type.getSimpleName())
                             .size(pair.getLeft())
                             .secondarySize(pair.getRight()));
-            return Collections.singleton(info);
+            SingleCacheStateInformationType invalidationInfo = new SingleCacheStateInformationType(prismContext)
+                    .name(GlobalQueryCache.class.getName() + ".invalidation")
+                    .size(toInt(invalidations.get()))
+                    .secondarySize(index.size());
+            invalidationInfo.beginComponent()
+                    .name("examined")
+                    .size(toInt(entriesExamined.get()));
+            invalidationInfo.beginComponent()
+                    .name("removed")
+                    .size(toInt(entriesRemoved.get()));
+            return List.of(info, invalidationInfo);
         } else {
             return Collections.emptySet();
         }
     }
 
+    private static int toInt(long value) {
+        return (int) Math.min(value, Integer.MAX_VALUE);
+    }
+
     public void dumpContent() {
         if (cache != null && LOGGER_CONTENT.isInfoEnabled()) {
             cache.invokeAll(cache.keys(), e -> {
@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2020 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.repo.cache.global;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.lang3.mutable.MutableBoolean;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.path.ItemPath;
+import com.evolveum.midpoint.prism.query.*;
+import com.evolveum.midpoint.repo.cache.local.QueryKey;
+
+/**
+ * Secondary index for {@link GlobalQueryCache}. It allows the invalidator to examine only those cached queries
+ * that can be affected by a given change, instead of scanning the whole cache.
+ *
+ * Entries are indexed by:
+ *
+ * 1. query object type,
+ * 2. OIDs of objects in the cached result,
+ * 3. local names of top-level items referenced by the query filter.
+ *
+ * Queries that have no filter are always candidates for invalidation. Queries whose filter (or paging) cannot be
+ * safely characterized by a set of items are candidates for invalidation for any change except for "object only" ones.
+ *
+ * Index keys are cache values (compared by identity), not query keys. So a value replaced in the cache by a newer one
+ * for the same query can be removed from the index without interfering with the newer value.
+ */
+class GlobalQueryCacheIndex {
+
+    /** Registered values with their indexing information. */
+    @NotNull private final Map<GlobalCacheQueryValue<?>, IndexingInfo> registered = new ConcurrentHashMap<>();
+
+    /** Values by query type. */
+    @NotNull private final Map<Class<?>, TypeEntries> byType = new ConcurrentHashMap<>();
+
+    /** Values by OIDs of objects contained in the query result. */
+    @NotNull private final Map<String, Set<GlobalCacheQueryValue<?>>> byOid = new ConcurrentHashMap<>();
+
+    void add(@NotNull GlobalCacheQueryValue<?> value) {
+        IndexingInfo info = IndexingInfo.create(value);
+        registered.put(value, info);
+        byType.computeIfAbsent(value.getKey().getType(), k -> new TypeEntries())
+                .add(value, info);
+        for (String oid : info.oids) {
+            byOid.compute(oid, (k, set) -> {
+                Set<GlobalCacheQueryValue<?>> rv = set != null ? set : ConcurrentHashMap.newKeySet();
+                rv.add(value);
+                return rv;
+            });
+        }
+    }
+
+    void remove(@Nullable GlobalCacheQueryValue<?> value) {
+        if (value == null) {
+            return;
+        }
+        IndexingInfo info = registered.remove(value);
+        if (info == null) {
+            return;
+        }
+        TypeEntries typeEntries = byType.get(value.getKey().getType());
+        if (typeEntries != null) {
+            typeEntries.remove(value, info);
+        }
+        for (String oid : info.oids) {
+            byOid.computeIfPresent(oid, (k, set) -> {
+                set.remove(value);
+                return set.isEmpty() ? null : set;
+            });
+        }
+    }
+
+    void clear() {
+        registered.clear();
+        byType.clear();
+        byOid.clear();
+    }
+
+    int size() {
+        return registered.size();
+    }
+
+    /**
+     * Returns values that may be affected by a change of given object, according to the scope.
+     * The caller still has to evaluate each candidate precisely.
+     */
+    @NotNull Collection<GlobalCacheQueryValue<?>> getCandidates(
+            @NotNull Class<?> changedType, @Nullable String oid, @NotNull QueryInvalidationScope scope) {
+        Set<GlobalCacheQueryValue<?>> candidates = Collections.newSetFromMap(new IdentityHashMap<>());
+        boolean all = scope.isAll() || oid == null;
+        Set<String> itemNames = scope.getItemNames();
+        byType.forEach((queryType, entries) -> {
+            if (queryType.isAssignableFrom(changedType)) {
+                if (all) {
+                    candidates.addAll(entries.all);
+                } else {
+                    candidates.addAll(entries.unfiltered);
+                    if (!scope.isObjectOnly() && itemNames != null) {
+                        candidates.addAll(entries.unindexable);
+                        for (String itemName : itemNames) {
+                            Set<GlobalCacheQueryValue<?>> forItem = entries.byItemName.get(itemName);
+                            if (forItem != null) {
+                                candidates.addAll(forItem);
+                            }
+                        }
+                    }
+                }
+            }
+        });
+        if (!all) {
+            Set<GlobalCacheQueryValue<?>> containingObject = byOid.get(oid);
+            if (containingObject != null) {
+                for (GlobalCacheQueryValue<?> value : containingObject) {
+                    if (value.getKey().getType().isAssignableFrom(changedType)) {
+                        candidates.add(value);
+                    }
+                }
+            }
+        }
+        return candidates;
+    }
+
+    /** Values of a single query type. */
+    private static class TypeEntries {
+
+        @NotNull private final Set<GlobalCacheQueryValue<?>> all = ConcurrentHashMap.newKeySet();
+        @NotNull private final Set<GlobalCacheQueryValue<?>> unfiltered = ConcurrentHashMap.newKeySet();
+        @NotNull private final Set<GlobalCacheQueryValue<?>> unindexable = ConcurrentHashMap.newKeySet();
+        @NotNull private final Map<String, Set<GlobalCacheQueryValue<?>>> byItemName = new ConcurrentHashMap<>();
+
+        void add(GlobalCacheQueryValue<?> value, IndexingInfo info) {
+            all.add(value);
+            if (info.unfiltered) {
+                unfiltered.add(value);
+            } else if (info.itemNames == null) {
+                unindexable.add(value);
+            } else {
+                for (String itemName : info.itemNames) {
+                    byItemName.compute(itemName, (k, set) -> {
+                        Set<GlobalCacheQueryValue<?>> rv = set != null ? set : ConcurrentHashMap.newKeySet();
+                        rv.add(value);
+                        return rv;
+                    });
+                }
+            }
+        }
+
+        void remove(GlobalCacheQueryValue<?> value, IndexingInfo info) {
+            all.remove(value);
+            unfiltered.remove(value);
+            unindexable.remove(value);
+            if (info.itemNames != null) {
+                for (String itemName : info.itemNames) {
+                    byItemName.computeIfPresent(itemName, (k, set) -> {
+                        set.remove(value);
+                        return set.isEmpty() ? null : set;
+                    });
+                }
+            }
+        }
+    }
+
+    /** What we know about a cached query for the purpose of indexing. */
+    private static class IndexingInfo {
+
+        /** The query has no filter, so any change of an object of matching type can affect it. */
+        private final boolean unfiltered;
+
+        /** Local names of top-level items the filter depends on. Null if the query cannot be indexed this way. */
+        @Nullable private final Set<String> itemNames;
+
+        /** OIDs of objects in the query result. */
+        @NotNull private final Set<String> oids;
+
+        private IndexingInfo(boolean unfiltered, @Nullable Set<String> itemNames, @NotNull Set<String> oids) {
+            this.unfiltered = unfiltered;
+            this.itemNames = itemNames;
+            this.oids = oids;
+        }
+
+        static IndexingInfo create(GlobalCacheQueryValue<?> value) {
+            Set<String> oids = new HashSet<>();
+            for (Object o : value.getResult()) {
+                if (o instanceof PrismObject<?> && ((PrismObject<?>) o).getOid() != null) {
+                    oids.add(((PrismObject<?>) o).getOid());
+                }
+            }
+            QueryKey<?> key = value.getKey();
+            ObjectQuery query = key.getQuery();
+            ObjectFilter filter = query != null ? query.getFilter() : null;
+            if (filter == null) {
+                return new IndexingInfo(true, null, oids);
+            } else if (query.getPaging() != null) {
+                // With paging, an object may match the filter but still not be in the result.
+                return new IndexingInfo(false, null, oids);
+            } else {
+                return new IndexingInfo(false, getFilteredItemNames(filter), oids);
+            }
+        }
+
+        /**
+         * Returns names of top-level items the filter depends on; or null if the filter contains anything else
+         * than simple value filters combined by logical operators.
+         */
+        private static @Nullable Set<String> getFilteredItemNames(@NotNull ObjectFilter filter) {
+            Set<String> names = new HashSet<>();
+            MutableBoolean indexable = new MutableBoolean(true);
+            filter.accept(f -> {
+                if (f instanceof ValueFilter<?, ?> valueFilter) {
+                    if (valueFilter.getExpression() != null
+                            || !addFirstName(names, valueFilter.getFullPath())
+                            || valueFilter.getRightHandSidePath() != null
+                            && !addFirstName(names, valueFilter.getRightHandSidePath())) {
+                        indexable.setFalse();
+                    }
+                } else if (!(f instanceof LogicalFilter) && !(f instanceof AllFilter) && !(f instanceof NoneFilter)) {
+                    indexable.setFalse();
+                }
+            });
+            return indexable.booleanValue() ? names : null;
+        }
+
+        private static boolean addFirstName(Set<String> names, ItemPath path) {
+            if (path == null || path.isEmpty() || !path.startsWithName()) {
+                return false;
+            } else {
+                names.add(path.firstName().getLocalPart());
+                return true;
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2020 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.repo.cache.global;
+
+import java.util.Collections;
+import java.util.Set;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Describes which cached queries (of matching type) can be affected by a change of a single object.
+ * Used to select candidate entries from {@link GlobalQueryCacheIndex} instead of scanning the whole cache.
+ *
+ * Queries without a filter and queries whose result contains the changed object are always candidates.
+ * Beyond that:
+ *
+ * - {@link #all()} means that any query can be affected (e.g. object was added, or we know nothing about the change),
+ * - {@link #objectOnly()} means that no other query can be affected (e.g. object was deleted),
+ * - {@link #items(Set)} means that only queries filtering on the given top-level items (or queries with filters
+ * or paging that cannot be indexed by items) can be affected.
+ */
+public class QueryInvalidationScope {
+
+    private static final QueryInvalidationScope ALL = new QueryInvalidationScope(false, null);
+    private static final QueryInvalidationScope OBJECT_ONLY = new QueryInvalidationScope(true, Collections.emptySet());
+
+    private final boolean objectOnly;
+
+    /** Local names of top-level items that were changed. Null means "any item". */
+    @Nullable private final Set<String> itemNames;
+
+    private QueryInvalidationScope(boolean objectOnly, @Nullable Set<String> itemNames) {
+        this.objectOnly = objectOnly;
+        this.itemNames = itemNames;
+    }
+
+    public static QueryInvalidationScope all() {
+        return ALL;
+    }
+
+    public static QueryInvalidationScope objectOnly() {
+        return OBJECT_ONLY;
+    }
+
+    public static QueryInvalidationScope items(@NotNull Set<String> itemNames) {
+        return new QueryInvalidationScope(false, itemNames);
+    }
+
+    public boolean isAll() {
+        return !objectOnly && itemNames == null;
+    }
+
+    public boolean isObjectOnly() {
+        return objectOnly;
+    }
+
+    public @Nullable Set<String> getItemNames() {
+        return itemNames;
+    }
+
+    @Override
+    public String toString() {
+        if (objectOnly) {
+            return "objectOnly";
+        } else if (itemNames == null) {
+            return "all";
+        } else {
+            return "items" + itemNames;
+        }
+    }
+}
@@ -28,6 +28,7 @@ import com.evolveum.midpoint.repo.cache.local.QueryKey;
 import com.evolveum.midpoint.repo.cache.other.MonitoringUtil;
 import com.evolveum.midpoint.schema.*;
 import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.schema.result.OperationResultBuilder;
 import com.evolveum.midpoint.util.exception.SchemaException;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.*;
 
@@ -62,10 +63,10 @@ public class SearchOpHandler extends CachedOpHandler {
     public <T extends ObjectType> SearchResultList<PrismObject<T>> searchObjects(Class<T> type, ObjectQuery query,
             Collection<SelectorOptions<GetOperationOptions>> options, OperationResult parentResult) throws SchemaException {
 
-        SearchOpExecution<T> exec = initializeExecution(type, query, options, parentResult, SEARCH_OBJECTS);
+        QueryKey<T> key = new QueryKey<>(type, query);
+        SearchOpExecution<T> exec = initializeExecution(type, query, key, options, parentResult, SEARCH_OBJECTS);
 
         try {
-            QueryKey<T> key = new QueryKey<>(type, query);
 
             // Checks related to both caches
             PassReason passReason = PassReason.determine(options, type);
@@ -130,7 +131,7 @@ public class SearchOpHandler extends CachedOpHandler {
             ResultHandler<T> handler, Collection<SelectorOptions<GetOperationOptions>> options,
             boolean strictlySequential, OperationResult parentResult) throws SchemaException {
 
-        SearchOpExecution<T> exec = initializeExecution(type, query, options, parentResult, SEARCH_OBJECTS_ITERATIVE);
+        SearchOpExecution<T> exec = initializeExecution(type, query, null, options, parentResult, SEARCH_OBJECTS_ITERATIVE);
         ReportingResultHandler<T> reportingHandler = new ReportingResultHandler<>(handler, exec);
 
         try {
@@ -188,13 +189,23 @@ public class SearchOpHandler extends CachedOpHandler {
         }
     }
 
+    /**
+     * If the key is provided, its (private and never modified) copy of the query is recorded in the result lazily,
+     * avoiding the cost of converting the query to string for each search.
+     */
     private <T extends ObjectType> SearchOpExecution<T> initializeExecution(Class<T> type, ObjectQuery query,
-            Collection<SelectorOptions<GetOperationOptions>> options, OperationResult parentResult, String opName)
+            @Nullable QueryKey<T> key, Collection<SelectorOptions<GetOperationOptions>> options,
+            OperationResult parentResult, String opName)
             throws SchemaException {
-        OperationResult result = parentResult.subresult(CLASS_NAME_WITH_DOT + opName)
+        OperationResultBuilder builder = parentResult.subresult(CLASS_NAME_WITH_DOT + opName)
                 .addQualifier(type.getSimpleName())
-                .addParam("type", type)
-                .addParam("query", query)
+                .addParam("type", type);
+        if (key != null) {
+            builder.addLazyParam("query", key.getQuery());
+        } else {
+            builder.addParam("query", query);
+        }
+        OperationResult result = builder
                 .addArbitraryObjectCollectionAsParam("options", options)
                 .build();
 
@@ -7,16 +7,22 @@
 
 package com.evolveum.midpoint.repo.cache.invalidation;
 
+import java.util.HashSet;
+import java.util.Set;
+
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import com.evolveum.midpoint.CacheInvalidationContext;
 import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.delta.ItemDelta;
 import com.evolveum.midpoint.prism.match.MatchingRuleRegistry;
+import com.evolveum.midpoint.prism.path.ItemPath;
 import com.evolveum.midpoint.prism.query.ObjectFilter;
 import com.evolveum.midpoint.prism.query.ObjectQuery;
 import com.evolveum.midpoint.repo.api.DeleteObjectResult;
 import com.evolveum.midpoint.repo.api.ModifyObjectResult;
+import com.evolveum.midpoint.repo.cache.global.QueryInvalidationScope;
 import com.evolveum.midpoint.repo.cache.handlers.AddObjectResult;
 import com.evolveum.midpoint.repo.cache.local.QueryKey;
 import com.evolveum.midpoint.schema.SearchResultList;
@@ -98,6 +104,27 @@ public abstract class ChangeDescription {
             }
         }
 
+        /**
+         * A query not containing the object can start matching it only if some of the items it filters on were changed.
+         * (Assuming the query is not paged, and its filter consists of simple value filters only; this is checked
+         * by the index.)
+         */
+        @Override
+        public @NotNull QueryInvalidationScope getInvalidationScope() {
+            if (modifyInfo.getObjectAfter() == null || modifyInfo.isOverwrite() || modifyInfo.getModifications() == null) {
+                return QueryInvalidationScope.all();
+            }
+            Set<String> itemNames = new HashSet<>();
+            for (ItemDelta<?, ?> modification : modifyInfo.getModifications()) {
+                ItemPath path = modification.getPath();
+                if (path.isEmpty() || !path.startsWithName()) {
+                    return QueryInvalidationScope.all();
+                }
+                itemNames.add(path.firstName().getLocalPart());
+            }
+            return QueryInvalidationScope.items(itemNames);
+        }
+
         @Override
         public String toString() {
             return "Modify{" +
@@ -122,6 +149,11 @@ public abstract class ChangeDescription {
             return false;
         }
 
+        @Override
+        public @NotNull QueryInvalidationScope getInvalidationScope() {
+            return QueryInvalidationScope.objectOnly();
+        }
+
         @Override
         public String toString() {
             return "Delete{" +
@@ -145,6 +177,11 @@ public abstract class ChangeDescription {
             return safeInvalidation;
         }
 
+        @Override
+        public @NotNull QueryInvalidationScope getInvalidationScope() {
+            return safeInvalidation ? QueryInvalidationScope.all() : QueryInvalidationScope.objectOnly();
+        }
+
         @Override
         public String toString() {
             return "Any{" +
@@ -241,6 +278,15 @@ public abstract class ChangeDescription {
     public abstract boolean mayMatchAfterChange(@NotNull ObjectFilter filter, SearchResultList list, MatchingRuleRegistry matchingRuleRegistry)
             throws SchemaException;
 
+    /**
+     * Returns the scope of queries (beyond unfiltered ones and ones containing the object) that may be affected
+     * by this change. It must be consistent with {@link #mayAffect(QueryKey, SearchResultList, MatchingRuleRegistry)}.
+     * It is used to select entries of the global query cache to be examined.
+     */
+    public @NotNull QueryInvalidationScope getInvalidationScope() {
+        return QueryInvalidationScope.all();
+    }
+
     @Nullable
     private ObjectFilter getFilter(QueryKey queryKey) {
         ObjectQuery query = queryKey.getQuery();
@@ -12,7 +12,6 @@ import static com.evolveum.midpoint.repo.cache.local.LocalRepoCacheCollection.*;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
 
 import org.jetbrains.annotations.NotNull;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -147,30 +146,21 @@ public class Invalidator {
     }
 
     private <T extends ObjectType> void clearQueryResultsGlobally(Class<T> type, String oid, CacheInvalidationContext context) {
-        // TODO implement more efficiently
-
         // Safe invalidation means we evict queries without looking at details of the change.
         boolean safeIfUnknown =
                 context != null && !context.isFromRemoteNode()
                         || globalQueryCache.shouldDoSafeRemoteInvalidationFor(type);
         ChangeDescription change = ChangeDescription.getFrom(type, oid, context, safeIfUnknown);
 
-        long start = System.currentTimeMillis();
-        AtomicInteger all = new AtomicInteger(0);
-        AtomicInteger removed = new AtomicInteger(0);
-
-        globalQueryCache.deleteMatching(entry -> {
+        globalQueryCache.deleteMatching(type, oid, change.getInvalidationScope(), entry -> {
             QueryKey queryKey = entry.getKey();
-            all.incrementAndGet();
             if (change.mayAffect(queryKey, entry.getValue().getResult(), matchingRuleRegistry)) {
                 LOGGER.trace("Removing (from global cache) query for type={}, change={}: {}", type, change, queryKey.getQuery());
-                removed.incrementAndGet();
                 return true;
             } else {
                 return false;
             }
         });
-        LOGGER.trace("Removed (from global cache) {} (of {}) query result entries of type {} in {} ms", removed, all, type, System.currentTimeMillis() - start);
     }
 
     public void registerInvalidationEventsListener(InvalidationEventListener listener) {
@@ -33,6 +33,7 @@ import org.testng.annotations.Test;
 import com.evolveum.midpoint.prism.PrismContext;
 import com.evolveum.midpoint.prism.PrismObject;
 import com.evolveum.midpoint.prism.delta.ItemDelta;
+import com.evolveum.midpoint.prism.path.ItemName;
 import com.evolveum.midpoint.prism.query.ObjectQuery;
 import com.evolveum.midpoint.prism.util.PrismTestUtil;
 import com.evolveum.midpoint.repo.api.RepositoryService;
@@ -53,6 +54,7 @@ import com.evolveum.midpoint.test.util.AbstractSpringTest;
 import com.evolveum.midpoint.test.util.InfraTestMixin;
 import com.evolveum.midpoint.util.PrettyPrinter;
 import com.evolveum.midpoint.util.caching.CachePerformanceCollector;
+import com.evolveum.midpoint.util.exception.CommonException;
 import com.evolveum.midpoint.util.exception.ObjectAlreadyExistsException;
 import com.evolveum.midpoint.util.exception.ObjectNotFoundException;
 import com.evolveum.midpoint.util.exception.SchemaException;
@@ -307,6 +309,77 @@ public class TestRepositoryCache extends AbstractSpringTest implements InfraTest
         assertThat(data.overSizedQueries.get()).as("over-sized counter").isEqualTo(2); // search + searchIterative
     }
 
+    /** Checks that only the entries selected by the index are invalidated. */
+    @Test
+    public void test340TargetedQueryInvalidation() throws CommonException {
+        given("three archetypes and two cached queries");
+        OperationResult result = createOperationResult();
+        deleteExistingObjects(ArchetypeType.class, result);
+        clearCaches();
+        List<PrismObject<ArchetypeType>> archetypes = new ArrayList<>(generateObjects(ArchetypeType.class, 3, result));
+        archetypes.sort(Comparator.comparing(o -> o.getName().getOrig()));
+        String oid0 = archetypes.get(0).getOid();
+        String oid1 = archetypes.get(1).getOid();
+
+        ObjectQuery byName = prismContext.queryFor(ArchetypeType.class)
+                .item(ObjectType.F_NAME).eqPoly("T:1")
+                .build();
+        ObjectQuery byDescription = prismContext.queryFor(ArchetypeType.class)
+                .item(ObjectType.F_DESCRIPTION).eq("nonexistent")
+                .build();
+        assertThat(repositoryCache.searchObjects(ArchetypeType.class, byName, null, result)).hasSize(1);
+        assertThat(repositoryCache.searchObjects(ArchetypeType.class, byDescription, null, result)).isEmpty();
+        assertQueryIsCached(ArchetypeType.class, byName);
+        assertQueryIsCached(ArchetypeType.class, byDescription);
+        assertIndexConsistent();
+
+        when("an item not used by any filter is changed on an object not in any result");
+        modifyArchetype(oid0, ObjectType.F_DOCUMENTATION, "doc", result);
+
+        then("both queries stay cached");
+        assertQueryIsCached(ArchetypeType.class, byName);
+        assertQueryIsCached(ArchetypeType.class, byDescription);
+
+        when("an item used by a filter is changed");
+        modifyArchetype(oid0, ObjectType.F_DESCRIPTION, "changed", result);
+
+        then("only the query filtering on that item is invalidated");
+        assertQueryIsCached(ArchetypeType.class, byName);
+        assertQueryIsNotCached(ArchetypeType.class, byDescription);
+
+        when("an object contained in a result is changed");
+        modifyArchetype(oid1, ObjectType.F_DOCUMENTATION, "doc", result);
+
+        then("the query containing it is invalidated");
+        assertQueryIsNotCached(ArchetypeType.class, byName);
+        assertIndexConsistent();
+
+        and("clearing the cache clears the index as well");
+        repositoryCache.searchObjects(ArchetypeType.class, byName, null, result);
+        globalQueryCache.clear();
+        assertIndexConsistent();
+    }
+
+    private void modifyArchetype(String oid, ItemName item, String value, OperationResult result)
+            throws CommonException {
+        repositoryCache.modifyObject(ArchetypeType.class, oid,
+                prismContext.deltaFor(ArchetypeType.class)
+                        .item(item).replace(value)
+                        .asItemDeltas(),
+                result);
+    }
+
+    /** The number of indexed entries must be the same as the number of cached queries. */
+    private void assertIndexConsistent() {
+        int cached = globalQueryCache.size();
+        int indexed = globalQueryCache.getStateInformation().stream()
+                .filter(info -> info.getName().endsWith(".invalidation"))
+                .findFirst()
+                .map(info -> info.getSecondarySize())
+                .orElse(0);
+        assertThat(indexed).as("indexed query cache entries").isEqualTo(cached);
+    }
+
     // Must be executed last, because naive deletion such large number of archetypes fails on OOM
     @Test
     public void test900HeapUsage() throws Exception {
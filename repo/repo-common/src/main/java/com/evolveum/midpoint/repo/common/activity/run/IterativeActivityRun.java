@@ -10,8 +10,13 @@ package com.evolveum.midpoint.repo.common.activity.run;
 import static com.evolveum.midpoint.schema.result.OperationResultStatus.FATAL_ERROR;
 import static com.evolveum.midpoint.schema.result.OperationResultStatus.PARTIAL_ERROR;
 import static com.evolveum.midpoint.schema.util.task.ActivityItemProcessingStatisticsUtil.*;
+import static com.evolveum.midpoint.schema.util.task.work.BucketingConstants.GET_WORK_BUCKET_FOUND_LEASED;
 import static com.evolveum.midpoint.task.api.TaskRunResult.TaskRunResultStatus.PERMANENT_ERROR;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
 import java.util.Objects;
 
 import com.evolveum.midpoint.prism.xml.XmlTypeConverter;
@@ -35,6 +40,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import com.evolveum.midpoint.repo.common.activity.definition.ActivityDistributionDefinition;
 import com.evolveum.midpoint.repo.common.activity.definition.WorkDefinition;
 import com.evolveum.midpoint.repo.common.activity.handlers.ActivityHandler;
 import com.evolveum.midpoint.repo.common.activity.run.state.ActivityBucketManagementStatistics;
@@ -117,6 +123,25 @@ public abstract class IterativeActivityRun<
      */
     private BucketingSituation bucketingSituation;
 
+    /**
+     * Buckets that were delegated to this worker (in addition to the current one) by the last "get bucket" operation.
+     * They are processed without contacting the coordinator task. See `bucketLeaseBatch`.
+     */
+    @NotNull private final Deque<WorkBucketType> leasedBuckets = new ArrayDeque<>();
+
+    /**
+     * Sequential numbers of buckets that were processed, but not yet marked as complete in the coordinator task.
+     * See `bucketCompletionBatch`.
+     */
+    @NotNull private final List<Integer> completedBucketsToReport = new ArrayList<>();
+
+    /**
+     * Records for the buckets report, for buckets in {@link #completedBucketsToReport}. They are written only after
+     * the buckets are marked as complete, together with the progress commit; so the report never shows a bucket
+     * as completed when the progress does not count it (yet).
+     */
+    @NotNull private final List<BucketProcessingRecordType> completedBucketRecordsToReport = new ArrayList<>();
+
     /**
      * Schedules individual items for processing by worker threads (if running in multiple threads).
      * Re-created for each individual bucket.
@@ -255,11 +280,16 @@ public abstract class IterativeActivityRun<
                     // or an unhandled exception occurred.
                     //
                     // This most probably means that the task is going to be suspended. So let us release the buckets
-                    // to allow their processing by other workers.
+                    // to allow their processing by other workers. (But the buckets that were already processed
+                    // should be marked as complete first.)
+                    reportCompletedBucketsOnStop(result);
                     releaseAllBucketsWhenWorker(result);
+                    leasedBuckets.clear();
                 }
             }
         }
+
+        reportCompletedBuckets(result);
     }
 
     /**
@@ -314,6 +344,16 @@ public abstract class IterativeActivityRun<
     private WorkBucketType getWorkBucket(boolean initialRun, OperationResult result)
             throws ActivityRunException {
 
+        WorkBucketType leasedBucket = leasedBuckets.poll();
+        if (leasedBucket != null) {
+            LOGGER.trace("Using leased bucket: {}", leasedBucket);
+            getLiveBucketManagementStatistics().register(GET_WORK_BUCKET_FOUND_LEASED, 0, 0, 0, 0, 0, 0);
+            return leasedBucket;
+        }
+
+        // The coordinator must know about buckets we have completed; otherwise it could offer them to us again.
+        reportCompletedBuckets(result);
+
         RunningTask task = taskRun.getRunningTask();
 
         Holder<BucketProgressOverviewType> bucketProgressHolder = new Holder<>();
@@ -328,6 +368,7 @@ public abstract class IterativeActivityRun<
                     .withImplicitSegmentationResolver(this)
                     .withIsScavenger(isScavenger(task))
                     .withBucketProgressConsumer(bucketProgressHolder)
+                    .withLeasedBucketsConsumer(leasedBuckets::addAll)
                     .build();
             bucket = beans.bucketingManager.getWorkBucket(bucketingSituation.coordinatorTaskOid,
                     bucketingSituation.workerTaskOid, activity.getPath(), options, getLiveBucketManagementStatistics(), result);
@@ -368,13 +409,61 @@ public abstract class IterativeActivityRun<
         }
     }
 
-    private void completeWorkBucketAndUpdateStatistics(OperationResult result) throws ActivityRunException {
+    /**
+     * Marks the current bucket as complete - either immediately, or (when batch completion is used) later,
+     * along with other buckets. The progress is committed and the bucket is written to the buckets report
+     * at the same time.
+     */
+    private void completeWorkBucketAndUpdateStatistics(
+            @Nullable BucketProcessingRecordType reportRecord, OperationResult result) throws ActivityRunException {
+        completedBucketsToReport.add(bucket.getSequentialNumber());
+        if (reportRecord != null) {
+            completedBucketRecordsToReport.add(reportRecord);
+        }
+        if (completedBucketsToReport.size() >= getBucketCompletionBatch() || leasedBuckets.isEmpty()) {
+            reportCompletedBuckets(result);
+        } else {
+            LOGGER.trace("Postponing the completion of bucket(s) {}", completedBucketsToReport);
+        }
+    }
+
+    private int getBucketCompletionBatch() {
+        if (bucketingSituation.workerTaskOid == null || getActivityDefinition().shouldCreateSimulationResult()) {
+            return 1;
+        }
+        ActivityDistributionDefinition distribution = activity.getDefinition().getDistributionDefinition();
+        BucketsDefinitionType buckets = distribution != null ? distribution.getBuckets() : null;
+        WorkAllocationDefinitionType allocation = buckets != null ? buckets.getAllocation() : null;
+        return allocation != null && allocation.getBucketCompletionBatch() != null ?
+                allocation.getBucketCompletionBatch() : 1;
+    }
+
+    private void reportCompletedBucketsOnStop(OperationResult result) {
+        try {
+            reportCompletedBuckets(result);
+        } catch (Exception e) {
+            LoggingUtils.logUnexpectedException(LOGGER, "Couldn't mark buckets {} as complete in {}; they will be processed again",
+                    e, completedBucketsToReport, this);
+            completedBucketsToReport.clear();
+            completedBucketRecordsToReport.clear();
+        }
+    }
+
+    /**
+     * Marks all processed buckets as complete in the coordinator task. Then commits the progress and statistics,
+     * and writes the buckets to the buckets report.
+     */
+    private void reportCompletedBuckets(OperationResult result) throws ActivityRunException {
+        if (completedBucketsToReport.isEmpty()) {
+            return;
+        }
         try {
 
             Holder<BucketProgressOverviewType> bucketProgressHolder = new Holder<>();
-            beans.bucketingManager.completeWorkBucket(bucketingSituation.coordinatorTaskOid, bucketingSituation.workerTaskOid,
-                    getActivityPath(), bucket.getSequentialNumber(), getLiveBucketManagementStatistics(),
+            beans.bucketingManager.completeWorkBuckets(bucketingSituation.coordinatorTaskOid, bucketingSituation.workerTaskOid,
+                    getActivityPath(), List.copyOf(completedBucketsToReport), getLiveBucketManagementStatistics(),
                     bucketProgressHolder, result);
+            completedBucketsToReport.clear();
 
             activityState.getLiveProgress().onCommitPoint();
             activityState.updateProgressAndStatisticsNoCommit();
@@ -390,6 +479,11 @@ public abstract class IterativeActivityRun<
         } catch (CommonException e) {
             throw new ActivityRunException("Couldn't complete work bucket", FATAL_ERROR, PERMANENT_ERROR, e);
         }
+
+        for (BucketProcessingRecordType reportRecord : completedBucketRecordsToReport) {
+            activityState.getBucketsReport().recordBucketCompleted(reportRecord, getRunningTask(), result);
+        }
+        completedBucketRecordsToReport.clear();
     }
 
     private ActivityBucketManagementStatistics getLiveBucketManagementStatistics() {
@@ -418,7 +512,7 @@ public abstract class IterativeActivityRun<
     private boolean skipSingleBucket(OperationResult result) throws ActivityRunException {
         LOGGER.debug("Skipping bucket {} because bucket processing condition evaluated to false", bucket);
         // Actually we could go without committing progress, but it does no harm, so we keep it here.
-        completeWorkBucketAndUpdateStatistics(result);
+        completeWorkBucketAndUpdateStatistics(null, result);
         return true;
     }
 
@@ -430,10 +524,8 @@ public abstract class IterativeActivityRun<
             LOGGER.warn("Couldn't determine bucket size while analyzing bucket {}", bucket);
         }
 
-        reportBucketAnalyzed(bucketSize, result);
-
         // Actually we could go without committing progress, but it does no harm, so we keep it here.
-        completeWorkBucketAndUpdateStatistics(result);
+        completeWorkBucketAndUpdateStatistics(createBucketAnalysisReportRecord(bucketSize), result);
 
         return true;
     }
@@ -474,10 +566,9 @@ public abstract class IterativeActivityRun<
         if (complete) {
             record.end(getLiveItemProcessing());
 
-            completeWorkBucketAndUpdateStatistics(result);
-
-            // We want to report bucket as completed only after it's really marked as completed.
-            reportBucketCompleted(record, result);
+            // The bucket is written to the buckets report only after it's really marked as completed,
+            // i.e. possibly later, if batch completion is used.
+            completeWorkBucketAndUpdateStatistics(createBucketReportRecord(record), result);
 
             // We close the simulation result part only when the bucket is really completed. This means that when
             // a simulation task is suspended, the information from the currently processed bucket(s) is not available.
@@ -799,32 +890,30 @@ public abstract class IterativeActivityRun<
         return activityState.getConnIdOperationsReport();
     }
 
-    private void reportBucketCompleted(BucketProcessingRecord processingRecord, OperationResult result) {
-        if (shouldReportBuckets()) {
-            activityState.getBucketsReport().recordBucketCompleted(
-                    new BucketProcessingRecordType()
-                            .sequentialNumber(bucket.getSequentialNumber())
-                            .content(bucket.getContent())
-                            .size(processingRecord.getTotalSize())
-                            .itemsSuccessfullyProcessed(processingRecord.success)
-                            .itemsFailed(processingRecord.failure)
-                            .itemsSkipped(processingRecord.skip)
-                            .startTimestamp(XmlTypeConverter.createXMLGregorianCalendar(processingRecord.startTimestamp))
-                            .endTimestamp(XmlTypeConverter.createXMLGregorianCalendar(processingRecord.endTimestamp))
-                            .duration(processingRecord.getDuration()),
-                    getRunningTask(), result);
-        }
-    }
-
-    private void reportBucketAnalyzed(Integer size, OperationResult result) {
-        if (shouldReportBuckets()) {
-            activityState.getBucketsReport().recordBucketCompleted(
-                    new BucketProcessingRecordType()
-                            .sequentialNumber(bucket.getSequentialNumber())
-                            .content(bucket.getContent())
-                            .size(size),
-                    getRunningTask(), result);
+    private @Nullable BucketProcessingRecordType createBucketReportRecord(BucketProcessingRecord processingRecord) {
+        if (!shouldReportBuckets()) {
+            return null;
+        }
+        return new BucketProcessingRecordType()
+                .sequentialNumber(bucket.getSequentialNumber())
+                .content(bucket.getContent())
+                .size(processingRecord.getTotalSize())
+                .itemsSuccessfullyProcessed(processingRecord.success)
+                .itemsFailed(processingRecord.failure)
+                .itemsSkipped(processingRecord.skip)
+                .startTimestamp(XmlTypeConverter.createXMLGregorianCalendar(processingRecord.startTimestamp))
+                .endTimestamp(XmlTypeConverter.createXMLGregorianCalendar(processingRecord.endTimestamp))
+                .duration(processingRecord.getDuration());
+    }
+
+    private @Nullable BucketProcessingRecordType createBucketAnalysisReportRecord(Integer size) {
+        if (!shouldReportBuckets()) {
+            return null;
         }
+        return new BucketProcessingRecordType()
+                .sequentialNumber(bucket.getSequentialNumber())
+                .content(bucket.getContent())
+                .size(size);
     }
 
     private boolean shouldReportBuckets() {
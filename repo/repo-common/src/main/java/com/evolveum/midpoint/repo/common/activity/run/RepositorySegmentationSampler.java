@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.repo.common.activity.run;
+
+import static com.evolveum.midpoint.util.MiscUtil.stateCheck;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.evolveum.midpoint.prism.PrismConstants;
+import com.evolveum.midpoint.prism.PrismContext;
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.prism.query.ObjectFilter;
+import com.evolveum.midpoint.prism.query.ObjectQuery;
+import com.evolveum.midpoint.prism.query.OrderDirection;
+import com.evolveum.midpoint.prism.query.QueryFactory;
+import com.evolveum.midpoint.repo.common.activity.run.buckets.segmentation.SegmentationSampler;
+import com.evolveum.midpoint.schema.GetOperationOptions;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.schema.util.ObjectQueryUtil;
+import com.evolveum.midpoint.util.exception.CommonException;
+import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.midpoint.util.exception.SystemException;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectType;
+
+/**
+ * Samples the objects to be processed by a search-based activity directly in the repository.
+ *
+ * Uses the search specification of the activity, without narrowing by bucket or by failed objects selection.
+ * It is created on first use, and the number of objects and the boundaries are determined only once; so the sampler
+ * should be used during a single activity run only. (The boundaries are usually determined by a single worker,
+ * see {@link com.evolveum.midpoint.repo.common.activity.run.buckets.segmentation.AdaptiveBucketContentFactory}.)
+ */
+class RepositorySegmentationSampler implements SegmentationSampler {
+
+    private static final Trace LOGGER = TraceManager.getTrace(RepositorySegmentationSampler.class);
+
+    @NotNull private final SearchBasedActivityRun<?, ?, ?, ?> activityRun;
+
+    private Class<? extends ObjectType> type;
+    private ObjectFilter filter;
+    private Integer count;
+
+    private List<String> boundaries;
+    private int boundariesBucketSize;
+
+    RepositorySegmentationSampler(@NotNull SearchBasedActivityRun<?, ?, ?, ?> activityRun) {
+        this.activityRun = activityRun;
+    }
+
+    @Override
+    public synchronized int countObjects(OperationResult result) throws SchemaException {
+        initialize(result);
+        if (count == null) {
+            count = activityRun.getBeans().repositoryService.countObjects(
+                    type, queryFactory().createQuery(cloneFilter()), null, result);
+        }
+        return count;
+    }
+
+    /**
+     * Probes the objects in the order of OIDs, looking for every `bucketSize`-th OID. It's done only once per bucket size;
+     * and the boundaries are then shared by the workers via the coordinator task.
+     */
+    @Override
+    public synchronized @NotNull List<String> getBoundaries(int bucketSize, OperationResult result) throws SchemaException {
+        initialize(result);
+        if (boundaries == null || boundariesBucketSize != bucketSize) {
+            boundaries = collectBoundaries(type, bucketSize, result);
+            boundariesBucketSize = bucketSize;
+            LOGGER.debug("Collected {} bucket boundaries for bucket size of {}", boundaries.size(), bucketSize);
+        }
+        return boundaries;
+    }
+
+    /**
+     * Each probe starts after the previous boundary (keyset condition on the OID), skips the objects up to the next
+     * boundary (offset), and returns the single object found there. So the database skips the objects using
+     * the OID index, and only the boundary objects are fetched, instead of all the objects.
+     */
+    private <T extends ObjectType> List<String> collectBoundaries(Class<T> type, int bucketSize, OperationResult result)
+            throws SchemaException {
+        List<String> collected = new ArrayList<>();
+        String previous = null;
+        for (;;) {
+            // The first boundary is at the position of bucketSize, the previous boundary is at -1 for the others.
+            String next = probe(type, previous, previous == null ? bucketSize : bucketSize - 1, result);
+            if (next == null) {
+                return List.copyOf(collected);
+            }
+            collected.add(next);
+            previous = next;
+        }
+    }
+
+    /** Returns OID of the object at position `offset` among the objects with OID greater than `after` (if not null). */
+    private <T extends ObjectType> String probe(Class<T> type, String after, int offset, OperationResult result)
+            throws SchemaException {
+        ObjectFilter filter = cloneFilter();
+        if (after != null) {
+            filter = ObjectQueryUtil.filterAnd(
+                    filter,
+                    PrismContext.get().queryFor(type)
+                            .item(PrismConstants.T_ID).gt(after)
+                            .buildFilter());
+        }
+        ObjectQuery query = queryFactory().createQuery(filter);
+        query.setPaging(queryFactory().createPaging(offset, 1, PrismConstants.T_ID, OrderDirection.ASCENDING));
+        List<PrismObject<T>> found = activityRun.getBeans().repositoryService.searchObjects(
+                type, query, GetOperationOptions.createReadOnlyCollection(), result);
+        return found.isEmpty() ? null : found.get(0).getOid();
+    }
+
+    private void initialize(OperationResult result) {
+        if (type != null) {
+            return;
+        }
+        try {
+            stateCheck(activityRun.isInRepository(result),
+                    "Adaptive segmentation is available only for objects in the repository");
+            SearchSpecification<?> searchSpecification = activityRun.createSamplingSearchSpecification(result);
+            stateCheck(ObjectType.class.isAssignableFrom(searchSpecification.getType()),
+                    "Adaptive segmentation is available only for objects, not for %s", searchSpecification.getType());
+            ObjectQuery query = searchSpecification.getQuery();
+            //noinspection unchecked
+            type = (Class<? extends ObjectType>) searchSpecification.getType();
+            filter = query != null ? query.getFilter() : null;
+        } catch (CommonException | ActivityRunException e) {
+            throw new SystemException("Couldn't determine objects to be divided into buckets: " + e.getMessage(), e);
+        }
+    }
+
+    /** The filter is shared by the queries, so each of them gets its own copy. */
+    private ObjectFilter cloneFilter() {
+        return filter != null ? filter.clone() : null;
+    }
+
+    private QueryFactory queryFactory() {
+        return PrismContext.get().queryFactory();
+    }
+}
@@ -14,6 +14,7 @@ import com.evolveum.midpoint.repo.common.activity.definition.ObjectSetSpecificat
 import com.evolveum.midpoint.repo.common.activity.definition.RepositoryObjectSetSpecificationImpl;
 import com.evolveum.midpoint.repo.common.activity.definition.ResourceObjectSetSpecificationImpl;
 import com.evolveum.midpoint.repo.common.activity.definition.WorkDefinition;
+import com.evolveum.midpoint.repo.common.activity.run.buckets.segmentation.SegmentationSampler;
 import com.evolveum.midpoint.repo.common.activity.run.processing.ContainerableProcessingRequest;
 import com.evolveum.midpoint.repo.common.activity.run.processing.ItemPreprocessor;
 import com.evolveum.midpoint.repo.common.activity.run.processing.ItemProcessingRequest;
@@ -121,6 +122,9 @@ public abstract class SearchBasedActivityRun<
      */
     @NotNull private final AtomicInteger sequentialNumberCounter = new AtomicInteger(0);
 
+    /** Used for adaptive segmentation. Created lazily. */
+    private RepositorySegmentationSampler segmentationSampler;
+
     public SearchBasedActivityRun(@NotNull ActivityRunInstantiationContext<WD, AH> context,
             @NotNull String shortNameCapitalized) {
         super(context, shortNameCapitalized);
@@ -363,6 +367,32 @@ public abstract class SearchBasedActivityRun<
                 !ShadowType.class.equals(simpleSearchSpecification.getType());
     }
 
+    /**
+     * Creates the search specification to be used for sampling the objects when creating buckets.
+     * It is not narrowed by bucket nor by selection of failed objects, because it describes the whole work.
+     */
+    @NotNull SearchSpecification<C> createSamplingSearchSpecification(OperationResult result)
+            throws CommonException, ActivityRunException {
+        SearchSpecification<C> samplingSpecification = createCustomizedSearchSpecification(result);
+        ObjectQuery query = samplingSpecification.getQuery();
+        if (query != null && ExpressionUtil.hasExpressions(query.getFilter())) {
+            samplingSpecification.setQuery(
+                    beans.getAdvancedActivityRunSupport().evaluateQueryExpressions(
+                            query, null, getRunningTask(), result));
+        }
+        beans.getAdvancedActivityRunSupport()
+                .applyDefinitionsToQuery(samplingSpecification, getRunningTask(), result);
+        return samplingSpecification;
+    }
+
+    @Override
+    public @NotNull SegmentationSampler getSegmentationSampler() {
+        if (segmentationSampler == null) {
+            segmentationSampler = new RepositorySegmentationSampler(this);
+        }
+        return segmentationSampler;
+    }
+
     private void resolveExpressionsInQuery(OperationResult result) throws CommonException {
         ObjectQuery query = searchSpecification.getQuery();
         if (query != null && ExpressionUtil.hasExpressions(query.getFilter())) {
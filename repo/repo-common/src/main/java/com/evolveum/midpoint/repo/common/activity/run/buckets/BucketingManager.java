@@ -8,6 +8,7 @@
 package com.evolveum.midpoint.repo.common.activity.run.buckets;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.function.Consumer;
 
@@ -41,7 +42,8 @@ import com.evolveum.midpoint.xml.ns._public.common.common_3.WorkBucketType;
  * Responsible for managing task work state:
  *
  * 1. Obtains new buckets to be processed: {@link #getWorkBucket(String, String, ActivityPath, GetBucketOperationOptions, ActivityBucketManagementStatistics, OperationResult)}.
- * 2. Marks buckets as complete: {@link #completeWorkBucket(String, String, ActivityPath, int, ActivityBucketManagementStatistics, Consumer, OperationResult)}.
+ * 2. Marks buckets as complete: {@link #completeWorkBucket(String, String, ActivityPath, int, ActivityBucketManagementStatistics, Consumer, OperationResult)}
+ * or {@link #completeWorkBuckets(String, String, ActivityPath, Collection, ActivityBucketManagementStatistics, Consumer, OperationResult)}.
  * 3. Releases work buckets in case they are not going to be processed: {@link #releaseWorkBucket(String, String, ActivityPath, int, ActivityBucketManagementStatistics, OperationResult)}.
  * 4. Computes query narrowing for given work bucket: {@link #narrowQueryForWorkBucket(Class, ObjectQuery, ActivityDistributionDefinition, ItemDefinitionProvider, WorkBucketType)}.
  *
@@ -74,8 +76,21 @@ public class BucketingManager {
             @Nullable Consumer<BucketProgressOverviewType> bucketProgressConsumer,
             @NotNull OperationResult result)
             throws ObjectAlreadyExistsException, ObjectNotFoundException, SchemaException {
+        completeWorkBuckets(coordinatorTaskOid, workerTaskOid, activityPath, List.of(sequentialNumber),
+                statistics, bucketProgressConsumer, result);
+    }
+
+    /**
+     * Marks a set of work buckets as complete, in a single modification of the coordinator task.
+     */
+    public void completeWorkBuckets(@NotNull String coordinatorTaskOid, @Nullable String workerTaskOid,
+            @NotNull ActivityPath activityPath, @NotNull Collection<Integer> sequentialNumbers,
+            @Nullable ActivityBucketManagementStatistics statistics,
+            @Nullable Consumer<BucketProgressOverviewType> bucketProgressConsumer,
+            @NotNull OperationResult result)
+            throws ObjectAlreadyExistsException, ObjectNotFoundException, SchemaException {
         new CompleteBucketOperation(coordinatorTaskOid, workerTaskOid, activityPath, statistics,
-                bucketProgressConsumer, beans, sequentialNumber)
+                bucketProgressConsumer, beans, sequentialNumbers)
                 .execute(result);
     }
 
@@ -7,9 +7,9 @@
 
 package com.evolveum.midpoint.repo.common.activity.run.buckets;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
+import static com.evolveum.midpoint.util.MiscUtil.argCheck;
+
+import java.util.*;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
@@ -31,31 +31,34 @@ import com.evolveum.midpoint.schema.util.task.ActivityStateUtil;
 import com.evolveum.midpoint.schema.util.task.BucketingUtil;
 import com.evolveum.midpoint.schema.util.task.work.BucketingConstants;
 import com.evolveum.midpoint.util.DebugUtil;
-import com.evolveum.midpoint.util.Holder;
 import com.evolveum.midpoint.util.exception.ObjectAlreadyExistsException;
 import com.evolveum.midpoint.util.exception.ObjectNotFoundException;
 import com.evolveum.midpoint.util.exception.SchemaException;
 import com.evolveum.midpoint.util.logging.Trace;
 import com.evolveum.midpoint.util.logging.TraceManager;
 
+/**
+ * Marks one or more buckets as complete. (More buckets are completed at once when batch completion is used.)
+ */
 public class CompleteBucketOperation extends BucketOperation {
 
     private static final Trace LOGGER = TraceManager.getTrace(CompleteBucketOperation.class);
 
-    private final int sequentialNumber;
+    @NotNull private final Set<Integer> sequentialNumbers;
 
     CompleteBucketOperation(@NotNull String coordinatorTaskOid, @Nullable String workerTaskOid,
             @NotNull ActivityPath activityPath, ActivityBucketManagementStatistics collector,
             @Nullable Consumer<BucketProgressOverviewType> bucketProgressConsumer, CommonTaskBeans beans,
-            int sequentialNumber) {
+            @NotNull Collection<Integer> sequentialNumbers) {
         super(coordinatorTaskOid, workerTaskOid, activityPath, collector, bucketProgressConsumer, beans);
-        this.sequentialNumber = sequentialNumber;
+        argCheck(!sequentialNumbers.isEmpty(), "No buckets to complete");
+        this.sequentialNumbers = new TreeSet<>(sequentialNumbers);
     }
 
     public void execute(OperationResult result)
             throws ObjectAlreadyExistsException, ObjectNotFoundException, SchemaException {
 
-        LOGGER.trace("Completing work bucket #{} in {} (worker {})", sequentialNumber, coordinatorTaskOid, workerTaskOid);
+        LOGGER.trace("Completing work bucket(s) #{} in {} (worker {})", sequentialNumbers, coordinatorTaskOid, workerTaskOid);
         ModifyObjectResult<TaskType> modifyObjectResult =
                 plainRepositoryService.modifyObjectDynamically(TaskType.class, coordinatorTaskOid, null,
                         this::computeCompletionModifications, null, result);
@@ -70,36 +73,43 @@ public class CompleteBucketOperation extends BucketOperation {
         ActivityBucketingStateType bucketing = activityState.getBucketing();
         List<WorkBucketType> buckets = CloneUtil.cloneCollectionMembers(bucketing.getBucket());
 
-        WorkBucketType bucket = BucketingUtil.findBucketByNumberRequired(buckets, sequentialNumber);
-        checkBucketReadyOrDelegated(bucket);
+        // "Before" values of the buckets being closed, indexed by sequential number.
+        Map<Integer, WorkBucketType> closedBucketsBefore = new HashMap<>();
+        for (int sequentialNumber : sequentialNumbers) {
+            WorkBucketType bucket = BucketingUtil.findBucketByNumberRequired(buckets, sequentialNumber);
+            checkBucketReadyOrDelegated(bucket);
+            closedBucketsBefore.put(sequentialNumber, bucket.clone());
+        }
 
         bucketProgressHolder.accept(
                 new BucketProgressOverviewType()
                         .totalBuckets(bucketing.getNumberOfBuckets())
-                        .completeBuckets(BucketingUtil.getCompleteBucketsNumber(buckets) + 1));
+                        .completeBuckets(BucketingUtil.getCompleteBucketsNumber(buckets) + sequentialNumbers.size()));
 
         ItemPath statePath = ActivityStateUtil.getStateItemPath(task.getActivityState(), activityPath);
-        List<ItemDelta<?, ?>> closingMods = bucketStateChangeDeltas(statePath, bucket, WorkBucketStateType.COMPLETE);
-
-        WorkBucketType bucketBeforeCompletion = bucket.clone();
-        bucket.setState(WorkBucketStateType.COMPLETE); // needed for compressing buckets
+        for (int sequentialNumber : sequentialNumbers) {
+            BucketingUtil.findBucketByNumberRequired(buckets, sequentialNumber)
+                    .setState(WorkBucketStateType.COMPLETE); // needed for compressing buckets
+        }
 
-        Holder<Boolean> recentlyClosedBucketDeleted = new Holder<>();
+        Set<Integer> recentlyClosedBucketsDeleted = new HashSet<>();
         List<ItemDelta<?, ?>> compressingMods =
-                compressCompletedBuckets(statePath, buckets, bucketBeforeCompletion, recentlyClosedBucketDeleted);
-
-        if (Boolean.TRUE.equals(recentlyClosedBucketDeleted.getValue())) {
-            return compressingMods;
-        } else {
-            return ListUtils.union(
-                    closingMods,
-                    compressingMods);
+                compressCompletedBuckets(statePath, buckets, closedBucketsBefore, recentlyClosedBucketsDeleted);
+
+        List<ItemDelta<?, ?>> closingMods = new ArrayList<>();
+        for (WorkBucketType closedBucketBefore : closedBucketsBefore.values()) {
+            if (!recentlyClosedBucketsDeleted.contains(closedBucketBefore.getSequentialNumber())) {
+                closingMods.addAll(
+                        bucketStateChangeDeltas(statePath, closedBucketBefore, WorkBucketStateType.COMPLETE));
+            }
         }
+        return ListUtils.union(
+                closingMods,
+                compressingMods);
     }
-    private List<ItemDelta<?, ?>> compressCompletedBuckets(ItemPath statePath, List<WorkBucketType> currentBuckets,
-            WorkBucketType closedBucketBefore, Holder<Boolean> recentlyClosedBucketDeletedHolder) {
 
-        recentlyClosedBucketDeletedHolder.setValue(false);
+    private List<ItemDelta<?, ?>> compressCompletedBuckets(ItemPath statePath, List<WorkBucketType> currentBuckets,
+            Map<Integer, WorkBucketType> closedBucketsBefore, Set<Integer> recentlyClosedBucketsDeleted) {
 
         List<WorkBucketType> buckets = new ArrayList<>(currentBuckets);
         BucketingUtil.sortBucketsBySequentialNumber(buckets);
@@ -115,8 +125,9 @@ public class CompleteBucketOperation extends BucketOperation {
         List<ItemDelta<?, ?>> deleteItemDeltas = new ArrayList<>();
         for (int i = 0; i < completeBuckets.size() - 1; i++) {
             WorkBucketType completeBucketToDelete = completeBuckets.get(i);
-            if (completeBucketToDelete.getSequentialNumber() == closedBucketBefore.getSequentialNumber()) {
-                recentlyClosedBucketDeletedHolder.setValue(true);
+            WorkBucketType closedBucketBefore = closedBucketsBefore.get(completeBucketToDelete.getSequentialNumber());
+            if (closedBucketBefore != null) {
+                recentlyClosedBucketsDeleted.add(closedBucketBefore.getSequentialNumber());
                 // We need to delete the "before" value of closed bucket (otherwise the deletion will not find the correct PCV)
                 deleteItemDeltas.addAll(bucketDeleteDeltas(statePath, closedBucketBefore));
             } else {
@@ -131,6 +142,6 @@ public class CompleteBucketOperation extends BucketOperation {
     @Override
     protected void extendDebugDump(StringBuilder sb, int indent) {
         sb.append("\n");
-        DebugUtil.debugDumpWithLabel(sb, "sequentialNumber", sequentialNumber, indent + 1);
+        DebugUtil.debugDumpWithLabel(sb, "sequentialNumbers", sequentialNumbers, indent + 1);
     }
 }
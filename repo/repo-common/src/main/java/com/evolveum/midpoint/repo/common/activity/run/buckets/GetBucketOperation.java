@@ -14,6 +14,8 @@ import static java.util.Objects.requireNonNullElseGet;
 import static com.evolveum.midpoint.schema.util.task.BucketingUtil.getBuckets;
 import static com.evolveum.midpoint.schema.util.task.BucketingUtil.getWorkerOid;
 import static com.evolveum.midpoint.schema.util.task.work.BucketingConstants.*;
+import static com.evolveum.midpoint.xml.ns._public.common.common_3.ActivityBucketingStateType.F_ADAPTIVE_SEGMENTATION_BOUNDARY;
+import static com.evolveum.midpoint.xml.ns._public.common.common_3.ActivityBucketingStateType.F_ADAPTIVE_SEGMENTATION_PREPARED;
 import static com.evolveum.midpoint.xml.ns._public.common.common_3.ActivityBucketingStateType.F_SCAVENGING;
 import static com.evolveum.midpoint.xml.ns._public.common.common_3.ActivityBucketingStateType.F_WORK_COMPLETE;
 import static com.evolveum.midpoint.xml.ns._public.common.common_3.ActivityStateType.F_BUCKETING;
@@ -35,6 +37,8 @@ import com.evolveum.midpoint.repo.api.ModifyObjectResult;
 import com.evolveum.midpoint.repo.common.activity.run.state.ActivityBucketManagementStatistics;
 import com.evolveum.midpoint.repo.common.activity.run.CommonTaskBeans;
 import com.evolveum.midpoint.repo.common.activity.run.buckets.segmentation.BucketFactory;
+import com.evolveum.midpoint.repo.common.activity.run.buckets.segmentation.SegmentationBoundariesStore;
+import com.evolveum.midpoint.schema.GetOperationOptions;
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.schema.util.task.ActivityPath;
 import com.evolveum.midpoint.schema.util.task.ActivityStateUtil;
@@ -69,6 +73,9 @@ public class GetBucketOperation extends BucketOperation {
     /** If doing sampling, we try to get more buckets. All but the last are immediately marked as COMPLETE. */
     private int bucketsToGet;
 
+    /** How many buckets to delegate to the worker in addition to the one returned. See `bucketLeaseBatch`. */
+    private int bucketsToLease;
+
     GetBucketOperation(@NotNull String coordinatorTaskOid, @Nullable String workerTaskOid, @NotNull ActivityPath activityPath,
             ActivityBucketManagementStatistics statisticsCollector,
             @Nullable GetBucketOperationOptions options, CommonTaskBeans beans) {
@@ -89,7 +96,11 @@ public class GetBucketOperation extends BucketOperation {
                 options.getImplicitSegmentationResolver(),
                 beans);
 
+        // Potentially expensive, so it must not be done in the modifyObjectDynamically callback (that holds the lock).
+        bucketFactory.prepare(new CoordinatorBoundariesStore(), result);
+
         this.bucketsToGet = determineBucketsToGet();
+        this.bucketsToLease = determineBucketsToLease();
 
         try {
             if (isStandalone()) {
@@ -112,7 +123,7 @@ public class GetBucketOperation extends BucketOperation {
 
         GetBucketOperationAttempt attempt =
                 new GetBucketOperationAttempt(coordinatorTask, workerTaskOid, activityPath, bucketFactory,
-                        bucketsToGet, bucketProgressHolder);
+                        bucketsToGet, 0, bucketProgressHolder);
 
         attempt.execute();
         bucketProgressHolder.passValue();
@@ -145,7 +156,7 @@ public class GetBucketOperation extends BucketOperation {
                     coordinatorTask -> {
                         GetBucketOperationAttempt attempt =
                                 new GetBucketOperationAttempt(coordinatorTask, workerTaskOid, activityPath,
-                                        bucketFactory, bucketsToGet, bucketProgressHolder);
+                                        bucketFactory, bucketsToGet, bucketsToLease, bucketProgressHolder);
                         lastAttemptHolder.setValue(attempt);
                         attempt.execute();
                         return attempt.getModifications();
@@ -162,6 +173,7 @@ public class GetBucketOperation extends BucketOperation {
 
             if (lastAttempt.getBucketToUse() != null) {
                 recordNonNullReturn(lastAttempt);
+                passLeasedBuckets(lastAttempt);
                 return lastAttempt.getBucketToUse();
             }
 
@@ -214,6 +226,15 @@ public class GetBucketOperation extends BucketOperation {
         }
     }
 
+    private void passLeasedBuckets(@NotNull GetBucketOperationAttempt attempt) {
+        List<WorkBucketType> leasedBuckets = attempt.getLeasedBuckets();
+        if (!leasedBuckets.isEmpty()) {
+            LOGGER.trace("Leased {} more bucket(s) for {}", leasedBuckets.size(), workerTaskOid);
+            Objects.requireNonNull(options.getLeasedBucketsConsumer())
+                    .accept(List.copyOf(leasedBuckets));
+        }
+    }
+
     private void executeInitialDelayForMultiNode() throws InterruptedException {
         if (options.isExecuteInitialWait()) {
             long delay = (long) (Math.random() * getInitialDelay());
@@ -441,6 +462,23 @@ public class GetBucketOperation extends BucketOperation {
         return interval;
     }
 
+    /** Leasing is used only if the client can accept the leased buckets, and if sampling is not used. */
+    private int determineBucketsToLease() {
+        ActivityDistributionDefinition def = options.getDistributionDefinition();
+        WorkAllocationDefinitionType allocation = def != null && def.getBuckets() != null ?
+                def.getBuckets().getAllocation() : null;
+        if (isStandalone()
+                || bucketsToGet != 1
+                || options.getLeasedBucketsConsumer() == null
+                || allocation == null
+                || allocation.getBucketLeaseBatch() == null) {
+            return 0;
+        }
+        int leaseBatch = allocation.getBucketLeaseBatch();
+        argCheck(leaseBatch > 0, "Bucket lease batch is less than 1: %s", leaseBatch);
+        return leaseBatch - 1;
+    }
+
     private int getIntervalForProbability(double probability) {
         // We are too lazy to compute the interval mathematically. So using random generator.
 
@@ -460,6 +498,57 @@ public class GetBucketOperation extends BucketOperation {
         return numberOfBuckets;
     }
 
+    /**
+     * Stores the boundaries of the adaptive segmentation in the bucketing state of the coordinator (or standalone) task.
+     * Reading them means reading the coordinator task; but this is done only when the adaptive segmentation is used.
+     */
+    private class CoordinatorBoundariesStore implements SegmentationBoundariesStore {
+
+        @Override
+        public @Nullable List<String> getBoundaries(OperationResult result)
+                throws SchemaException, ObjectNotFoundException {
+            TaskType coordinatorTask = plainRepositoryService
+                    .getObject(TaskType.class, coordinatorTaskOid, GetOperationOptions.createReadOnlyCollection(), result)
+                    .asObjectable();
+            return getStoredBoundaries(coordinatorTask);
+        }
+
+        @Override
+        public @NotNull List<String> storeBoundaries(@NotNull List<String> boundaries, OperationResult result)
+                throws SchemaException, ObjectNotFoundException, ObjectAlreadyExistsException {
+            Holder<List<String>> storedHolder = new Holder<>();
+            plainRepositoryService.modifyObjectDynamically(TaskType.class, coordinatorTaskOid, null,
+                    task -> {
+                        List<String> existing = getStoredBoundaries(task);
+                        if (existing != null) {
+                            storedHolder.setValue(existing);
+                            return List.of();
+                        }
+                        storedHolder.setValue(boundaries);
+                        ItemPath bucketingPath = ActivityStateUtil.getStateItemPath(task.getActivityState(), activityPath)
+                                .append(F_BUCKETING);
+                        return prismContext.deltaFor(TaskType.class)
+                                .item(bucketingPath.append(F_ADAPTIVE_SEGMENTATION_BOUNDARY))
+                                .replaceRealValues(boundaries)
+                                .item(bucketingPath.append(F_ADAPTIVE_SEGMENTATION_PREPARED))
+                                .replace(true)
+                                .asItemDeltas();
+                    }, null, result);
+            return Objects.requireNonNull(storedHolder.getValue());
+        }
+
+        private @Nullable List<String> getStoredBoundaries(@NotNull TaskType task) {
+            ActivityBucketingStateType bucketing =
+                    ActivityStateUtil.getActivityStateRequired(task.getActivityState(), activityPath).getBucketing();
+            if (bucketing == null || !Boolean.TRUE.equals(bucketing.isAdaptiveSegmentationPrepared())) {
+                return null;
+            }
+            List<String> boundaries = new ArrayList<>(bucketing.getAdaptiveSegmentationBoundary());
+            Collections.sort(boundaries); // just to be sure; they are stored sorted
+            return boundaries;
+        }
+    }
+
     @Override
     protected void extendDebugDump(StringBuilder sb, int indent) {
         sb.append("\n");
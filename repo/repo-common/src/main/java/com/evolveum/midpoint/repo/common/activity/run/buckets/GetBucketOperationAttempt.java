@@ -114,13 +114,22 @@ class GetBucketOperationAttempt {
      */
     private int numberOfBucketsToGet;
 
+    /**
+     * How many buckets should be delegated to the worker in addition to the {@link #bucketToUse}?
+     * They are then processed by the worker without contacting the coordinator task. See `bucketLeaseBatch`.
+     */
+    private final int bucketsToLease;
+
+    /** Buckets delegated to the worker in addition to {@link #bucketToUse}. Detached (cloned). */
+    @NotNull private final List<WorkBucketType> leasedBuckets = new ArrayList<>();
+
     /**
      * Configured allocator that generates buckets.
      */
     @NotNull private final BucketFactory bucketFactory;
 
     GetBucketOperationAttempt(@NotNull TaskType task, @Nullable String workerOid, @NotNull ActivityPath activityPath,
-            @NotNull BucketFactory bucketFactory, int numberOfBucketsToGet,
+            @NotNull BucketFactory bucketFactory, int numberOfBucketsToGet, int bucketsToLease,
             @NotNull PassingHolder<BucketProgressOverviewType> bucketProgressHolder) {
         this.workerOid = workerOid;
         this.bucketProgressHolder = bucketProgressHolder;
@@ -129,11 +138,12 @@ class GetBucketOperationAttempt {
         this.currentBuckets = BucketingUtil.getBuckets(activityState);
         this.bucketFactory = bucketFactory;
         this.numberOfBucketsToGet = numberOfBucketsToGet;
+        this.bucketsToLease = workerOid != null ? bucketsToLease : 0;
     }
 
     /**
      * Obtains a bucket. Skips buckets when sampling is used.
-     * Potentially pre-creates buckets if batch allocation is used.
+     * Potentially pre-creates buckets if batch allocation is used, and leases more buckets if batch leasing is used.
      *
      * This method can be called from {@link RepositoryService#modifyObjectDynamically(Class, String, Collection,
      * RepositoryService.ModificationsSupplier, RepoModifyOptions, OperationResult)} method (in case
@@ -151,6 +161,7 @@ class GetBucketOperationAttempt {
                     getSelfDelegatedBucketsStream());
             if (numberOfBucketsToGet == 0) {
                 situation = Situation.FOUND_DELEGATED_TO_ME;
+                leaseMoreBuckets();
                 return;
             }
         }
@@ -160,11 +171,13 @@ class GetBucketOperationAttempt {
 
         if (numberOfBucketsToGet == 0) {
             situation = Situation.FOUND_READY;
+            leaseMoreBuckets();
             return;
         }
 
+        // New buckets over the number needed are delegated to the worker, so they are leased as well.
         offerNewBuckets(
-                bucketFactory.createNewBuckets(currentBuckets, numberOfBucketsToGet));
+                bucketFactory.createNewBuckets(currentBuckets, numberOfBucketsToGet + bucketsToLease));
 
         if (numberOfBucketsToGet == 0) {
             situation = Situation.CREATED_NEW;
@@ -221,6 +234,31 @@ class GetBucketOperationAttempt {
         }
     }
 
+    /**
+     * Delegates more buckets to the worker, so that it has {@link #bucketsToLease} of them (besides the one to be used).
+     * Takes buckets that are already delegated to the worker first, then ready ones, and finally creates new ones.
+     */
+    private void leaseMoreBuckets() throws SchemaException {
+        if (bucketsToLease == 0) {
+            return;
+        }
+        int sequentialNumberToUse = bucketToUse.getSequentialNumber();
+        getSelfDelegatedBucketsStream()
+                .filter(b -> b.getSequentialNumber() != sequentialNumberToUse)
+                .limit(bucketsToLease)
+                .forEach(b -> leasedBuckets.add(b.clone()));
+        getReadyBucketsStream()
+                .limit(bucketsToLease - leasedBuckets.size())
+                .toList()
+                .forEach(this::markExistingBucketLeased);
+        int remaining = bucketsToLease - leasedBuckets.size();
+        if (remaining > 0) {
+            bucketFactory.createNewBuckets(currentBuckets, remaining)
+                    .forEach(this::markNewBucketForFutureUse);
+            swallowBucketsToAdd();
+        }
+    }
+
     /**
      * Offers new buckets for processing:
      *
@@ -279,6 +317,14 @@ class GetBucketOperationAttempt {
         swallow(bucketStateChangeDeltas(activityStateItemPath, bucket, COMPLETE));
     }
 
+    private void markExistingBucketLeased(@NotNull WorkBucketType bucket) {
+        assert workerOid != null;
+        bucket.state(DELEGATED)
+                .workerRef(workerOid, TaskType.COMPLEX_TYPE);
+        swallow(bucketStateChangeDeltas(activityStateItemPath, bucket, DELEGATED, workerOid));
+        leasedBuckets.add(bucket.clone());
+    }
+
     private void markNewBucketSkipped(@NotNull WorkBucketType bucket) {
         LOGGER.debug("Marking new bucket as COMPLETE because of sampling: {}", bucket);
         bucket.state(COMPLETE);
@@ -286,10 +332,13 @@ class GetBucketOperationAttempt {
     }
 
     private void markNewBucketForFutureUse(@NotNull WorkBucketType bucket) {
-        LOGGER.debug("Marking new bucket as COMPLETE because of sampling: {}", bucket);
+        LOGGER.debug("Marking new bucket for future use: {}", bucket);
         if (workerOid != null) {
             bucket.state(DELEGATED)
                     .workerRef(workerOid, TaskType.COMPLEX_TYPE);
+            if (bucketsToLease > 0) {
+                leasedBuckets.add(bucket.clone());
+            }
         } else {
             bucket.state(READY)
                     .workerRef(null);
@@ -336,6 +385,10 @@ class GetBucketOperationAttempt {
         return bucketToUse;
     }
 
+    @NotNull List<WorkBucketType> getLeasedBuckets() {
+        return leasedBuckets;
+    }
+
     Situation getSituationRequired() {
         return Objects.requireNonNull(situation, "no situation");
     }
@@ -7,10 +7,12 @@
 
 package com.evolveum.midpoint.repo.common.activity.run.buckets;
 
+import java.util.List;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
 
 import com.evolveum.midpoint.xml.ns._public.common.common_3.BucketProgressOverviewType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.WorkBucketType;
 
 import org.jetbrains.annotations.Nullable;
 
@@ -29,11 +31,19 @@ public class GetBucketOperationOptions implements DebugDumpable {
     private final boolean executeInitialWait;
     @Nullable private final Consumer<BucketProgressOverviewType> bucketProgressConsumer;
 
+    /**
+     * Receives buckets that were delegated to the worker in addition to the one returned (see `bucketLeaseBatch`).
+     * If not set, the buckets are not leased; although the buckets delegated to the worker are still returned
+     * by subsequent "get bucket" operations.
+     */
+    @Nullable private final Consumer<List<WorkBucketType>> leasedBucketsConsumer;
+
     private GetBucketOperationOptions(@Nullable ActivityDistributionDefinition distributionDefinition,
             @Nullable ImplicitSegmentationResolver implicitSegmentationResolver,
             @Nullable Supplier<Boolean> canRun, boolean isScavenger,
             long freeBucketWaitTime, boolean executeInitialWait,
-            @Nullable Consumer<BucketProgressOverviewType> bucketProgressConsumer) {
+            @Nullable Consumer<BucketProgressOverviewType> bucketProgressConsumer,
+            @Nullable Consumer<List<WorkBucketType>> leasedBucketsConsumer) {
         this.distributionDefinition = distributionDefinition;
         this.implicitSegmentationResolver = implicitSegmentationResolver;
         this.canRun = canRun;
@@ -41,6 +51,7 @@ public class GetBucketOperationOptions implements DebugDumpable {
         this.freeBucketWaitTime = freeBucketWaitTime;
         this.executeInitialWait = executeInitialWait;
         this.bucketProgressConsumer = bucketProgressConsumer;
+        this.leasedBucketsConsumer = leasedBucketsConsumer;
     }
 
     public static GetBucketOperationOptions standard() {
@@ -75,6 +86,10 @@ public class GetBucketOperationOptions implements DebugDumpable {
         return freeBucketWaitTime;
     }
 
+    @Nullable Consumer<List<WorkBucketType>> getLeasedBucketsConsumer() {
+        return leasedBucketsConsumer;
+    }
+
     @Override
     public String debugDump(int indent) {
         StringBuilder sb = DebugUtil.createTitleStringBuilderLn(getClass(), indent);
@@ -93,6 +108,7 @@ public class GetBucketOperationOptions implements DebugDumpable {
         private long freeBucketWaitTime;
         private boolean executeInitialWait;
         private Consumer<BucketProgressOverviewType> bucketProgressConsumer;
+        private Consumer<List<WorkBucketType>> leasedBucketsConsumer;
 
         private GetBucketOperationOptionsBuilder() {
         }
@@ -136,9 +152,14 @@ public class GetBucketOperationOptions implements DebugDumpable {
             return this;
         }
 
+        public GetBucketOperationOptionsBuilder withLeasedBucketsConsumer(Consumer<List<WorkBucketType>> value) {
+            this.leasedBucketsConsumer = value;
+            return this;
+        }
+
         public GetBucketOperationOptions build() {
             return new GetBucketOperationOptions(distributionDefinition, implicitSegmentationResolver, canRun,
-                    isScavenger, freeBucketWaitTime, executeInitialWait, bucketProgressConsumer);
+                    isScavenger, freeBucketWaitTime, executeInitialWait, bucketProgressConsumer, leasedBucketsConsumer);
         }
     }
 }
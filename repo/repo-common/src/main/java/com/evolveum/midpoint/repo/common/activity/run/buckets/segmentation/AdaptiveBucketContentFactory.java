@@ -0,0 +1,159 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.repo.common.activity.run.buckets.segmentation;
+
+import static com.evolveum.midpoint.util.MiscUtil.argCheck;
+import static com.evolveum.midpoint.util.MiscUtil.stateCheck;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.evolveum.midpoint.repo.common.activity.run.buckets.BaseBucketContentFactory;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.util.exception.ObjectAlreadyExistsException;
+import com.evolveum.midpoint.util.exception.ObjectNotFoundException;
+import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.AbstractWorkBucketContentType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.AdaptiveWorkSegmentationType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.StringIntervalWorkBucketContentType;
+
+/**
+ * Creates OID interval buckets containing (roughly) the same number of objects, as found in the repository.
+ *
+ * The boundaries (OIDs of every `bucketSize`-th object) are determined by {@link #prepare}, i.e. outside
+ * the coordinator task lock. They are determined only once: by the first worker that needs them,
+ * and stored in the bucketing state of the coordinator task, where the other workers take them from.
+ * (If more workers start at the same time, they may determine the boundaries concurrently;
+ * only the first ones are stored and used.)
+ *
+ * Each new bucket starts where the previous one ended, and ends at the first boundary after its start.
+ * Hence, the buckets never overlap nor leave gaps, even if the objects are added or deleted in the meanwhile.
+ * (The sizes may then differ a bit, of course.) The last bucket is open-ended.
+ */
+public class AdaptiveBucketContentFactory extends BaseBucketContentFactory<AdaptiveWorkSegmentationType> {
+
+    private static final Trace LOGGER = TraceManager.getTrace(AdaptiveBucketContentFactory.class);
+
+    private static final String OP_CREATE_NEXT_BUCKET_CONTENT =
+            AdaptiveBucketContentFactory.class.getName() + ".createNextBucketContent";
+
+    private static final int DEFAULT_BUCKET_SIZE = 1000;
+
+    @NotNull private final SegmentationSampler sampler;
+
+    /** Number of objects to be processed. Determined lazily. */
+    private Integer numberOfObjects;
+
+    /** Sorted OIDs where the buckets should end. Determined (or taken from the store) by {@link #prepare}. */
+    private List<String> boundaries;
+
+    AdaptiveBucketContentFactory(
+            @NotNull AdaptiveWorkSegmentationType segmentationConfig, @NotNull SegmentationSampler sampler) {
+        super(segmentationConfig);
+        argCheck(segmentationConfig.getDiscriminator() == null,
+                "Discriminator specification is not supported in adaptive segmentation");
+        argCheck(segmentationConfig.getMatchingRule() == null,
+                "Matching rule specification is not supported in adaptive segmentation");
+        this.sampler = sampler;
+    }
+
+    @Override
+    public void prepare(@NotNull SegmentationBoundariesStore store, OperationResult result)
+            throws SchemaException, ObjectNotFoundException, ObjectAlreadyExistsException {
+        if (boundaries != null) {
+            return;
+        }
+        List<String> stored = store.getBoundaries(result);
+        if (stored != null) {
+            boundaries = stored;
+            LOGGER.trace("Using {} stored bucket boundaries", boundaries.size());
+        } else {
+            boundaries = store.storeBoundaries(
+                    sampler.getBoundaries(getBucketSize(result), result), result);
+            LOGGER.debug("Determined and stored {} bucket boundaries", boundaries.size());
+        }
+    }
+
+    @Override
+    public StringIntervalWorkBucketContentType createNextBucketContent(
+            AbstractWorkBucketContentType lastBucketContent, Integer lastBucketSequentialNumber) throws SchemaException {
+        String from;
+        if (lastBucketSequentialNumber != null) {
+            if (!(lastBucketContent instanceof StringIntervalWorkBucketContentType lastContent)) {
+                throw new IllegalStateException("Null or unsupported bucket content: " + lastBucketContent);
+            }
+            if (lastContent.getTo() == null) {
+                return null; // the last bucket was open-ended
+            }
+            from = lastContent.getTo();
+        } else {
+            from = null;
+        }
+        stateCheck(boundaries != null, "Adaptive segmentation was not prepared");
+        String to = getNextBoundary(from, boundaries);
+        LOGGER.trace("Created bucket [{}, {})", from, to);
+        return new StringIntervalWorkBucketContentType()
+                .from(from)
+                .to(to);
+    }
+
+    /** Returns the first boundary after `from` (or the first one at all, if `from` is null). */
+    private static String getNextBoundary(String from, List<String> boundaries) {
+        int index;
+        if (from == null) {
+            index = 0;
+        } else {
+            int found = Collections.binarySearch(boundaries, from);
+            index = found >= 0 ? found + 1 : -found - 1;
+        }
+        return index < boundaries.size() ? boundaries.get(index) : null;
+    }
+
+    private int getBucketSize(OperationResult result) throws SchemaException {
+        if (segmentationConfig.getBucketSize() != null) {
+            argCheck(segmentationConfig.getBucketSize() > 0, "Bucket size must be positive");
+            return segmentationConfig.getBucketSize();
+        } else if (segmentationConfig.getNumberOfBuckets() != null) {
+            argCheck(segmentationConfig.getNumberOfBuckets() > 0, "Number of buckets must be positive");
+            int buckets = segmentationConfig.getNumberOfBuckets();
+            return Math.max(1, (getNumberOfObjects(result) + buckets - 1) / buckets);
+        } else {
+            return DEFAULT_BUCKET_SIZE;
+        }
+    }
+
+    private int getNumberOfObjects(OperationResult result) throws SchemaException {
+        if (numberOfObjects == null) {
+            numberOfObjects = sampler.countObjects(result);
+            LOGGER.debug("Number of objects to be divided into buckets: {}", numberOfObjects);
+        }
+        return numberOfObjects;
+    }
+
+    @Override
+    public Integer estimateNumberOfBuckets() {
+        if (segmentationConfig.getNumberOfBuckets() != null) {
+            return segmentationConfig.getNumberOfBuckets();
+        }
+        if (boundaries != null) {
+            return boundaries.size() + 1;
+        }
+        OperationResult result = new OperationResult(OP_CREATE_NEXT_BUCKET_CONTENT);
+        try {
+            int bucketSize = getBucketSize(result);
+            return Math.max(1, (getNumberOfObjects(result) + bucketSize - 1) / bucketSize);
+        } catch (SchemaException e) {
+            LOGGER.debug("Couldn't estimate the number of buckets: {}", e.getMessage(), e);
+            return null;
+        }
+    }
+}
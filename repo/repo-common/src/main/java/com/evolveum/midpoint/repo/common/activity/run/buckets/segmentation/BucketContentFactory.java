@@ -7,9 +7,13 @@
 
 package com.evolveum.midpoint.repo.common.activity.run.buckets.segmentation;
 
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.util.exception.ObjectAlreadyExistsException;
+import com.evolveum.midpoint.util.exception.ObjectNotFoundException;
 import com.evolveum.midpoint.util.exception.SchemaException;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.AbstractWorkBucketContentType;
 
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 /**
@@ -17,6 +21,17 @@ import org.jetbrains.annotations.Nullable;
  */
 public interface BucketContentFactory {
 
+    /**
+     * Does the potentially expensive preparation (e.g. looking at the objects in the repository) needed
+     * to create buckets. It is called before the coordinator task is locked for bucket allocation,
+     * so that {@link #createNextBucketContent(AbstractWorkBucketContentType, Integer)} can be cheap.
+     *
+     * The results can be shared with other workers via the `store`.
+     */
+    default void prepare(@NotNull SegmentationBoundariesStore store, OperationResult result)
+            throws SchemaException, ObjectNotFoundException, ObjectAlreadyExistsException {
+    }
+
     /**
      * Creates a content for the next bucket in a sequence.
      *
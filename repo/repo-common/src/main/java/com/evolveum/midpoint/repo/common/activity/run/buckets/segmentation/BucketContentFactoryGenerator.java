@@ -37,6 +37,7 @@ public class BucketContentFactoryGenerator {
         registerSupplier(OidWorkSegmentationType.class, (cfg, ctx) -> new StringBucketContentFactory(cfg));
         registerSupplier(ExplicitWorkSegmentationType.class, (cfg, ctx) -> new ExplicitBucketContentFactory(cfg));
         registerSupplier(ImplicitWorkSegmentationType.class, this::createContentFactoryInImplicitCase);
+        registerSupplier(AdaptiveWorkSegmentationType.class, this::createContentFactoryInAdaptiveCase);
     }
 
     /**
@@ -83,4 +84,12 @@ public class BucketContentFactoryGenerator {
                 null // We no longer need the resolver (this also avoids endless loops)
         );
     }
+
+    private @NotNull BucketContentFactory createContentFactoryInAdaptiveCase(
+            @NotNull AdaptiveWorkSegmentationType configuration,
+            ImplicitSegmentationResolver resolver) {
+        SegmentationSampler sampler = resolver != null ? resolver.getSegmentationSampler() : null;
+        argCheck(sampler != null, "Adaptive work segmentation is not supported in this activity");
+        return new AdaptiveBucketContentFactory(configuration, sampler);
+    }
 }
@@ -10,7 +10,10 @@ package com.evolveum.midpoint.repo.common.activity.run.buckets.segmentation;
 import com.evolveum.midpoint.prism.PrismContext;
 import com.evolveum.midpoint.repo.common.activity.definition.ActivityDistributionDefinition;
 import com.evolveum.midpoint.repo.common.activity.run.CommonTaskBeans;
+import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.schema.util.task.BucketingUtil;
+import com.evolveum.midpoint.util.exception.ObjectAlreadyExistsException;
+import com.evolveum.midpoint.util.exception.ObjectNotFoundException;
 import com.evolveum.midpoint.util.exception.SchemaException;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.*;
 
@@ -44,6 +47,12 @@ public class BucketFactory {
                 bucketingConfig);
     }
 
+    /** See {@link BucketContentFactory#prepare(SegmentationBoundariesStore, OperationResult)}. */
+    public void prepare(@NotNull SegmentationBoundariesStore store, OperationResult result)
+            throws SchemaException, ObjectNotFoundException, ObjectAlreadyExistsException {
+        contentFactory.prepare(store, result);
+    }
+
     /**
      * Creates new buckets.
      *
@@ -11,9 +11,10 @@ import com.evolveum.midpoint.xml.ns._public.common.common_3.AbstractWorkSegmenta
 import com.evolveum.midpoint.xml.ns._public.common.common_3.ImplicitWorkSegmentationType;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
- * Resolves `ImplicitWorkSegmentationType` in a specific context.
+ * Resolves `ImplicitWorkSegmentationType` in a specific context. Also provides the data for adaptive segmentation.
  */
 public interface ImplicitSegmentationResolver {
 
@@ -21,4 +22,12 @@ public interface ImplicitSegmentationResolver {
      * Converts `ImplicitWorkSegmentationType` into "real" segmentation configuration.
      */
     AbstractWorkSegmentationType resolveImplicitSegmentation(@NotNull ImplicitWorkSegmentationType segmentation);
+
+    /**
+     * Provides information about the objects to be processed, as needed by `AdaptiveWorkSegmentationType`.
+     * Returns null if this information is not available in this context.
+     */
+    default @Nullable SegmentationSampler getSegmentationSampler() {
+        return null;
+    }
 }
@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.repo.common.activity.run.buckets.segmentation;
+
+import java.util.List;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.util.exception.ObjectAlreadyExistsException;
+import com.evolveum.midpoint.util.exception.ObjectNotFoundException;
+import com.evolveum.midpoint.util.exception.SchemaException;
+
+/**
+ * Keeps the bucket boundaries determined by the adaptive segmentation in the bucketing state of the coordinator
+ * (or standalone) task, so that they are determined only once, and all the workers use the same ones.
+ * See {@link AdaptiveBucketContentFactory}.
+ */
+public interface SegmentationBoundariesStore {
+
+    /** Returns the stored boundaries (sorted), or null if they were not determined yet. */
+    @Nullable List<String> getBoundaries(OperationResult result) throws SchemaException, ObjectNotFoundException;
+
+    /**
+     * Stores the boundaries, unless some were stored in the meanwhile (by another worker).
+     *
+     * @return The boundaries that are stored, i.e. the provided ones or the ones stored before.
+     */
+    @NotNull List<String> storeBoundaries(@NotNull List<String> boundaries, OperationResult result)
+            throws SchemaException, ObjectNotFoundException, ObjectAlreadyExistsException;
+}
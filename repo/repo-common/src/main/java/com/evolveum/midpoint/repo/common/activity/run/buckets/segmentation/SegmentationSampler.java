@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+
+package com.evolveum.midpoint.repo.common.activity.run.buckets.segmentation;
+
+import java.util.List;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.util.exception.SchemaException;
+
+/**
+ * Provides information about the actual objects to be processed by an activity, as needed for the adaptive segmentation.
+ * See {@link AdaptiveBucketContentFactory}.
+ *
+ * Objects are considered in the order of their OIDs.
+ *
+ * The methods may be expensive. They are called before the coordinator task is locked for bucket allocation
+ * (see {@link BucketContentFactory#prepare(SegmentationBoundariesStore, OperationResult)}), and only if the boundaries
+ * were not determined and stored by another worker yet. The implementations should cache the results.
+ */
+public interface SegmentationSampler {
+
+    /** Returns the number of objects to be processed (ignoring any buckets). */
+    int countObjects(OperationResult result) throws SchemaException;
+
+    /**
+     * Returns the OIDs of objects at positions `bucketSize`, `2 * bucketSize`, and so on (counting from zero).
+     * These divide the objects into groups of `bucketSize` objects; the list is sorted.
+     */
+    @NotNull List<String> getBoundaries(int bucketSize, OperationResult result) throws SchemaException;
+}
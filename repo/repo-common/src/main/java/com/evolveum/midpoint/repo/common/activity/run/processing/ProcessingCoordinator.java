@@ -36,6 +36,7 @@ public class ProcessingCoordinator<I> {
 
     private static final Trace LOGGER = TraceManager.getTrace(ProcessingCoordinator.class);
 
+    /** Maximal time a worker is parked when waiting for a request, before re-checking whether it can (and should) run. */
     private static final long WORKER_THREAD_WAIT_FOR_REQUEST = 100L;
 
     private static final String OP_HANDLE_ASYNCHRONOUSLY = ProcessingCoordinator.class.getName() + ".handleAsynchronously";
@@ -165,7 +166,7 @@ public class ProcessingCoordinator<I> {
             workerSpecificResult.addContext("subtaskIndex", i+1);
             workerSpecificResults.add(workerSpecificResult);
 
-            RunningLightweightTask subtask = coordinatorTask.createSubtask(new WorkerHandler(workerSpecificResult));
+            RunningLightweightTask subtask = coordinatorTask.createSubtask(new WorkerHandler(i, workerSpecificResult));
             subtask.setResult(new OperationResult(OP_EXECUTE_WORKER, OperationResultStatus.IN_PROGRESS, (String) null));
             subtask.setName("Worker thread " + (i+1) + " of " + threadsCount);
             subtask.setExecutionEnvironment(CloneUtil.clone(coordinatorTask.getExecutionEnvironment()));
@@ -188,6 +189,10 @@ public class ProcessingCoordinator<I> {
         LOGGER.trace("ProcessingCoordinator: finishing processing. Coordinator task canRun = {}", coordinatorTask.canRun());
 
         allItemsSubmitted.set(true);
+        if (multithreaded) {
+            assert requestsBuffer != null;
+            requestsBuffer.wakeUpAllWorkers();
+        }
         waitForWorkersFinish(result);
         nackQueuedRequests(result);
     }
@@ -209,9 +214,11 @@ public class ProcessingCoordinator<I> {
     }
 
     private class WorkerHandler implements LightweightTaskHandler {
+        private final int workerIndex;
         private final OperationResult workerSpecificResult;
 
-        private WorkerHandler(OperationResult workerSpecificResult) {
+        private WorkerHandler(int workerIndex, OperationResult workerSpecificResult) {
+            this.workerIndex = workerIndex;
             this.workerSpecificResult = workerSpecificResult;
         }
 
@@ -225,12 +232,10 @@ public class ProcessingCoordinator<I> {
             workerTask.setName(workerTask.getName().getOrig() + " (" + Thread.currentThread().getName() + ")");
             workerSpecificResult.addArbitraryObjectAsContext("subtaskName", workerTask.getName());
 
-            String taskIdentifier = workerTask.getTaskIdentifier();
-
             while (canRun(workerTask)) {
 
                 workerTask.refreshThreadLocalStatistics();
-                ItemProcessingRequest<I> request = requestsBuffer.poll(taskIdentifier);
+                ItemProcessingRequest<I> request = requestsBuffer.poll(workerIndex, WORKER_THREAD_WAIT_FOR_REQUEST);
 
                 if (request != null) {
                     try {
@@ -238,30 +243,25 @@ public class ProcessingCoordinator<I> {
                             stopRequestedByAnyWorker.set(true);
                         }
                     } finally {
-                        requestsBuffer.markProcessed(request, taskIdentifier);
+                        requestsBuffer.markProcessed(request, workerIndex);
                         treatOperationResultAfterOperation();
                     }
                 } else {
                     if (allItemsSubmitted.get()) {
                         LOGGER.trace("Queue is empty and nothing more is expected - exiting");
                         break;
+                    } else if (Thread.currentThread().isInterrupted()) {
+                        LOGGER.trace("Waiting interrupted, exiting");
+                        break;
                     } else {
-                        LOGGER.trace("No requests to be processed but expecting some to come. Waiting for {} msecs",
-                                WORKER_THREAD_WAIT_FOR_REQUEST);
-                        try {
-                            //noinspection BusyWait
-                            Thread.sleep(WORKER_THREAD_WAIT_FOR_REQUEST);
-                        } catch (InterruptedException e) {
-                            LOGGER.trace("Waiting interrupted, exiting");
-                            break;
-                        }
+                        LOGGER.trace("No requests to be processed but expecting some to come.");
                     }
                 }
             }
 
-            int reservedRequests = requestsBuffer.getReservedRequestsCount(taskIdentifier);
-            if (reservedRequests > 0) {
-                LOGGER.warn("Worker task exiting but it has {} reserved (pre-assigned) change requests", reservedRequests);
+            int pendingRequests = requestsBuffer.getPendingRequestsCount(workerIndex);
+            if (pendingRequests > 0) {
+                LOGGER.warn("Worker task exiting but it has {} pending (pre-assigned) change requests", pendingRequests);
             }
             workerTask.refreshThreadLocalStatistics();
         }
@@ -7,32 +7,43 @@
 
 package com.evolveum.midpoint.repo.common.activity.run.processing;
 
-import java.util.*;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.TimeUnit;
+import java.util.Queue;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+import org.jetbrains.annotations.NotNull;
 
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.util.logging.Trace;
 import com.evolveum.midpoint.util.logging.TraceManager;
 
 /**
- * TODO fix the description
- *
- * <p>Stores requests to be processed.</p>
+ * Stores requests to be processed and distributes them to worker threads (identified by their index).
  *
- * <p>Its primary responsibility is that it has to ensure that changes related to given primary identifier are processed exactly
+ * Its primary responsibility is that it has to ensure that changes related to given primary identifier are processed exactly
  * in the order in which they were fetched from the resource (recorded as {@link com.evolveum.midpoint.provisioning.ucf.api.Change#localSequenceNumber}).
- * This responsibility is ensured by the concepts of binding and reservation.</p>
  *
- * <p>Primary identifier I is said to be _bound_ to task T if an object with this identifier it is being currently processed by T
- * or is waiting to be processed by T (reserved for T). See {@link #bind(ProcessChangeRequest, String)} and {@link #unbind(ProcessChangeRequest, String)}
- * methods.</p>
+ * This is ensured by binding: a {@link CorrelatableProcessingRequest} is put into the queue of the worker its correlation value
+ * (e.g. primary identifier) is bound to. The value is bound to a worker when its first request arrives, and stays bound
+ * until all its requests are processed (see {@link #markProcessed(ItemProcessingRequest, int)}). A new binding goes
+ * to the worker determined by the hash of the value, unless that one is busier than others (see {@link #selectWorker(Object)}),
+ * so a busy worker does not get new work while others are idle. Worker queues are ordered
+ * by the sequential number of the requests (like the reserved requests queues used to be), so requests with given
+ * correlation value are processed in the order of their sequential numbers.
+ *
+ * Requests that are not correlatable (or have no correlation value) are put into the shared queue, which is polled
+ * by all the workers.
  *
- * <p>Reservation is represented by a queue of requests waiting to be processed by specified subtask. A request gets
- * onto this queue if it's fetched from the global queue but cannot be processed because it is bound to a subtask different
- * from the current one. So it's put into "owning" task reserved requests queue. See {@link #reserve(ProcessChangeRequest, String)}.</p>
+ * The total number of waiting requests is limited; when the limit is reached, {@link #offer(ItemProcessingRequest)} waits.
+ * Note that a burst of requests for a single correlation value is processed by a single worker, so it can fill the buffer
+ * and make the other workers wait.
+ *
+ * No global lock is used. Workers waiting for requests are parked; they are unparked when a request for them
+ * (or a shared request) arrives.
  */
 @SuppressWarnings("JavadocReference")
 class RequestsBuffer<I> {
@@ -41,191 +52,230 @@ class RequestsBuffer<I> {
 
     private static final long REQUEST_QUEUE_OFFER_TIMEOUT = 1000L;
 
+    /** Maximal number of requests waiting to be processed, per worker. */
+    private static final int WAITING_REQUESTS_PER_WORKER = 10;
+
     /**
-     * Global queue of waiting requests.
+     * Permits for requests waiting in the queues; acquired when the request is offered, released when it is taken
+     * by a worker.
      */
-    private final BlockingQueue<ItemProcessingRequest<I>> globalQueue;
+    @NotNull private final Semaphore capacity;
 
     /**
-     * Current bindings of resource objects (their identifiers) to subtasks.
-     *
-     * Entry key: primary resource object identifier (~ account ID)
-     * Entry value: task identifier
+     * Queue of requests that can be processed by any worker.
      */
-    private final Map<Object, String> bindingsMap = new HashMap<>();
+    @NotNull private final BlockingQueue<ItemProcessingRequest<I>> sharedQueue = new LinkedBlockingQueue<>();
 
     /**
-     * Change requests reserved to be processed by each subtask.
-     *
-     * Entry key: task identifier.
-     * Entry value: queue of requests. The requests are sorted by change identifier, to ensure processing in the correct order.
+     * Queues of requests bound to individual workers (indexed by worker index) by their correlation value.
+     * Ordered by the sequential number, then by the order of arrival.
      */
-    private final Map<String, PriorityQueue<ItemProcessingRequest<I>>> reservedRequestsQueueMap = new HashMap<>();
+    @NotNull private final BlockingQueue<QueuedRequest<I>>[] workerQueues;
 
-    RequestsBuffer(int threadsCount) {
-        int globalQueueSize = threadsCount*2; // actually, size of threadsCount should be sufficient but it doesn't hurt if queue is larger
-        globalQueue = new ArrayBlockingQueue<>(globalQueueSize);
-    }
+    /** Orders requests with the same sequential number in the worker queues. */
+    @NotNull private final AtomicLong arrivalCounter = new AtomicLong();
+
+    /** Current bindings of correlation values to workers. Modified only via atomic `compute` operations. */
+    @NotNull private final ConcurrentHashMap<Object, Binding> bindings = new ConcurrentHashMap<>();
+
+    /** Number of bound requests (waiting or being processed) for each worker. */
+    @NotNull private final AtomicIntegerArray workerLoads;
 
     /**
-     * Offers a request for processing.
-     *
-     * This method is intentionally NOT synchronized.
-     *
-     * @throws InterruptedException If present, the request was not put into the queue.
+     * Workers that are currently parked (waiting for a request), indexed by worker index. Null if the worker is not parked.
      */
-    boolean offer(ItemProcessingRequest<I> request) throws InterruptedException {
-        return globalQueue.offer(request, REQUEST_QUEUE_OFFER_TIMEOUT, TimeUnit.MILLISECONDS);
+    @NotNull private final AtomicReferenceArray<Thread> parkedWorkers;
+
+    /** Where to start looking for a parked or least loaded worker; to spread the requests among the workers. */
+    @NotNull private final AtomicInteger nextWorker = new AtomicInteger();
+
+    @SuppressWarnings("unchecked")
+    RequestsBuffer(int threadsCount) {
+        capacity = new Semaphore(threadsCount * WAITING_REQUESTS_PER_WORKER);
+        workerQueues = new BlockingQueue[threadsCount];
+        for (int i = 0; i < threadsCount; i++) {
+            workerQueues[i] = new PriorityBlockingQueue<>();
+        }
+        workerLoads = new AtomicIntegerArray(threadsCount);
+        parkedWorkers = new AtomicReferenceArray<>(threadsCount);
     }
 
     /**
-     * Tries to obtain a request to be processed by the specified subtask.
-     * Does NOT wait, it just checks reserved requests and global queues.
+     * Offers a request for processing. Waits (for a limited time) if the buffer is full.
      *
-     * Post-conditions:
-     * - Returns null only if there are no reserved nor globally available requests.
-     * - If the request is not null, the primary identifier of the request is (successfully) bound to the specified task.
+     * @return false if the request was not put into the queue because of the timeout
+     * @throws InterruptedException If present, the request was not put into the queue.
      */
-    synchronized ItemProcessingRequest<I> poll(String taskIdentifier) {
-
-        ItemProcessingRequest<I> reserved = getNextReservedRequest(taskIdentifier);
-        if (reserved != null) {
-            LOGGER.trace("Got reserved (pre-assigned) request: {}", reserved);
-            if (bind(reserved, taskIdentifier)) {
-                return reserved;
-            } else {
-                throw new IllegalStateException("A reserved request couldn't be bound to the current task. Request = " +
-                        reserved + ", task = " + taskIdentifier);
-            }
+    boolean offer(ItemProcessingRequest<I> request) throws InterruptedException {
+        if (!capacity.tryAcquire(REQUEST_QUEUE_OFFER_TIMEOUT, TimeUnit.MILLISECONDS)) {
+            return false;
         }
-
-        for (;;) {
-            ItemProcessingRequest<I> request = globalQueue.poll();
-            LOGGER.trace("Got request from global queue: {}", request);
-
-            if (request == null) {
-                // Nothing in the queue for now. OK, let's try next time.
-                return null;
-            }
-
-            if (bind(request, taskIdentifier)) {
-                return request;
-            } else {
-                // The request couldn't be bound to the specified task. We have to go and try another one.
-            }
+        Object correlationValue = getCorrelationValue(request);
+        if (correlationValue != null) {
+            int workerIndex = bindings.compute(correlationValue,
+                            (value, binding) -> binding != null ? binding.increment() : new Binding(selectWorker(value)))
+                    .workerIndex;
+            workerLoads.incrementAndGet(workerIndex);
+            workerQueues[workerIndex].add(new QueuedRequest<>(request, arrivalCounter.getAndIncrement()));
+            LOGGER.trace("Request {} put into the queue of worker #{}", request, workerIndex);
+            wakeUp(workerIndex);
+        } else {
+            sharedQueue.add(request);
+            LOGGER.trace("Request {} put into the shared queue", request);
+            wakeUpAnyWorker();
         }
+        return true;
     }
 
     /**
-     * Binds a request identifier to specified subtask, if possible i.e. if the request identifier is not bound to another task.
-     * If the request identifier is bound to another task, the request is assigned to it.
-     *
-     * @return true if the request was successfully bound to the current task;
-     *         false if it was reassigned (so this task has to fetch another request).
+     * Returns the value to which the request is to be bound, or null if any worker can process it.
      */
-    private boolean bind(ItemProcessingRequest<I> request, String taskIdentifier) {
-        if (!(request instanceof CorrelatableProcessingRequest)) {
-            return true;
+    private Object getCorrelationValue(ItemProcessingRequest<I> request) {
+        if (!(request instanceof CorrelatableProcessingRequest correlatable)) {
+            return null;
         }
-
-        Object correlationValue = ((CorrelatableProcessingRequest) request).getCorrelationValue();
+        Object correlationValue = correlatable.getCorrelationValue();
         if (correlationValue == null) {
             LOGGER.warn("Null correlationValue in request {}", request);
-            return true;
         }
+        return correlationValue;
+    }
 
-        String boundTo = bindingsMap.get(correlationValue);
-        if (boundTo == null) {
-            LOGGER.trace("Binding {} to {}", correlationValue, taskIdentifier);
-            bindingsMap.put(correlationValue, taskIdentifier);
-            return true;
+    /**
+     * Selects the worker for a correlation value that is not bound yet: the "home" worker determined by the hash
+     * of the value, unless it is busier than some other worker. (So changes of the same object that do not overlap
+     * in time are usually processed by the same worker, yet a busy worker does not get new work while others are idle.)
+     */
+    private int selectWorker(@NotNull Object correlationValue) {
+        int workers = workerQueues.length;
+        int hash = correlationValue.hashCode();
+        int home = Math.floorMod(hash ^ (hash >>> 16), workers);
+        int homeLoad = workerLoads.get(home);
+        if (homeLoad == 0) {
+            return home;
         }
-
-        if (boundTo.equals(taskIdentifier)) {
-            LOGGER.trace("Processing {} as it is already bound to current task: {}", correlationValue, taskIdentifier);
-            return true;
+        int start = Math.floorMod(nextWorker.getAndIncrement(), workers);
+        int best = home;
+        int bestLoad = homeLoad;
+        for (int i = 0; i < workers; i++) {
+            int index = (start + i) % workers;
+            int load = workerLoads.get(index);
+            if (load < bestLoad) {
+                best = index;
+                bestLoad = load;
+            }
         }
-
-        LOGGER.trace("Request {} (ID {}) is already bound to another task {}. Moving it to the reserved"
-                + " requests queue for that task. Current task: {}", request, correlationValue, boundTo, taskIdentifier);
-        reserve(request, boundTo);
-        return false;
+        return best;
     }
 
     /**
-     * Gets a change reserved for given task (if there's any).
-     * REMOVES the reservation.
+     * Obtains a request to be processed by the specified worker. Checks the worker's own queue first, then the shared one.
+     * If there's nothing available, parks the current thread for at most the specified time.
      *
-     * @return Change reserved for given task; or null if there's nothing there.
+     * @return null if there was no request available within the specified time (or the thread was interrupted)
      */
-    private ItemProcessingRequest<I> getNextReservedRequest(String taskIdentifier) {
-        Queue<ItemProcessingRequest<I>> reservedRequests = reservedRequestsQueueMap.get(taskIdentifier);
-        if (reservedRequests != null) {
-            return reservedRequests.poll();
-        } else {
-            return null;
+    ItemProcessingRequest<I> poll(int workerIndex, long timeout) {
+        ItemProcessingRequest<I> request = pollNow(workerIndex);
+        if (request != null) {
+            return request;
         }
+
+        // We announce the parking first and then check the queues again, so no request offered in the meantime is missed.
+        parkedWorkers.set(workerIndex, Thread.currentThread());
+        try {
+            request = pollNow(workerIndex);
+            if (request != null) {
+                return request;
+            }
+            LOGGER.trace("No requests for worker #{}, parking for {} msecs", workerIndex, timeout);
+            LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(timeout));
+        } finally {
+            parkedWorkers.set(workerIndex, null);
+        }
+        return pollNow(workerIndex);
     }
 
-    private void reserve(ItemProcessingRequest<I> request, String owningTaskIdentifier) {
-        reservedRequestsQueueMap
-                .computeIfAbsent(owningTaskIdentifier, key -> new PriorityQueue<>())
-                .offer(request);
+    private ItemProcessingRequest<I> pollNow(int workerIndex) {
+        QueuedRequest<I> queued = workerQueues[workerIndex].poll();
+        if (queued != null) {
+            capacity.release();
+            LOGGER.trace("Got request from the queue of worker #{}: {}", workerIndex, queued.request);
+            return queued.request;
+        }
+        ItemProcessingRequest<I> request = sharedQueue.poll();
+        if (request != null) {
+            capacity.release();
+            LOGGER.trace("Got request from the shared queue: {}", request);
+        }
+        return request;
     }
 
     /**
-     * Marks specified request as processed: Unbinds its primary identifier from the calling subtask.
+     * Marks specified request as processed by given worker: its correlation value is unbound from the worker,
+     * if there are no other requests for it.
      */
-    synchronized void markProcessed(ItemProcessingRequest<I> request, String taskIdentifier) {
-        unbind(request, taskIdentifier);
-    }
-
-    private void unbind(ItemProcessingRequest<I> request, String taskIdentifier) {
-        if (!(request instanceof CorrelatableProcessingRequest)) {
-            return;
-        }
-
-        Object correlationValue = ((CorrelatableProcessingRequest) request).getCorrelationValue();
-        LOGGER.trace("Trying to unbind {} from {}", correlationValue, taskIdentifier);
+    void markProcessed(ItemProcessingRequest<I> request, int workerIndex) {
+        Object correlationValue = request instanceof CorrelatableProcessingRequest correlatable
+                ? correlatable.getCorrelationValue() : null;
         if (correlationValue == null) {
-            LOGGER.trace("correlationValue is null (warning has been already issued): {}", request);
             return;
         }
+        bindings.computeIfPresent(correlationValue, (value, binding) -> binding.decrement());
+        workerLoads.decrementAndGet(workerIndex);
+    }
 
-        if (isReserved(correlationValue, taskIdentifier)) {
-            LOGGER.trace("...but it is reserved to its owner (some relevant changes are waiting), so not unbinding now");
-            return;
+    private void wakeUp(int workerIndex) {
+        Thread parked = parkedWorkers.getAndSet(workerIndex, null);
+        if (parked != null) {
+            LockSupport.unpark(parked);
         }
-
-        String previousOwner = bindingsMap.remove(correlationValue);
-        LOGGER.trace("Unbound (previous owner was: {})", previousOwner);
-        assert taskIdentifier.equals(previousOwner);
     }
 
-    private boolean isReserved(Object primaryIdentifier, String taskIdentifier) {
-        Queue<ItemProcessingRequest<I>> reservedRequests = reservedRequestsQueueMap.get(taskIdentifier);
-        if (reservedRequests != null) {
-            for (ItemProcessingRequest<I> request : reservedRequests) {
-                if (request instanceof CorrelatableProcessingRequest &&
-                        primaryIdentifier.equals(((CorrelatableProcessingRequest) request).getCorrelationValue())) {
-                    return true;
-                }
+    private void wakeUpAnyWorker() {
+        int workers = workerQueues.length;
+        int start = Math.floorMod(nextWorker.getAndIncrement(), workers);
+        for (int i = 0; i < workers; i++) {
+            Thread parked = parkedWorkers.getAndSet((start + i) % workers, null);
+            if (parked != null) {
+                LockSupport.unpark(parked);
+                return;
             }
         }
-        return false;
+        // No worker is parked; the request will be taken by the first one that finishes its current work.
+    }
+
+    /**
+     * Wakes up all parked workers, e.g. to let them know that no more requests will come.
+     */
+    void wakeUpAllWorkers() {
+        for (int i = 0; i < workerQueues.length; i++) {
+            wakeUp(i);
+        }
     }
 
-    synchronized int getReservedRequestsCount(String taskIdentifier) {
-        Queue<ItemProcessingRequest<I>> reservedRequests = reservedRequestsQueueMap.get(taskIdentifier);
-        return reservedRequests != null ? reservedRequests.size() : 0;
+    /**
+     * Returns the number of requests waiting in the queue of given worker (i.e. the ones no other worker can process).
+     */
+    int getPendingRequestsCount(int workerIndex) {
+        return workerQueues[workerIndex].size();
     }
 
     // should be called when there's no concurrency
     int nackAllRequests(OperationResult result) {
         AtomicInteger nackCounter = new AtomicInteger();
 
-        nackAll(globalQueue, nackCounter, result);
-        reservedRequestsQueueMap.values().forEach(queue -> nackAll(queue, nackCounter, result));
+        nackAll(sharedQueue, nackCounter, result);
+        for (BlockingQueue<QueuedRequest<I>> workerQueue : workerQueues) {
+            for (;;) {
+                QueuedRequest<I> queued = workerQueue.poll();
+                if (queued == null) {
+                    break;
+                }
+                queued.request.acknowledge(false, result);
+                nackCounter.incrementAndGet();
+            }
+        }
+        bindings.clear();
 
         return nackCounter.get();
     }
@@ -241,4 +291,37 @@ class RequestsBuffer<I> {
             }
         }
     }
+
+    /** Binding of a correlation value to a worker. Mutated only within `compute` operations on {@link #bindings}. */
+    private static class Binding {
+
+        private final int workerIndex;
+
+        /** Number of requests with the correlation value that are waiting or being processed. */
+        private int requests = 1;
+
+        private Binding(int workerIndex) {
+            this.workerIndex = workerIndex;
+        }
+
+        private Binding increment() {
+            requests++;
+            return this;
+        }
+
+        /** Returns null (i.e. removes the binding) if there are no more requests. */
+        private Binding decrement() {
+            return --requests > 0 ? this : null;
+        }
+    }
+
+    private record QueuedRequest<I>(@NotNull ItemProcessingRequest<I> request, long arrival)
+            implements Comparable<QueuedRequest<I>> {
+
+        @Override
+        public int compareTo(@NotNull QueuedRequest<I> other) {
+            int bySequentialNumber = Integer.compare(request.getSequentialNumber(), other.request.getSequentialNumber());
+            return bySequentialNumber != 0 ? bySequentialNumber : Long.compare(arrival, other.arrival);
+        }
+    }
 }
@@ -298,7 +298,7 @@ public abstract class AbstractReport {
         state = State.CLOSED;
     }
 
-    private boolean isClosed() {
+    boolean isClosed() {
         return state == State.CLOSED;
     }
 
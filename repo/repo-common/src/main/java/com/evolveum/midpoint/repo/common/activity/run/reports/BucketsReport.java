@@ -13,6 +13,8 @@ import com.evolveum.midpoint.repo.common.activity.run.state.CurrentActivityState
 import com.evolveum.midpoint.schema.result.OperationResult;
 
 import com.evolveum.midpoint.task.api.RunningTask;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.ActivityReportsType;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.ActivityStateType;
 
@@ -28,11 +30,22 @@ import java.util.List;
 
 /**
  * Represents a report on individual buckets.
+ *
+ * Besides writing the records, it keeps the statistics of bucket sizes (as seen by this worker), so that badly balanced
+ * segmentation can be spotted easily. They are logged when the report is closed.
  */
 public class BucketsReport extends AbstractReport {
 
+    private static final Trace LOGGER = TraceManager.getTrace(BucketsReport.class);
+
     private static final ItemPath STATE_ITEM_PATH = ItemPath.create(ActivityStateType.F_REPORTS, ActivityReportsType.F_BUCKETS);
 
+    /** Statistics of bucket sizes. Updated from the main activity run thread only. */
+    private int buckets;
+    private long totalSize;
+    private int minSize = Integer.MAX_VALUE;
+    private int maxSize;
+
     public BucketsReport(@Nullable BucketsProcessingReportDefinitionType definition,
             @NotNull CurrentActivityState<?> activityState, @NotNull Kind kind) {
         super(definition, BucketProcessingRecordType.COMPLEX_TYPE, activityState, kind.itemsIncluded);
@@ -57,6 +70,35 @@ public class BucketsReport extends AbstractReport {
 
         openIfClosed(result);
         writeRecord(record);
+        updateSizeStatistics(record.getSize());
+    }
+
+    private void updateSizeStatistics(Integer size) {
+        if (size != null) {
+            buckets++;
+            totalSize += size;
+            minSize = Math.min(minSize, size);
+            maxSize = Math.max(maxSize, size);
+        }
+    }
+
+    /** Returns the description of bucket sizes statistics, or null if there are none. */
+    public @Nullable String getSizeStatisticsDescription() {
+        if (buckets == 0) {
+            return null;
+        }
+        double average = (double) totalSize / buckets;
+        return String.format("%d bucket(s), total size %d, min %d, max %d, average %.1f, max/average ratio %.2f",
+                buckets, totalSize, minSize, maxSize, average, average > 0 ? maxSize / average : 0.0);
+    }
+
+    @Override
+    public synchronized void close() {
+        String statistics = getSizeStatisticsDescription();
+        if (statistics != null && !isClosed()) {
+            LOGGER.info("Bucket sizes: {}", statistics);
+        }
+        super.close();
     }
 
     @Override
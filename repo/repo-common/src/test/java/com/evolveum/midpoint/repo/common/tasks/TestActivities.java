@@ -66,7 +66,8 @@ import com.evolveum.midpoint.util.DebugUtil;
  * 2. running mock semi-composite activity ({@link #test130RunCompositeTask()}),
  * 3. running custom composite activity ({@link #test140RunCustomCompositeTask()}),
  * 4. running mock iterative activity, including bucketing ({@link #test150RunMockIterativeTask()}, {@link #test155RunBucketedMockIterativeTask()}),
- * 5. running mock search-based activity, including bucketing ({@link #test160RunMockSearchBasedTask()}, {@link #test170RunBucketedTask()}),
+ * 5. running mock search-based activity, including bucketing ({@link #test160RunMockSearchBasedTask()}, {@link #test170RunBucketedTask()},
+ * {@link #test175RunAdaptivelyBucketedTask()}),
  * 6. running tree of bucketed activities ({@link #test180RunBucketedTree()}),
  * 7. delegation of processing to separate task(s) - for simple activity ({@link #test200Subtask()}) or children
  * of a semi-composite one ({@link #test220MockCompositeWithSubtasks()}),
@@ -98,6 +99,7 @@ public class TestActivities extends AbstractRepoCommonTest {
     private static final TestObject<TaskType> TASK_155_MOCK_ITERATIVE_BUCKETED = TestObject.file(TEST_DIR, "task-155-mock-iterative-bucketed.xml", "02a94071-2eff-4ca0-aa63-3fdf9d540064");
     private static final TestObject<TaskType> TASK_160_MOCK_SEARCH_ITERATIVE = TestObject.file(TEST_DIR, "task-160-mock-search-iterative.xml", "9d8384b3-a007-44e2-a9f7-084a64bdc285");
     private static final TestObject<TaskType> TASK_170_MOCK_BUCKETED = TestObject.file(TEST_DIR, "task-170-mock-bucketed.xml", "04e257d1-bb25-4675-8e00-f248f164fbc3");
+    private static final TestObject<TaskType> TASK_175_MOCK_ADAPTIVELY_BUCKETED = TestObject.file(TEST_DIR, "task-175-mock-adaptively-bucketed.xml", "b6e2f0a4-5c1d-4f7e-9a38-2d61c0e7f415");
     private static final TestObject<TaskType> TASK_180_BUCKETED_TREE = TestObject.file(TEST_DIR, "task-180-bucketed-tree.xml", "ac3220c5-6ded-4b94-894e-9ed39c05db66");
     private static final TestObject<TaskType> TASK_185_BUCKETED_TREE_ANALYSIS = TestObject.file(TEST_DIR, "task-185-bucketed-tree-analysis.xml", "12f07ab1-41c3-4dba-bf47-3d2a032fa555");
     private static final TestObject<TaskType> TASK_190_SUSPENDING_COMPOSITE = TestObject.file(TEST_DIR, "task-190-suspending-composite.xml", "1e7cf975-7253-4991-a707-661d3c52f203");
@@ -793,6 +795,54 @@ public class TestActivities extends AbstractRepoCommonTest {
                 .assertHasWallClockTime();
     }
 
+    /**
+     * Runs mock search-based activity with adaptive segmentation, i.e. with bucket boundaries taken from the repository.
+     * 100 roles in buckets of 30 mean 4 buckets. Each role must be processed exactly once.
+     */
+    @Test
+    public void test175RunAdaptivelyBucketedTask() throws Exception {
+        given();
+
+        Task task = getTestTask();
+        OperationResult result = task.getResult();
+
+        recorder.reset();
+
+        Task task1 = taskAdd(TASK_175_MOCK_ADAPTIVELY_BUCKETED, result);
+
+        when();
+
+        waitForTaskClose(task1.getOid(), result, 10000);
+
+        then();
+
+        task1.refresh(result);
+        assertTask(task1, "after")
+                .display()
+                .assertSuccess()
+                .assertClosed()
+                .activityState()
+                    .rootActivity()
+                        .assertComplete()
+                        .assertSuccess()
+                        .itemProcessingStatistics()
+                            .assertTotalCounts(100, 0, 0)
+                        .end();
+
+        displayDumpable("recorder", recorder);
+        Set<String> messages = IntStream.range(0, 100)
+                .mapToObj(i -> String.format("Role: " + ROLE_NAME_PATTERN, i))
+                .collect(Collectors.toSet());
+        assertThat(recorder.getExecutions()).as("recorder")
+                .containsExactlyInAnyOrderElementsOf(messages);
+
+        assertProgress(task1.getOid(), "after")
+                .display()
+                .assertComplete()
+                .assertBuckets(4, 4)
+                .assertItems(100, 100);
+    }
+
     /**
      * Runs a tree of bucketed activities, to check that multiple bucketed activities do not conflict with each other.
      */
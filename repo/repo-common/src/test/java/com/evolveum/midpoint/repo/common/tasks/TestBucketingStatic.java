@@ -18,16 +18,21 @@ import static com.evolveum.midpoint.xml.ns._public.common.common_3.WorkBucketSta
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.stream.IntStream;
 import jakarta.annotation.PostConstruct;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ContextConfiguration;
 import org.testng.annotations.Test;
 
+import com.evolveum.midpoint.prism.PrismConstants;
 import com.evolveum.midpoint.prism.PrismContext;
 import com.evolveum.midpoint.prism.polystring.PolyString;
 import com.evolveum.midpoint.prism.query.ObjectQuery;
@@ -41,6 +46,9 @@ import com.evolveum.midpoint.repo.common.activity.run.buckets.GetBucketOperation
 import com.evolveum.midpoint.repo.common.activity.run.buckets.segmentation.BucketContentFactory;
 import com.evolveum.midpoint.repo.common.activity.run.buckets.segmentation.BucketContentFactoryGenerator;
 import com.evolveum.midpoint.repo.common.activity.run.buckets.segmentation.BucketFactory;
+import com.evolveum.midpoint.repo.common.activity.run.buckets.segmentation.ImplicitSegmentationResolver;
+import com.evolveum.midpoint.repo.common.activity.run.buckets.segmentation.SegmentationBoundariesStore;
+import com.evolveum.midpoint.repo.common.activity.run.buckets.segmentation.SegmentationSampler;
 import com.evolveum.midpoint.repo.common.activity.run.buckets.segmentation.StringBucketContentFactory;
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.schema.util.task.ActivityPath;
@@ -80,6 +88,7 @@ public class TestBucketingStatic extends AbstractRepoCommonTest {
     private static final TestObject<TaskType> TASK_030 = TestObject.file(TEST_DIR, "task-030.xml", "6fdcfd71-ded8-4ce1-8197-0a785695fe70");
     private static final TestObject<TaskType> TASK_040 = TestObject.file(TEST_DIR, "task-040.xml", "31d5e04a-871e-42cf-8ec1-35fab4f0d706");
     private static final TestObject<TaskType> TASK_050 = TestObject.file(TEST_DIR, "task-050.xml", "7c86fb96-b959-4469-9c26-1e7fc5bc79ef");
+    private static final TestObject<TaskType> TASK_060 = TestObject.file(TEST_DIR, "task-060.xml", "5d4c8a0e-3a51-4a47-9d40-7f1a3b8d2c61");
 
     private static final TestObject<TaskType> TASK_100 = TestObject.file(TEST_DIR, "task-100.xml", "b19b16ff-fe18-40ac-bf70-859f546a67ea");
     private static final TestObject<TaskType> TASK_110 = TestObject.file(TEST_DIR, "task-110.xml", "a4de3ebf-c9bb-4d25-bbaf-e73d89eea873");
@@ -98,6 +107,15 @@ public class TestBucketingStatic extends AbstractRepoCommonTest {
     private static final TestObject<TaskType> TASK_210_WORKER_4 = TestObject.file(TEST_DIR, "task-210-4.xml", "f1bb0e85-abac-4e61-8a3a-f72d40f3e8d6");
     private static final TestObject<TaskType> TASK_210_WORKER_5 = TestObject.file(TEST_DIR, "task-210-5.xml", "81e31c90-6546-4055-8371-a34ef79f5117");
 
+    private static final TestObject<TaskType> TASK_220_COORDINATOR = TestObject.file(TEST_DIR, "task-220-c.xml", "e2b7d3a4-1f6c-4b8e-9a35-220c0000c0de");
+    private static final TestObject<TaskType> TASK_220_WORKER_1 = TestObject.file(TEST_DIR, "task-220-1.xml", "e2b7d3a4-1f6c-4b8e-9a35-220000000001");
+    private static final TestObject<TaskType> TASK_220_WORKER_2 = TestObject.file(TEST_DIR, "task-220-2.xml", "e2b7d3a4-1f6c-4b8e-9a35-220000000002");
+    private static final TestObject<TaskType> TASK_230_COORDINATOR = TestObject.file(TEST_DIR, "task-230-c.xml", "e2b7d3a4-1f6c-4b8e-9a35-230c0000c0de");
+    private static final TestObject<TaskType> TASK_231_COORDINATOR = TestObject.file(TEST_DIR, "task-231-c.xml", "e2b7d3a4-1f6c-4b8e-9a35-231c0000c0de");
+
+    private static final int CONTENTION_BUCKETS = 40;
+    private static final int CONTENTION_WORKERS = 4;
+
     @PostConstruct
     public void initialize() throws Exception {
         displayTestTitle("Initializing TEST CLASS: " + getClass().getName());
@@ -303,6 +321,70 @@ public class TestBucketingStatic extends AbstractRepoCommonTest {
         assertBoundaries(contentFactory, Arrays.asList("0123456789abcdef", "0123456789abcdef"));
     }
 
+    /**
+     * Tests the adaptive segmentation: 3 buckets over 8 objects (provided by an in-memory sampler).
+     * The boundaries are determined once, and then re-used by other bucket factories (i.e. workers).
+     */
+    @Test
+    public void test060AdaptiveBuckets() throws Exception {
+        OperationResult result = createOperationResult();
+        taskAdd(TASK_060, result);
+
+        Task task = taskManager.getTaskPlain(TASK_060.oid, result);
+        ActivityStateType workState = new ActivityStateType();
+
+        InMemorySegmentationSampler sampler =
+                new InMemorySegmentationSampler(List.of("05", "1a", "3c", "40", "7f", "a2", "c9", "f0"));
+        ImplicitSegmentationResolver resolver = new ImplicitSegmentationResolver() {
+            @Override
+            public AbstractWorkSegmentationType resolveImplicitSegmentation(@NotNull ImplicitWorkSegmentationType segmentation) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public SegmentationSampler getSegmentationSampler() {
+                return sampler;
+            }
+        };
+
+        when();
+
+        InMemoryBoundariesStore store = new InMemoryBoundariesStore();
+        BucketFactory allocator = BucketFactory.create(getDistributionDefinition(task), resolver, beans);
+        allocator.prepare(store, result);
+
+        then();
+
+        assertThat(sampler.boundariesRequests).as("boundaries requests after prepare").isEqualTo(1);
+        assertThat(store.boundaries).as("stored boundaries").containsExactly("40", "c9");
+
+        assertEquals("Wrong # of estimated buckets", Integer.valueOf(3), allocator.getContentFactory().estimateNumberOfBuckets());
+
+        WorkBucketType bucket = assumeNextInterval(allocator, workState, null, "40", 1);
+
+        assertNarrowedQuery(task, bucket,
+                prismContext.queryFor(UserType.class)
+                        .item(PrismConstants.T_ID).lt("40")
+                        .build()
+        );
+
+        assumeNextInterval(allocator, workState, "40", "c9", 2);
+        assumeNextInterval(allocator, workState, "c9", null, 3);
+        assumeNoNextBucket(allocator, workState);
+
+        assertThat(sampler.boundariesRequests).as("boundaries requests after creating buckets").isEqualTo(1);
+
+        when("another worker prepares its bucket factory");
+
+        BucketFactory otherAllocator = BucketFactory.create(getDistributionDefinition(task), resolver, beans);
+        otherAllocator.prepare(store, result);
+
+        then("stored boundaries are used");
+
+        assertThat(sampler.boundariesRequests).as("boundaries requests after preparing other worker").isEqualTo(1);
+        assumeNextInterval(otherAllocator, new ActivityStateType(), null, "40", 1);
+    }
+
     /**
      * Tests the get-complete cycle (4x) with explicit, numeric interval segmentation providing 3 buckets.
      */
@@ -844,6 +926,208 @@ public class TestBucketingStatic extends AbstractRepoCommonTest {
         assertNumericBucket(buckets.get(0), WorkBucketStateType.COMPLETE, 5, 4, 5);
     }
 
+    /**
+     * Checks batch leasing and completion of buckets: coordinator + 2 workers, 6 buckets, leasing 3 buckets at once.
+     */
+    @Test
+    public void test220LeaseAndCompleteInBatches() throws Exception {
+        OperationResult result = createOperationResult();
+        taskAdd(TASK_220_COORDINATOR, result); // suspended
+        taskAdd(TASK_220_WORKER_1, result); // suspended
+        taskAdd(TASK_220_WORKER_2, result); // suspended
+
+        Task coordinator = taskManager.getTaskPlain(TASK_220_COORDINATOR.oid, result);
+
+        String oidC = TASK_220_COORDINATOR.oid;
+        String oidW1 = TASK_220_WORKER_1.oid;
+        String oidW2 = TASK_220_WORKER_2.oid;
+
+        when("getting buckets by both workers");
+
+        List<WorkBucketType> leased1 = new ArrayList<>();
+        WorkBucketType bucket1 = getWorkBucket(coordinator, oidW1, b -> b.withLeasedBucketsConsumer(leased1::addAll), result);
+        List<WorkBucketType> leased2 = new ArrayList<>();
+        WorkBucketType bucket2 = getWorkBucket(coordinator, oidW2, b -> b.withLeasedBucketsConsumer(leased2::addAll), result);
+
+        then("getting buckets by both workers");
+
+        coordinator.refresh(result);
+        displayDumpable("coordinator task after allocation", coordinator);
+
+        assertNumericBucket(bucket1, null, 1, 0, 1);
+        assertThat(leased1).as("buckets leased by worker 1").hasSize(2);
+        assertNumericBucket(leased1.get(0), WorkBucketStateType.DELEGATED, 2, 1, 2);
+        assertNumericBucket(leased1.get(1), WorkBucketStateType.DELEGATED, 3, 2, 3);
+
+        assertNumericBucket(bucket2, null, 4, 3, 4);
+        assertThat(leased2).as("buckets leased by worker 2").hasSize(2);
+        assertNumericBucket(leased2.get(0), WorkBucketStateType.DELEGATED, 5, 4, 5);
+        assertNumericBucket(leased2.get(1), WorkBucketStateType.DELEGATED, 6, 5, 6);
+
+        List<WorkBucketType> buckets = new ArrayList<>(getBuckets(coordinator));
+        sortBucketsBySequentialNumber(buckets);
+        assertEquals(6, buckets.size());
+        for (WorkBucketType bucket : buckets) {
+            assertThat(bucket.getState()).as("state of bucket " + bucket).isEqualTo(WorkBucketStateType.DELEGATED);
+        }
+
+        when("completing buckets of worker 1 in a batch");
+
+        bucketingManager.completeWorkBuckets(oidC, oidW1, ActivityPath.empty(), List.of(1, 2, 3), null, null, result);
+
+        then("completing buckets of worker 1 in a batch");
+
+        coordinator = taskManager.getTaskPlain(coordinator.getOid(), result);
+        displayDumpable("coordinator after completion of buckets 1-3", coordinator);
+
+        buckets = new ArrayList<>(getBuckets(coordinator));
+        sortBucketsBySequentialNumber(buckets);
+        assertEquals(4, buckets.size());
+        assertNumericBucket(buckets.get(0), WorkBucketStateType.COMPLETE, 3, 2, 3);
+        assertNumericBucket(buckets.get(1), WorkBucketStateType.DELEGATED, 4, 3, 4);
+        assertNumericBucket(buckets.get(2), WorkBucketStateType.DELEGATED, 5, 4, 5);
+        assertNumericBucket(buckets.get(3), WorkBucketStateType.DELEGATED, 6, 5, 6);
+
+        when("leasing buckets released by worker 2");
+
+        bucketingManager.releaseAllWorkBucketsFromWorker(oidC, oidW2, ActivityPath.empty(), null, result);
+        leased1.clear();
+        WorkBucketType bucket3 = getWorkBucket(coordinator, oidW1, b -> b.withLeasedBucketsConsumer(leased1::addAll), result);
+
+        then("leasing buckets released by worker 2");
+
+        coordinator = taskManager.getTaskPlain(coordinator.getOid(), result);
+        displayDumpable("coordinator after leasing released buckets", coordinator);
+
+        assertNumericBucket(bucket3, null, 4, 3, 4);
+        assertThat(leased1).as("buckets leased by worker 1").hasSize(2);
+        assertNumericBucket(leased1.get(0), WorkBucketStateType.DELEGATED, 5, 4, 5);
+        assertNumericBucket(leased1.get(1), WorkBucketStateType.DELEGATED, 6, 5, 6);
+
+        when("completing remaining buckets in a batch");
+
+        bucketingManager.completeWorkBuckets(oidC, oidW1, ActivityPath.empty(), List.of(4, 5, 6), null, null, result);
+        WorkBucketType nothing = getWorkBucket(coordinator, oidW1, result);
+
+        then("completing remaining buckets in a batch");
+
+        assertNull("Found bucket even if none should be found", nothing);
+
+        coordinator = taskManager.getTaskPlain(coordinator.getOid(), result);
+        displayDumpable("coordinator after completion of all buckets", coordinator);
+
+        buckets = new ArrayList<>(getBuckets(coordinator));
+        assertEquals(1, buckets.size());
+        assertNumericBucket(buckets.get(0), WorkBucketStateType.COMPLETE, 6, 5, 6);
+    }
+
+    /**
+     * Measures the contention on the coordinator task: 4 workers process 40 buckets in parallel, first one bucket
+     * at a time (task 230), then leasing and completing 10 buckets at once (task 231).
+     *
+     * This is more a benchmark than a test: the times are only displayed. Asserted is that each bucket is processed
+     * exactly once, and that the batching reduces the number of coordinator task modifications.
+     */
+    @Test
+    public void test230BucketAllocationContention() throws Exception {
+        OperationResult result = createOperationResult();
+
+        given("two coordinators with 40 buckets, without and with batching");
+        taskAdd(TASK_230_COORDINATOR, result); // suspended
+        taskAdd(TASK_231_COORDINATOR, result); // suspended
+
+        when("buckets are processed one at a time");
+        ContentionRun single = runContendingWorkers(TASK_230_COORDINATOR.oid, result);
+
+        and("buckets are processed in batches");
+        ContentionRun batched = runContendingWorkers(TASK_231_COORDINATOR.oid, result);
+
+        then("each bucket is processed exactly once");
+        displayValue("one bucket at a time", single.describe());
+        displayValue("batches of 10 buckets", batched.describe());
+
+        List<Integer> allBuckets = IntStream.rangeClosed(1, CONTENTION_BUCKETS).boxed().toList();
+        assertThat(single.processed()).as("buckets processed one at a time")
+                .containsExactlyInAnyOrderElementsOf(allBuckets);
+        assertThat(batched.processed()).as("buckets processed in batches")
+                .containsExactlyInAnyOrderElementsOf(allBuckets);
+
+        for (String coordinatorOid : List.of(TASK_230_COORDINATOR.oid, TASK_231_COORDINATOR.oid)) {
+            Task coordinator = taskManager.getTaskPlain(coordinatorOid, result);
+            assertThat(getBuckets(coordinator)).as("buckets in " + coordinator)
+                    .allMatch(bucket -> bucket.getState() == COMPLETE);
+        }
+
+        and("batching reduces the number of coordinator task modifications");
+        assertThat(batched.coordinatorOperations())
+                .as("coordinator operations with batching")
+                .isLessThan(single.coordinatorOperations() / 4);
+    }
+
+    /** Runs {@link #CONTENTION_WORKERS} threads getting and completing buckets of the coordinator until there are none. */
+    private ContentionRun runContendingWorkers(String coordinatorOid, OperationResult result) throws Exception {
+        Task coordinator = taskManager.getTaskPlain(coordinatorOid, result);
+        ActivityDistributionDefinition distribution =
+                ActivityDistributionDefinition.create(coordinator.getRootActivityDefinitionOrClone());
+
+        List<Integer> processed = Collections.synchronizedList(new ArrayList<>());
+        List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger coordinatorOperations = new AtomicInteger();
+
+        List<Thread> workers = new ArrayList<>();
+        for (int i = 1; i <= CONTENTION_WORKERS; i++) {
+            // Worker tasks need not exist, bucket operations modify only the coordinator.
+            String workerOid = String.format("e2b7d3a4-1f6c-4b8e-9a35-23%010d", i);
+            OperationResult workerResult = createOperationResult("worker" + i);
+            workers.add(new Thread(() -> {
+                try {
+                    for (;;) {
+                        List<WorkBucketType> leased = new ArrayList<>();
+                        WorkBucketType bucket = bucketingManager.getWorkBucket(
+                                coordinatorOid, workerOid, ActivityPath.empty(),
+                                GetBucketOperationOptionsBuilder.anOptions()
+                                        .withDistributionDefinition(distribution)
+                                        .withLeasedBucketsConsumer(leased::addAll)
+                                        .build(),
+                                null, workerResult);
+                        coordinatorOperations.incrementAndGet();
+                        if (bucket == null) {
+                            return;
+                        }
+                        List<Integer> toComplete = new ArrayList<>();
+                        toComplete.add(bucket.getSequentialNumber());
+                        leased.forEach(b -> toComplete.add(b.getSequentialNumber()));
+                        processed.addAll(toComplete);
+                        // The completion batch is the same as the lease batch, so everything is completed at once.
+                        bucketingManager.completeWorkBuckets(
+                                coordinatorOid, workerOid, ActivityPath.empty(), toComplete, null, null, workerResult);
+                        coordinatorOperations.incrementAndGet();
+                    }
+                } catch (Throwable t) {
+                    errors.add(t);
+                }
+            }, "contention-worker-" + i));
+        }
+
+        long start = System.currentTimeMillis();
+        workers.forEach(Thread::start);
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long duration = System.currentTimeMillis() - start;
+
+        assertThat(errors).as("errors in workers").isEmpty();
+        return new ContentionRun(List.copyOf(processed), coordinatorOperations.get(), duration);
+    }
+
+    private record ContentionRun(List<Integer> processed, int coordinatorOperations, long duration) {
+
+        String describe() {
+            return String.format("%d buckets processed in %d ms using %d coordinator operations",
+                    processed.size(), duration, coordinatorOperations);
+        }
+    }
+
     // TODO some test for batch allocation
 
     private WorkBucketType assumeNextValue(BucketFactory bucketFactory, ActivityStateType workState,
@@ -956,6 +1240,51 @@ public class TestBucketingStatic extends AbstractRepoCommonTest {
         return task;
     }
 
+    /** Provides a fixed (sorted) list of OIDs. */
+    private static class InMemorySegmentationSampler implements SegmentationSampler {
+
+        private final List<String> oids;
+        private int boundariesRequests;
+
+        private InMemorySegmentationSampler(List<String> oids) {
+            this.oids = oids;
+        }
+
+        @Override
+        public int countObjects(OperationResult result) {
+            return oids.size();
+        }
+
+        @Override
+        public @NotNull List<String> getBoundaries(int bucketSize, OperationResult result) {
+            boundariesRequests++;
+            List<String> boundaries = new ArrayList<>();
+            for (int i = bucketSize; i < oids.size(); i += bucketSize) {
+                boundaries.add(oids.get(i));
+            }
+            return boundaries;
+        }
+    }
+
+    /** Keeps the boundaries in memory, instead of the coordinator task. */
+    private static class InMemoryBoundariesStore implements SegmentationBoundariesStore {
+
+        private List<String> boundaries;
+
+        @Override
+        public @Nullable List<String> getBoundaries(OperationResult result) {
+            return boundaries;
+        }
+
+        @Override
+        public @NotNull List<String> storeBoundaries(@NotNull List<String> boundaries, OperationResult result) {
+            if (this.boundaries == null) {
+                this.boundaries = List.copyOf(boundaries);
+            }
+            return this.boundaries;
+        }
+    }
+
     @NotNull
     private BucketContentFactory createContentFactory(@NotNull ActivityDistributionDefinition distributionDefinition) {
         return contentFactoryCreator.createContentFactory(distributionDefinition.getBuckets(), null);
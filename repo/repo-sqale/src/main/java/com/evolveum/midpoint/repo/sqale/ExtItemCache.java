@@ -22,6 +22,10 @@ import com.evolveum.midpoint.util.logging.TraceManager;
 
 /**
  * Cache for {@link MExtItem} catalog.
+ *
+ * Lookups of cached items do not block, they only read the concurrent maps.
+ * Only a miss in {@link #resolveExtensionItem(MExtItem.Key)} enters the insert-or-fetch part,
+ * which is serialized per item key (not for the whole cache).
  */
 public class ExtItemCache {
 
@@ -30,8 +34,11 @@ public class ExtItemCache {
     private final Map<Integer, MExtItem> idToExtItem = new ConcurrentHashMap<>();
     private final Map<MExtItem.Key, MExtItem> keyToExtItem = new ConcurrentHashMap<>();
 
+    /** Monitors for items being inserted right now, see {@link #insertOrFetch(MExtItem.Key)}. */
+    private final Map<MExtItem.Key, Object> pendingInserts = new ConcurrentHashMap<>();
+
     // WARNING: Each .get() creates new connection, always use in try-with-resource block!
-    private Supplier<JdbcSession> jdbcSessionSupplier;
+    private volatile Supplier<JdbcSession> jdbcSessionSupplier;
 
     /**
      * Initializes the ext-item cache.
@@ -65,11 +72,29 @@ public class ExtItemCache {
         keyToExtItem.put(row.key(), row);
     }
 
-    public synchronized @NotNull MExtItem resolveExtensionItem(@NotNull MExtItem.Key extItemKey) {
+    public @NotNull MExtItem resolveExtensionItem(@NotNull MExtItem.Key extItemKey) {
         if (jdbcSessionSupplier == null) {
             throw new IllegalStateException("Ext item cache was not initialized yet!");
         }
 
+        // Fast path, without any locking - this is by far the most common case.
+        MExtItem extItem = keyToExtItem.get(extItemKey);
+        if (extItem != null) {
+            return extItem;
+        }
+
+        Object monitor = pendingInserts.computeIfAbsent(extItemKey, k -> new Object());
+        try {
+            synchronized (monitor) {
+                return insertOrFetch(extItemKey);
+            }
+        } finally {
+            pendingInserts.remove(extItemKey, monitor);
+        }
+    }
+
+    /** Called under the monitor for the key; checks the cache again, as the item may have been inserted meanwhile. */
+    private MExtItem insertOrFetch(@NotNull MExtItem.Key extItemKey) {
         MExtItem extItem = keyToExtItem.get(extItemKey);
         if (extItem != null) {
             return extItem;
@@ -118,7 +143,8 @@ public class ExtItemCache {
         return row;
     }
 
-    public synchronized @Nullable MExtItem getExtensionItem(Integer id) {
+    /** Returns item for ID, reading it from the DB if not cached (multi-node safety); no locking is needed for that. */
+    public @Nullable MExtItem getExtensionItem(Integer id) {
         if (jdbcSessionSupplier == null) {
             throw new IllegalStateException("Ext item cache was not initialized yet!");
         }
@@ -0,0 +1,118 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.sqale;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import com.evolveum.midpoint.repo.sqlbase.RepositoryException;
+import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.midpoint.util.exception.SystemException;
+
+/**
+ * Fetches pages of iterative search in a background thread, so the next page is (hopefully) ready
+ * when the handler finishes processing the current one.
+ *
+ * At most `capacity` fetched pages wait in the buffer; the background thread then waits with the next one.
+ * The fetching is stopped by {@link #close()}, e.g. when the handler returns `false`.
+ * The query currently being executed is not interrupted, its result is just thrown away.
+ *
+ * Note that the operation tracking of {@link com.evolveum.midpoint.repo.sqlbase.SqlBaseOperationTracker}
+ * is thread-local, so the fetching and parsing of prefetched pages is not tracked in the operation result.
+ *
+ * @param <P> type of the page
+ */
+class IterativeSearchPrefetcher<P> implements AutoCloseable {
+
+    /** How long the background thread waits for a free place in the buffer before checking the cancellation. */
+    private static final long OFFER_TIMEOUT_MS = 100;
+
+    private final BlockingQueue<FetchedPage<P>> buffer;
+
+    private volatile boolean cancelled;
+
+    IterativeSearchPrefetcher(
+            @NotNull ExecutorService executor, int capacity, @NotNull PageSource<P> source) {
+        buffer = new ArrayBlockingQueue<>(capacity);
+        executor.execute(() -> fetchPages(source));
+    }
+
+    private void fetchPages(PageSource<P> source) {
+        try {
+            while (!cancelled) {
+                P page = source.nextPage();
+                if (!offer(new FetchedPage<>(page, null)) || page == null) {
+                    return;
+                }
+            }
+        } catch (Throwable t) {
+            offer(new FetchedPage<>(null, t));
+        }
+    }
+
+    private boolean offer(FetchedPage<P> page) {
+        try {
+            while (!cancelled) {
+                if (buffer.offer(page, OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    /**
+     * Returns the next page, waiting for it if necessary, or `null` if there are no more pages.
+     * Exceptions thrown when fetching the page are rethrown here.
+     */
+    @Nullable P nextPage() throws SchemaException, RepositoryException {
+        FetchedPage<P> page;
+        try {
+            page = buffer.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SystemException("Interrupted while waiting for the next page of iterative search", e);
+        }
+        if (page.error == null) {
+            return page.content;
+        } else if (page.error instanceof SchemaException e) {
+            throw e;
+        } else if (page.error instanceof RepositoryException e) {
+            throw e;
+        } else if (page.error instanceof RuntimeException e) {
+            throw e;
+        } else if (page.error instanceof Error e) {
+            throw e;
+        } else {
+            throw new SystemException(page.error);
+        }
+    }
+
+    /** Stops the background fetching; already fetched pages are thrown away. */
+    @Override
+    public void close() {
+        cancelled = true;
+        buffer.clear();
+    }
+
+    /** Source of the pages, called from the background thread. */
+    interface PageSource<P> {
+
+        /** Returns the next page or `null` if there are no more pages. */
+        @Nullable P nextPage() throws SchemaException, RepositoryException;
+    }
+
+    private record FetchedPage<P>(P content, Throwable error) {
+    }
+}
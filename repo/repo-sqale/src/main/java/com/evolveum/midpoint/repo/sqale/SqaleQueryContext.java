@@ -212,7 +212,7 @@ public class SqaleQueryContext<S, Q extends FlexibleRelationalPathBase<R>, R>
 
     @Override
     public void beforeQuery() {
-        if (containsOrgFilter) {
+        if (containsOrgFilter && !repositoryContext().isOrgClosureIncremental()) {
             try (JdbcSession jdbcSession = repositoryContext().newJdbcSession().startTransaction()) {
                 jdbcSession.executeStatement("CALL m_refresh_org_closure()");
                 jdbcSession.commit();
@@ -11,6 +11,10 @@ import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.sql.DataSource;
 import javax.xml.namespace.QName;
 
@@ -19,6 +23,7 @@ import com.evolveum.midpoint.xml.ns._public.common.audit_3.EffectivePrivilegesMo
 import com.querydsl.sql.types.ArrayType;
 import com.querydsl.sql.types.EnumAsObjectType;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.apache.commons.lang3.BooleanUtils;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -38,6 +43,7 @@ import com.evolveum.midpoint.repo.sqale.qmodel.ext.MExtItem;
 import com.evolveum.midpoint.repo.sqale.qmodel.ext.MExtItemCardinality;
 import com.evolveum.midpoint.repo.sqale.qmodel.ext.MExtItemHolderType;
 import com.evolveum.midpoint.repo.sqale.qmodel.object.MObjectType;
+import com.evolveum.midpoint.repo.sqale.qmodel.org.QOrgClosure;
 import com.evolveum.midpoint.repo.sqale.qmodel.ref.MReferenceType;
 import com.evolveum.midpoint.repo.sqlbase.JdbcRepositoryConfiguration;
 import com.evolveum.midpoint.repo.sqlbase.JdbcSession;
@@ -72,6 +78,13 @@ public class SqaleRepoContext extends SqlRepoContext {
 
     private FullTextSearchConfigurationType fullTextSearchConfig;
 
+    /**
+     * Created on first use, see {@link #getFullObjectParsingExecutor()}.
+     * Volatile, so the executor can be obtained without locking; it is (re)created under the lock of `this`.
+     */
+    private volatile ExecutorService fullObjectParsingExecutor;
+    private volatile int fullObjectParsingThreads;
+
     public SqaleRepoContext(
             JdbcRepositoryConfiguration jdbcRepositoryConfiguration,
             DataSource dataSource,
@@ -160,6 +173,81 @@ public class SqaleRepoContext extends SqlRepoContext {
         }
     }
 
+    @PreDestroy
+    public synchronized void destroy() {
+        if (fullObjectParsingExecutor != null) {
+            // Tasks that did not start are cancelled, so nobody waits for them forever.
+            for (Runnable notStarted : fullObjectParsingExecutor.shutdownNow()) {
+                if (notStarted instanceof Future<?> future) {
+                    future.cancel(false);
+                }
+            }
+            fullObjectParsingExecutor = null;
+        }
+    }
+
+    /**
+     * Returns the executor shared by all searches for parallel parsing of full objects,
+     * or null if it is not enabled by {@link SqaleRepositoryConfiguration#getFullObjectParsingThreads()}.
+     * The executor is recreated if the configured number of threads changes.
+     *
+     * This is called for each page of search results, so the usual case (no change of the configuration)
+     * does not lock anything.
+     */
+    public @Nullable ExecutorService getFullObjectParsingExecutor() {
+        int threads = getJdbcRepositoryConfiguration() instanceof SqaleRepositoryConfiguration config
+                ? config.getFullObjectParsingThreads() : 0;
+        if (threads == fullObjectParsingThreads) {
+            ExecutorService executor = fullObjectParsingExecutor;
+            if (executor != null || threads <= 0) {
+                return executor;
+            }
+        }
+        return reconfigureFullObjectParsingExecutor(threads);
+    }
+
+    private synchronized @Nullable ExecutorService reconfigureFullObjectParsingExecutor(int threads) {
+        if (threads != fullObjectParsingThreads) {
+            if (fullObjectParsingExecutor != null) {
+                // running and queued tasks are finished, the executor is just not used for the new ones
+                fullObjectParsingExecutor.shutdown();
+                fullObjectParsingExecutor = null;
+            }
+            fullObjectParsingThreads = threads;
+        }
+        if (fullObjectParsingExecutor == null && threads > 0) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            fullObjectParsingExecutor = Executors.newFixedThreadPool(threads, r -> {
+                Thread thread = new Thread(r, "repo-full-object-parsing-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return fullObjectParsingExecutor;
+    }
+
+    /**
+     * Returns true if the org closure is maintained incrementally,
+     * see {@link SqaleRepositoryConfiguration#isOrgClosureIncremental()}.
+     */
+    public boolean isOrgClosureIncremental() {
+        return getJdbcRepositoryConfiguration() instanceof SqaleRepositoryConfiguration config
+                && config.isOrgClosureIncremental();
+    }
+
+    /** Returns new alias for org closure - materialized view or incrementally maintained table, as configured. */
+    public QOrgClosure newOrgClosureAlias(String variable) {
+        return new QOrgClosure(variable, QOrgClosure.DEFAULT_SCHEMA_NAME,
+                isOrgClosureIncremental() ? QOrgClosure.INCREMENTAL_TABLE_NAME : QOrgClosure.TABLE_NAME);
+    }
+
+    /** Refreshes org closure materialized view if needed; incrementally maintained closure needs no refresh. */
+    public void refreshOrgClosureIfNeeded(JdbcSession jdbcSession) {
+        if (!isOrgClosureIncremental()) {
+            jdbcSession.executeStatement("CALL m_refresh_org_closure()");
+        }
+    }
+
     // This has nothing to do with "repo cache" which is higher than this.
     public void clearCaches() {
         uriCache.initialize(this::newJdbcSession);
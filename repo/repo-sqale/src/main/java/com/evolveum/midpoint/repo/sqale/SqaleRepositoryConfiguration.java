@@ -30,6 +30,9 @@ import com.evolveum.midpoint.util.exception.SystemException;
 public class SqaleRepositoryConfiguration implements JdbcRepositoryConfiguration {
 
     private static final String PROPERTY_SQL_DURATION_WARNING_MS = "sqlDurationWarningMs";
+    private static final String PROPERTY_ITERATIVE_SEARCH_PREFETCH_PAGES = "iterativeSearchPrefetchPages";
+    private static final String PROPERTY_FULL_OBJECT_PARSING_THREADS = "fullObjectParsingThreads";
+    private static final String PROPERTY_ORG_CLOSURE_INCREMENTAL = "orgClosureIncremental";
 
     private static final String DEFAULT_DRIVER = "org.postgresql.Driver";
     private static final SupportedDatabase DEFAULT_DATABASE = SupportedDatabase.POSTGRESQL;
@@ -80,12 +83,16 @@ public class SqaleRepositoryConfiguration implements JdbcRepositoryConfiguration
     private Long leakDetectionThreshold;
 
     private String fullObjectFormat;
+    private int fullObjectParsingThreads;
 
     private String performanceStatisticsFile;
     private int performanceStatisticsLevel;
 
     private int iterativeSearchByPagingBatchSize;
+    private int iterativeSearchPrefetchPages;
     private boolean createMissingCustomColumns;
+    private boolean orgClosureIncremental;
+    private int approximateCountThreshold;
 
     private long sqlDurationWarningMs; // 0 or less means no warning
 
@@ -130,6 +137,7 @@ public class SqaleRepositoryConfiguration implements JdbcRepositoryConfiguration
 
         fullObjectFormat = configuration.getString(PROPERTY_FULL_OBJECT_FORMAT, DEFAULT_FULL_OBJECT_FORMAT)
                 .toLowerCase(); // all language string constants are lower-cases
+        fullObjectParsingThreads = configuration.getInt(PROPERTY_FULL_OBJECT_PARSING_THREADS, 0);
 
         performanceStatisticsFile = configuration.getString(PROPERTY_PERFORMANCE_STATISTICS_FILE);
         performanceStatisticsLevel = configuration.getInt(PROPERTY_PERFORMANCE_STATISTICS_LEVEL,
@@ -137,8 +145,12 @@ public class SqaleRepositoryConfiguration implements JdbcRepositoryConfiguration
 
         iterativeSearchByPagingBatchSize = configuration.getInt(
                 PROPERTY_ITERATIVE_SEARCH_BY_PAGING_BATCH_SIZE, DEFAULT_ITERATIVE_SEARCH_PAGE_SIZE);
+        iterativeSearchPrefetchPages = configuration.getInt(PROPERTY_ITERATIVE_SEARCH_PREFETCH_PAGES, 0);
         createMissingCustomColumns =
                 configuration.getBoolean(PROPERTY_CREATE_MISSING_CUSTOM_COLUMNS, false);
+        orgClosureIncremental = configuration.getBoolean(PROPERTY_ORG_CLOSURE_INCREMENTAL, false);
+        approximateCountThreshold = configuration.getInt(
+                PROPERTY_APPROXIMATE_COUNT_THRESHOLD, DEFAULT_APPROXIMATE_COUNT_THRESHOLD);
 
         sqlDurationWarningMs = configuration.getLong(
                 PROPERTY_SQL_DURATION_WARNING_MS, DEFAULT_SQL_DURATION_WARNING_MS);
@@ -298,11 +310,62 @@ public class SqaleRepositoryConfiguration implements JdbcRepositoryConfiguration
         this.iterativeSearchByPagingBatchSize = iterativeSearchByPagingBatchSize;
     }
 
+    /**
+     * Returns the number of pages of iterative object search that can be fetched (in a background thread)
+     * while the handler processes the current page.
+     * Value of 0 or less means that the pages are fetched only when needed, by the thread running the search.
+     */
+    public int getIterativeSearchPrefetchPages() {
+        return iterativeSearchPrefetchPages;
+    }
+
+    /**
+     * Returns the number of threads (shared by all searches) used to parse full objects of search results.
+     * Value of 0 or less means that the objects are parsed by the thread executing the search.
+     */
+    public int getFullObjectParsingThreads() {
+        return fullObjectParsingThreads;
+    }
+
+    // exists because of testing
+    public void setFullObjectParsingThreads(int fullObjectParsingThreads) {
+        this.fullObjectParsingThreads = fullObjectParsingThreads;
+    }
+
+    // exists because of testing
+    public void setIterativeSearchPrefetchPages(int iterativeSearchPrefetchPages) {
+        this.iterativeSearchPrefetchPages = iterativeSearchPrefetchPages;
+    }
+
+    /**
+     * Returns true if the org closure is maintained incrementally in `m_org_closure_table` (by triggers)
+     * instead of the `m_org_closure` materialized view that is refreshed as a whole after the changes.
+     * This must be the same for all the nodes of the cluster; the state in the database wins on mismatch.
+     */
+    public boolean isOrgClosureIncremental() {
+        return orgClosureIncremental;
+    }
+
+    // exists because of testing, and to adapt to the database-wide state on startup
+    public void setOrgClosureIncremental(boolean orgClosureIncremental) {
+        this.orgClosureIncremental = orgClosureIncremental;
+    }
+
     @Override
     public boolean isCreateMissingCustomColumns() {
         return createMissingCustomColumns;
     }
 
+    @Override
+    public int getApproximateCountThreshold() {
+        return approximateCountThreshold;
+    }
+
+    // exists because of testing
+    public void setApproximateCountThreshold(int approximateCountThreshold) {
+        this.approximateCountThreshold = approximateCountThreshold;
+    }
+
     /**
      * Returns threshold duration for SQL, after which it should be logged on warning level.
      * Value of 0 or less means that this warning is disabled.
@@ -325,6 +388,8 @@ public class SqaleRepositoryConfiguration implements JdbcRepositoryConfiguration
                 PROPERTY_ITERATIVE_SEARCH_BY_PAGING_BATCH_SIZE, mainRepoConfig.iterativeSearchByPagingBatchSize);
         config.createMissingCustomColumns = auditConfig.getBoolean(
                 PROPERTY_CREATE_MISSING_CUSTOM_COLUMNS, mainRepoConfig.createMissingCustomColumns);
+        config.approximateCountThreshold = auditConfig.getInt(
+                PROPERTY_APPROXIMATE_COUNT_THRESHOLD, mainRepoConfig.approximateCountThreshold);
 
         // perf stats settings must be copied to allow proper perf monitoring of audit
         config.performanceStatisticsFile = mainRepoConfig.performanceStatisticsFile;
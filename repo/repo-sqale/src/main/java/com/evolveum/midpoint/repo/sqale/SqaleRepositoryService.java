@@ -12,11 +12,15 @@ import static com.evolveum.midpoint.schema.GetOperationOptions.isAllowNotFound;
 
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import com.evolveum.midpoint.prism.delta.*;
 import com.evolveum.midpoint.repo.sqale.qmodel.common.QContainerMapping;
+import com.evolveum.midpoint.repo.sqale.qmodel.common.QGlobalMetadata;
 import com.evolveum.midpoint.util.MiscUtil;
 
 import com.evolveum.midpoint.util.backoff.BackoffComputer;
@@ -62,6 +66,7 @@ import com.evolveum.midpoint.repo.sqale.qmodel.ref.QReferenceMapping;
 import com.evolveum.midpoint.repo.sqale.qmodel.simulation.QProcessedObject;
 import com.evolveum.midpoint.repo.sqale.qmodel.simulation.QProcessedObjectMapping;
 import com.evolveum.midpoint.repo.sqale.update.AddObjectContext;
+import com.evolveum.midpoint.repo.sqale.update.AddObjectsContext;
 import com.evolveum.midpoint.repo.sqale.update.RootUpdateContext;
 import com.evolveum.midpoint.repo.sqlbase.*;
 import com.evolveum.midpoint.repo.sqlbase.mapping.QueryTableMapping;
@@ -101,6 +106,9 @@ public class SqaleRepositoryService extends SqaleServiceBase implements Reposito
 
     private static final int MAX_CONFLICT_WATCHERS = 10;
 
+    /** Name of the `m_global_metadata` entry with the database-wide state of the incremental org closure. */
+    private static final String ORG_CLOSURE_TABLE_ENABLED = "orgClosureTableEnabled";
+
     private static final Collection<SelectorOptions<GetOperationOptions>> GET_FOR_UPDATE_OPTIONS =
             SchemaService.get().getOperationOptionsBuilder().build();
 
@@ -121,6 +129,9 @@ public class SqaleRepositoryService extends SqaleServiceBase implements Reposito
 
     private FullTextSearchConfigurationType fullTextSearchConfiguration;
 
+    /** Created on first use, see {@link SqaleRepositoryConfiguration#getIterativeSearchPrefetchPages()}. */
+    private ExecutorService iterativeSearchPrefetchExecutor;
+
     public SqaleRepositoryService(
             SqaleRepoContext repositoryContext,
             SqlPerformanceMonitorsCollection sqlPerformanceMonitorsCollection) {
@@ -387,6 +398,82 @@ public class SqaleRepositoryService extends SqaleServiceBase implements Reposito
         }
     }
 
+    @Override
+    public @NotNull List<String> addObjects(
+            @NotNull List<PrismObject<? extends ObjectType>> objects,
+            @Nullable RepoAddOptions options,
+            @NotNull OperationResult parentResult)
+            throws ObjectAlreadyExistsException, SchemaException {
+
+        Objects.requireNonNull(objects, "Objects must not be null.");
+        Objects.requireNonNull(parentResult, "Operation result must not be null.");
+        if (RepoAddOptions.isOverwrite(options)) {
+            throw new UnsupportedOperationException("Overwrite is not supported when adding multiple objects");
+        }
+
+        OperationResult operationResult = parentResult.subresult(opNamePrefix + OP_ADD_OBJECTS)
+                .addParam("count", objects.size())
+                .addParam(OperationResult.PARAM_OPTIONS, String.valueOf(options))
+                .build();
+
+        try {
+            logger.debug("Adding {} objects, allowUnencryptedValues={}",
+                    objects.size(), RepoAddOptions.isAllowUnencryptedValues(options));
+
+            for (PrismObject<? extends ObjectType> object : objects) {
+                PolyString name = object.getName();
+                if (name == null || Strings.isNullOrEmpty(name.getOrig())) {
+                    throw new SchemaException("Attempt to add object without name: " + object);
+                }
+                if (InternalsConfig.encryptionChecks && !RepoAddOptions.isAllowUnencryptedValues(options)) {
+                    CryptoUtil.checkEncrypted(object);
+                }
+                if (InternalsConfig.consistencyChecks) {
+                    object.checkConsistence(ConsistencyCheckScope.THOROUGH);
+                } else {
+                    object.checkConsistence(ConsistencyCheckScope.MANDATORY_CHECKS_ONLY);
+                }
+            }
+
+            return objects.isEmpty() ? List.of() : executeAddObjects(objects);
+        } catch (RepositoryException | RuntimeException e) {
+            throw handledGeneralException(e, operationResult);
+        } catch (Throwable t) {
+            recordFatalError(operationResult, t);
+            throw t;
+        } finally {
+            operationResult.close();
+        }
+    }
+
+    private List<String> executeAddObjects(
+            @NotNull List<PrismObject<? extends ObjectType>> objects)
+            throws SchemaException, ObjectAlreadyExistsException {
+        long opHandle = registerOperationStart(OP_ADD_OBJECTS, ObjectType.class);
+
+        try {
+            List<String> oids = executeRetriable(OP_ADD_OBJECTS, null, opHandle,
+                    () -> new AddObjectsContext(sqlRepoContext, objects).execute());
+
+            for (int i = 0; i < objects.size(); i++) {
+                String oid = oids.get(i);
+                PrismObject<? extends ObjectType> object = objects.get(i);
+                invokeConflictWatchers((w) -> w.afterAddObject(oid, object));
+            }
+            return oids;
+        } catch (ObjectNotFoundException | RepositoryException e) {
+            // Should not happen
+            throw new SystemException(e);
+        } finally {
+            registerOperationFinish(opHandle);
+        }
+    }
+
+    @Override
+    public boolean supportsAddObjects() {
+        return true;
+    }
+
     /** Overwrite is more like update than add. */
     private <T extends ObjectType> String executeOverwriteObject(
             @NotNull PrismObject<T> newObject)
@@ -1111,52 +1198,57 @@ public class SqaleRepositoryService extends SqaleServiceBase implements Reposito
             pagedQuery.getPaging().setMaxSize(pageSize);
             pagedQuery.getPaging().setOffset(offset);
 
+            IterativeSearchPageSource<T> pageSource = new IterativeSearchPageSource<>(
+                    type, originalQuery, pagedQuery, providedOrdering, options, maxSize, pageSize);
+            int prefetchPages = repositoryConfiguration().getIterativeSearchPrefetchPages();
+            IterativeSearchPrefetcher<List<PrismObject<T>>> prefetcher = prefetchPages > 0
+                    ? new IterativeSearchPrefetcher<>(getIterativeSearchPrefetchExecutor(), prefetchPages, pageSource)
+                    : null;
+
             PrismObject<T> lastProcessedObject = null;
             int handledObjectsTotal = 0;
+            long dbWaitTime = 0;
+            long handlerTime = 0;
 
-            while (true) {
-                if (maxSize != null && maxSize - handledObjectsTotal < pageSize) {
-                    // relevant only for the last page
-                    pagedQuery.getPaging().setMaxSize(maxSize - handledObjectsTotal);
-                }
-
-                // null safe, even for both nulls - don't use filterAnd which mutates original AND filter
-                pagedQuery.setFilter(ObjectQueryUtil.filterAndImmutable(
-                        originalQuery != null ? originalQuery.getFilter() : null,
-                        lastOidCondition(lastProcessedObject, providedOrdering)));
-
-                // we don't call public searchObject to avoid subresults and query simplification
-                logSearchInputParameters(type, pagedQuery, "Search object iterative page");
-
-                // Should we do retries here?
-                List<PrismObject<T>> objects = executeSearchObjects(
-                        type, pagedQuery, options, OP_SEARCH_OBJECTS_ITERATIVE_PAGE);
-
-                // process page results
-                for (PrismObject<T> object : objects) {
-                    lastProcessedObject = object;
-                    if (!handler.handle(object, operationResult)) {
+            try {
+                while (true) {
+                    long pageStart = System.nanoTime();
+                    List<PrismObject<T>> objects = prefetcher != null ? prefetcher.nextPage() : pageSource.nextPage();
+                    dbWaitTime += System.nanoTime() - pageStart;
+                    if (objects == null) {
                         return new SearchResultMetadata()
-                                .approxNumberOfAllResults(handledObjectsTotal + 1)
-                                .pagingCookie(lastProcessedObject.getOid())
-                                .partialResults(true);
+                                .approxNumberOfAllResults(handledObjectsTotal)
+                                .pagingCookie(lastProcessedObject != null
+                                        ? lastProcessedObject.getOid() : null);
                     }
-                    handledObjectsTotal += 1;
 
-                    if (maxSize != null && handledObjectsTotal >= maxSize) {
-                        return new SearchResultMetadata()
-                                .approxNumberOfAllResults(handledObjectsTotal)
-                                .pagingCookie(lastProcessedObject.getOid());
+                    // process page results
+                    for (PrismObject<T> object : objects) {
+                        lastProcessedObject = object;
+                        long handlerStart = System.nanoTime();
+                        boolean cont = handler.handle(object, operationResult);
+                        handlerTime += System.nanoTime() - handlerStart;
+                        if (!cont) {
+                            return new SearchResultMetadata()
+                                    .approxNumberOfAllResults(handledObjectsTotal + 1)
+                                    .pagingCookie(lastProcessedObject.getOid())
+                                    .partialResults(true);
+                        }
+                        handledObjectsTotal += 1;
+
+                        if (maxSize != null && handledObjectsTotal >= maxSize) {
+                            return new SearchResultMetadata()
+                                    .approxNumberOfAllResults(handledObjectsTotal)
+                                    .pagingCookie(lastProcessedObject.getOid());
+                        }
                     }
                 }
-
-                if (objects.isEmpty() || objects.size() < pageSize) {
-                    return new SearchResultMetadata()
-                            .approxNumberOfAllResults(handledObjectsTotal)
-                            .pagingCookie(lastProcessedObject != null
-                                    ? lastProcessedObject.getOid() : null);
+            } finally {
+                if (prefetcher != null) {
+                    prefetcher.close();
                 }
-                pagedQuery.getPaging().setOffset(null);
+                operationResult.addReturn("dbWaitTime", dbWaitTime / 1_000_000);
+                operationResult.addReturn("handlerTime", handlerTime / 1_000_000);
             }
         } finally {
             // This just counts the operation and adds zero/minimal time not to confuse user
@@ -1166,6 +1258,86 @@ public class SqaleRepositoryService extends SqaleServiceBase implements Reposito
         }
     }
 
+    private synchronized ExecutorService getIterativeSearchPrefetchExecutor() {
+        if (iterativeSearchPrefetchExecutor == null) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            iterativeSearchPrefetchExecutor = Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r, "repo-iterative-search-prefetch-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return iterativeSearchPrefetchExecutor;
+    }
+
+    /**
+     * Fetches the pages of iterative search one after another, using the last object of the previous page
+     * to construct the condition for the next one. Used either directly by the thread running the search,
+     * or by the background thread of {@link IterativeSearchPrefetcher}; never by both.
+     */
+    private class IterativeSearchPageSource<T extends ObjectType>
+            implements IterativeSearchPrefetcher.PageSource<List<PrismObject<T>>> {
+
+        private final Class<T> type;
+        private final ObjectQuery originalQuery;
+        private final ObjectQuery pagedQuery;
+        private final List<? extends ObjectOrdering> providedOrdering;
+        private final Collection<SelectorOptions<GetOperationOptions>> options;
+        private final Integer maxSize;
+        private final int pageSize;
+
+        private PrismObject<T> lastFetchedObject;
+        private int fetchedObjectsTotal;
+        private boolean finished;
+
+        private IterativeSearchPageSource(
+                Class<T> type, ObjectQuery originalQuery, ObjectQuery pagedQuery,
+                List<? extends ObjectOrdering> providedOrdering,
+                Collection<SelectorOptions<GetOperationOptions>> options,
+                Integer maxSize, int pageSize) {
+            this.type = type;
+            this.originalQuery = originalQuery;
+            this.pagedQuery = pagedQuery;
+            this.providedOrdering = providedOrdering;
+            this.options = options;
+            this.maxSize = maxSize;
+            this.pageSize = pageSize;
+        }
+
+        @Override
+        public List<PrismObject<T>> nextPage() throws SchemaException, RepositoryException {
+            if (finished) {
+                return null;
+            }
+
+            if (maxSize != null && maxSize - fetchedObjectsTotal < pageSize) {
+                // relevant only for the last page
+                pagedQuery.getPaging().setMaxSize(maxSize - fetchedObjectsTotal);
+            }
+
+            // null safe, even for both nulls - don't use filterAnd which mutates original AND filter
+            pagedQuery.setFilter(ObjectQueryUtil.filterAndImmutable(
+                    originalQuery != null ? originalQuery.getFilter() : null,
+                    lastOidCondition(lastFetchedObject, providedOrdering)));
+
+            // we don't call public searchObject to avoid subresults and query simplification
+            logSearchInputParameters(type, pagedQuery, "Search object iterative page");
+
+            // Should we do retries here?
+            List<PrismObject<T>> objects = executeSearchObjects(
+                    type, pagedQuery, options, OP_SEARCH_OBJECTS_ITERATIVE_PAGE);
+
+            fetchedObjectsTotal += objects.size();
+            if (!objects.isEmpty()) {
+                lastFetchedObject = objects.get(objects.size() - 1);
+            }
+            finished = objects.size() < pageSize
+                    || maxSize != null && fetchedObjectsTotal >= maxSize;
+            pagedQuery.getPaging().setOffset(null);
+            return objects;
+        }
+    }
+
     /**
      * Without requested ordering, this is easy: `WHERE oid > lastOid`
      *
@@ -1959,9 +2131,9 @@ public class SqaleRepositoryService extends SqaleServiceBase implements Reposito
         try {
             return executeRetriable(OP_IS_DESCENDANT, SqaleUtils.oidToUuid(object.getOid()), opHandle, () -> {
                 try (JdbcSession jdbcSession = sqlRepoContext.newJdbcSession().startTransaction()) {
-                    jdbcSession.executeStatement("CALL m_refresh_org_closure()");
+                    sqlRepoContext.refreshOrgClosureIfNeeded(jdbcSession);
 
-                    QOrgClosure oc = new QOrgClosure();
+                    QOrgClosure oc = sqlRepoContext.newOrgClosureAlias(QOrgClosure.DEFAULT_ALIAS_NAME);
                     long count = jdbcSession.newQuery()
                             .from(oc)
                             .where(oc.ancestorOid.eq(UUID.fromString(ancestorOrgOid))
@@ -1993,9 +2165,9 @@ public class SqaleRepositoryService extends SqaleServiceBase implements Reposito
         try {
             return executeRetriable(OP_IS_ANCESTOR, SqaleUtils.oidToUuid(object.getOid()), opHandle, () -> {
                 try (JdbcSession jdbcSession = sqlRepoContext.newJdbcSession().startTransaction()) {
-                    jdbcSession.executeStatement("CALL m_refresh_org_closure()");
+                    sqlRepoContext.refreshOrgClosureIfNeeded(jdbcSession);
 
-                    QOrgClosure oc = new QOrgClosure();
+                    QOrgClosure oc = sqlRepoContext.newOrgClosureAlias(QOrgClosure.DEFAULT_ALIAS_NAME);
                     long count = jdbcSession.newQuery()
                             .from(oc)
                             .where(oc.ancestorOid.eq(UUID.fromString(object.getOid()))
@@ -2218,32 +2390,16 @@ public class SqaleRepositoryService extends SqaleServiceBase implements Reposito
                         .build();
         // FIXME: RetriableRead: Make retriable
         try {
+            boolean incremental = sqlRepoContext.isOrgClosureIncremental();
             long closureCount, expectedCount;
             try (JdbcSession jdbcSession =
                     sqlRepoContext.newJdbcSession().startReadOnlyTransaction()) {
-                QOrgClosure oc = new QOrgClosure();
-                closureCount = jdbcSession.newQuery().from(oc).fetchCount();
-                // this is CTE used also for m_org_closure materialized view (here with count)
-                QOrg o = QOrgMapping.getOrgMapping().defaultAlias();
-                QObjectReference<?> ref = QObjectReferenceMapping.getForParentOrg().newAlias("ref");
-                QObjectReference<?> par = QObjectReferenceMapping.getForParentOrg().newAlias("par");
-                //noinspection unchecked
-                expectedCount = jdbcSession.newQuery()
-                        .withRecursive(oc, oc.ancestorOid, oc.descendantOid)
-                        .as(new SQLQuery<>().union(
-                                // non-recursive term: initial select
-                                new SQLQuery<>().select(o.oid, o.oid)
-                                        .from(o)
-                                        .where(new SQLQuery<>().select(Expressions.ONE)
-                                                .from(ref)
-                                                .where(ref.targetOid.eq(o.oid)
-                                                        .or(ref.ownerOid.eq(o.oid)))
-                                                .exists()),
-                                new SQLQuery<>().select(par.targetOid, oc.descendantOid)
-                                        .from(par, oc)
-                                        .where(par.ownerOid.eq(oc.ancestorOid))))
-                        .from(oc)
+                closureCount = jdbcSession.newQuery()
+                        .from(sqlRepoContext.newOrgClosureAlias(QOrgClosure.DEFAULT_ALIAS_NAME))
                         .fetchCount();
+                expectedCount = incremental
+                        ? countExpectedIncrementalOrgClosure(jdbcSession)
+                        : countExpectedOrgClosure(jdbcSession);
                 logger.info("Org closure consistency checked - closure count {}, expected count {}",
                         closureCount, expectedCount);
             }
@@ -2252,7 +2408,9 @@ public class SqaleRepositoryService extends SqaleServiceBase implements Reposito
 
             if (repairIfNecessary && closureCount != expectedCount) {
                 try (JdbcSession jdbcSession = sqlRepoContext.newJdbcSession().startTransaction()) {
-                    jdbcSession.executeStatement("CALL m_refresh_org_closure(true)");
+                    jdbcSession.executeStatement(incremental
+                            ? "CALL m_rebuild_org_closure_table()"
+                            : "CALL m_refresh_org_closure(true)");
                     jdbcSession.commit();
                 }
                 logger.info("Org closure rebuild was requested and executed");
@@ -2269,6 +2427,54 @@ public class SqaleRepositoryService extends SqaleServiceBase implements Reposito
         }
     }
 
+    /** Counts rows of CTE used also for m_org_closure materialized view. */
+    private long countExpectedOrgClosure(JdbcSession jdbcSession) {
+        QOrgClosure oc = new QOrgClosure();
+        QOrg o = QOrgMapping.getOrgMapping().defaultAlias();
+        QObjectReference<?> ref = QObjectReferenceMapping.getForParentOrg().newAlias("ref");
+        QObjectReference<?> par = QObjectReferenceMapping.getForParentOrg().newAlias("par");
+        //noinspection unchecked
+        return jdbcSession.newQuery()
+                .withRecursive(oc, oc.ancestorOid, oc.descendantOid)
+                .as(new SQLQuery<>().union(
+                        // non-recursive term: initial select
+                        new SQLQuery<>().select(o.oid, o.oid)
+                                .from(o)
+                                .where(new SQLQuery<>().select(Expressions.ONE)
+                                        .from(ref)
+                                        .where(ref.targetOid.eq(o.oid)
+                                                .or(ref.ownerOid.eq(o.oid)))
+                                        .exists()),
+                        new SQLQuery<>().select(par.targetOid, oc.descendantOid)
+                                .from(par, oc)
+                                .where(par.ownerOid.eq(oc.ancestorOid))))
+                .from(oc)
+                .fetchCount();
+    }
+
+    /**
+     * Counts rows of CTE equivalent to m_org_closure_table content (without paths).
+     * Identity rows are for all the orgs, other rows are only for the parent-org refs of the orgs.
+     */
+    private long countExpectedIncrementalOrgClosure(JdbcSession jdbcSession) {
+        QOrgClosure oc = new QOrgClosure();
+        QOrg o = QOrgMapping.getOrgMapping().defaultAlias();
+        QObjectReference<?> par = QObjectReferenceMapping.getForParentOrg().newAlias("par");
+        //noinspection unchecked
+        return jdbcSession.newQuery()
+                .withRecursive(oc, oc.ancestorOid, oc.descendantOid)
+                .as(new SQLQuery<>().union(
+                        // non-recursive term: identity rows
+                        new SQLQuery<>().select(o.oid, o.oid)
+                                .from(o),
+                        new SQLQuery<>().select(par.targetOid, oc.descendantOid)
+                                .from(par, oc)
+                                .where(par.ownerOid.eq(oc.ancestorOid)
+                                        .and(par.ownerType.eq(MObjectType.ORG)))))
+                .from(oc)
+                .fetchCount();
+    }
+
     @Override
     public RepositoryQueryDiagResponse executeQueryDiagnostics(
             RepositoryQueryDiagRequest request, OperationResult parentResult) {
@@ -2380,6 +2586,52 @@ public class SqaleRepositoryService extends SqaleServiceBase implements Reposito
     public void postInit(OperationResult parentResult) throws SchemaException {
         logger.debug("Executing repository postInit method");
         systemConfigurationChangeDispatcher.dispatch(true, true, parentResult);
+        initializeOrgClosure();
+    }
+
+    /**
+     * Checks the org closure maintenance of this node against the database-wide state (recorded in `m_global_metadata`).
+     * The state is set (and, if enabled, the closure table is built from scratch, which may take a while) only by the first
+     * node starting on the database. After that, it is changed only explicitly by the administrator, using the database
+     * procedure `m_enable_org_closure_table`, because the triggers are shared by all the nodes of the cluster.
+     * If the configuration of this node does not match the state, the state from the database is used (with a warning),
+     * so that org queries use the closure that is actually maintained.
+     */
+    private void initializeOrgClosure() {
+        boolean configured = sqlRepoContext.isOrgClosureIncremental();
+        boolean enabled;
+        try (JdbcSession jdbcSession = sqlRepoContext.newJdbcSession().startTransaction()) {
+            // The same lock is taken by the procedure, it serializes the nodes starting at the same time.
+            jdbcSession.executeStatement("LOCK TABLE m_org_closure_table IN EXCLUSIVE MODE");
+            QGlobalMetadata gm = QGlobalMetadata.DEFAULT;
+            String state = jdbcSession.newQuery()
+                    .select(gm.value)
+                    .from(gm)
+                    .where(gm.name.eq(ORG_CLOSURE_TABLE_ENABLED))
+                    .fetchOne();
+            if (state == null) {
+                logger.info("Org closure maintenance is not set in the database yet, setting incremental maintenance to {}",
+                        configured);
+                jdbcSession.executeStatement("CALL m_enable_org_closure_table(" + configured + ")");
+                enabled = configured;
+            } else {
+                enabled = Boolean.parseBoolean(state);
+            }
+            jdbcSession.commit();
+        }
+        if (enabled != configured) {
+            logger.warn("This node is configured with orgClosureIncremental = {}, but the database uses {}."
+                            + " The setting is shared by all the nodes, using the one from the database."
+                            + " To change it, call m_enable_org_closure_table procedure and update the configuration"
+                            + " of all the nodes.",
+                    configured, enabled);
+            if (sqlRepoContext.getJdbcRepositoryConfiguration() instanceof SqaleRepositoryConfiguration config) {
+                config.setOrgClosureIncremental(enabled);
+            }
+        }
+        if (enabled) {
+            logger.info("Using incrementally maintained org closure");
+        }
     }
 
     private void invokeConflictWatchers(Consumer<ConflictWatcherImpl> consumer) {
@@ -2726,4 +2978,15 @@ public class SqaleRepositoryService extends SqaleServiceBase implements Reposito
     public void applyRepositoryConfiguration(@Nullable RepositoryConfigurationType repositoryConfig) {
         configurationChangeListener.update(repositoryConfig);
     }
+
+    @Override
+    public void destroy() {
+        synchronized (this) {
+            if (iterativeSearchPrefetchExecutor != null) {
+                iterativeSearchPrefetchExecutor.shutdownNow();
+                iterativeSearchPrefetchExecutor = null;
+            }
+        }
+        super.destroy();
+    }
 }
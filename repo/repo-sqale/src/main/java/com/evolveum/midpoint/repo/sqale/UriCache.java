@@ -47,6 +47,11 @@ import com.evolveum.midpoint.util.logging.TraceManager;
  * This could be avoided if the runtime maps were updated *only* after the row was successfully
  * read from the DB in other operations - which beats the purposes of those fast operations.
  * Instead, we risk adding the row that is not used, it is no harm; it will likely be used later.
+ *
+ * [NOTE]
+ * Lookups of cached URIs do not block, they only read the concurrent maps.
+ * Only a miss in {@link #processCacheableUri(Object)} enters the insert-or-fetch part, which is serialized
+ * per URI (not for the whole cache), so threads inserting different URIs do not wait for each other.
  */
 public class UriCache {
 
@@ -64,8 +69,11 @@ public class UriCache {
     private final Map<Integer, String> idToUri = new ConcurrentHashMap<>();
     private final Map<String, Integer> uriToId = new ConcurrentHashMap<>();
 
+    /** Monitors for URIs being inserted right now, see {@link #insertOrFetch(String)}. */
+    private final Map<String, Object> pendingInserts = new ConcurrentHashMap<>();
+
     // WARNING: Each .get() creates new connection, always use in try-with-resource block!
-    private Supplier<JdbcSession> jdbcSessionSupplier;
+    private volatile Supplier<JdbcSession> jdbcSessionSupplier;
 
     /**
      * Initializes the URI cache.
@@ -180,7 +188,7 @@ public class UriCache {
      * Returns ID for URI creating new cache row in DB as needed.
      * Returns null for null URI parameter.
      */
-    public synchronized @Nullable Integer processCacheableUri(@Nullable Object uri) {
+    public @Nullable Integer processCacheableUri(@Nullable Object uri) {
         if (uri == null) {
             return null;
         }
@@ -192,6 +200,29 @@ public class UriCache {
                 ? QNameUtil.qNameToUri((QName) uri)
                 : uri.toString();
 
+        // Fast path, without any locking - this is by far the most common case.
+        Integer id = uriToId.get(uriString);
+        if (id != null) {
+            return id;
+        }
+
+        Object monitor = pendingInserts.computeIfAbsent(uriString, k -> new Object());
+        try {
+            synchronized (monitor) {
+                return insertOrFetch(uriString);
+            }
+        } finally {
+            pendingInserts.remove(uriString, monitor);
+        }
+    }
+
+    /**
+     * Returns ID for the URI, from the cache, from the DB (another node may have added it) or by inserting it.
+     * Called under the monitor for the URI; the cache is checked again, because the thread we waited for
+     * may have inserted the URI meanwhile. (A thread using a newer monitor after the old one was removed
+     * finds the URI in the cache too, as the maps are updated before the monitor is released.)
+     */
+    private @NotNull Integer insertOrFetch(String uriString) {
         Integer id = getId(uriString);
         if (id != null) {
             return id;
@@ -217,7 +248,7 @@ public class UriCache {
             }
             throw e;
         }
-        LOGGER.debug("URI cache inserted URI={} under ID={}", uri, id);
+        LOGGER.debug("URI cache inserted URI={} under ID={}", uriString, id);
         return id;
     }
 
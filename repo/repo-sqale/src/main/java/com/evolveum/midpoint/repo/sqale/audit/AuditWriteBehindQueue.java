@@ -0,0 +1,263 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.sqale.audit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import org.jetbrains.annotations.NotNull;
+
+import com.evolveum.midpoint.repo.sqale.audit.qmodel.MAuditEventRecord;
+import com.evolveum.midpoint.util.logging.Trace;
+import com.evolveum.midpoint.util.logging.TraceManager;
+
+/**
+ * Bounded in-memory queue of prepared audit rows drained by a dedicated writer thread.
+ * The writer groups the rows into batches (up to {@link #flushSize} rows, or whatever arrives
+ * within {@link #flushIntervalMs} after the first row of the batch) and hands them to the flusher,
+ * which is expected to write the whole batch in a single transaction.
+ *
+ * When the queue is full, {@link #enqueue} blocks the caller (back-pressure) until there is room,
+ * or until the queue is stopped.
+ * On {@link #shutdown}, all the rows accepted so far are flushed before the method returns
+ * (or the timeout elapses).
+ */
+public class AuditWriteBehindQueue {
+
+    private static final Trace LOGGER = TraceManager.getTrace(AuditWriteBehindQueue.class);
+
+    private static final String THREAD_NAME = "midpoint-audit-writer";
+
+    /** How often the blocked producer and the idle writer check whether the queue is still running. */
+    private static final long CHECK_INTERVAL_MS = 1000;
+
+    @NotNull private final BlockingQueue<MAuditEventRecord> queue;
+    private final int flushSize;
+    private final long flushIntervalMs;
+    @NotNull private final Consumer<List<MAuditEventRecord>> flusher;
+    @NotNull private final Thread writerThread;
+
+    private volatile boolean running;
+
+    // statistics
+    private final AtomicLong enqueuedRecords = new AtomicLong();
+    private final AtomicLong flushedRecords = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong flushTimeTotalMs = new AtomicLong();
+    private final AtomicLong flushTimeMaxMs = new AtomicLong();
+    private final AtomicLong producerWaitTimeMs = new AtomicLong();
+    private volatile int maxQueueDepth;
+
+    public AuditWriteBehindQueue(int capacity, int flushSize, long flushIntervalMs,
+            @NotNull Consumer<List<MAuditEventRecord>> flusher) {
+        if (capacity < 1 || flushSize < 1 || flushIntervalMs < 0) {
+            throw new IllegalArgumentException("Invalid audit write-behind configuration: capacity=" + capacity
+                    + ", flushSize=" + flushSize + ", flushIntervalMs=" + flushIntervalMs);
+        }
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.flushSize = flushSize;
+        this.flushIntervalMs = flushIntervalMs;
+        this.flusher = flusher;
+        this.writerThread = new Thread(this::writerLoop, THREAD_NAME);
+        this.writerThread.setDaemon(true);
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        writerThread.start();
+        LOGGER.info("Audit write-behind queue started: capacity={}, flushSize={}, flushIntervalMs={}",
+                queue.remainingCapacity(), flushSize, flushIntervalMs);
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Adds the row to the queue, waiting for free space if necessary.
+     *
+     * @return false if the queue was stopped (or the thread was interrupted) before the row could be accepted;
+     * in that case the caller is responsible for writing the row itself
+     */
+    public boolean enqueue(@NotNull MAuditEventRecord row) {
+        long start = System.currentTimeMillis();
+        try {
+            while (running) {
+                if (queue.offer(row, CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+                    enqueuedRecords.incrementAndGet();
+                    int depth = queue.size();
+                    if (depth > maxQueueDepth) {
+                        maxQueueDepth = depth; // not exact under contention, but good enough for monitoring
+                    }
+                    return true;
+                }
+            }
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            producerWaitTimeMs.addAndGet(System.currentTimeMillis() - start);
+        }
+    }
+
+    private void writerLoop() {
+        List<MAuditEventRecord> batch = new ArrayList<>(flushSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                MAuditEventRecord first = queue.poll(CHECK_INTERVAL_MS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                fillBatch(batch);
+                flush(batch);
+            } catch (InterruptedException e) {
+                // We are shutting down; remaining rows are drained below.
+                running = false;
+            } catch (Throwable t) {
+                LOGGER.error("Unexpected error in audit writer thread, {} audit record(s) lost", batch.size(), t);
+            } finally {
+                batch.clear();
+            }
+        }
+        drainRemaining(batch);
+        LOGGER.info("Audit writer thread finished. {}", getStatisticsDescription());
+    }
+
+    /**
+     * Adds rows to the batch until the flush size is reached, or the flush interval elapses, or the queue is shut down.
+     * (The shutdown is checked at least every {@link #CHECK_INTERVAL_MS}, so it does not wait for the whole interval.)
+     */
+    private void fillBatch(List<MAuditEventRecord> batch) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + flushIntervalMs;
+        while (batch.size() < flushSize) {
+            queue.drainTo(batch, flushSize - batch.size());
+            long remaining = deadline - System.currentTimeMillis();
+            if (batch.size() >= flushSize || remaining <= 0 || !running) {
+                return;
+            }
+            MAuditEventRecord next = queue.poll(Math.min(remaining, CHECK_INTERVAL_MS), TimeUnit.MILLISECONDS);
+            if (next != null) {
+                batch.add(next);
+            }
+        }
+    }
+
+    private void drainRemaining(List<MAuditEventRecord> batch) {
+        while (!queue.isEmpty()) {
+            queue.drainTo(batch, flushSize);
+            try {
+                flush(batch);
+            } catch (Throwable t) {
+                LOGGER.error("Unexpected error when flushing audit queue, {} audit record(s) lost", batch.size(), t);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<MAuditEventRecord> batch) {
+        long start = System.currentTimeMillis();
+        try {
+            flusher.accept(batch);
+            flushedRecords.addAndGet(batch.size());
+        } catch (RuntimeException e) {
+            failedFlushes.incrementAndGet();
+            throw e;
+        } finally {
+            long duration = System.currentTimeMillis() - start;
+            flushes.incrementAndGet();
+            flushTimeTotalMs.addAndGet(duration);
+            flushTimeMaxMs.accumulateAndGet(duration, Math::max);
+        }
+    }
+
+    /**
+     * Stops accepting new rows and waits until all the queued rows are written (or the timeout elapses).
+     */
+    public void shutdown(long timeoutMs) {
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+        }
+        LOGGER.info("Stopping audit write-behind queue, {} record(s) waiting to be written", queue.size());
+        try {
+            writerThread.join(timeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writerThread.isAlive()) {
+            LOGGER.warn("Audit writer thread did not finish in {} ms, {} audit record(s) may be lost",
+                    timeoutMs, queue.size());
+        } else {
+            // Producers that passed the running check just before the shutdown may have added something.
+            drainRemaining(new ArrayList<>(flushSize));
+        }
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public int getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    public long getEnqueuedRecords() {
+        return enqueuedRecords.get();
+    }
+
+    public long getFlushedRecords() {
+        return flushedRecords.get();
+    }
+
+    public long getFlushes() {
+        return flushes.get();
+    }
+
+    public long getFailedFlushes() {
+        return failedFlushes.get();
+    }
+
+    public long getFlushTimeTotalMs() {
+        return flushTimeTotalMs.get();
+    }
+
+    public long getFlushTimeMaxMs() {
+        return flushTimeMaxMs.get();
+    }
+
+    public long getProducerWaitTimeMs() {
+        return producerWaitTimeMs.get();
+    }
+
+    public String getStatisticsDescription() {
+        long flushCount = flushes.get();
+        return String.format("Audit write-behind: queue depth %d (max %d), %d record(s) enqueued, %d flushed"
+                        + " in %d flush(es) (%d failed), flush time avg %.1f ms (max %d ms), producers waited %d ms",
+                queue.size(), maxQueueDepth, enqueuedRecords.get(), flushedRecords.get(), flushCount,
+                failedFlushes.get(), flushCount > 0 ? (double) flushTimeTotalMs.get() / flushCount : 0.0,
+                flushTimeMaxMs.get(), producerWaitTimeMs.get());
+    }
+
+    @Override
+    public String toString() {
+        return getStatisticsDescription();
+    }
+}
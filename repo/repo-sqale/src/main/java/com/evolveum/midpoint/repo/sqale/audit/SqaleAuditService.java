@@ -16,6 +16,9 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.SequenceInputStream;
 import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.time.Instant;
 import java.util.*;
 import javax.xml.datatype.Duration;
@@ -68,8 +71,15 @@ import com.evolveum.prism.xml.ns._public.types_3.ObjectDeltaType;
  */
 public class SqaleAuditService extends SqaleServiceBase implements AuditService {
 
+    /** Operation kind for a batch of records written by {@link AuditWriteBehindQueue}. */
+    private static final String OP_AUDIT_BATCH = "auditBatch";
+
     private final SqlQueryExecutor sqlQueryExecutor;
 
+    /** Set only if write-behind mode is configured, see {@link #startWriteBehind}. */
+    @Nullable private volatile AuditWriteBehindQueue writeBehindQueue;
+    private long writeBehindShutdownTimeoutMs;
+
     // set from SystemConfigurationAuditType
     private boolean escapeIllegalCharacters = false;
     @NotNull private OperationResultDetailLevel deltaSuccessExecutionResult = OperationResultDetailLevel.CLEANED_UP;
@@ -81,6 +91,40 @@ public class SqaleAuditService extends SqaleServiceBase implements AuditService
         this.sqlQueryExecutor = new SqlQueryExecutor(sqlRepoContext);
     }
 
+    /**
+     * Switches on the write-behind mode: records audited by {@link #audit(AuditEventRecord, Task, OperationResult)}
+     * are only converted to rows on the caller's thread, and then written in batches by a dedicated writer.
+     * In this mode, repo ID of the audit record is not available to the caller.
+     */
+    public synchronized void startWriteBehind(
+            int queueCapacity, int flushSize, long flushIntervalMs, long shutdownTimeoutMs) {
+        if (writeBehindQueue != null) {
+            throw new IllegalStateException("Audit write-behind is already started");
+        }
+        AuditWriteBehindQueue queue =
+                new AuditWriteBehindQueue(queueCapacity, flushSize, flushIntervalMs, this::insertAuditRows);
+        queue.start();
+        writeBehindShutdownTimeoutMs = shutdownTimeoutMs;
+        writeBehindQueue = queue;
+    }
+
+    /**
+     * Writes all the records accepted so far and switches the write-behind mode off,
+     * so the following records are written by the caller again.
+     */
+    public synchronized void stopWriteBehind() {
+        AuditWriteBehindQueue queue = writeBehindQueue;
+        if (queue != null) {
+            writeBehindQueue = null;
+            queue.shutdown(writeBehindShutdownTimeoutMs);
+        }
+    }
+
+    /** Returns write-behind queue with its statistics (queue depth, flush latency), or null if not used. */
+    public @Nullable AuditWriteBehindQueue getWriteBehindQueue() {
+        return writeBehindQueue;
+    }
+
     @Override
     public void audit(AuditEventRecord record, Task task, OperationResult parentResult) {
         Objects.requireNonNull(record, "Audit event record must not be null.");
@@ -100,14 +144,27 @@ public class SqaleAuditService extends SqaleServiceBase implements AuditService
     }
 
     private void executeAudit(AuditEventRecord record) {
+        AuditWriteBehindQueue queue = writeBehindQueue;
+        if (queue != null && queue.isRunning()) {
+            record.setRepoId(null); // we want DB to assign the ID, it will not be available to the caller
+            MAuditEventRecord auditRow = prepareAuditEventRecord(record);
+            if (queue.enqueue(auditRow)) {
+                return;
+            }
+            // The queue was stopped meanwhile, we will store the row ourselves.
+            insertAuditRows(List.of(auditRow));
+            return;
+        }
+
         long opHandle = registerOperationStart(OP_AUDIT);
         try (JdbcSession jdbcSession = sqlRepoContext.newJdbcSession().startTransaction()) {
             record.setRepoId(null); // we want DB to assign the ID
-            MAuditEventRecord auditRow = insertAuditEventRecord(jdbcSession, record);
+            MAuditEventRecord auditRow = prepareAuditEventRecord(record);
+            insertAuditEventRecords(jdbcSession, List.of(auditRow));
             record.setRepoId(auditRow.id);
 
-            insertAuditDeltas(jdbcSession, auditRow);
-            insertReferences(jdbcSession, auditRow, record.getReferences());
+            insertAuditDeltas(jdbcSession, List.of(auditRow));
+            insertReferences(jdbcSession, List.of(auditRow));
 
             jdbcSession.commit();
         } finally {
@@ -116,18 +173,17 @@ public class SqaleAuditService extends SqaleServiceBase implements AuditService
     }
 
     /**
-     * Inserts audit event record aggregate root without any subentities.
+     * Prepares audit event record aggregate root with its subentities.
      * Traditional Sqale "insert root first, then insert children" is not optimal here,
      * because to insert root we need to collect some information from children anyway.
      * So we prepare the subentities in collections, gather the needed information
      * (e.g. changed item paths) and then insert root entity.
-     * Subentities are inserted later out of this method.
+     * Subentities are inserted later, see {@link #insertAuditDeltas} and {@link #insertReferences}.
      *
-     * @return inserted row with transient deltas prepared for insertion
+     * @return row with transient deltas, reference values and custom columns prepared for insertion
      */
-    private MAuditEventRecord insertAuditEventRecord(JdbcSession jdbcSession, AuditEventRecord record) {
+    private MAuditEventRecord prepareAuditEventRecord(AuditEventRecord record) {
         QAuditEventRecordMapping aerMapping = QAuditEventRecordMapping.get();
-        QAuditEventRecord aer = aerMapping.defaultAlias();
         MAuditEventRecord row = aerMapping.toRowObject(record);
 
         Collection<MAuditDelta> deltaRows = prepareDeltas(record.getDeltas());
@@ -136,7 +192,6 @@ public class SqaleAuditService extends SqaleServiceBase implements AuditService
         Set<String> changedItemPaths = collectChangedItemPaths(deltaRows);
         row.changedItemPaths = changedItemPaths.isEmpty() ? null : changedItemPaths.toArray(String[]::new);
 
-        SQLInsertClause insert = jdbcSession.newInsert(aer).populate(row);
         Map<String, ColumnMetadata> customColumns = aerMapping.getExtensionColumns();
         for (Map.Entry<String, String> property : record.getCustomColumnProperty().entrySet()) {
             String propertyName = property.getKey();
@@ -144,14 +199,113 @@ public class SqaleAuditService extends SqaleServiceBase implements AuditService
                 throw new IllegalArgumentException("Audit event record table doesn't"
                         + " contains column for property " + propertyName);
             }
-            // Like insert.set, but that one is too parameter-type-safe for our generic usage here.
-            insert.columns(aer.getPath(propertyName)).values(property.getValue());
+            row.addCustomColumnValue(propertyName, property.getValue());
+        }
+
+        row.refValues = prepareReferences(record.getReferences());
+        return row;
+    }
+
+    /**
+     * Inserts audit event record aggregate roots without any subentities.
+     * If there are more rows, the IDs are allocated upfront and the rows without custom columns
+     * are inserted by a single multi-row insert.
+     */
+    private void insertAuditEventRecords(JdbcSession jdbcSession, List<MAuditEventRecord> rows) {
+        if (rows.size() > 1) {
+            allocateAuditEventIds(jdbcSession, rows);
+        }
+
+        QAuditEventRecord aer = QAuditEventRecordMapping.get().defaultAlias();
+        SQLInsertClause bulkInsert = null;
+        for (MAuditEventRecord row : rows) {
+            if (row.id == null || row.customColumnValues != null) {
+                insertAuditEventRecord(jdbcSession, row);
+            } else {
+                if (bulkInsert == null) {
+                    bulkInsert = jdbcSession.newInsert(aer);
+                }
+                // NULLs are important to keep the value count consistent during the batch
+                bulkInsert.populate(row, DefaultMapper.WITH_NULL_BINDINGS).addBatch();
+            }
+        }
+        if (bulkInsert != null) {
+            bulkInsert.setBatchToBulk(true);
+            bulkInsert.execute();
+        }
+    }
+
+    private void insertAuditEventRecord(JdbcSession jdbcSession, MAuditEventRecord row) {
+        QAuditEventRecord aer = QAuditEventRecordMapping.get().defaultAlias();
+        SQLInsertClause insert = jdbcSession.newInsert(aer).populate(row);
+        if (row.customColumnValues != null) {
+            for (Map.Entry<String, String> property : row.customColumnValues.entrySet()) {
+                // Like insert.set, but that one is too parameter-type-safe for our generic usage here.
+                insert.columns(aer.getPath(property.getKey())).values(property.getValue());
+            }
         }
 
         Long returnedId = insert.executeWithKey(aer.id);
         // If returned ID is null, it was likely provided, so we use that one.
-        row.id = returnedId != null ? returnedId : record.getRepoId();
-        return row;
+        if (returnedId != null) {
+            row.id = returnedId;
+        }
+    }
+
+    /**
+     * Sets IDs for rows that don't have them from the sequence behind the ID column.
+     * This allows us to insert the rows in bulk and still know which subentities belong to which row.
+     */
+    private void allocateAuditEventIds(JdbcSession jdbcSession, List<MAuditEventRecord> rows) {
+        int count = (int) rows.stream().filter(r -> r.id == null).count();
+        if (count == 0) {
+            return;
+        }
+        try (PreparedStatement stmt = jdbcSession.connection().prepareStatement(
+                "SELECT nextval(pg_get_serial_sequence('" + QAuditEventRecord.TABLE_NAME + "', 'id'))"
+                        + " FROM generate_series(1, ?)")) {
+            stmt.setInt(1, count);
+            try (ResultSet rs = stmt.executeQuery()) {
+                for (MAuditEventRecord row : rows) {
+                    if (row.id == null) {
+                        if (!rs.next()) {
+                            throw new IllegalStateException("Not enough audit event IDs allocated");
+                        }
+                        row.id = rs.getLong(1);
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            throw new SystemException("Couldn't allocate audit event IDs", e);
+        }
+    }
+
+    /**
+     * Writes prepared rows (typically a batch from {@link AuditWriteBehindQueue}) in a single transaction.
+     * If that fails, the rows are written one by one, so a single bad record does not cause loss of the others.
+     */
+    private void insertAuditRows(List<MAuditEventRecord> rows) {
+        long opHandle = registerOperationStart(OP_AUDIT_BATCH);
+        try {
+            try (JdbcSession jdbcSession = sqlRepoContext.newJdbcSession().startTransaction()) {
+                insertAuditEventRecords(jdbcSession, rows);
+                insertAuditDeltas(jdbcSession, rows);
+                insertReferences(jdbcSession, rows);
+                jdbcSession.commit();
+                return;
+            } catch (RuntimeException e) {
+                if (rows.size() == 1) {
+                    logger.error("Couldn't store audit event record, it is lost: {}", rows.get(0).eventIdentifier, e);
+                    return;
+                }
+                logger.warn("Couldn't store batch of {} audit event records, trying one by one", rows.size(), e);
+            }
+            for (MAuditEventRecord row : rows) {
+                insertAuditRows(List.of(row));
+            }
+        } finally {
+            registerOperationFinish(opHandle);
+        }
     }
 
     private Collection<MAuditDelta> prepareDeltas(Collection<ObjectDeltaOperation<?>> deltas) {
@@ -308,12 +462,10 @@ public class SqaleAuditService extends SqaleServiceBase implements AuditService
         return changedItemPaths;
     }
 
-    private void insertAuditDeltas(
-            JdbcSession jdbcSession, MAuditEventRecord auditRow) {
-
-        if (!auditRow.deltas.isEmpty()) {
-            SQLInsertClause insertBatch = jdbcSession.newInsert(
-                    QAuditDeltaMapping.get().defaultAlias());
+    private void insertAuditDeltas(JdbcSession jdbcSession, List<MAuditEventRecord> auditRows) {
+        SQLInsertClause insertBatch = jdbcSession.newInsert(
+                QAuditDeltaMapping.get().defaultAlias());
+        for (MAuditEventRecord auditRow : auditRows) {
             for (MAuditDelta deltaRow : auditRow.deltas) {
                 deltaRow.recordId = auditRow.id;
                 deltaRow.timestamp = auditRow.timestamp;
@@ -321,32 +473,58 @@ public class SqaleAuditService extends SqaleServiceBase implements AuditService
                 // NULLs are important to keep the value count consistent during the batch
                 insertBatch.populate(deltaRow, DefaultMapper.WITH_NULL_BINDINGS).addBatch();
             }
-            insertBatch.setBatchToBulk(true);
-            insertBatch.execute();
         }
+        if (insertBatch.getBatchCount() == 0) {
+            return;
+        }
+        insertBatch.setBatchToBulk(true);
+        insertBatch.execute();
     }
 
-    private void insertReferences(JdbcSession jdbcSession,
-            MAuditEventRecord auditRow, Map<String, Set<AuditReferenceValue>> references) {
+    private Map<String, List<MAuditRefValue>> prepareReferences(
+            Map<String, Set<AuditReferenceValue>> references) {
         if (references.isEmpty()) {
-            return;
+            return null;
         }
 
-        QAuditRefValue qr = QAuditRefValueMapping.get().defaultAlias();
-        SQLInsertClause insertBatch = jdbcSession.newInsert(qr);
+        Map<String, List<MAuditRefValue>> refRows = new LinkedHashMap<>();
         for (String refName : references.keySet()) {
+            List<MAuditRefValue> values = new ArrayList<>();
             for (AuditReferenceValue refValue : references.get(refName)) {
-                // id will be generated, but we're not interested in those here
+                MAuditRefValue refRow = new MAuditRefValue();
                 PolyString targetName = refValue.getTargetName();
-                insertBatch.set(qr.recordId, auditRow.id)
-                        .set(qr.timestamp, auditRow.timestamp)
-                        .set(qr.name, refName)
-                        .set(qr.targetOid, SqaleUtils.oidToUuid(refValue.getOid()))
-                        .set(qr.targetType, refValue.getType() != null
-                                ? MObjectType.fromTypeQName(refValue.getType()) : null)
-                        .set(qr.targetNameOrig, PolyString.getOrig(targetName))
-                        .set(qr.targetNameNorm, PolyString.getNorm(targetName))
-                        .addBatch();
+                refRow.name = refName;
+                refRow.targetOid = SqaleUtils.oidToUuid(refValue.getOid());
+                refRow.targetType = refValue.getType() != null
+                        ? MObjectType.fromTypeQName(refValue.getType()) : null;
+                refRow.targetNameOrig = PolyString.getOrig(targetName);
+                refRow.targetNameNorm = PolyString.getNorm(targetName);
+                values.add(refRow);
+            }
+            refRows.put(refName, values);
+        }
+        return refRows;
+    }
+
+    private void insertReferences(JdbcSession jdbcSession, List<MAuditEventRecord> auditRows) {
+        QAuditRefValue qr = QAuditRefValueMapping.get().defaultAlias();
+        SQLInsertClause insertBatch = jdbcSession.newInsert(qr);
+        for (MAuditEventRecord auditRow : auditRows) {
+            if (auditRow.refValues == null) {
+                continue;
+            }
+            for (List<MAuditRefValue> refRows : auditRow.refValues.values()) {
+                for (MAuditRefValue refRow : refRows) {
+                    // id will be generated, but we're not interested in those here
+                    insertBatch.set(qr.recordId, auditRow.id)
+                            .set(qr.timestamp, auditRow.timestamp)
+                            .set(qr.name, refRow.name)
+                            .set(qr.targetOid, refRow.targetOid)
+                            .set(qr.targetType, refRow.targetType)
+                            .set(qr.targetNameOrig, refRow.targetNameOrig)
+                            .set(qr.targetNameNorm, refRow.targetNameNorm)
+                            .addBatch();
+                }
             }
         }
         if (insertBatch.getBatchCount() == 0) {
@@ -799,4 +977,11 @@ public class SqaleAuditService extends SqaleServiceBase implements AuditService
     protected long registerOperationStart(String kind) {
         return registerOperationStart(kind, AuditEventRecordType.class);
     }
+
+    @Override
+    public void destroy() {
+        // Durable flush of everything accepted so far, before the performance monitor is gone.
+        stopWriteBehind();
+        super.destroy();
+    }
 }
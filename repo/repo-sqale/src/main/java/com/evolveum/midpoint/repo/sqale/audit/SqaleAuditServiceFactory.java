@@ -59,6 +59,18 @@ public class SqaleAuditServiceFactory implements AuditServiceFactory {
     private static final String CONF_AUDIT_SERVICE_COLUMN_NAME = "columnName";
     private static final String CONF_AUDIT_SERVICE_EVENT_RECORD_PROPERTY_NAME = "eventRecordPropertyName";
 
+    // write-behind mode, see SqaleAuditService#startWriteBehind
+    private static final String CONF_WRITE_BEHIND = "writeBehind";
+    private static final String CONF_WRITE_BEHIND_QUEUE_CAPACITY = "writeBehindQueueCapacity";
+    private static final String CONF_WRITE_BEHIND_FLUSH_SIZE = "writeBehindFlushSize";
+    private static final String CONF_WRITE_BEHIND_FLUSH_INTERVAL_MS = "writeBehindFlushIntervalMs";
+    private static final String CONF_WRITE_BEHIND_SHUTDOWN_TIMEOUT_MS = "writeBehindShutdownTimeoutMs";
+
+    private static final int DEFAULT_WRITE_BEHIND_QUEUE_CAPACITY = 10_000;
+    private static final int DEFAULT_WRITE_BEHIND_FLUSH_SIZE = 500;
+    private static final long DEFAULT_WRITE_BEHIND_FLUSH_INTERVAL_MS = 200;
+    private static final long DEFAULT_WRITE_BEHIND_SHUTDOWN_TIMEOUT_MS = 60_000;
+
     private final SqaleRepositoryConfiguration sqaleRepositoryConfiguration;
     private final SchemaService schemaService;
     private final DataSource repositoryDataSource;
@@ -84,6 +96,7 @@ public class SqaleAuditServiceFactory implements AuditServiceFactory {
             SqaleRepoContext sqlRepoContext = createSqaleRepoContext(configuration);
             auditService = new SqaleAuditService(sqlRepoContext, sqlPerformanceMonitorsCollection);
             initCustomColumns(configuration, sqlRepoContext);
+            initWriteBehind(configuration);
         } catch (RepositoryServiceFactoryException ex) {
             throw new AuditServiceFactoryException(ex.getMessage(), ex);
         }
@@ -170,6 +183,17 @@ public class SqaleAuditServiceFactory implements AuditServiceFactory {
         }
     }
 
+    private void initWriteBehind(@NotNull Configuration configuration) {
+        if (!configuration.getBoolean(CONF_WRITE_BEHIND, false)) {
+            return;
+        }
+        auditService.startWriteBehind(
+                configuration.getInt(CONF_WRITE_BEHIND_QUEUE_CAPACITY, DEFAULT_WRITE_BEHIND_QUEUE_CAPACITY),
+                configuration.getInt(CONF_WRITE_BEHIND_FLUSH_SIZE, DEFAULT_WRITE_BEHIND_FLUSH_SIZE),
+                configuration.getLong(CONF_WRITE_BEHIND_FLUSH_INTERVAL_MS, DEFAULT_WRITE_BEHIND_FLUSH_INTERVAL_MS),
+                configuration.getLong(CONF_WRITE_BEHIND_SHUTDOWN_TIMEOUT_MS, DEFAULT_WRITE_BEHIND_SHUTDOWN_TIMEOUT_MS));
+    }
+
     private String getStringFromConfig(Configuration config, String key) {
         String value = config.getString(key);
         if (Strings.isNullOrEmpty(value)) {
@@ -62,6 +62,14 @@ public class MAuditEventRecord {
     // "transient" fields not used by Querydsl
     public Collection<MAuditDelta> deltas;
     public Map<String, List<MAuditRefValue>> refValues;
+    public Map<String, String> customColumnValues; // custom columns from config.xml, only for insert
+
+    public void addCustomColumnValue(String propertyName, String value) {
+        if (customColumnValues == null) {
+            customColumnValues = new LinkedHashMap<>();
+        }
+        customColumnValues.put(propertyName, value);
+    }
 
     public void addDelta(MAuditDelta mAuditDelta) {
         if (deltas == null) {
@@ -113,7 +113,7 @@ public class OrgFilterProcessor implements FilterProcessor<OrgFilter> {
     }
 
     private QOrgClosure getNewClosureAlias() {
-        return new QOrgClosure(
+        return context.repositoryContext().newOrgClosureAlias(
                 context.uniqueAliasName(QOrgClosure.DEFAULT_ALIAS_NAME));
     }
 }
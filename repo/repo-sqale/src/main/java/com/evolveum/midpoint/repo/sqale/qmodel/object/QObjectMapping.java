@@ -9,6 +9,11 @@ package com.evolveum.midpoint.repo.sqale.qmodel.object;
 import static com.evolveum.midpoint.xml.ns._public.common.common_3.AssignmentHolderType.*;
 
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.function.BiFunction;
 
 import com.evolveum.axiom.concepts.CheckedFunction;
@@ -74,6 +79,17 @@ public class QObjectMapping<S extends ObjectType, Q extends QObject<R>, R extend
 
     public static final String DEFAULT_ALIAS_NAME = "o";
 
+    /** Smaller result lists are not worth the overhead of parallel parsing. */
+    private static final int MIN_ROWS_FOR_PARALLEL_PARSING = 4;
+
+    /**
+     * Full objects parsed in advance (in parallel) for the result list transformed by the current thread,
+     * see {@link #createRowTransformer}; keyed by the identity of the `fullObject` array from the row.
+     * Values are parsed objects or {@link SchemaException}s.
+     * Thread-local, because the parsing happens deep in {@link #toSchemaObject}, possibly overridden by subclasses.
+     */
+    private static final ThreadLocal<Map<byte[], Object>> PRE_PARSED_FULL_OBJECTS = new ThreadLocal<>();
+
     private static QObjectMapping<?, ?, ?> instance;
     private PathSet fullObjectSkips;
 
@@ -221,7 +237,7 @@ public class QObjectMapping<S extends ObjectType, Q extends QObject<R>, R extend
             throws SchemaException {
         byte[] fullObject = Objects.requireNonNull(row.get(entityPath.fullObject));
         UUID oid = Objects.requireNonNull(row.get(entityPath.oid));
-        S ret = parseSchemaObject(fullObject, oid.toString());
+        S ret = parseFullObject(fullObject, oid.toString());
 
         upgradeLegacyMetadataToValueMetadata(ret);
 
@@ -232,6 +248,64 @@ public class QObjectMapping<S extends ObjectType, Q extends QObject<R>, R extend
         return ret;
     }
 
+    private S parseFullObject(byte[] fullObject, String oid) throws SchemaException {
+        Map<byte[], Object> preParsed = PRE_PARSED_FULL_OBJECTS.get();
+        Object parsed = preParsed != null ? preParsed.remove(fullObject) : null;
+        if (parsed instanceof SchemaException e) {
+            throw e;
+        } else if (parsed != null) {
+            return schemaType().cast(parsed);
+        } else {
+            return parseSchemaObject(fullObject, oid);
+        }
+    }
+
+    /**
+     * Parses full objects of the rows using the shared executor (if enabled) and stores them into provided map.
+     * The calling thread waits for all of them; objects which failed with unexpected exception (or were not parsed
+     * because the executor was shut down) are not stored, they are parsed again during the normal transformation.
+     */
+    private void preParseFullObjects(List<Tuple> tuples, Q entityPath, Map<byte[], Object> preParsed) {
+        if (tuples.size() < MIN_ROWS_FOR_PARALLEL_PARSING) {
+            return;
+        }
+        ExecutorService executor = repositoryContext().getFullObjectParsingExecutor();
+        if (executor == null) {
+            return;
+        }
+
+        var tracker = SqlBaseOperationTracker.parseMultiplePrimariesParallel();
+        try {
+            Map<byte[], Future<Object>> futures = new IdentityHashMap<>();
+            for (Tuple tuple : tuples) {
+                byte[] fullObject = tuple.get(entityPath.fullObject);
+                UUID oid = tuple.get(entityPath.oid);
+                if (fullObject != null && oid != null) {
+                    futures.put(fullObject, executor.submit(() -> {
+                        try {
+                            return parseSchemaObject(fullObject, oid.toString());
+                        } catch (SchemaException e) {
+                            return e;
+                        }
+                    }));
+                }
+            }
+            for (var entry : futures.entrySet()) {
+                try {
+                    preParsed.put(entry.getKey(), entry.getValue().get());
+                } catch (ExecutionException | CancellationException e) {
+                    // ignored, see the method javadoc; cancelled when the executor is shut down
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RejectedExecutionException e) {
+            // executor was just shut down (e.g. reconfigured), the objects will be parsed normally
+        } finally {
+            tracker.close();
+        }
+    }
+
     private void upgradeLegacyMetadataToValueMetadata(S ret) {
         var legacyMeta = ret.getMetadata();
         if (legacyMeta == null || !ret.asPrismContainerValue().getValueMetadata().isEmpty()) {
@@ -598,6 +672,8 @@ public class QObjectMapping<S extends ObjectType, Q extends QObject<R>, R extend
 
         Map<FullObjectItemMapping, Multimap<UUID, PrismValue>> mappingToData = new HashMap<>();
 
+        Map<byte[], Object> preParsedFullObjects = new IdentityHashMap<>();
+
         return new ResultListRowTransformer<S, Q, R>() {
 
             @Override
@@ -639,12 +715,24 @@ public class QObjectMapping<S extends ObjectType, Q extends QObject<R>, R extend
                         result.close();
                     }
                 }
+
+                preParseFullObjects(tuples, entityPath, preParsedFullObjects);
             }
 
             @Override
             public S transform(Tuple tuple, Q entityPath) {
-                // Parsing full object
-                S baseObject = toSchemaObjectCompleteSafe(tuple, entityPath, options, jdbcSession, false);
+                // Parsing full object (unless it was parsed in advance)
+                S baseObject;
+                if (preParsedFullObjects.isEmpty()) {
+                    baseObject = toSchemaObjectCompleteSafe(tuple, entityPath, options, jdbcSession, false);
+                } else {
+                    PRE_PARSED_FULL_OBJECTS.set(preParsedFullObjects);
+                    try {
+                        baseObject = toSchemaObjectCompleteSafe(tuple, entityPath, options, jdbcSession, false);
+                    } finally {
+                        PRE_PARSED_FULL_OBJECTS.remove();
+                    }
+                }
                 var uuid = tuple.get(entityPath.oid);
                 if (!storeSplitted) {
                     return baseObject;
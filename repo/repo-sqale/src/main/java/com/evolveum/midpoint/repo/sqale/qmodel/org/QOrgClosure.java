@@ -24,6 +24,11 @@ import com.evolveum.midpoint.repo.sqlbase.querydsl.UuidPath;
  * {@link SqaleQueryContext#beforeQuery()} or when executing
  * {@link SqaleRepositoryService#isAnySubordinate(java.lang.String, java.util.Collection)}.
  * If any access via other paths is done, use statement `CALL m_refresh_org_closure()` before.
+ *
+ * If the org closure is configured to be incremental (see
+ * {@link com.evolveum.midpoint.repo.sqale.SqaleRepositoryConfiguration#isOrgClosureIncremental()}),
+ * the same columns are read from {@link #INCREMENTAL_TABLE_NAME} table instead, which needs no refresh.
+ * Use {@link com.evolveum.midpoint.repo.sqale.SqaleRepoContext#newOrgClosureAlias(String)} to get the right one.
  */
 @SuppressWarnings("unused")
 public class QOrgClosure extends FlexibleRelationalPathBase<MOrgClosure> {
@@ -32,6 +37,9 @@ public class QOrgClosure extends FlexibleRelationalPathBase<MOrgClosure> {
 
     public static final String TABLE_NAME = "m_org_closure";
 
+    /** Table maintained incrementally by triggers, with additional `paths` column (not mapped here). */
+    public static final String INCREMENTAL_TABLE_NAME = "m_org_closure_table";
+
     public static final String DEFAULT_ALIAS_NAME = "orgc";
 
     public static final ColumnMetadata ANCESTOR_OID =
@@ -51,6 +59,10 @@ public class QOrgClosure extends FlexibleRelationalPathBase<MOrgClosure> {
     }
 
     public QOrgClosure(String variable, String schema) {
-        super(MOrgClosure.class, variable, schema, TABLE_NAME);
+        this(variable, schema, TABLE_NAME);
+    }
+
+    public QOrgClosure(String variable, String schema, String table) {
+        super(MOrgClosure.class, variable, schema, table);
     }
 }
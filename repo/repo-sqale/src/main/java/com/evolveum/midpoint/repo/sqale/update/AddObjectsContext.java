@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.sqale.update;
+
+import static com.evolveum.midpoint.repo.sqale.SqaleRepositoryService.INITIAL_VERSION_STRING;
+
+import java.sql.SQLException;
+import java.util.*;
+
+import com.querydsl.core.QueryException;
+import com.querydsl.sql.dml.SQLInsertClause;
+import org.jetbrains.annotations.NotNull;
+
+import com.evolveum.midpoint.prism.PrismObject;
+import com.evolveum.midpoint.repo.sqale.SqaleRepoContext;
+import com.evolveum.midpoint.repo.sqale.SqaleUtils;
+import com.evolveum.midpoint.repo.sqale.mapping.PartitionManager;
+import com.evolveum.midpoint.repo.sqale.qmodel.object.MObject;
+import com.evolveum.midpoint.repo.sqale.qmodel.object.QObject;
+import com.evolveum.midpoint.repo.sqale.qmodel.object.QObjectMapping;
+import com.evolveum.midpoint.repo.sqlbase.JdbcSession;
+import com.evolveum.midpoint.schema.util.cid.ContainerValueIdGenerator;
+import com.evolveum.midpoint.util.exception.ObjectAlreadyExistsException;
+import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectType;
+
+/**
+ * Adds multiple objects in a single transaction; used for bulk imports.
+ *
+ * Root rows of objects with OID are inserted using JDBC batches (one for each object table), followed by
+ * the related entities of individual objects. Objects without OID need their OID generated by the database
+ * first, so they are added one by one, as in {@link AddObjectContext}, although still in the same transaction.
+ *
+ * The operation is all-or-nothing: if any object can't be added (e.g. because of conflicting OID or name),
+ * the whole transaction is rolled back.
+ */
+public class AddObjectsContext {
+
+    private final SqaleRepoContext repositoryContext;
+    private final List<PrismObject<? extends ObjectType>> objects;
+
+    public AddObjectsContext(
+            @NotNull SqaleRepoContext repositoryContext,
+            @NotNull List<PrismObject<? extends ObjectType>> objects) {
+        this.repositoryContext = repositoryContext;
+        this.objects = objects;
+    }
+
+    /**
+     * Inserts the objects provided to the constructor and returns their OIDs (in the same order).
+     */
+    public List<String> execute()
+            throws SchemaException, ObjectAlreadyExistsException {
+        try (JdbcSession jdbcSession = repositoryContext.newJdbcSession().startTransaction()) {
+            List<String> oids = execute(jdbcSession);
+            jdbcSession.commit();
+            return oids;
+        } catch (QueryException e) { // Querydsl exception, not ours
+            handleBatchException(e);
+            throw e;
+        }
+    }
+
+    private List<String> execute(JdbcSession jdbcSession) throws SchemaException {
+        String[] oids = new String[objects.size()];
+
+        // Mapping -> rows for its table, insertion order is kept to make the behavior predictable.
+        Map<QObjectMapping<?, ?, ?>, List<PreparedRow<?, ?>>> rowsByMapping = new LinkedHashMap<>();
+        for (int i = 0; i < objects.size(); i++) {
+            PrismObject<? extends ObjectType> object = objects.get(i);
+            if (object.getOid() == null) {
+                oids[i] = new AddObjectContext<>(repositoryContext, object).execute(jdbcSession);
+            } else {
+                PreparedRow<?, ?> preparedRow = prepareRow(object, jdbcSession);
+                rowsByMapping.computeIfAbsent(preparedRow.mapping, k -> new ArrayList<>())
+                        .add(preparedRow);
+                oids[i] = object.getOid();
+            }
+        }
+
+        for (List<PreparedRow<?, ?>> rows : rowsByMapping.values()) {
+            insertRootRows(rows, jdbcSession);
+        }
+        for (List<PreparedRow<?, ?>> rows : rowsByMapping.values()) {
+            for (PreparedRow<?, ?> row : rows) {
+                row.storeRelatedEntities(jdbcSession);
+            }
+        }
+        return Arrays.asList(oids);
+    }
+
+    /** Mirrors the preparation part of {@link AddObjectContext} for an object with OID. */
+    private <S extends ObjectType, Q extends QObject<R>, R extends MObject> PreparedRow<S, R> prepareRow(
+            PrismObject<S> object, JdbcSession jdbcSession) throws SchemaException {
+        object.setVersion(INITIAL_VERSION_STRING);
+        QObjectMapping<S, Q, R> rootMapping = repositoryContext.getMappingBySchemaType(object.getCompileTimeClass());
+        long lastCid = new ContainerValueIdGenerator(object).generateForNewObject();
+        S schemaObject = object.asObjectable();
+        R row = rootMapping.toRowObjectWithoutFullObject(schemaObject, jdbcSession);
+        row.containerIdSeq = lastCid + 1;
+        rootMapping.setFullObject(row, schemaObject);
+        PartitionManager.ensurePartitionExistsBeforeAdd(rootMapping, row, jdbcSession);
+        return new PreparedRow<>(rootMapping, row, schemaObject);
+    }
+
+    private void insertRootRows(List<PreparedRow<?, ?>> rows, JdbcSession jdbcSession) {
+        QObject<?> root = rows.get(0).mapping.defaultAlias();
+        SQLInsertClause insert = jdbcSession.newInsert(root);
+        for (PreparedRow<?, ?> row : rows) {
+            // default populate mapper ignores null, that's good, especially for objectType;
+            // rows with different sets of columns end up in different statements, which is OK
+            insert.populate(row.row).addBatch();
+        }
+        insert.execute();
+    }
+
+    /**
+     * Exceptions from JDBC batches are usually {@link java.sql.BatchUpdateException} with the actual cause
+     * available only as the "next exception". We try both the usual handling and the next exceptions.
+     */
+    private void handleBatchException(QueryException e) throws ObjectAlreadyExistsException {
+        SqaleUtils.handlePostgresException(e);
+        if (e.getCause() instanceof SQLException sqlException) {
+            SQLException next = sqlException.getNextException();
+            while (next != null) {
+                SqaleUtils.handlePostgresException(next);
+                next = next.getNextException();
+            }
+        }
+    }
+
+    private static class PreparedRow<S extends ObjectType, R extends MObject> {
+
+        @NotNull private final QObjectMapping<S, ?, R> mapping;
+        @NotNull private final R row;
+        @NotNull private final S schemaObject;
+
+        private PreparedRow(@NotNull QObjectMapping<S, ?, R> mapping, @NotNull R row, @NotNull S schemaObject) {
+            this.mapping = mapping;
+            this.row = row;
+            this.schemaObject = schemaObject;
+        }
+
+        private void storeRelatedEntities(JdbcSession jdbcSession) throws SchemaException {
+            // sets row.objectType as well, now it's safe to set it
+            mapping.storeRelatedEntities(row, schemaObject, jdbcSession);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.sqale.func;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.repo.sqale.audit.AuditWriteBehindQueue;
+import com.evolveum.midpoint.repo.sqale.audit.qmodel.MAuditEventRecord;
+import com.evolveum.midpoint.tools.testng.AbstractUnitTest;
+
+/**
+ * Tests of {@link AuditWriteBehindQueue} with a fake flusher, no database is needed.
+ */
+public class AuditWriteBehindQueueTest extends AbstractUnitTest {
+
+    @Test
+    public void test100RowsAreFlushedOnShutdownInOrder() {
+        given("queue with a long flush interval");
+        List<List<MAuditEventRecord>> batches = Collections.synchronizedList(new ArrayList<>());
+        AuditWriteBehindQueue queue = new AuditWriteBehindQueue(1000, 7, 60_000,
+                batch -> batches.add(new ArrayList<>(batch)));
+        queue.start();
+
+        when("rows are enqueued and the queue is shut down");
+        for (long i = 0; i < 100; i++) {
+            assertThat(queue.enqueue(row(i))).isTrue();
+        }
+        queue.shutdown(10_000);
+
+        then("all rows are flushed in the enqueue order, in batches not exceeding the flush size");
+        List<Long> flushedIds = new ArrayList<>();
+        for (List<MAuditEventRecord> batch : batches) {
+            assertThat(batch).hasSizeBetween(1, 7);
+            batch.forEach(r -> flushedIds.add(r.id));
+        }
+        assertThat(flushedIds).hasSize(100);
+        assertThat(flushedIds).isSorted();
+        assertThat(queue.getEnqueuedRecords()).isEqualTo(100);
+        assertThat(queue.getFlushedRecords()).isEqualTo(100);
+        assertThat(queue.getFailedFlushes()).isZero();
+        assertThat(queue.getQueueDepth()).isZero();
+    }
+
+    @Test
+    public void test200FullQueueBlocksProducer() throws Exception {
+        given("queue with capacity 1 and a flusher blocked on a latch");
+        CountDownLatch flusherEntered = new CountDownLatch(1);
+        CountDownLatch releaseFlusher = new CountDownLatch(1);
+        List<Long> flushedIds = Collections.synchronizedList(new ArrayList<>());
+        AuditWriteBehindQueue queue = new AuditWriteBehindQueue(1, 1, 0, batch -> {
+            flusherEntered.countDown();
+            try {
+                releaseFlusher.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            batch.forEach(r -> flushedIds.add(r.id));
+        });
+        queue.start();
+        assertThat(queue.enqueue(row(0))).isTrue();
+        assertThat(flusherEntered.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(queue.enqueue(row(1))).isTrue(); // fills the only slot
+
+        when("another row is enqueued");
+        ExecutorService producer = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> blocked = producer.submit(() -> queue.enqueue(row(2)));
+
+            then("the producer waits until the writer makes room");
+            Thread.sleep(500);
+            assertThat(blocked.isDone()).isFalse();
+
+            releaseFlusher.countDown();
+            assertThat(blocked.get(10, TimeUnit.SECONDS)).isTrue();
+        } finally {
+            producer.shutdownNow();
+        }
+
+        and("everything is flushed in order on shutdown");
+        queue.shutdown(10_000);
+        assertThat(flushedIds).containsExactly(0L, 1L, 2L);
+        assertThat(queue.getMaxQueueDepth()).isEqualTo(1);
+    }
+
+    @Test
+    public void test300EnqueueAfterShutdownIsRejected() {
+        given("queue that was stopped");
+        List<MAuditEventRecord> flushed = Collections.synchronizedList(new ArrayList<>());
+        AuditWriteBehindQueue queue = new AuditWriteBehindQueue(10, 10, 0, flushed::addAll);
+        queue.start();
+        queue.shutdown(10_000);
+
+        when("a row is enqueued");
+        boolean accepted = queue.enqueue(row(0));
+
+        then("the row is not accepted so the caller writes it itself");
+        assertThat(accepted).isFalse();
+        assertThat(queue.isRunning()).isFalse();
+        assertThat(flushed).isEmpty();
+        assertThat(queue.getEnqueuedRecords()).isZero();
+    }
+
+    @Test
+    public void test400FailedFlushDoesNotStopTheWriter() {
+        given("queue with a flusher that fails for the first batch");
+        List<Long> flushedIds = Collections.synchronizedList(new ArrayList<>());
+        AuditWriteBehindQueue queue = new AuditWriteBehindQueue(10, 1, 0, batch -> {
+            if (batch.get(0).id == 0L) {
+                throw new IllegalStateException("simulated failure");
+            }
+            batch.forEach(r -> flushedIds.add(r.id));
+        });
+        queue.start();
+
+        when("rows are enqueued and the queue is shut down");
+        for (long i = 0; i < 3; i++) {
+            queue.enqueue(row(i));
+        }
+        queue.shutdown(10_000);
+
+        then("only the failed batch is lost");
+        assertThat(flushedIds).containsExactly(1L, 2L);
+        assertThat(queue.getFailedFlushes()).isEqualTo(1);
+        assertThat(queue.getFlushedRecords()).isEqualTo(2);
+    }
+
+    private MAuditEventRecord row(long id) {
+        MAuditEventRecord row = new MAuditEventRecord();
+        row.id = id;
+        row.eventIdentifier = "event-" + id;
+        return row;
+    }
+}
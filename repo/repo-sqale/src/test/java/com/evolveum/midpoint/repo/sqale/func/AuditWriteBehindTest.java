@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.sqale.func;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.*;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.audit.api.AuditEventRecord;
+import com.evolveum.midpoint.audit.api.AuditEventType;
+import com.evolveum.midpoint.init.AuditServiceProxy;
+import com.evolveum.midpoint.repo.sqale.SqaleRepoBaseTest;
+import com.evolveum.midpoint.repo.sqale.audit.AuditWriteBehindQueue;
+import com.evolveum.midpoint.repo.sqale.audit.SqaleAuditService;
+import com.evolveum.midpoint.repo.sqale.audit.qmodel.*;
+import com.evolveum.midpoint.repo.sqlbase.JdbcSession;
+import com.evolveum.midpoint.schema.ObjectDeltaOperation;
+import com.evolveum.midpoint.schema.constants.ObjectTypes;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.schema.util.ObjectTypeUtil;
+import com.evolveum.midpoint.task.api.test.NullTaskImpl;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.UserType;
+
+/**
+ * Tests of the batched insert used by {@link SqaleAuditService} in the write-behind mode,
+ * see also {@link AuditWriteBehindQueueTest} for the queue itself.
+ */
+public class AuditWriteBehindTest extends SqaleRepoBaseTest {
+
+    private static final String BAD_MESSAGE = "bad";
+
+    private SqaleAuditService sqaleAuditService;
+
+    @BeforeClass
+    public void initAuditService() {
+        sqaleAuditService = ((AuditServiceProxy) auditService).getImplementation(SqaleAuditService.class);
+    }
+
+    @BeforeMethod
+    public void clearAuditTables() {
+        clearAudit();
+    }
+
+    @AfterMethod
+    public void stopWriteBehind() {
+        sqaleAuditService.stopWriteBehind();
+    }
+
+    @Test
+    public void test100RecordsAreWrittenInBatches() throws Exception {
+        OperationResult result = createOperationResult();
+
+        given("write-behind with flush size 3 and a long flush interval");
+        sqaleAuditService.startWriteBehind(100, 3, 60_000, 10_000);
+        AuditWriteBehindQueue queue = sqaleAuditService.getWriteBehindQueue();
+
+        when("7 records are audited, one of them with a custom column");
+        Map<String, ExpectedRecord> expected = new HashMap<>();
+        for (int i = 0; i < 7; i++) {
+            AuditEventRecord record = createRecord(String.valueOf(i), "record " + i);
+            if (i == 4) {
+                record.getCustomColumnProperty().put("foo", "foo-4");
+            }
+            expected.put(String.valueOf(i), audit(record, result));
+        }
+        sqaleAuditService.stopWriteBehind();
+
+        then("all the records are written, in batches not crossing the flush size");
+        assertThat(queue.getFlushedRecords()).isEqualTo(7);
+        assertThat(queue.getFlushes()).isGreaterThanOrEqualTo(3);
+        assertThat(queue.getFailedFlushes()).isZero();
+
+        and("each record has its own ID, deltas and references");
+        assertRecords(expected);
+        QAuditEventRecord a = aliasFor(QAuditEventRecord.class);
+        try (JdbcSession jdbcSession = startReadOnlyTransaction()) {
+            assertThat(jdbcSession.newQuery()
+                    .select(Objects.requireNonNull(a.getPath("foo")))
+                    .from(a)
+                    .where(a.parameter.eq("4"))
+                    .fetchOne())
+                    .isEqualTo("foo-4");
+        }
+    }
+
+    @Test
+    public void test200FailureInsideBatchLosesOnlyTheBadRecord() throws Exception {
+        OperationResult result = createOperationResult();
+
+        given("write-behind with flush size 5, and a record that the database refuses");
+        executeStatement("ALTER TABLE ma_audit_event ADD CONSTRAINT test_no_bad_message"
+                + " CHECK (message IS NULL OR message <> '" + BAD_MESSAGE + "')");
+        try {
+            sqaleAuditService.startWriteBehind(100, 5, 60_000, 10_000);
+            AuditWriteBehindQueue queue = sqaleAuditService.getWriteBehindQueue();
+
+            when("5 records are audited, the third one is bad");
+            Map<String, ExpectedRecord> expected = new HashMap<>();
+            for (int i = 0; i < 5; i++) {
+                AuditEventRecord record = createRecord(String.valueOf(i), i == 2 ? BAD_MESSAGE : "record " + i);
+                ExpectedRecord expectedRecord = audit(record, result);
+                if (i != 2) {
+                    expected.put(String.valueOf(i), expectedRecord);
+                }
+            }
+            sqaleAuditService.stopWriteBehind();
+
+            then("the batch is written one by one, only the bad record is lost");
+            assertThat(queue.getFlushedRecords()).isEqualTo(5);
+            assertRecords(expected);
+            assertCount(QAuditDelta.class, 4);
+            assertCount(QAuditRefValue.class, 4);
+        } finally {
+            executeStatement("ALTER TABLE ma_audit_event DROP CONSTRAINT test_no_bad_message");
+        }
+    }
+
+    private AuditEventRecord createRecord(String parameter, String message) {
+        AuditEventRecord record = new AuditEventRecord();
+        record.setParameter(parameter);
+        record.setMessage(message);
+        record.setEventType(AuditEventType.MODIFY_OBJECT);
+        record.setTimestamp(System.currentTimeMillis());
+        return record;
+    }
+
+    /** Adds a delta and a reference with random OIDs to the record and audits it. */
+    private ExpectedRecord audit(AuditEventRecord record, OperationResult result) throws Exception {
+        UUID deltaOid = UUID.randomUUID();
+        UUID refTargetOid = UUID.randomUUID();
+        ObjectDeltaOperation<UserType> delta = new ObjectDeltaOperation<>();
+        delta.setObjectDelta(prismContext.deltaFor(UserType.class)
+                .item(UserType.F_FULL_NAME).replace()
+                .asObjectDelta(deltaOid.toString()));
+        record.addDelta(delta);
+        record.addReferenceValue("ref",
+                ObjectTypeUtil.createObjectRef(refTargetOid.toString(), ObjectTypes.USER).asReferenceValue());
+        auditService.audit(record, NullTaskImpl.INSTANCE, result);
+        return new ExpectedRecord(deltaOid, refTargetOid);
+    }
+
+    private void assertRecords(Map<String, ExpectedRecord> expected) {
+        QAuditEventRecord a = aliasFor(QAuditEventRecord.class);
+        List<MAuditEventRecord> rows = select(a);
+        assertThat(rows).extracting(r -> r.parameter)
+                .containsExactlyInAnyOrderElementsOf(expected.keySet());
+        assertThat(rows).extracting(r -> r.id).doesNotHaveDuplicates();
+
+        QAuditDelta d = aliasFor(QAuditDelta.class);
+        QAuditRefValue r = aliasFor(QAuditRefValue.class);
+        for (MAuditEventRecord row : rows) {
+            ExpectedRecord expectedRecord = expected.get(row.parameter);
+            assertThat(select(d, d.recordId.eq(row.id)))
+                    .as("deltas of record %s", row.parameter)
+                    .extracting(delta -> delta.deltaOid)
+                    .containsExactly(expectedRecord.deltaOid());
+            assertThat(select(r, r.recordId.eq(row.id)))
+                    .as("references of record %s", row.parameter)
+                    .extracting(ref -> ref.targetOid)
+                    .containsExactly(expectedRecord.refTargetOid());
+        }
+    }
+
+    private void executeStatement(String sql) {
+        try (JdbcSession jdbcSession = startTransaction()) {
+            jdbcSession.executeStatement(sql);
+            jdbcSession.commit();
+        }
+    }
+
+    private record ExpectedRecord(UUID deltaOid, UUID refTargetOid) {
+    }
+}
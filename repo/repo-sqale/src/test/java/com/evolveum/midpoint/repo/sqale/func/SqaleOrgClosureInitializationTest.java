@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.sqale.func;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.repo.sqale.SqaleRepoBaseTest;
+import com.evolveum.midpoint.repo.sqale.qmodel.common.QGlobalMetadata;
+import com.evolveum.midpoint.repo.sqlbase.JdbcSession;
+import com.evolveum.midpoint.schema.result.OperationResult;
+
+/**
+ * Tests the initialization of the (database-wide) incremental org closure on the repository start,
+ * with the nodes of the cluster being simulated by restarting the repository with different configuration.
+ */
+public class SqaleOrgClosureInitializationTest extends SqaleRepoBaseTest {
+
+    private static final String ORG_CLOSURE_TABLE_ENABLED = "orgClosureTableEnabled";
+
+    /** One of the triggers created when the incremental closure is enabled. */
+    private static final String CLOSURE_TRIGGER = "m_org_closure_identity_tr";
+
+    @BeforeMethod
+    public void resetOrgClosureState() {
+        // Disabled and then forgotten, as if no node has started on the database yet.
+        try (JdbcSession jdbcSession = startTransaction()) {
+            jdbcSession.executeStatement("CALL m_enable_org_closure_table(false)");
+            QGlobalMetadata gm = QGlobalMetadata.DEFAULT;
+            jdbcSession.newDelete(gm).where(gm.name.eq(ORG_CLOSURE_TABLE_ENABLED)).execute();
+            jdbcSession.commit();
+        }
+    }
+
+    @AfterClass
+    public void disableIncrementalOrgClosure() {
+        repositoryConfiguration.setOrgClosureIncremental(false);
+        try (JdbcSession jdbcSession = startTransaction()) {
+            jdbcSession.executeStatement("CALL m_enable_org_closure_table(false)");
+            jdbcSession.commit();
+        }
+    }
+
+    @Test
+    public void test100FirstNodeEnablesSecondNodeFollows() throws Exception {
+        OperationResult result = createOperationResult();
+
+        given("no node has started on the database yet");
+        assertThat(getDatabaseState()).isNull();
+
+        when("the first node starts with incremental org closure");
+        startNode(true, result);
+
+        then("incremental org closure is enabled in the database");
+        assertThat(getDatabaseState()).isEqualTo("true");
+        assertThat(closureTriggerExists()).isTrue();
+        assertThat(sqlRepoContext.isOrgClosureIncremental()).isTrue();
+
+        when("the second node starts without incremental org closure");
+        startNode(false, result);
+
+        then("the database state is not changed, and the node uses it");
+        assertThat(getDatabaseState()).isEqualTo("true");
+        assertThat(closureTriggerExists()).isTrue();
+        assertThat(sqlRepoContext.isOrgClosureIncremental()).isTrue();
+    }
+
+    @Test
+    public void test110FirstNodeDisablesSecondNodeFollows() throws Exception {
+        OperationResult result = createOperationResult();
+
+        given("no node has started on the database yet");
+        assertThat(getDatabaseState()).isNull();
+
+        when("the first node starts without incremental org closure");
+        startNode(false, result);
+
+        then("incremental org closure is disabled in the database");
+        assertThat(getDatabaseState()).isEqualTo("false");
+        assertThat(closureTriggerExists()).isFalse();
+        assertThat(sqlRepoContext.isOrgClosureIncremental()).isFalse();
+
+        when("the second node starts with incremental org closure");
+        startNode(true, result);
+
+        then("the closure table is not enabled, and the node uses the materialized view");
+        assertThat(getDatabaseState()).isEqualTo("false");
+        assertThat(closureTriggerExists()).isFalse();
+        assertThat(sqlRepoContext.isOrgClosureIncremental()).isFalse();
+    }
+
+    @Test
+    public void test120ExplicitChangeIsRespected() throws Exception {
+        OperationResult result = createOperationResult();
+
+        given("database where the first node disabled the incremental org closure");
+        startNode(false, result);
+
+        when("the administrator enables it explicitly, and a node with the updated configuration starts");
+        try (JdbcSession jdbcSession = startTransaction()) {
+            jdbcSession.executeStatement("CALL m_enable_org_closure_table(true)");
+            jdbcSession.commit();
+        }
+        startNode(true, result);
+
+        then("incremental org closure is used");
+        assertThat(getDatabaseState()).isEqualTo("true");
+        assertThat(closureTriggerExists()).isTrue();
+        assertThat(sqlRepoContext.isOrgClosureIncremental()).isTrue();
+    }
+
+    private void startNode(boolean orgClosureIncremental, OperationResult result) throws Exception {
+        repositoryConfiguration.setOrgClosureIncremental(orgClosureIncremental);
+        repositoryService.postInit(result);
+    }
+
+    private String getDatabaseState() {
+        try (JdbcSession jdbcSession = startReadOnlyTransaction()) {
+            QGlobalMetadata gm = QGlobalMetadata.DEFAULT;
+            return jdbcSession.newQuery()
+                    .select(gm.value)
+                    .from(gm)
+                    .where(gm.name.eq(ORG_CLOSURE_TABLE_ENABLED))
+                    .fetchOne();
+        }
+    }
+
+    private boolean closureTriggerExists() throws SQLException {
+        try (JdbcSession jdbcSession = startReadOnlyTransaction();
+                PreparedStatement stmt = jdbcSession.connection()
+                        .prepareStatement("SELECT 1 FROM pg_trigger WHERE tgname = ?")) {
+            stmt.setString(1, CLOSURE_TRIGGER);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+}
@@ -420,6 +420,84 @@ public class SqaleRepoAddDeleteObjectTest extends SqaleRepoBaseTest {
         assertThat(row.version).isEqualTo(SqaleRepositoryService.INITIAL_VERSION_NUMBER); // no change
     }
 
+    @Test
+    public void test130AddObjectsWithAndWithoutOidReturnsOidsInInputOrder()
+            throws ObjectAlreadyExistsException, SchemaException {
+        OperationResult result = createOperationResult();
+
+        given("users and roles, some of them with provided OID, some without");
+        UUID user1Oid = UUID.randomUUID();
+        UUID roleOid = UUID.randomUUID();
+        String prefix = "obj" + getTestNumber() + "-";
+        List<PrismObject<? extends ObjectType>> objects = List.of(
+                new UserType().oid(user1Oid.toString()).name(prefix + "user1").asPrismObject(),
+                new UserType().name(prefix + "user2").asPrismObject(),
+                new RoleType().oid(roleOid.toString()).name(prefix + "role").asPrismObject(),
+                new UserType().name(prefix + "user3").asPrismObject());
+        long baseCount = count(QObject.CLASS);
+
+        when("adding them in one batch");
+        List<String> oids = repositoryService.addObjects(objects, null, result);
+
+        then("operation is successful and OIDs are returned in the order of the input");
+        assertThatOperationResult(result).isSuccess();
+        assertThat(oids).hasSize(4).doesNotContainNull().doesNotHaveDuplicates();
+        assertThat(oids.get(0)).isEqualTo(user1Oid.toString());
+        assertThat(oids.get(2)).isEqualTo(roleOid.toString());
+        assertCount(QObject.CLASS, baseCount + 4);
+
+        and("each returned OID belongs to the object at the same position");
+        QObject<MObject> o = aliasFor(QObject.CLASS);
+        for (int i = 0; i < objects.size(); i++) {
+            MObject row = selectOne(o, o.oid.eq(UUID.fromString(oids.get(i))));
+            assertThat(row.nameOrig).isEqualTo(objects.get(i).getName().getOrig());
+            assertThat(row.version).isEqualTo(SqaleRepositoryService.INITIAL_VERSION_NUMBER);
+        }
+    }
+
+    @Test
+    public void test131AddObjectsWithConflictingOidAddsNothing()
+            throws ObjectAlreadyExistsException, SchemaException {
+        OperationResult result = createOperationResult();
+
+        given("user with provided OID already exists");
+        UUID existingOid = UUID.randomUUID();
+        String prefix = "obj" + getTestNumber() + "-";
+        repositoryService.addObject(
+                new UserType().oid(existingOid.toString()).name(prefix + "existing").asPrismObject(),
+                null, result);
+
+        and("a batch with new objects (with and without OID) and one with the existing OID");
+        List<PrismObject<? extends ObjectType>> objects = List.of(
+                new UserType().name(prefix + "user1").asPrismObject(),
+                new UserType().oid(UUID.randomUUID().toString()).name(prefix + "user2").asPrismObject(),
+                new UserType().oid(existingOid.toString()).name(prefix + "conflict").asPrismObject(),
+                new RoleType().name(prefix + "role").asPrismObject());
+        long baseCount = count(QObject.CLASS);
+
+        when("adding the batch");
+        then("operation fails and the whole batch is rolled back");
+        assertThatThrownBy(() -> repositoryService.addObjects(objects, null, result))
+                .isInstanceOf(ObjectAlreadyExistsException.class);
+        assertThatOperationResult(result).isFatalError();
+        assertCount(QObject.CLASS, baseCount);
+        QObject<MObject> o = aliasFor(QObject.CLASS);
+        assertThat(select(o, o.nameOrig.startsWith(prefix)))
+                .extracting(row -> row.nameOrig)
+                .containsExactly(prefix + "existing");
+    }
+
+    @Test
+    public void test132AddObjectsWithOverwriteIsNotSupported() {
+        OperationResult result = createOperationResult();
+
+        expect("adding objects with overwrite option fails");
+        assertThatThrownBy(() -> repositoryService.addObjects(
+                List.of(new UserType().name("user" + getTestNumber()).asPrismObject()),
+                createOverwrite(), result))
+                .isInstanceOf(UnsupportedOperationException.class);
+    }
+
     @Test
     public void test150AddOperationUpdatesPerformanceMonitor()
             throws ObjectAlreadyExistsException, SchemaException {
@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.sqale.func;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.repo.sqale.qmodel.org.QOrg;
+import com.evolveum.midpoint.repo.sqale.qmodel.org.QOrgClosure;
+import com.evolveum.midpoint.repo.sqlbase.JdbcSession;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.OrgType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.UserType;
+
+/**
+ * Runs all the {@link SqaleRepoSearchTest} tests (including org filter ones) with the org closure
+ * maintained incrementally in `m_org_closure_table` and checks that the table matches the materialized view.
+ */
+public class SqaleRepoSearchIncrementalOrgClosureTest extends SqaleRepoSearchTest {
+
+    // Runs after the superclass @BeforeClass, so the closure table is built from the existing objects.
+    @BeforeClass
+    public void enableIncrementalOrgClosure() {
+        repositoryConfiguration.setOrgClosureIncremental(true);
+        enableOrgClosureTable(true);
+        assertThat(sqlRepoContext.isOrgClosureIncremental()).isTrue();
+    }
+
+    @AfterClass
+    public void disableIncrementalOrgClosure() {
+        repositoryConfiguration.setOrgClosureIncremental(false);
+        enableOrgClosureTable(false);
+    }
+
+    @Test
+    public void test999OrgClosureTableMatchesViewAfterMovesAndDeletes() throws Exception {
+        OperationResult result = createOperationResult();
+
+        given("org hierarchy with a user");
+        String rootAOid = addOrg("orgClosureRootA", null, result);
+        String rootBOid = addOrg("orgClosureRootB", null, result);
+        String orgOid = addOrg("orgClosureChild", rootAOid, result);
+        String subOrgOid = addOrg("orgClosureGrandchild", orgOid, result);
+        String userOid = repositoryService.addObject(
+                new UserType().name("orgClosureUser")
+                        .parentOrgRef(subOrgOid, OrgType.COMPLEX_TYPE)
+                        .asPrismObject(),
+                null, result);
+        assertOrgClosureTableMatchesView();
+
+        when("subtree is moved to another root");
+        repositoryService.modifyObject(OrgType.class, orgOid,
+                prismContext.deltaFor(OrgType.class)
+                        .item(OrgType.F_PARENT_ORG_REF)
+                        .replace(ref(rootBOid, OrgType.COMPLEX_TYPE))
+                        .asItemDeltas(),
+                result);
+
+        then("closure table matches the view and org queries see the new hierarchy");
+        assertOrgClosureTableMatchesView();
+        assertThat(repositoryService.isDescendant(
+                repositoryService.getObject(OrgType.class, subOrgOid, null, result), rootBOid)).isTrue();
+        assertThat(repositoryService.isDescendant(
+                repositoryService.getObject(OrgType.class, subOrgOid, null, result), rootAOid)).isFalse();
+
+        when("second parent is added to the grandchild org");
+        repositoryService.modifyObject(OrgType.class, subOrgOid,
+                prismContext.deltaFor(OrgType.class)
+                        .item(OrgType.F_PARENT_ORG_REF)
+                        .add(ref(rootAOid, OrgType.COMPLEX_TYPE))
+                        .asItemDeltas(),
+                result);
+
+        then("closure table matches the view");
+        assertOrgClosureTableMatchesView();
+
+        when("org in the middle of the hierarchy is deleted");
+        repositoryService.deleteObject(OrgType.class, orgOid, result);
+
+        then("closure table matches the view");
+        assertOrgClosureTableMatchesView();
+        assertThat(searchObjects(UserType.class,
+                prismContext.queryFor(UserType.class).isChildOf(rootBOid).build(),
+                result)).isEmpty();
+        assertThat(searchObjects(UserType.class,
+                prismContext.queryFor(UserType.class).isChildOf(rootAOid).build(),
+                result)).extracting(u -> u.getOid()).containsExactly(userOid);
+
+        when("the rest of the hierarchy is deleted");
+        repositoryService.deleteObject(UserType.class, userOid, result);
+        repositoryService.deleteObject(OrgType.class, subOrgOid, result);
+        repositoryService.deleteObject(OrgType.class, rootAOid, result);
+        repositoryService.deleteObject(OrgType.class, rootBOid, result);
+
+        then("closure table matches the view and consistency check agrees");
+        assertOrgClosureTableMatchesView();
+        repositoryService.testOrgClosureConsistency(false, result);
+        OperationResult checkResult = result.getLastSubresult();
+        assertThat(checkResult.getReturnSingle("closure-count"))
+                .isEqualTo(checkResult.getReturnSingle("expected-count"));
+        assertThatOperationResult(result).isSuccess();
+    }
+
+    private String addOrg(String name, String parentOid, OperationResult result) throws Exception {
+        OrgType org = new OrgType().name(name);
+        if (parentOid != null) {
+            org.parentOrgRef(parentOid, OrgType.COMPLEX_TYPE);
+        }
+        return repositoryService.addObject(org.asPrismObject(), null, result);
+    }
+
+    /**
+     * Compares the incrementally maintained table with the fully recomputed materialized view.
+     * The table has identity rows for all the orgs, the view only for orgs in the hierarchy,
+     * so these are compared separately.
+     */
+    private void assertOrgClosureTableMatchesView() {
+        refreshOrgClosureForce();
+        try (JdbcSession jdbcSession = startReadOnlyTransaction()) {
+            QOrgClosure view = new QOrgClosure();
+            QOrgClosure table = sqlRepoContext.newOrgClosureAlias("oct");
+            assertThat(closurePairs(jdbcSession, table))
+                    .containsExactlyInAnyOrderElementsOf(closurePairs(jdbcSession, view));
+
+            QOrg o = aliasFor(QOrg.CLASS);
+            List<String> identityOids = jdbcSession.newQuery()
+                    .select(table.ancestorOid)
+                    .from(table)
+                    .where(table.ancestorOid.eq(table.descendantOid))
+                    .fetch().stream()
+                    .map(String::valueOf)
+                    .collect(Collectors.toList());
+            assertThat(identityOids).containsExactlyInAnyOrderElementsOf(
+                    jdbcSession.newQuery().select(o.oid).from(o).fetch().stream()
+                            .map(String::valueOf)
+                            .collect(Collectors.toList()));
+        }
+    }
+
+    private Set<String> closurePairs(JdbcSession jdbcSession, QOrgClosure closure) {
+        return jdbcSession.newQuery()
+                .select(closure.ancestorOid, closure.descendantOid)
+                .from(closure)
+                .where(closure.ancestorOid.ne(closure.descendantOid))
+                .fetch().stream()
+                .map(t -> t.get(closure.ancestorOid) + "=>" + t.get(closure.descendantOid))
+                .collect(Collectors.toSet());
+    }
+
+    private void enableOrgClosureTable(boolean enable) {
+        try (JdbcSession jdbcSession = startTransaction()) {
+            jdbcSession.executeStatement("CALL m_enable_org_closure_table(" + enable + ")");
+            jdbcSession.commit();
+        }
+    }
+}
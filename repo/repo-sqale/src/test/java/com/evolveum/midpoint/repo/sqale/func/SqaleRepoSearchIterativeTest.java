@@ -75,6 +75,7 @@ public class SqaleRepoSearchIterativeTest extends SqaleRepoBaseTest {
     public void resetTestHandler() {
         testHandler.reset();
         repositoryConfiguration.setIterativeSearchByPagingBatchSize(ITERATION_PAGE_SIZE);
+        repositoryConfiguration.setIterativeSearchPrefetchPages(0);
     }
 
     @AfterMethod
@@ -391,6 +392,59 @@ public class SqaleRepoSearchIterativeTest extends SqaleRepoBaseTest {
         assertThat(testHandler.getCounter()).isEqualTo(COUNT_OF_CREATED_USERS - 100);
     }
 
+    @Test
+    public void test140SearchIterativeWithPrefetch() throws Exception {
+        OperationResult operationResult = createOperationResult();
+        SqlPerformanceMonitorImpl pm = getPerformanceMonitor();
+        pm.clearGlobalPerformanceInformation();
+
+        given("prefetching of pages is enabled");
+        repositoryConfiguration.setIterativeSearchByPagingBatchSize(15);
+        repositoryConfiguration.setIterativeSearchPrefetchPages(2);
+
+        when("calling search iterative with null query");
+        SearchResultMetadata metadata = searchObjectsIterative(null, operationResult);
+
+        then("result metadata is not null and reports the handled objects");
+        assertThatOperationResult(operationResult).isSuccess();
+        assertThat(metadata).isNotNull();
+        assertThat(metadata.getApproxNumberOfAllResults()).isEqualTo(testHandler.getCounter());
+        assertThat(metadata.isPartialResults()).isFalse();
+
+        and("search operations were called");
+        assertOperationRecordedCount(
+                REPO_OP_PREFIX + RepositoryService.OP_SEARCH_OBJECTS_ITERATIVE, 1);
+        assertTypicalPageOperationCount(metadata);
+
+        and("all objects of the specified type (here User) were processed");
+        assertThat(testHandler.getCounter()).isEqualTo(count(QUser.class));
+    }
+
+    @Test
+    public void test145SearchIterativeWithPrefetchAndBreakingCondition() throws Exception {
+        OperationResult operationResult = createOperationResult();
+
+        String midOid = "80000000-0000-0000-0000-000000000000";
+        given("prefetching of pages is enabled and condition that breaks iterative search based on UUID");
+        repositoryConfiguration.setIterativeSearchByPagingBatchSize(15);
+        repositoryConfiguration.setIterativeSearchPrefetchPages(2);
+        testHandler.setStoppingPredicate(u -> u.getOid().compareTo(midOid) >= 0);
+
+        when("calling search iterative with null query");
+        SearchResultMetadata metadata = searchObjectsIterative(null, operationResult);
+
+        then("result metadata reports partial result (because of the break)");
+        assertThat(metadata).isNotNull();
+        assertThat(metadata.getApproxNumberOfAllResults()).isEqualTo(testHandler.getCounter());
+        assertThat(metadata.isPartialResults()).isTrue(); // extremely likely with enough items
+
+        and("all objects up to specified UUID were processed, prefetched objects were not");
+        QUser u = aliasFor(QUser.class);
+        assertThat(testHandler.getCounter())
+                // first >= midOid was processed too
+                .isEqualTo(count(u, u.oid.lt(UUID.fromString(midOid))) + 1);
+    }
+
     @SafeVarargs
     private SearchResultMetadata searchObjectsIterative(
             ObjectQuery query,
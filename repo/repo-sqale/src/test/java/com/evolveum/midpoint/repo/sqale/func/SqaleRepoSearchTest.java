@@ -22,6 +22,7 @@ import static com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectType.F_
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 import javax.xml.datatype.XMLGregorianCalendar;
@@ -51,10 +52,13 @@ import com.evolveum.midpoint.repo.sqale.qmodel.object.MObject;
 import com.evolveum.midpoint.repo.sqale.qmodel.object.MObjectType;
 import com.evolveum.midpoint.repo.sqale.qmodel.object.QAssignmentHolder;
 import com.evolveum.midpoint.repo.sqale.qmodel.object.QObject;
+import com.evolveum.midpoint.repo.sqlbase.JdbcRepositoryConfiguration;
 import com.evolveum.midpoint.repo.sqlbase.QueryException;
 import com.evolveum.midpoint.repo.sqlbase.filtering.item.PolyStringItemFilterProcessor;
+import com.evolveum.midpoint.schema.GetOperationOptions;
 import com.evolveum.midpoint.schema.SchemaService;
 import com.evolveum.midpoint.schema.SearchResultList;
+import com.evolveum.midpoint.schema.SelectorOptions;
 import com.evolveum.midpoint.schema.constants.SchemaConstants;
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.schema.result.OperationResultStatus;
@@ -588,6 +592,33 @@ public class SqaleRepoSearchTest extends SqaleRepoBaseTest {
         assertThatOperationResult(operationResult).isSuccess();
     }
 
+    @Test
+    public void test102SearchAllObjectsWithParallelParsing() throws Exception {
+        given("search of all objects ordered by OID and its results with sequential parsing");
+        ObjectQuery query = prismContext.queryFor(ObjectType.class).asc(PrismConstants.T_ID).build();
+        SearchResultList<ObjectType> expected =
+                searchObjects(ObjectType.class, query, createOperationResult());
+
+        when("searching with parallel parsing of full objects");
+        OperationResult operationResult = createOperationResult();
+        SearchResultList<ObjectType> result;
+        repositoryConfiguration.setFullObjectParsingThreads(4);
+        try {
+            result = searchObjects(ObjectType.class, query, operationResult);
+        } finally {
+            repositoryConfiguration.setFullObjectParsingThreads(0);
+        }
+
+        then("the same objects are returned in the same order");
+        assertThatOperationResult(operationResult).isSuccess();
+        assertThat(result).hasSize(expected.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertThat(result.get(i).asPrismObject().equivalent(expected.get(i).asPrismObject()))
+                    .as("object #" + i + " (" + expected.get(i) + ") is equivalent")
+                    .isTrue();
+        }
+    }
+
     @Test
     public void test110SearchUserByName() throws Exception {
         searchUsersTest("with name matching provided value",
@@ -3411,6 +3442,78 @@ public class SqaleRepoSearchTest extends SqaleRepoBaseTest {
                 .hasMessageMatching("Filter 'levenshtein: employeeNumber, .*' should contain at most one value, but it has 2 of them\\.");
     }
 
+    @Test
+    public void test997ApproximateCountIsExactUnderThreshold() throws SchemaException {
+        given("approximate count option");
+        OperationResult operationResult = createOperationResult();
+        var approximate = SchemaService.get().getOperationOptionsBuilder().approximateCount().build();
+
+        expect("exact count is returned for small tables with and without filter");
+        assertThat(repositoryService.countObjects(UserType.class, null, approximate, operationResult))
+                .isEqualTo(repositoryService.countObjects(UserType.class, null, null, operationResult));
+        ObjectQuery query = prismContext.queryFor(UserType.class)
+                .item(UserType.F_COST_CENTER).eq("5")
+                .build();
+        assertThat(repositoryService.countObjects(UserType.class, query, approximate, operationResult))
+                .isEqualTo(repositoryService.countObjects(UserType.class, query, null, operationResult));
+        assertThatOperationResult(operationResult).isSuccess();
+    }
+
+    @Test
+    public void test998ApproximateCountIsUsedOnlyForSimpleFilters() throws SchemaException {
+        given("approximate count option and threshold reached by any estimate");
+        OperationResult operationResult = createOperationResult();
+        var approximate = SchemaService.get().getOperationOptionsBuilder().approximateCount().build();
+        repositoryConfiguration.setApproximateCountThreshold(0);
+        try {
+            expect("planner estimate is used without filter and with a simple column filter");
+            assertThat(countUsesEstimate(null, approximate, operationResult)).isTrue();
+            assertThat(countUsesEstimate(prismContext.queryFor(UserType.class)
+                    .item(UserType.F_COST_CENTER).eq("5")
+                    .build(), approximate, operationResult)).isTrue();
+
+            and("exact count is returned for more complex filters");
+            for (ObjectQuery query : List.of(
+                    prismContext.queryFor(UserType.class)
+                            .item(UserType.F_COST_CENTER).eq("5")
+                            .or().item(UserType.F_EMPLOYEE_NUMBER).eq("1")
+                            .build(),
+                    prismContext.queryFor(UserType.class)
+                            .item(UserType.F_PARENT_ORG_REF).ref(org11Oid)
+                            .build(),
+                    prismContext.queryFor(UserType.class)
+                            .isChildOf(org1Oid)
+                            .build(),
+                    prismContext.queryFor(UserType.class)
+                            .not().item(UserType.F_COST_CENTER).eq("5")
+                            .build())) {
+                assertThat(countUsesEstimate(query, approximate, operationResult))
+                        .as("estimate used for %s", query)
+                        .isFalse();
+                assertThat(repositoryService.countObjects(UserType.class, query, approximate, operationResult))
+                        .as("count for %s", query)
+                        .isEqualTo(repositoryService.countObjects(UserType.class, query, null, operationResult));
+            }
+        } finally {
+            repositoryConfiguration.setApproximateCountThreshold(JdbcRepositoryConfiguration.DEFAULT_APPROXIMATE_COUNT_THRESHOLD);
+        }
+        assertThatOperationResult(operationResult).isSuccess();
+    }
+
+    /** Counts the users and returns true if the planner estimate (EXPLAIN) was used. */
+    private boolean countUsesEstimate(ObjectQuery query,
+            Collection<SelectorOptions<GetOperationOptions>> options, OperationResult operationResult)
+            throws SchemaException {
+        queryRecorder.clearBufferAndStartRecording();
+        try {
+            repositoryService.countObjects(UserType.class, query, options, operationResult);
+            return queryRecorder.getQueryBuffer().stream()
+                    .anyMatch(e -> e.sql.startsWith("EXPLAIN"));
+        } finally {
+            queryRecorder.stopRecording();
+        }
+    }
+
     @Test
     public void test999MultipleOrdersAreSupportedByFluentApiAndRepository() throws SchemaException {
         given("search users query ordered by family and given name");
@@ -11,6 +11,13 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import static com.evolveum.midpoint.repo.sqale.UriCache.UNKNOWN_ID;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.stream.IntStream;
+
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Test;
 
@@ -79,4 +86,46 @@ public class UriCacheTest extends SqaleRepoBaseTest {
         then("it when stored to cache, id from cache 1 will be obtained");
         assertThat(uriCache2.processCacheableUri(uriValue)).isEqualTo(uriId);
     }
+
+    @Test
+    public void test400ConcurrentInsertsOfTheSameUris() throws Exception {
+        given("threads using both caches and a set of new URIs");
+        int threads = 8;
+        List<String> uris = IntStream.range(0, 20)
+                .mapToObj(i -> "test-uri-" + getTestNameShort() + "-" + i)
+                .toList();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+
+        when("all threads process all the URIs at once");
+        List<Future<Map<String, Integer>>> futures = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                UriCache uriCache = t % 2 == 0 ? uriCache1 : uriCache2;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    Map<String, Integer> ids = new HashMap<>();
+                    for (String uri : uris) {
+                        ids.put(uri, uriCache.processCacheableUri(uri));
+                    }
+                    return ids;
+                }));
+            }
+            start.countDown();
+
+            then("each URI gets the same ID in all threads");
+            Map<String, Integer> expected = futures.get(0).get(1, TimeUnit.MINUTES);
+            assertThat(expected).hasSize(uris.size()).doesNotContainValue(null);
+            for (Future<Map<String, Integer>> future : futures) {
+                assertThat(future.get(1, TimeUnit.MINUTES)).isEqualTo(expected);
+            }
+            and("the IDs are cached in both caches");
+            for (String uri : uris) {
+                assertThat(uriCache1.getId(uri)).isEqualTo(expected.get(uri));
+                assertThat(uriCache2.getId(uri)).isEqualTo(expected.get(uri));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 }
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.sqale.perf;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.function.IntConsumer;
+
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.repo.sqale.ExtItemCache;
+import com.evolveum.midpoint.repo.sqale.SqaleRepoBaseTest;
+import com.evolveum.midpoint.repo.sqale.UriCache;
+import com.evolveum.midpoint.repo.sqale.qmodel.ext.MExtItem;
+import com.evolveum.midpoint.repo.sqale.qmodel.ext.MExtItemCardinality;
+import com.evolveum.midpoint.repo.sqale.qmodel.ext.MExtItemHolderType;
+
+/**
+ * The test is not part of automatically run tests (it is not mentioned in suite XMLs).
+ * Measures throughput of concurrent lookups of already cached entries in {@link UriCache} and {@link ExtItemCache},
+ * which happen for every relation, channel, or extension value stored or read.
+ */
+public class CacheLookupPerfTest extends SqaleRepoBaseTest {
+
+    private static final int THREADS = 64;
+    private static final int LOOKUPS_PER_THREAD = 1_000_000;
+    private static final int ENTRIES = 100;
+
+    private UriCache uriCache;
+    private ExtItemCache extItemCache;
+
+    private final List<String> uris = new ArrayList<>();
+    private final List<MExtItem.Key> extItemKeys = new ArrayList<>();
+
+    @BeforeClass
+    public void initCaches() {
+        uriCache = new UriCache();
+        uriCache.initialize(sqlRepoContext::newJdbcSession);
+        extItemCache = new ExtItemCache();
+        extItemCache.initialize(sqlRepoContext::newJdbcSession);
+
+        for (int i = 0; i < ENTRIES; i++) {
+            String uri = "test-uri-perf-" + i;
+            uriCache.processCacheableUri(uri);
+            uris.add(uri);
+
+            MExtItem.Key key = new MExtItem.Key();
+            key.itemName = "http://example.com/perf#item" + i;
+            key.valueType = "http://www.w3.org/2001/XMLSchema#string";
+            key.holderType = MExtItemHolderType.EXTENSION;
+            key.cardinality = MExtItemCardinality.SCALAR;
+            extItemCache.resolveExtensionItem(key);
+            extItemKeys.add(key);
+        }
+    }
+
+    @Test
+    public void test100UriCacheLookups() throws Exception {
+        measure("UriCache.processCacheableUri",
+                i -> uriCache.processCacheableUri(uris.get(i % ENTRIES)));
+    }
+
+    @Test
+    public void test200ExtItemCacheLookups() throws Exception {
+        measure("ExtItemCache.resolveExtensionItem",
+                i -> extItemCache.resolveExtensionItem(extItemKeys.get(i % ENTRIES)));
+    }
+
+    private void measure(String label, IntConsumer lookup) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int offset = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < LOOKUPS_PER_THREAD; i++) {
+                        lookup.accept(offset + i);
+                    }
+                    return null;
+                }));
+            }
+            long startNanos = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+            long lookups = (long) THREADS * LOOKUPS_PER_THREAD;
+            display(String.format("%s: %,d lookups in %d threads took %,d ms (%,d lookups/s)",
+                    label, lookups, THREADS, millis, lookups * 1000 / Math.max(1, millis)));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.repo.sqale.perf;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.javasimon.Split;
+import org.javasimon.Stopwatch;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import com.evolveum.midpoint.repo.sqale.SqaleRepoBaseTest;
+import com.evolveum.midpoint.repo.sqale.qmodel.org.QOrg;
+import com.evolveum.midpoint.repo.sqale.qmodel.org.QOrgClosure;
+import com.evolveum.midpoint.repo.sqlbase.JdbcSession;
+import com.evolveum.midpoint.schema.result.OperationResult;
+import com.evolveum.midpoint.tools.testng.PerformanceTestClassMixin;
+import com.evolveum.midpoint.util.exception.ObjectAlreadyExistsException;
+import com.evolveum.midpoint.util.exception.SchemaException;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.OrgType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.UserType;
+
+/**
+ * Compares org closure implementations - materialized view refreshed after changes
+ * and incrementally maintained table - on org moves followed by org queries.
+ *
+ * The test is not part of automatically run tests (it is not mentioned in suite XMLs).
+ * Size of the hierarchy can be changed by `orgLevels` and `orgsPerLevel` system properties.
+ */
+public class OrgClosurePerfTest extends SqaleRepoBaseTest
+        implements PerformanceTestClassMixin {
+
+    private static final int ORG_LEVELS = Integer.getInteger("orgLevels", 4);
+    private static final int ORGS_PER_LEVEL = Integer.getInteger("orgsPerLevel", 6);
+    private static final int USERS_PER_ORG = 2;
+    private static final int MOVES = 200;
+
+    private static final Random RND = new Random();
+
+    /** Orgs that have child orgs, possible targets of the moves. The first one is a root. */
+    private final List<OrgType> parentOrgs = new ArrayList<>();
+
+    /** Orgs on the last level, these are moved around. */
+    private final List<OrgType> leafOrgs = new ArrayList<>();
+
+    @BeforeClass
+    public void initObjects() throws Exception {
+        OperationResult result = createOperationResult();
+        createOrgsFor(null, ORG_LEVELS, result);
+        refreshOrgClosureForce();
+
+        display("Orgs: " + count(QOrg.CLASS));
+        display("Org closure: " + count(new QOrgClosure()));
+        assertThatOperationResult(result).isSuccess();
+    }
+
+    @AfterClass
+    public void disableIncrementalClosure() {
+        repositoryConfiguration.setOrgClosureIncremental(false);
+        enableOrgClosureTable(false);
+    }
+
+    private void createOrgsFor(OrgType parent, int levels, OperationResult result)
+            throws SchemaException, ObjectAlreadyExistsException {
+        for (int i = 1; i <= ORGS_PER_LEVEL; i++) {
+            String name = parent != null ? parent.getName() + "x" + i : "org" + i;
+            OrgType org = new OrgType().name(name);
+            if (parent != null) {
+                org.parentOrgRef(parent.getOid(), OrgType.COMPLEX_TYPE);
+            }
+            repositoryService.addObject(org.asPrismObject(), null, result);
+            if (levels > 1) {
+                parentOrgs.add(org);
+                createOrgsFor(org, levels - 1, result);
+            } else {
+                leafOrgs.add(org);
+                for (int u = 1; u <= USERS_PER_ORG; u++) {
+                    repositoryService.addObject(
+                            new UserType().name("user" + name + "v" + u)
+                                    .parentOrgRef(org.getOid(), OrgType.COMPLEX_TYPE)
+                                    .asPrismObject(),
+                            null, result);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void test100MaterializedView() throws Exception {
+        repositoryConfiguration.setOrgClosureIncremental(false);
+        enableOrgClosureTable(false);
+
+        movesAndQueries("matview");
+    }
+
+    @Test
+    public void test200Incremental() throws Exception {
+        repositoryConfiguration.setOrgClosureIncremental(true);
+        Stopwatch stopwatch = stopwatch("incremental.rebuild", "Initial build of the closure table");
+        try (Split ignored = stopwatch.start()) {
+            enableOrgClosureTable(true);
+        }
+        display("Org closure table: " + count(sqlRepoContext.newOrgClosureAlias("oct")));
+
+        movesAndQueries("incremental");
+
+        OperationResult result = createOperationResult();
+        repositoryService.testOrgClosureConsistency(false, result);
+        OperationResult checkResult = result.getLastSubresult();
+        display("Consistency check: " + checkResult.getReturns());
+        assertThat(checkResult.getReturnSingle("closure-count"))
+                .isEqualTo(checkResult.getReturnSingle("expected-count"));
+    }
+
+    private void movesAndQueries(String prefix) throws Exception {
+        OperationResult result = createOperationResult();
+        Stopwatch moveStopwatch = stopwatch(prefix + ".move", "Leaf org moved to another parent");
+        Stopwatch subtreeStopwatch = stopwatch(prefix + ".subtree", "Users in subtree of the root org");
+        Stopwatch ancestorsStopwatch = stopwatch(prefix + ".ancestors", "Ancestors of the moved org");
+        for (int i = 0; i < MOVES; i++) {
+            OrgType org = leafOrgs.get(RND.nextInt(leafOrgs.size()));
+            OrgType newParent = parentOrgs.get(RND.nextInt(parentOrgs.size()));
+            try (Split ignored = moveStopwatch.start()) {
+                repositoryService.modifyObject(OrgType.class, org.getOid(),
+                        prismContext.deltaFor(OrgType.class)
+                                .item(OrgType.F_PARENT_ORG_REF)
+                                .replace(ref(newParent.getOid(), OrgType.COMPLEX_TYPE))
+                                .asItemDeltas(),
+                        result);
+            }
+            org.getParentOrgRef().clear();
+            org.parentOrgRef(newParent.getOid(), OrgType.COMPLEX_TYPE);
+
+            try (Split ignored = subtreeStopwatch.start()) {
+                assertThat(repositoryService.searchObjects(UserType.class,
+                        prismContext.queryFor(UserType.class)
+                                .isChildOf(parentOrgs.get(0).getOid())
+                                .build(),
+                        null, result)).isNotNull();
+            }
+            try (Split ignored = ancestorsStopwatch.start()) {
+                assertThat(repositoryService.searchObjects(OrgType.class,
+                        prismContext.queryFor(OrgType.class)
+                                .isParentOf(org.getOid())
+                                .build(),
+                        null, result))
+                        .extracting(o -> o.getOid())
+                        .contains(newParent.getOid());
+            }
+        }
+        assertThatOperationResult(result).isSuccess();
+    }
+
+    private void enableOrgClosureTable(boolean enable) {
+        try (JdbcSession jdbcSession = startTransaction()) {
+            jdbcSession.executeStatement("CALL m_enable_org_closure_table(" + enable + ")");
+            jdbcSession.commit();
+        }
+    }
+}
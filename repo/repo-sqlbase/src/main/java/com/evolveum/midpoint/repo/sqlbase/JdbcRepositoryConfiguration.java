@@ -43,6 +43,10 @@ public interface JdbcRepositoryConfiguration {
 
     String PROPERTY_ITERATIVE_SEARCH_BY_PAGING_BATCH_SIZE = "iterativeSearchByPagingBatchSize";
     String PROPERTY_CREATE_MISSING_CUSTOM_COLUMNS = "createMissingCustomColumns";
+    String PROPERTY_APPROXIMATE_COUNT_THRESHOLD = "approximateCountThreshold";
+
+    /** Row estimates below this value are not used for approximate counts, exact count is executed instead. */
+    int DEFAULT_APPROXIMATE_COUNT_THRESHOLD = 100_000;
 
     SupportedDatabase getDatabaseType();
     String getDataSource();
@@ -125,4 +129,13 @@ public interface JdbcRepositoryConfiguration {
     int getIterativeSearchByPagingBatchSize();
 
     boolean isCreateMissingCustomColumns();
+
+    /**
+     * Returns the minimal planner row estimate that is returned as an approximate count
+     * (see {@link com.evolveum.midpoint.schema.GetOperationOptions#isApproximateCount}).
+     * Smaller estimates are not used, the exact count is executed instead.
+     */
+    default int getApproximateCountThreshold() {
+        return DEFAULT_APPROXIMATE_COUNT_THRESHOLD;
+    }
 }
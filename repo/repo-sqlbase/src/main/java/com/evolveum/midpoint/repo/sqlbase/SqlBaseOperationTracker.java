@@ -16,6 +16,8 @@ public abstract class SqlBaseOperationTracker implements AutoCloseable {
 
     private static final String PARSE_PRIMARY = "primary.parse";
 
+    private static final String PARSE_MULTIPLE_PRIMARY_PARALLEL = "primary.parse.parallel";
+
     private static final String RESOLVE_NAMES = "primary.resolveNames";
 
     private static final String PARSE_JSON_TO_XNODE = "parse.json2xnode.";
@@ -81,6 +83,11 @@ public abstract class SqlBaseOperationTracker implements AutoCloseable {
         return createTracker(PARSE_PRIMARY);
     }
 
+    /** Parsing of multiple primary objects by parallel threads, tracked as a whole (in the calling thread). */
+    public static Tracker parseMultiplePrimariesParallel() {
+        return createTracker(PARSE_MULTIPLE_PRIMARY_PARALLEL);
+    }
+
     public static Tracker fetchChildren(String name) {
         return createTracker(FETCH_CHILDREN + name);
     }
@@ -8,11 +8,14 @@ package com.evolveum.midpoint.repo.sqlbase;
 
 import java.util.*;
 import java.util.function.BiFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import javax.xml.namespace.QName;
 
 import com.evolveum.midpoint.util.exception.TunnelException;
 
+import com.querydsl.core.QueryFlag;
 import com.querydsl.core.QueryMetadata;
 import com.querydsl.core.Tuple;
 import com.querydsl.core.types.Expression;
@@ -20,6 +23,7 @@ import com.querydsl.core.types.OrderSpecifier;
 import com.querydsl.core.types.Path;
 import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.dsl.ComparableExpressionBase;
+import com.querydsl.core.types.dsl.Expressions;
 import com.querydsl.sql.SQLQuery;
 import org.jetbrains.annotations.NotNull;
 
@@ -75,6 +79,8 @@ import com.evolveum.midpoint.util.exception.SchemaException;
 public abstract class SqlQueryContext<S, Q extends FlexibleRelationalPathBase<R>, R>
         implements FilterProcessor<ObjectFilter> {
 
+    private static final Pattern PLAN_ROWS_PATTERN = Pattern.compile("rows=(\\d+)");
+
     /**
      * Default page size if pagination is requested, that is offset is set, but maxSize is not.
      */
@@ -102,6 +108,12 @@ public abstract class SqlQueryContext<S, Q extends FlexibleRelationalPathBase<R>
 
     protected boolean notFilterUsed = false;
 
+    /**
+     * True if the query has no filter or just a simple predicate on a column of the main table.
+     * Only for such queries the planner estimate is good enough for approximate counts.
+     */
+    private boolean simpleFilter = true;
+
     // options stored to modify select clause and also to affect mapping
     protected Collection<SelectorOptions<GetOperationOptions>> options;
 
@@ -150,6 +162,7 @@ public abstract class SqlQueryContext<S, Q extends FlexibleRelationalPathBase<R>
      * That method is used in this one and {@link SQLQuery#where(Predicate)} is called.
      */
     public void processFilter(ObjectFilter filter) throws RepositoryException {
+        simpleFilter = isSimpleFilter(filter);
         if (filter != null) {
             Predicate predicate = process(filter);
             try {
@@ -161,6 +174,21 @@ public abstract class SqlQueryContext<S, Q extends FlexibleRelationalPathBase<R>
         }
     }
 
+    /**
+     * Returns true for no filter, "all" filter, or a value filter for a single item of the main entity
+     * (not a reference, these are stored in separate tables).
+     * Whether the item is really stored in a column of the main table is checked in {@link #executeCount}.
+     */
+    private boolean isSimpleFilter(ObjectFilter filter) {
+        if (filter == null || filter instanceof AllFilter) {
+            return true;
+        }
+        return filter instanceof ValueFilter<?, ?> valueFilter
+                && !(filter instanceof RefFilter)
+                && valueFilter.getRightHandSidePath() == null
+                && valueFilter.getFullPath().isSingleName();
+    }
+
     /**
      * Implements contract for {@link FilterProcessor} working as a top-level dispatcher
      * to concrete filter types.
@@ -407,12 +435,57 @@ public abstract class SqlQueryContext<S, Q extends FlexibleRelationalPathBase<R>
         return expressions.toArray(new Expression<?>[0]);
     }
 
+    /**
+     * Executes the count query.
+     *
+     * If {@link GetOperationOptions#isApproximateCount} option is used, the row estimate of the query planner
+     * is returned instead - but only if it is big enough (see {@link JdbcRepositoryConfiguration#getApproximateCountThreshold()}),
+     * otherwise the exact count is cheap enough and much more precise, so it is executed after all.
+     * The estimate is used only for queries without filter or with a simple column filter on the main table;
+     * estimates for other conditions (joins, subqueries, JSONB, etc.) can be off by orders of magnitude.
+     */
     public int executeCount(JdbcSession jdbcSession) {
+        if (GetOperationOptions.isApproximateCount(SelectorOptions.findRootOptions(options))
+                && isEstimateUsableForCount()) {
+            Long estimate = estimateCount(jdbcSession);
+            if (estimate != null
+                    && estimate >= sqlRepoContext.getJdbcRepositoryConfiguration().getApproximateCountThreshold()) {
+                return (int) Math.min(estimate, Integer.MAX_VALUE);
+            }
+        }
         return (int) sqlQuery.clone(jdbcSession.connection())
                 // select not needed here, it would only initialize projection unnecessarily
                 .fetchCount();
     }
 
+    private boolean isEstimateUsableForCount() {
+        QueryMetadata metadata = sqlQuery.getMetadata();
+        return simpleFilter
+                && !notFilterUsed
+                // only the main table, no joins (e.g. for ordering or owner conditions)
+                && metadata.getJoins().size() <= 1
+                && !metadata.isDistinct();
+    }
+
+    /**
+     * Returns the number of rows estimated by the query planner (from the top node of the plan), or null
+     * if it can't be determined.
+     */
+    private Long estimateCount(JdbcSession jdbcSession) {
+        List<String> plan = sqlQuery.clone(jdbcSession.connection())
+                // the value is not used, but something must be selected; plan rows are returned as text
+                .select(Expressions.stringTemplate("''"))
+                .addFlag(QueryFlag.Position.START, "EXPLAIN ")
+                .fetch();
+        if (!plan.isEmpty()) {
+            Matcher matcher = PLAN_ROWS_PATTERN.matcher(plan.get(0));
+            if (matcher.find()) {
+                return Long.parseLong(matcher.group(1));
+            }
+        }
+        return null;
+    }
+
     /**
      * Adds new LEFT JOIN to the query and returns {@link SqlQueryContext} for this join path.
      * The returned context still uses the same SQL query; any further filter processing will
@@ -65,7 +65,6 @@ public class SqlQueryExecutor {
         context.beforeQuery();
         PageOf<Tuple> result;
         try (JdbcSession jdbcSession = sqlRepoContext.newJdbcSession().startReadOnlyTransaction()) {
-            var opResult = SqlBaseOperationTracker.fetchMultiplePrimaries();
             try (var ignored = SqlBaseOperationTracker.fetchMultiplePrimaries()){
                 result = context.executeQuery(jdbcSession);
             }
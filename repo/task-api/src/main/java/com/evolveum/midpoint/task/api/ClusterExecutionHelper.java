@@ -64,6 +64,17 @@ public interface ClusterExecutionHelper {
      */
     void execute(@NotNull ClientCode code, ClusterExecutionOptions options, String context, OperationResult parentResult);
 
+    /**
+     * Executes operation on all cluster nodes except for the current one. Unlike
+     * {@link #execute(ClientCode, ClusterExecutionOptions, String, OperationResult)}, the nodes are contacted in parallel,
+     * so a slow node does not delay the others. Returns after the operation finished on all the nodes.
+     *
+     * Note that the client code gets its own operation result, not a child of the parent result; it is added to
+     * the parent only after the execution.
+     */
+    void executeInParallel(@NotNull ClientCode code, ClusterExecutionOptions options, String context,
+            OperationResult parentResult);
+
     /**
      * Extracts the result from the REST response.
      */
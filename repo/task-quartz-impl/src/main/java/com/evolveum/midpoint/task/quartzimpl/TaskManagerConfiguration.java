@@ -86,6 +86,9 @@ public class TaskManagerConfiguration {
 
     private static final String LOCAL_NODE_CLUSTERING_ENABLED_CONFIG_ENTRY = "localNodeClusteringEnabled";
 
+    /** Not used here; it is read by ClusterCacheListener in model-impl. */
+    private static final String CACHE_INVALIDATION_BATCH_INTERVAL_CONFIG_ENTRY = "cacheInvalidationBatchInterval";
+
     // The following are deprecated.
     private static final String WORK_ALLOCATION_MAX_RETRIES_ENTRY = "workAllocationMaxRetries";
     private static final String WORK_ALLOCATION_RETRY_INTERVAL_BASE_ENTRY = "workAllocationRetryIntervalBase";
@@ -257,6 +260,7 @@ public class TaskManagerConfiguration {
             RUN_NOW_KEEPS_ORIGINAL_SCHEDULE_CONFIG_ENTRY,
             SCHEDULER_INITIALLY_STOPPED_CONFIG_ENTRY,
             LOCAL_NODE_CLUSTERING_ENABLED_CONFIG_ENTRY,
+            CACHE_INVALIDATION_BATCH_INTERVAL_CONFIG_ENTRY,
             TASK_EXECUTION_LIMITATIONS_CONFIG_ENTRY,
             CHECK_FOR_TASK_CONCURRENT_EXECUTION_CONFIG_ENTRY,
             NODE_ALIVENESS_TIMEOUT_CONFIG_ENTRY,
@@ -39,10 +39,16 @@ import org.jetbrains.annotations.Nullable;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import jakarta.annotation.PreDestroy;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  *  Helps with the intra-cluster remote code execution.
@@ -63,6 +69,9 @@ public class ClusterExecutionHelperImpl implements ClusterExecutionHelper {
 
     private Map<String, WebClient> clients = new ConcurrentHashMap<>();
 
+    /** Threads for {@link #executeInParallel(ClientCode, ClusterExecutionOptions, String, OperationResult)}. Created on first use. */
+    private ExecutorService parallelExecutor;
+
     private static final String DOT_CLASS = ClusterExecutionHelperImpl.class.getName() + ".";
 
 
@@ -91,6 +100,75 @@ public class ClusterExecutionHelperImpl implements ClusterExecutionHelper {
         result.computeStatus();
     }
 
+    @Override
+    public void executeInParallel(@NotNull ClientCode code, ClusterExecutionOptions options, String context,
+            OperationResult parentResult) {
+        OperationResult result = parentResult.createSubresult(DOT_CLASS + "executeInParallel");
+        try {
+            if (!taskManager.isClustered()) {
+                LOGGER.trace("Node is not part of a cluster, skipping remote code execution");
+                result.recordStatus(OperationResultStatus.NOT_APPLICABLE, "Node not in cluster");
+                return;
+            }
+
+            var otherClusterNodes = searchOtherClusterNodes(context, result);
+            if (otherClusterNodes == null) {
+                return;
+            }
+
+            List<Future<OperationResult>> futures = new ArrayList<>(otherClusterNodes.size());
+            for (PrismObject<NodeType> node : otherClusterNodes) {
+                futures.add(getParallelExecutor().submit(() -> {
+                    // Operation results are not thread-safe, so each node gets its own one.
+                    OperationResult nodeResult = new OperationResult(DOT_CLASS + "executeInParallel.node");
+                    try {
+                        execute(node.asObjectable(), code, options, context, nodeResult);
+                    } catch (SchemaException | RuntimeException e) {
+                        LoggingUtils.logUnexpectedException(LOGGER, "Couldn't execute operation ({}) on node {}", e, context, node);
+                    }
+                    nodeResult.computeStatusIfUnknown();
+                    return nodeResult;
+                }));
+            }
+            for (Future<OperationResult> future : futures) {
+                try {
+                    result.addSubresult(future.get());
+                } catch (ExecutionException e) {
+                    LoggingUtils.logUnexpectedException(LOGGER, "Couldn't execute operation ({})", e.getCause(), context);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    result.recordWarning("Interrupted while waiting for the operation (" + context + ") to finish");
+                    return;
+                }
+            }
+        } catch (Throwable t) {
+            result.recordFatalError(t);
+            throw t;
+        } finally {
+            result.computeStatusIfUnknown();
+        }
+    }
+
+    private synchronized ExecutorService getParallelExecutor() {
+        if (parallelExecutor == null) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            parallelExecutor = Executors.newCachedThreadPool(r -> {
+                Thread thread = new Thread(r, "cluster-execution-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return parallelExecutor;
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (parallelExecutor != null) {
+            parallelExecutor.shutdownNow();
+            parallelExecutor = null;
+        }
+    }
+
     private SearchResultList<PrismObject<NodeType>> searchOtherClusterNodes(String context, OperationResult result) {
         try {
             String nodeId = taskManager.getNodeId();
@@ -179,8 +257,12 @@ public class ClusterExecutionHelperImpl implements ClusterExecutionHelper {
                 try {
                     WebClient client = getOrCreateClient(node, options, context);
                     if (client != null) {
-                        resetClientForUse(client, options, context);
-                        code.execute(client, node, result);
+                        // The client is shared by all threads talking to the node, see getOrCreateClient().
+                        //noinspection SynchronizationOnLocalVariableOrMethodParameter
+                        synchronized (client) {
+                            resetClientForUse(client, options, context);
+                            code.execute(client, node, result);
+                        }
                     } else {
                         result.recordStatus(OperationResultStatus.NOT_APPLICABLE, "Node " + nodeIdentifier +
                                 " couldn't be contacted. Maybe URL is not known?"); // todo better error reporting
@@ -45,6 +45,7 @@ import com.evolveum.midpoint.util.QNameUtil;
 import com.evolveum.midpoint.util.exception.ObjectNotFoundException;
 import com.evolveum.midpoint.util.exception.SchemaException;
 import com.evolveum.midpoint.xml.ns._public.common.api_types_3.ExecuteScriptResponseType;
+import com.evolveum.midpoint.xml.ns._public.common.api_types_3.SearchCursorType;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.*;
 import com.evolveum.midpoint.xml.ns._public.model.scripting_3.PipelineItemType;
 import com.evolveum.prism.xml.ns._public.query_3.QueryType;
@@ -637,6 +638,107 @@ public abstract class TestAbstractRestService extends RestServiceInitializer {
         getDummyAuditService().assertLoginLogout(SchemaConstants.CHANNEL_REST_URI);
     }
 
+    @Test
+    public void test210searchAllUsersStreaming() throws Exception {
+        WebClient client = prepareClient();
+        client.path("/users/search/stream");
+
+        when();
+        Response response = client.post(new QueryType());
+
+        then();
+        displayResponse(response);
+
+        assertStatus(response, 200);
+        String body = response.readEntity(String.class);
+        displayValue("body", body);
+        List<Object> records = parseStreamedRecords(body);
+        int users = repositoryService.countObjects(UserType.class, null, null, new OperationResult("count"));
+        assertEquals("Wrong number of streamed objects", users, records.size() - 1);
+        SearchCursorType cursor = (SearchCursorType) records.get(records.size() - 1);
+        assertEquals("Wrong next cursor", ((UserType) records.get(records.size() - 2)).getOid(), cursor.getNext());
+        assertTrue("Search is not complete", cursor.isComplete());
+
+        displayDumpable("Audit", getDummyAuditService());
+        getDummyAuditService().assertRecords(2);
+        getDummyAuditService().assertLoginLogout(SchemaConstants.CHANNEL_REST_URI);
+    }
+
+    /**
+     * Fetches the users after the administrator in chunks of single object, following the returned cursor.
+     * Checks that the objects come after the cursor, in the order of OIDs, and that they are the same in the repeated run.
+     */
+    @Test
+    public void test211searchUsersStreamingWithCursor() throws Exception {
+        given();
+        OperationResult result = new OperationResult("search");
+        int expected = (int) repositoryService.searchObjects(UserType.class, null, null, result).stream()
+                .filter(user -> user.getOid().compareTo(USER_ADMINISTRATOR_OID) > 0)
+                .count();
+        getDummyAuditService().clear();
+
+        when();
+        List<String> oids = fetchUsersStreamingInChunks(USER_ADMINISTRATOR_OID);
+
+        then();
+        assertEquals("Wrong number of streamed objects", expected, oids.size());
+        String previous = USER_ADMINISTRATOR_OID;
+        for (String oid : oids) {
+            assertTrue("OID " + oid + " is not after " + previous, oid.compareTo(previous) > 0);
+            previous = oid;
+        }
+
+        when("fetching again");
+        List<String> oidsAgain = fetchUsersStreamingInChunks(USER_ADMINISTRATOR_OID);
+
+        then("the order is the same");
+        assertEquals("Different objects or order in the repeated run", oids, oidsAgain);
+
+        displayDumpable("Audit", getDummyAuditService());
+        getDummyAuditService().assertRecords(2 * 2 * (expected + 1));
+    }
+
+    /** Returns OIDs of users returned by streaming search with `maxSize` of 1, following the cursor until complete. */
+    private List<String> fetchUsersStreamingInChunks(String start) throws SchemaException {
+        List<String> oids = new ArrayList<>();
+        String cursorValue = start;
+        for (;;) {
+            WebClient client = prepareClient();
+            client.path("/users/search/stream");
+            client.query("cursor", cursorValue);
+            client.query("maxSize", 1);
+            Response response = client.post(new QueryType());
+            assertStatus(response, 200);
+            String body = response.readEntity(String.class);
+            displayValue("body", body);
+
+            List<Object> records = parseStreamedRecords(body);
+            SearchCursorType cursor = (SearchCursorType) records.get(records.size() - 1);
+            for (Object object : records.subList(0, records.size() - 1)) {
+                oids.add(((UserType) object).getOid());
+            }
+            if (cursor.isComplete()) {
+                assertEquals("Objects returned in the complete chunk", 1, records.size());
+                assertEquals("Cursor moved in the complete chunk", cursorValue, cursor.getNext());
+                return oids;
+            }
+            assertEquals("Wrong number of objects in the chunk", 2, records.size());
+            assertEquals("Wrong next cursor", oids.get(oids.size() - 1), cursor.getNext());
+            cursorValue = cursor.getNext();
+        }
+    }
+
+    /** Parses the lines of the streaming search response: objects followed by the search cursor. */
+    private List<Object> parseStreamedRecords(String body) throws SchemaException {
+        List<Object> records = new ArrayList<>();
+        for (String line : body.lines().toList()) {
+            records.add(getPrismContext().parserFor(line).json().parseRealValue());
+        }
+        assertFalse("No records", records.isEmpty());
+        assertTrue("Last record is not the search cursor", records.get(records.size() - 1) instanceof SearchCursorType);
+        return records;
+    }
+
     @Test
     public void test401AddUserTemplateOverwrite() {
         WebClient client = prepareClient();
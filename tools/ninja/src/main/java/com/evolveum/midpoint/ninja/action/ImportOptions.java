@@ -28,6 +28,10 @@ public class ImportOptions extends BaseImportExportOptions implements BasicImpor
 
     public static final String P_CONTINUE_ON_INPUT_ERROR_LONG = "--continue-on-input-error";
 
+    public static final String P_BATCH_SIZE_LONG = "--batch-size";
+
+    public static final String P_PARSE_THREADS_LONG = "--parse-threads";
+
     @Parameter(names = { P_INPUT, P_INPUT_LONG }, descriptionKey = "import.input")
     private File input;
 
@@ -41,6 +45,12 @@ public class ImportOptions extends BaseImportExportOptions implements BasicImpor
     @Parameter(names = { P_CONTINUE_ON_INPUT_ERROR_LONG }, descriptionKey = "import.continueOnInputError")
     private boolean continueOnInputError;
 
+    @Parameter(names = { P_BATCH_SIZE_LONG }, descriptionKey = "import.batchSize")
+    private int batchSize = 1;
+
+    @Parameter(names = { P_PARSE_THREADS_LONG }, descriptionKey = "import.parseThreads")
+    private int parseThreads = 1;
+
     @Override
     public File getInput() {
         return input;
@@ -59,4 +69,12 @@ public class ImportOptions extends BaseImportExportOptions implements BasicImpor
         return continueOnInputError;
     }
 
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getParseThreads() {
+        return parseThreads;
+    }
+
 }
@@ -10,10 +10,12 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.*;
 
+import com.evolveum.midpoint.ninja.action.worker.ImportBatchStatistics;
 import com.evolveum.midpoint.ninja.action.worker.ImportProducerWorker;
 import com.evolveum.midpoint.ninja.action.worker.ImportRepositoryConsumerWorker;
 import com.evolveum.midpoint.ninja.action.worker.ProgressReporterWorker;
 import com.evolveum.midpoint.ninja.impl.LogTarget;
+import com.evolveum.midpoint.ninja.util.InputParameterException;
 import com.evolveum.midpoint.ninja.util.NinjaUtils;
 import com.evolveum.midpoint.ninja.util.OperationStatus;
 import com.evolveum.midpoint.prism.query.InOidFilter;
@@ -40,6 +42,12 @@ public class ImportRepositoryAction extends RepositoryAction<ImportOptions, Void
 
     @Override
     public Void execute() throws Exception {
+        if (options.getBatchSize() > 1 && options.isOverwrite()) {
+            // Batched adding of objects in the repository does not support overwriting.
+            throw new InputParameterException("Options " + ImportOptions.P_BATCH_SIZE_LONG + " and "
+                    + ImportOptions.P_OVERWRITE_LONG + " can't be used together");
+        }
+
         OperationResult result = new OperationResult(OPERATION_IMPORT);
         OperationStatus progress = new OperationStatus(context, result);
 
@@ -57,13 +65,17 @@ public class ImportRepositoryAction extends RepositoryAction<ImportOptions, Void
             producer = importByFilter(filter, false, queue, progress);
         }
 
+        producer.setParseThreads(options.getParseThreads());
+
+        ImportBatchStatistics batchStatistics = createBatchStatistics();
+
         executor.execute(producer);
 
         Thread.sleep(CONSUMERS_WAIT_FOR_START);
 
         executor.execute(new ProgressReporterWorker<>(context, options, queue, progress));
 
-        List<ImportRepositoryConsumerWorker> consumers = createConsumers(queue, progress);
+        List<ImportRepositoryConsumerWorker> consumers = createConsumers(queue, progress, batchStatistics);
         consumers.forEach(c -> executor.execute(c));
 
         executor.shutdown();
@@ -74,6 +86,13 @@ public class ImportRepositoryAction extends RepositoryAction<ImportOptions, Void
 
         handleResultOnFinish(null, progress, "Import finished");
 
+        if (batchStatistics != null) {
+            log.info("Added {} objects in {} batches ({} of them added one by one), repository time {} ms, "
+                            + "throughput {} objects/s per thread",
+                    batchStatistics.getObjects(), batchStatistics.getBatches(), batchStatistics.getFallbacks(),
+                    batchStatistics.getRepositoryTime(), NinjaUtils.DECIMAL_FORMAT.format(batchStatistics.getThroughput()));
+        }
+
         return null;
     }
 
@@ -91,12 +110,24 @@ public class ImportRepositoryAction extends RepositoryAction<ImportOptions, Void
         return new ImportProducerWorker<>(context, options, queue, status, filter, stopAfterFound, options.isContinueOnInputError());
     }
 
+    /** Returns statistics object if batched import is requested and possible, null otherwise. */
+    private ImportBatchStatistics createBatchStatistics() {
+        if (options.getBatchSize() <= 1) {
+            return null;
+        }
+        if (!context.getRepository().supportsAddObjects()) {
+            log.warn("Repository doesn't support batched import, objects will be imported one by one");
+            return null;
+        }
+        return new ImportBatchStatistics();
+    }
+
     private List<ImportRepositoryConsumerWorker> createConsumers(
-            BlockingQueue<ObjectType> queue, OperationStatus operation) {
+            BlockingQueue<ObjectType> queue, OperationStatus operation, ImportBatchStatistics batchStatistics) {
         List<ImportRepositoryConsumerWorker> consumers = new ArrayList<>();
 
         for (int i = 0; i < options.getMultiThread(); i++) {
-            consumers.add(new ImportRepositoryConsumerWorker(context, options, queue, operation, consumers));
+            consumers.add(new ImportRepositoryConsumerWorker(context, options, queue, operation, consumers, batchStatistics));
         }
 
         return consumers;
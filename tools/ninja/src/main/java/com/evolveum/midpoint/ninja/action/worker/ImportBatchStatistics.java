@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2010-2024 Evolveum and contributors
+ *
+ * This work is dual-licensed under the Apache License 2.0
+ * and European Union Public License. See LICENSE file for details.
+ */
+package com.evolveum.midpoint.ninja.action.worker;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Statistics of batched import, shared by all consumers.
+ */
+public class ImportBatchStatistics {
+
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+    private final LongAdder objects = new LongAdder();
+    private final LongAdder repositoryTime = new LongAdder();
+
+    /** Records a batch of given size that took given time (in millis), whether it was added at once or not. */
+    void recordBatch(int size, long millis, boolean fallback) {
+        batches.increment();
+        objects.add(size);
+        repositoryTime.add(millis);
+        if (fallback) {
+            fallbacks.increment();
+        }
+    }
+
+    public long getBatches() {
+        return batches.sum();
+    }
+
+    public long getFallbacks() {
+        return fallbacks.sum();
+    }
+
+    public long getObjects() {
+        return objects.sum();
+    }
+
+    public long getRepositoryTime() {
+        return repositoryTime.sum();
+    }
+
+    /**
+     * Average number of objects added per second by a single consumer thread: all added objects divided
+     * by the repository time summed over all consumer threads. The overall throughput is higher with more consumers.
+     */
+    public double getThroughput() {
+        long time = getRepositoryTime();
+        return time > 0 ? getObjects() * 1000.0 / time : 0;
+    }
+}
@@ -8,14 +8,17 @@ package com.evolveum.midpoint.ninja.action.worker;
 
 import java.io.*;
 import java.nio.charset.Charset;
+import java.util.ArrayDeque;
 import java.util.Collection;
-import java.util.concurrent.BlockingQueue;
+import java.util.Deque;
+import java.util.concurrent.*;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.input.ReaderInputStream;
 import org.apache.commons.lang3.StringUtils;
+import org.jetbrains.annotations.NotNull;
 import org.springframework.context.ApplicationContext;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
@@ -27,8 +30,10 @@ import com.evolveum.midpoint.ninja.action.BasicImportOptions;
 import com.evolveum.midpoint.ninja.impl.Log;
 import com.evolveum.midpoint.ninja.impl.NinjaContext;
 import com.evolveum.midpoint.ninja.impl.NinjaException;
+import com.evolveum.midpoint.ninja.util.NinjaUtils;
 import com.evolveum.midpoint.ninja.util.OperationStatus;
 import com.evolveum.midpoint.prism.Containerable;
+import com.evolveum.midpoint.prism.Objectable;
 import com.evolveum.midpoint.prism.PrismContext;
 import com.evolveum.midpoint.prism.match.MatchingRuleRegistry;
 import com.evolveum.midpoint.prism.query.ObjectFilter;
@@ -46,9 +51,15 @@ public class ImportProducerWorker<T extends Containerable>
     private final boolean stopAfterFound;
     private final boolean continueOnInputError;
 
-    private String currentOid = null;
+    private static final String OPERATION_PARSE = ImportProducerWorker.class.getName() + ".parse";
+
+    private static final int ELEMENTS_PER_PARSE_THREAD = 10;
+
+    /** OID of the object being processed, for error messages; thread-local because of parallel parsing. */
+    private final ThreadLocal<String> currentOid = new ThreadLocal<>();
     private boolean convertMissingType = false;
     private boolean compatMode = false;
+    private int parseThreads = 1;
 
     public ImportProducerWorker(
             NinjaContext context, BasicImportOptions options, BlockingQueue<T> queue,
@@ -145,11 +156,41 @@ public class ImportProducerWorker<T extends Containerable>
         PrismContext prismContext = appContext.getBean(PrismContext.class);
         MatchingRuleRegistry matchingRuleRegistry = appContext.getBean(MatchingRuleRegistry.class);
 
-        EventHandler<T> handler = new EventHandler<>() {
+        EventHandler<T> handler = createObjectHandler(matchingRuleRegistry);
+
+        ParallelParsing parallelParsing = parseThreads > 1 ? new ParallelParsing(prismContext, handler) : null;
+
+        // FIXME: MID-5151: If validateSchema is false we are not validating unknown attributes on import
+        LegacyValidator<?> validator = createValidator(
+                prismContext, parallelParsing != null ? parallelParsing.createDispatchingHandler() : handler);
+        OperationResult result = operation.getResult();
+
+        Charset charset = context.getCharset();
+        Reader reader = new InputStreamReader(input, charset);
+        try {
+            validator.validate(new ReaderInputStream(reader, charset), result, result.getOperation());
+        } finally {
+            if (parallelParsing != null) {
+                parallelParsing.finish();
+            }
+        }
+    }
+
+    private <V extends Containerable> LegacyValidator<V> createValidator(PrismContext prismContext, EventHandler<V> handler) {
+        LegacyValidator<V> validator = new LegacyValidator<>(prismContext, handler);
+        validator.setValidateSchema(false);
+        validator.setCompatMode(compatMode);
+        validator.setConvertMissingType(isConvertMissingType());
+        return validator;
+    }
+
+    /** Handler that processes parsed objects: filters them and puts them into the queue. */
+    private EventHandler<T> createObjectHandler(MatchingRuleRegistry matchingRuleRegistry) {
+        return new EventHandler<>() {
             @Override
             public EventResult preMarshall(Element objectElement, Node postValidationTree,
                     OperationResult objectResult) {
-                currentOid = objectElement.getAttribute("oid");
+                currentOid.set(objectElement.getAttribute("oid"));
                 return EventResult.cont();
             }
 
@@ -181,7 +222,7 @@ public class ImportProducerWorker<T extends Containerable>
                 } catch (Exception ex) {
                     throw new NinjaException(getErrorMessage() + ", reason: " + ex.getMessage(), ex);
                 }
-                currentOid = null;
+                currentOid.remove();
                 return stopAfterFound ? EventResult.skipObject() : EventResult.cont();
             }
 
@@ -204,17 +245,174 @@ public class ImportProducerWorker<T extends Containerable>
                 }
             }
         };
+    }
 
-        // FIXME: MID-5151: If validateSchema is false we are not validating unknown attributes on import
-        LegacyValidator<?> validator = new LegacyValidator<>(prismContext, handler);
-        validator.setValidateSchema(false);
-        validator.setCompatMode(compatMode);
-        validator.setConvertMissingType(isConvertMissingType());
-        OperationResult result = operation.getResult();
+    /**
+     * Parsing of objects by multiple threads. The input stream is still read (and split into DOM elements
+     * for individual objects) by the producer thread; the elements are then parsed into objects by parser threads,
+     * each with its own {@link LegacyValidator}. Parsed objects are handed over to the object handler (filtering
+     * and putting into the queue) by the producer thread, in the order of the input, so the order of objects
+     * in the queue is the same as with the sequential parsing.
+     */
+    private class ParallelParsing {
 
-        Charset charset = context.getCharset();
-        Reader reader = new InputStreamReader(input, charset);
-        validator.validate(new ReaderInputStream(reader, charset), result, result.getOperation());
+        private final ExecutorService parsers;
+
+        /** Objects being parsed, in the input order. Accessed only by the producer thread. */
+        private final Deque<Future<T>> pending = new ArrayDeque<>();
+
+        /** Limits the number of elements waiting for parsing, so the reader does not get too far ahead. */
+        private final int maxPending;
+
+        @NotNull private final EventHandler<T> objectHandler;
+
+        private final ThreadLocal<LegacyValidator<T>> validators;
+
+        /** Object parsed by the current parser thread; set by {@link #createParsingHandler()}. */
+        private final ThreadLocal<T> parsedObject = new ThreadLocal<>();
+
+        private ParallelParsing(PrismContext prismContext, @NotNull EventHandler<T> objectHandler) {
+            this.parsers = Executors.newFixedThreadPool(parseThreads);
+            this.maxPending = parseThreads * ELEMENTS_PER_PARSE_THREAD;
+            this.objectHandler = objectHandler;
+            this.validators = ThreadLocal.withInitial(() -> createValidator(prismContext, createParsingHandler()));
+        }
+
+        /** Handler for the reading validator: hands the elements over to parser threads instead of parsing them. */
+        private EventHandler<Containerable> createDispatchingHandler() {
+            return new EventHandler<>() {
+                @Override
+                public EventResult preMarshall(Element objectElement, Node postValidationTree,
+                        OperationResult objectResult) {
+                    if (operation.isFinished()) {
+                        return EventResult.stop("Operation already finished");
+                    }
+                    pending.add(parsers.submit(() -> parse(objectElement)));
+                    objectResult.recordSuccess();
+                    if (!handOverParsedObjects(maxPending)) {
+                        return EventResult.stop("Operation already finished");
+                    }
+                    // The object will be parsed by the parser thread and handed over later.
+                    return EventResult.skipObject();
+                }
+
+                @Override
+                public EventResult postMarshall(
+                        Containerable object, Element objectElement, OperationResult objectResult) {
+                    throw new IllegalStateException("Objects should be parsed by parser threads");
+                }
+
+                @Override
+                public void handleGlobalError(OperationResult currentResult, Exception cause) {
+                    // Errors when reading the stream itself (not parsing the objects).
+                    operation.incrementError();
+                    context.getLog().error("Couldn't read input, reason: {}", cause, cause.getMessage());
+                    if (!continueOnInputError) {
+                        operation.finish();
+                        throw new NinjaException("Couldn't read input, reason: " + cause.getMessage(), cause);
+                    }
+                }
+            };
+        }
+
+        /**
+         * Handler for the parsing validators: only remembers the parsed object. Errors are reported
+         * by the object handler right away, as they are not bound to the order of objects.
+         */
+        private EventHandler<T> createParsingHandler() {
+            return new EventHandler<>() {
+                @Override
+                public EventResult preMarshall(Element objectElement, Node postValidationTree,
+                        OperationResult objectResult) {
+                    return objectHandler.preMarshall(objectElement, postValidationTree, objectResult);
+                }
+
+                @Override
+                public EventResult postMarshall(T object, Element objectElement, OperationResult objectResult) {
+                    parsedObject.set(object);
+                    return EventResult.cont();
+                }
+
+                @Override
+                public void handleGlobalError(OperationResult currentResult, Exception cause) {
+                    objectHandler.handleGlobalError(currentResult, cause);
+                }
+            };
+        }
+
+        /** Returns the parsed object, or null if the object could not be parsed (the error was already reported). */
+        private T parse(Element objectElement) {
+            try {
+                if (!operation.isFinished()) {
+                    validators.get().validateObject(objectElement, new OperationResult(OPERATION_PARSE));
+                }
+                return parsedObject.get();
+            } catch (NinjaException ex) {
+                // already reported by the object handler
+                return null;
+            } catch (RuntimeException ex) {
+                context.getLog().error("Unexpected error occurred while parsing object", ex);
+                return null;
+            } finally {
+                parsedObject.remove();
+                currentOid.remove();
+            }
+        }
+
+        /**
+         * Hands over parsed objects to the object handler, in the input order: all the objects that are already parsed,
+         * and then waits for the others until at most `maxWaiting` objects remain pending.
+         *
+         * @return false if the processing should stop
+         */
+        private boolean handOverParsedObjects(int maxWaiting) {
+            while (!pending.isEmpty() && (pending.peek().isDone() || pending.size() > maxWaiting)) {
+                T object = waitFor(pending.remove());
+                if (object == null) {
+                    continue;
+                }
+                if (operation.isFinished()) {
+                    return false;
+                }
+                // Object element is not needed by the object handler, the object itself has the OID.
+                currentOid.set(object instanceof Objectable objectable ? objectable.getOid() : null);
+                EventResult result = objectHandler.postMarshall(object, null, new OperationResult(OPERATION_PARSE));
+                if (result.isStop()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private T waitFor(Future<T> future) {
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                operation.finish();
+                throw new NinjaException("Interrupted while waiting for parser threads", e);
+            } catch (ExecutionException e) {
+                // parse() catches all the runtime exceptions
+                throw new NinjaException("Unexpected error occurred while parsing object", e.getCause());
+            }
+        }
+
+        private void finish() {
+            try {
+                handOverParsedObjects(0);
+            } finally {
+                pending.forEach(f -> f.cancel(false));
+                pending.clear();
+                parsers.shutdown();
+                try {
+                    if (!parsers.awaitTermination(NinjaUtils.WAIT_FOR_EXECUTOR_FINISH, TimeUnit.DAYS)) {
+                        context.getLog().error("Parser threads did not finish before timeout");
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
     }
 
     private boolean matchSelectedType(Class<?> clazz) {
@@ -232,8 +430,9 @@ public class ImportProducerWorker<T extends Containerable>
     }
 
     private String getErrorMessage() {
-        if (currentOid != null && !currentOid.isBlank()) {
-            return "Couldn't import object with oid '" + currentOid + "'";
+        String oid = currentOid.get();
+        if (oid != null && !oid.isBlank()) {
+            return "Couldn't import object with oid '" + oid + "'";
         } else {
             return "Couldn't import object";
         }
@@ -250,4 +449,9 @@ public class ImportProducerWorker<T extends Containerable>
     public void setCompatMode(boolean mode) {
         this.compatMode = mode;
     }
+
+    /** Number of threads parsing the objects; the order of objects in the queue is preserved in any case. */
+    public void setParseThreads(int parseThreads) {
+        this.parseThreads = parseThreads;
+    }
 }
@@ -6,6 +6,7 @@
  */
 package com.evolveum.midpoint.ninja.action.worker;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
@@ -30,10 +31,24 @@ import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectType;
  */
 public class ImportRepositoryConsumerWorker extends BaseWorker<ImportOptions, ObjectType> {
 
+    private final ImportBatchStatistics batchStatistics;
+
     public ImportRepositoryConsumerWorker(
             NinjaContext context, ImportOptions options, BlockingQueue<ObjectType> queue,
             OperationStatus operation, List<ImportRepositoryConsumerWorker> consumers) {
+        this(context, options, queue, operation, consumers, null);
+    }
+
+    /**
+     * If batch statistics are provided, objects are added in batches (see {@link ImportOptions#getBatchSize()}).
+     * The caller is responsible for checking that the repository supports it.
+     */
+    public ImportRepositoryConsumerWorker(
+            NinjaContext context, ImportOptions options, BlockingQueue<ObjectType> queue,
+            OperationStatus operation, List<ImportRepositoryConsumerWorker> consumers,
+            ImportBatchStatistics batchStatistics) {
         super(context, options, queue, operation, consumers);
+        this.batchStatistics = batchStatistics;
     }
 
     @Override
@@ -41,12 +56,15 @@ public class ImportRepositoryConsumerWorker extends BaseWorker<ImportOptions, Ob
         ApplicationContext ctx = context.getApplicationContext();
         Protector protector = ctx.getBean(Protector.class);
 
+        List<PrismObject<? extends ObjectType>> batch = new ArrayList<>();
         try {
             while (!shouldConsumerStop()) {
                 ObjectType object = null;
                 try {
                     object = queue.poll(CONSUMER_POLL_TIMEOUT, TimeUnit.SECONDS);
                     if (object == null) {
+                        // Nothing more is coming right now, let's not keep the objects waiting.
+                        addBatch(batch);
                         continue;
                     }
                     PrismObject<? extends ObjectType> prismObject = object.asPrismObject();
@@ -67,6 +85,14 @@ public class ImportRepositoryConsumerWorker extends BaseWorker<ImportOptions, Ob
                         continue;
                     }
 
+                    if (batchStatistics != null) {
+                        batch.add(prismObject);
+                        if (batch.size() >= options.getBatchSize()) {
+                            addBatch(batch);
+                        }
+                        continue;
+                    }
+
                     repository.addObject(prismObject, opts, new OperationResult("Import object"));
 
                     operation.incrementTotal();
@@ -75,6 +101,7 @@ public class ImportRepositoryConsumerWorker extends BaseWorker<ImportOptions, Ob
                     operation.incrementError();
                 }
             }
+            addBatch(batch);
         } catch (Exception ex) {
             operation.finish();
 
@@ -88,6 +115,43 @@ public class ImportRepositoryConsumerWorker extends BaseWorker<ImportOptions, Ob
         }
     }
 
+    /**
+     * Adds the objects in one repository call. If that fails (e.g. one of the objects already exists),
+     * nothing is added, so we add the objects one by one to find out which ones are the problem.
+     * The batch is cleared afterwards.
+     */
+    private void addBatch(List<PrismObject<? extends ObjectType>> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        RepositoryService repository = context.getRepository();
+        RepoAddOptions opts = createRepoAddOptions(options);
+
+        long start = System.currentTimeMillis();
+        boolean fallback = false;
+        try {
+            repository.addObjects(batch, opts, new OperationResult("Import objects"));
+            batch.forEach(o -> operation.incrementTotal());
+        } catch (Exception ex) {
+            context.getLog().debug("Couldn't add batch of {} objects, adding them one by one, reason: {}",
+                    batch.size(), ex.getMessage());
+            fallback = true;
+            for (PrismObject<? extends ObjectType> prismObject : batch) {
+                try {
+                    repository.addObject(prismObject, opts, new OperationResult("Import object"));
+                    operation.incrementTotal();
+                } catch (Exception e) {
+                    context.getLog().error("Couldn't add object {}, reason: {}", e, prismObject, e.getMessage());
+                    operation.incrementError();
+                }
+            }
+        } finally {
+            batchStatistics.recordBatch(batch.size(), System.currentTimeMillis() - start, fallback);
+            batch.clear();
+        }
+    }
+
     private RepoAddOptions createRepoAddOptions(ImportOptions options) {
         RepoAddOptions opts = new RepoAddOptions();
         opts.setOverwrite(options.isOverwrite());
@@ -7,6 +7,10 @@
 package com.evolveum.midpoint.ninja;
 
 import java.io.File;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 
 import org.assertj.core.api.Assertions;
 import org.springframework.test.annotation.DirtiesContext;
@@ -16,12 +20,23 @@ import org.testng.annotations.BeforeClass;
 import org.testng.annotations.Listeners;
 import org.testng.annotations.Test;
 
+import com.evolveum.midpoint.ninja.action.BaseOptions;
+import com.evolveum.midpoint.ninja.action.BasicImportOptions;
+import com.evolveum.midpoint.ninja.action.ConnectionOptions;
+import com.evolveum.midpoint.ninja.action.worker.ImportProducerWorker;
+import com.evolveum.midpoint.ninja.impl.LogTarget;
+import com.evolveum.midpoint.ninja.impl.NinjaApplicationContextLevel;
+import com.evolveum.midpoint.ninja.impl.NinjaContext;
+import com.evolveum.midpoint.ninja.util.OperationStatus;
 import com.evolveum.midpoint.prism.PrismObject;
 import com.evolveum.midpoint.schema.RepositoryDiag;
+import com.evolveum.midpoint.schema.constants.ObjectTypes;
 import com.evolveum.midpoint.schema.result.OperationResult;
 import com.evolveum.midpoint.util.exception.ObjectNotFoundException;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.ObjectType;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.OrgType;
 import com.evolveum.midpoint.xml.ns._public.common.common_3.RoleType;
+import com.evolveum.midpoint.xml.ns._public.common.common_3.UserType;
 
 /**
  * Created by Viliam Repan (lazyman).
@@ -168,4 +183,112 @@ public class ImportRepositoryTest extends NinjaSpringTest {
         role = repository.getObject(RoleType.class, ROLE_2_OID, null, result);
         Assertions.assertThat(role).isNotNull();
     }
+
+    /**
+     * Two orgs are already in the repository (from previous tests), so the batches containing them
+     * must be added object by object; the rest should be imported normally.
+     */
+    @Test
+    public void test150ImportInBatches() throws Exception {
+        given();
+
+        OperationResult result = new OperationResult("test150ImportInBatches");
+
+        int orgCount = repository.countObjects(OrgType.class, null, null, result);
+        Assertions.assertThat(orgCount).isEqualTo(2);
+        int userCount = repository.countObjects(UserType.class, null, null, result);
+
+        when();
+
+        executeTest(null, null,
+                "-m", getMidpointHome(), "import", "-i", PATH_MONKEY_ISLAND_SIMPLE_ZIP, "-z",
+                "--batch-size", "4", "--parse-threads", "2");
+
+        then();
+
+        orgCount = repository.countObjects(OrgType.class, null, null, result);
+        Assertions.assertThat(orgCount).isEqualTo(9);
+        Assertions.assertThat(repository.countObjects(UserType.class, null, null, result))
+                .isEqualTo(userCount + 8);
+    }
+
+    @Test
+    public void test160ParallelParsingKeepsInputOrder() throws Exception {
+        given();
+
+        File input = new File("./src/test/resources/org-monkey-island-simple.xml");
+
+        when();
+
+        List<String> sequential = parseObjectOids(input, 1);
+        List<String> parallel = parseObjectOids(input, 4);
+
+        then();
+
+        Assertions.assertThat(sequential).hasSize(17);
+        Assertions.assertThat(parallel).containsExactlyElementsOf(sequential);
+    }
+
+    @Test
+    public void test170BatchesCantBeUsedWithOverwrite() throws Exception {
+        given();
+
+        OperationResult result = new OperationResult("test170BatchesCantBeUsedWithOverwrite");
+        int orgCount = repository.countObjects(OrgType.class, null, null, result);
+
+        when();
+
+        executeTest(
+                null,
+                list -> Assertions.assertThat(list)
+                        .anyMatch(line -> line.contains("--batch-size and --overwrite can't be used together")),
+                "-m", getMidpointHome(), "import", "-i", PATH_MONKEY_ISLAND_SIMPLE_ZIP, "-z", "-O",
+                "--batch-size", "4");
+
+        then();
+
+        Assertions.assertThat(repository.countObjects(OrgType.class, null, null, result)).isEqualTo(orgCount);
+    }
+
+    /** Runs the import producer alone and returns OIDs of the objects it put into the queue, in the queue order. */
+    private List<String> parseObjectOids(File input, int parseThreads) throws Exception {
+        BaseOptions baseOptions = new BaseOptions();
+        ConnectionOptions connectionOptions = new ConnectionOptions();
+        connectionOptions.setMidpointHome(getMidpointHome());
+        BasicImportOptions importOptions = new BasicImportOptions() {
+            @Override
+            public File getInput() {
+                return input;
+            }
+
+            @Override
+            public boolean isOverwrite() {
+                return false;
+            }
+
+            @Override
+            public boolean isZip() {
+                return false;
+            }
+
+            @Override
+            public Set<ObjectTypes> getType() {
+                return Set.of();
+            }
+        };
+
+        try (NinjaContext context = new NinjaContext(System.out, System.err,
+                List.of(baseOptions, connectionOptions), NinjaApplicationContextLevel.NO_REPOSITORY)) {
+            context.initializeLogging(LogTarget.SYSTEM_OUT);
+
+            BlockingQueue<ObjectType> queue = new LinkedBlockingQueue<>();
+            OperationStatus operation = new OperationStatus(context, new OperationResult("parseObjectOids"));
+            ImportProducerWorker<ObjectType> producer =
+                    new ImportProducerWorker<>(context, importOptions, queue, operation, null, false, false);
+            producer.setParseThreads(parseThreads);
+            producer.run();
+
+            return queue.stream().map(ObjectType::getOid).toList();
+        }
+    }
 }